@@ -0,0 +1,99 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.InvoicesBackendApplication;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.LineItem;
+import com.example.invoicesbackend.model.Payment;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Starts the application without a web server against a fresh in-memory database,
+ * with SQL logging turned off so it does not dominate the measurements.
+ */
+final class BenchmarkApplication {
+
+    private BenchmarkApplication() {
+    }
+
+    static ConfigurableApplicationContext start(Map<String, Object> overrides) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.main.web-application-type", "none");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("spring.datasource.url", "jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        properties.put("spring.jpa.show-sql", "false");
+        properties.put("spring.h2.console.enabled", "false");
+        properties.put("logging.level.root", "WARN");
+        properties.put("logging.level.org.hibernate.SQL", "WARN");
+        properties.put("logging.level.org.hibernate.type.descriptor.sql.BasicBinder", "WARN");
+        properties.putAll(overrides);
+
+        // Passed as command line arguments so they take precedence over application.properties
+        String[] args = properties.entrySet().stream()
+                .map(entry -> "--" + entry.getKey() + "=" + entry.getValue())
+                .toArray(String[]::new);
+        return SpringApplication.run(InvoicesBackendApplication.class, args);
+    }
+
+    static InvoiceRequestDto invoiceRequest(String invoiceNumber, int lineItems) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName("Benchmark Customer");
+        request.setInvoiceDate(LocalDate.now());
+        for (int i = 0; i < lineItems; i++) {
+            request.getLineItems().add(new LineItemRequestDto("Item " + i, new BigDecimal("12.34"), 1 + i % 5));
+        }
+        return request;
+    }
+
+    /**
+     * Builds a detached, fully paid invoice as the read path would load it: line items with their totals and two payments.
+     */
+    static Invoice paidInvoice(long id, int lineItems) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setInvoiceNumber("BENCH-" + id);
+        invoice.setCustomerName("Benchmark Customer");
+        invoice.setInvoiceDate(LocalDate.now());
+        invoice.setDescription("Benchmark invoice");
+        for (int i = 0; i < lineItems; i++) {
+            LineItem lineItem = new LineItem();
+            lineItem.setId((long) i);
+            lineItem.setDescription("Item " + i);
+            lineItem.setPrice(new BigDecimal("12.34"));
+            lineItem.setQuantity(1 + i % 5);
+            lineItem.calculateTotalAmount();
+            invoice.addLineItem(lineItem);
+        }
+        invoice.calculateAmount();
+        invoice.setDebtAmount(BigDecimal.ZERO);
+        invoice.setStatus(Invoice.InvoiceStatus.PAID);
+
+        BigDecimal half = invoice.getAmount().divide(BigDecimal.valueOf(2), 2, RoundingMode.DOWN);
+        List<Payment> payments = new ArrayList<>();
+        payments.add(payment(2 * id, half));
+        payments.add(payment(2 * id + 1, invoice.getAmount().subtract(half)));
+        invoice.setPayment(payments);
+        return invoice;
+    }
+
+    private static Payment payment(long id, BigDecimal amount) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setPaymentDate(LocalDate.now());
+        payment.setAmount(amount);
+        payment.setPaymentMethod("Card");
+        return payment;
+    }
+}
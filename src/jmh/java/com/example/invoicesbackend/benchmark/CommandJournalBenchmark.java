@@ -0,0 +1,166 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommand;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The command journal on its own, with handlers that only journal their commands: appending invoice creations from four threads with
+ * every command forced to disk and with forces batched every 10ms, and replaying a journal of many creations as
+ * startup does. Replay through the real handlers is bounded by the database instead.
+ */
+@Fork(1)
+public class CommandJournalBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Appending {
+
+        @Param({"0", "10"})
+        public int fsyncIntervalMillis;
+
+        private Path directory;
+        private CommandJournal journal;
+        private CommandHandler<CreateInvoiceCommand, InvoiceResponseDto> handler;
+        private final AtomicLong sequence = new AtomicLong();
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("command-journal");
+            journal = journal(directory, Duration.ofMillis(fsyncIntervalMillis));
+            handler = journal.journaled(CreateInvoiceCommand.class, command -> {
+                journal.append(command);
+                return null;
+            });
+            journal.start();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            journal.stop();
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Replaying {
+
+        @Param({"100000", "1000000"})
+        public int commands;
+
+        private Path directory;
+        private List<Path> written;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            directory = Files.createTempDirectory("command-journal");
+            // A single writer would wait out every flush interval
+            CommandJournal journal = journal(directory, Duration.ZERO);
+            CommandHandler<CreateInvoiceCommand, InvoiceResponseDto> handler = journal.journaled(CreateInvoiceCommand.class, command -> {
+                journal.append(command);
+                return null;
+            });
+            journal.start();
+            for (int i = 0; i < commands; i++) {
+                handler.handle(command(i));
+            }
+            journal.stop();
+            written = segments(directory);
+            System.out.println("Journal of " + commands + " commands: " + written.size() + " segments");
+        }
+
+        // Replay opens a new segment after the ones it read
+        @TearDown(Level.Invocation)
+        public void deleteOpenedSegments() throws IOException {
+            for (Path segment : segments(directory)) {
+                if (!written.contains(segment)) {
+                    Files.delete(segment);
+                }
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            FileSystemUtils.deleteRecursively(directory);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 3)
+    @Threads(4)
+    public InvoiceResponseDto append(Appending state) {
+        return state.handler.handle(command(state.sequence.incrementAndGet()));
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    public long replay(Replaying state) {
+        AtomicLong replayed = new AtomicLong();
+        CommandJournal journal = journal(state.directory, Duration.ofSeconds(1));
+        journal.journaled(CreateInvoiceCommand.class, command -> {
+            replayed.incrementAndGet();
+            return null;
+        });
+        journal.replayFrom(0);
+        journal.start();
+        journal.stop();
+        return replayed.get();
+    }
+
+    private static CommandJournal journal(Path directory, Duration fsyncInterval) {
+        return new CommandJournal(new SimpleMeterRegistry(), true, directory.toString(), DataSize.ofMegabytes(64), fsyncInterval, false);
+    }
+
+    private static CreateInvoiceCommand command(long i) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber("JOURNAL-" + i);
+        request.setCustomerName("Customer " + i % 1000);
+        request.setInvoiceDate(LocalDate.of(2024, 1, 1));
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("25.00"), 2));
+        request.getLineItems().add(new LineItemRequestDto("Other item", new BigDecimal("12.50"), 4));
+        return new CreateInvoiceCommand(request, null);
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+}
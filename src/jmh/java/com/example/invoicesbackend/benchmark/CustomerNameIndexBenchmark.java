@@ -0,0 +1,69 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.cqrs.query.invoice.CustomerNameIndex;
+import com.example.invoicesbackend.model.CustomerTotals;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency distribution of customer name autocomplete lookups against an index of many distinct customers,
+ * with several threads typing at once. Sample mode reports the p99 the endpoint is expected to keep under 1ms.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(4)
+public class CustomerNameIndexBenchmark {
+
+    private static final String[] PREFIXES = {"c", "cu", "customer 1", "customer 12", "customer 123", "customer 9999"};
+
+    @Param({"10000", "100000"})
+    public int customers;
+
+    private ConfigurableApplicationContext context;
+    private CustomerNameIndex customerNameIndex;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Collections.emptyMap());
+        context.getBean(JdbcTemplate.class).update(
+                "INSERT INTO invoices (invoice_number, customer_name, invoice_date, amount, debt_amount, status) " +
+                "SELECT 'AUTO-' || X, 'Customer ' || X, CAST(? AS DATE), 100, 100, 'PENDING' FROM SYSTEM_RANGE(1, ?)",
+                LocalDate.now(), customers);
+        customerNameIndex = context.getBean(CustomerNameIndex.class);
+        customerNameIndex.load();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public List<CustomerTotals> findByPrefix() {
+        return customerNameIndex.findByPrefix(PREFIXES[ThreadLocalRandom.current().nextInt(PREFIXES.length)], 10);
+    }
+}
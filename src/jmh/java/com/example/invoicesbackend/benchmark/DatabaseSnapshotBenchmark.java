@@ -0,0 +1,91 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.repository.DatabaseSnapshotRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writing a snapshot of a database holding many invoices with two line items each, and restoring it into an empty
+ * database as startup does before Flyway runs. The restore time is most of the time to restart the application.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class DatabaseSnapshotBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int invoices;
+
+    private ConfigurableApplicationContext context;
+    private DatabaseSnapshotRepository databaseSnapshotRepository;
+    private Path snapshot;
+    private SingleConnectionDataSource emptyDatabase;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        context = BenchmarkApplication.start(Collections.emptyMap());
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update(
+                "INSERT INTO invoices (invoice_number, customer_name, invoice_date, amount, debt_amount, status) " +
+                "SELECT 'SNAP-' || X, 'Customer ' || MOD(X, 1000), CAST(? AS DATE), 100, 100, 'PENDING' " +
+                "FROM SYSTEM_RANGE(1, ?)",
+                LocalDate.now(), invoices);
+        jdbcTemplate.update("INSERT INTO line_items (description, price, quantity, total_amount, invoice_id) " +
+                "SELECT 'Item', 25, 2, 50, id FROM invoices CROSS JOIN SYSTEM_RANGE(1, 2)");
+        databaseSnapshotRepository = context.getBean(DatabaseSnapshotRepository.class);
+        snapshot = Files.createTempFile("invoices-snapshot", ".sql.gz");
+        databaseSnapshotRepository.write(snapshot);
+        System.out.println("Snapshot of " + invoices + " invoices: " + Files.size(snapshot) + " bytes");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        Files.deleteIfExists(snapshot);
+    }
+
+    @Setup(Level.Iteration)
+    public void createEmptyDatabase() {
+        emptyDatabase = new SingleConnectionDataSource("jdbc:h2:mem:restore-" + UUID.randomUUID(), "sa", "", true);
+    }
+
+    @TearDown(Level.Iteration)
+    public void dropEmptyDatabase() {
+        emptyDatabase.destroy();
+    }
+
+    @Benchmark
+    public void write() {
+        databaseSnapshotRepository.write(snapshot);
+    }
+
+    @Benchmark
+    public void restore() {
+        new DatabaseSnapshotRepository(emptyDatabase).restore(snapshot);
+    }
+}
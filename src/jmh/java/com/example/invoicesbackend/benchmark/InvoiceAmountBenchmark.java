@@ -0,0 +1,58 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.LineItem;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Money arithmetic of the entities: {@link Invoice#calculateAmount()} and
+ * {@link LineItem#calculateTotalAmount()} over every line of an invoice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class InvoiceAmountBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int lineItems;
+
+    private Invoice invoice;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        invoice = BenchmarkApplication.paidInvoice(1, lineItems);
+    }
+
+    @Benchmark
+    public BigDecimal calculateAmount() {
+        invoice.calculateAmount();
+        return invoice.getAmount();
+    }
+
+    @Benchmark
+    public BigDecimal calculateTotalAmounts() {
+        BigDecimal last = null;
+        for (LineItem lineItem : invoice.getLineItems()) {
+            lineItem.calculateTotalAmount();
+            last = lineItem.getTotalAmount();
+        }
+        return last;
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoicesBatchCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoicesBatchCommandHandler;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.BatchItemResultDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full create runs against embedded H2: one invoice through CreateInvoiceCommandHandler, and invoices
+ * created {@value #BATCH_SIZE} at a time through CreateInvoicesBatchCommandHandler. Both scores are per invoice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class InvoiceCommandBenchmark {
+
+    private static final int BATCH_SIZE = 100;
+
+    @Param({"10"})
+    public int lineItems;
+
+    private ConfigurableApplicationContext context;
+    private CreateInvoiceCommandHandler createInvoiceCommandHandler;
+    private CreateInvoicesBatchCommandHandler createInvoicesBatchCommandHandler;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Collections.emptyMap());
+        createInvoiceCommandHandler = context.getBean(CreateInvoiceCommandHandler.class);
+        createInvoicesBatchCommandHandler = context.getBean(CreateInvoicesBatchCommandHandler.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InvoiceResponseDto createInvoice() {
+        return createInvoiceCommandHandler.handle(new CreateInvoiceCommand(
+                BenchmarkApplication.invoiceRequest("CREATE-" + sequence.incrementAndGet(), lineItems)));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BATCH_SIZE)
+    public List<BatchItemResultDto> createInvoicesBatch() {
+        List<InvoiceRequestDto> requests = new ArrayList<>(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            requests.add(BenchmarkApplication.invoiceRequest("CREATE-" + sequence.incrementAndGet(), lineItems));
+        }
+        return createInvoicesBatchCommandHandler.handle(new CreateInvoicesBatchCommand(requests));
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommandHandler;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Insert rate of CreateInvoiceCommandHandler for an invoice with many line items.
+ * A JDBC batch size of 1 reproduces the old identity-column behaviour (one round trip per row);
+ * larger sizes measure the pooled sequence ids with Hibernate insert batching.
+ * The {@code rows} counter reports inserted rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class InvoiceInsertBenchmark {
+
+    @Param({"1", "50"})
+    public int jdbcBatchSize;
+
+    @Param({"200"})
+    public int lineItems;
+
+    private ConfigurableApplicationContext context;
+    private CreateInvoiceCommandHandler createInvoiceCommandHandler;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Rows {
+        public long rows;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Collections.singletonMap(
+                "spring.jpa.properties.hibernate.jdbc.batch_size", String.valueOf(jdbcBatchSize)));
+        createInvoiceCommandHandler = context.getBean(CreateInvoiceCommandHandler.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InvoiceResponseDto createInvoice(Rows rows) {
+        InvoiceResponseDto invoice = createInvoiceCommandHandler.handle(new CreateInvoiceCommand(
+                BenchmarkApplication.invoiceRequest("BENCH-" + sequence.incrementAndGet(), lineItems)));
+        rows.rows += 1 + lineItems;
+        return invoice;
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.dto.response.LineItemResponseDto;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.mapper.InvoiceMapperImpl;
+import com.example.invoicesbackend.mapper.LineItemMapper;
+import com.example.invoicesbackend.mapper.LineItemMapperImpl;
+import com.example.invoicesbackend.model.Invoice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the MapStruct mappers on the read and write paths: a single invoice, a page of invoices
+ * and the line item conversions, for invoices with few and many line items.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class InvoiceMapperBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10", "1000"})
+    public int lineItems;
+
+    private AnnotationConfigApplicationContext context;
+    private InvoiceMapper invoiceMapper;
+    private LineItemMapper lineItemMapper;
+    private Invoice invoice;
+    private List<Invoice> page;
+    private List<LineItemRequestDto> lineItemRequests;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Only the two mappers, so the generated field injection is wired as in the application
+        context = new AnnotationConfigApplicationContext(InvoiceMapperImpl.class, LineItemMapperImpl.class);
+        invoiceMapper = context.getBean(InvoiceMapper.class);
+        lineItemMapper = context.getBean(LineItemMapper.class);
+
+        invoice = BenchmarkApplication.paidInvoice(1, lineItems);
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(BenchmarkApplication.paidInvoice(i, lineItems));
+        }
+        lineItemRequests = BenchmarkApplication.invoiceRequest("MAP-1", lineItems).getLineItems();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InvoiceResponseDto invoiceToDto() {
+        return invoiceMapper.toDto(invoice);
+    }
+
+    @Benchmark
+    public List<InvoiceResponseDto> invoiceToDtoList() {
+        return invoiceMapper.toDtoList(page);
+    }
+
+    @Benchmark
+    public void lineItemToEntity(Blackhole blackhole) {
+        for (LineItemRequestDto request : lineItemRequests) {
+            blackhole.consume(lineItemMapper.toEntity(request));
+        }
+    }
+
+    @Benchmark
+    public List<LineItemResponseDto> lineItemToDtoList() {
+        return lineItemMapper.toDtoList(invoice.getLineItems());
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.LineItem;
+import com.example.invoicesbackend.model.Money;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Line totals and the invoice total of a large invoice, computed with BigDecimal as the entities did
+ * before {@link Money} and with Money as they do now. Compare gc.alloc.rate.norm as well as the time per invoice.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class MoneyBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    public int lineItems;
+
+    private List<LineItem> items;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Invoice invoice = BenchmarkApplication.paidInvoice(1, lineItems);
+        items = invoice.getLineItems();
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalInvoiceTotal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (LineItem lineItem : items) {
+            total = total.add(lineItem.getPrice().multiply(new BigDecimal(lineItem.getQuantity())));
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal moneyInvoiceTotal() {
+        long total = 0;
+        for (LineItem lineItem : items) {
+            total = Math.addExact(total, Math.multiplyExact(Money.centsOf(lineItem.getPrice()), lineItem.getQuantity()));
+        }
+        return Money.ofCents(total).toBigDecimal();
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalSumOfTotals() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (LineItem lineItem : items) {
+            total = total.add(lineItem.getTotalAmount());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal moneySumOfTotals() {
+        long total = 0;
+        for (LineItem lineItem : items) {
+            total = Math.addExact(total, Money.centsOf(lineItem.getTotalAmount()));
+        }
+        return Money.ofCents(total).toBigDecimal();
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimalLineTotals() {
+        BigDecimal last = null;
+        for (LineItem lineItem : items) {
+            last = lineItem.getPrice().multiply(new BigDecimal(lineItem.getQuantity()));
+        }
+        return last;
+    }
+
+    @Benchmark
+    public BigDecimal moneyLineTotals() {
+        BigDecimal last = null;
+        for (LineItem lineItem : items) {
+            last = Money.of(lineItem.getPrice()).times(lineItem.getQuantity()).toBigDecimal();
+        }
+        return last;
+    }
+}
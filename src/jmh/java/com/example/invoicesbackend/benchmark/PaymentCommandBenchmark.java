@@ -0,0 +1,92 @@
+package com.example.invoicesbackend.benchmark;
+
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoicesBatchCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoicesBatchCommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.PayInvoiceCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.PayInvoiceCommandHandler;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full PayInvoiceCommandHandler runs against embedded H2, with the atomic UPDATE path and with the entity path.
+ * Each iteration pays small amounts round-robin into a fresh set of invoices, so the number of payments
+ * read back per invoice stays small and comparable between iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class PaymentCommandBenchmark {
+
+    private static final int INVOICES = 1000;
+    private static final BigDecimal PAYMENT_AMOUNT = new BigDecimal("0.01");
+
+    @Param({"true", "false"})
+    public boolean atomic;
+
+    private ConfigurableApplicationContext context;
+    private PayInvoiceCommandHandler payInvoiceCommandHandler;
+    private CreateInvoicesBatchCommandHandler createInvoicesBatchCommandHandler;
+    private List<String> invoiceNumbers;
+    private int iteration;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = BenchmarkApplication.start(Collections.singletonMap("invoices.payments.atomic", String.valueOf(atomic)));
+        payInvoiceCommandHandler = context.getBean(PayInvoiceCommandHandler.class);
+        createInvoicesBatchCommandHandler = context.getBean(CreateInvoicesBatchCommandHandler.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void createInvoices() {
+        iteration++;
+        invoiceNumbers = new ArrayList<>(INVOICES);
+        List<InvoiceRequestDto> requests = new ArrayList<>(INVOICES);
+        for (int i = 0; i < INVOICES; i++) {
+            InvoiceRequestDto request = BenchmarkApplication.invoiceRequest("PAY-" + iteration + "-" + i, 0);
+            request.getLineItems().add(new LineItemRequestDto("Large item", new BigDecimal("1000000.00"), 1));
+            requests.add(request);
+            invoiceNumbers.add(request.getInvoiceNumber());
+        }
+        createInvoicesBatchCommandHandler.handle(new CreateInvoicesBatchCommand(requests));
+        next = 0;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public InvoiceResponseDto payInvoice() {
+        String invoiceNumber = invoiceNumbers.get(next++ % INVOICES);
+        return payInvoiceCommandHandler.handle(new PayInvoiceCommand(
+                new PaymentRequestDto(invoiceNumber, LocalDate.now(), PAYMENT_AMOUNT, "Card")));
+    }
+}
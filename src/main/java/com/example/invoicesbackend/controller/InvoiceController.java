@@ -1,58 +1,286 @@
 package com.example.invoicesbackend.controller;
 
+import com.example.invoicesbackend.cqrs.query.invoice.InvoiceSearchSortKey;
+import com.example.invoicesbackend.cqrs.query.invoice.InvoiceSortKey;
 import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
 import com.example.invoicesbackend.dto.request.PaymentRequestDto;
 import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.AgingReportResponseDto;
+import com.example.invoicesbackend.dto.response.BatchItemResultDto;
+import com.example.invoicesbackend.dto.response.CustomerSuggestionDto;
+import com.example.invoicesbackend.dto.response.InvoiceBalanceResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceImportResultDto;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryPageResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceSearchCriteria;
 import com.example.invoicesbackend.service.InvoiceService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/invoices")
 @CrossOrigin(origins = "*")
 public class InvoiceController {
 
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    public static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv;charset=UTF-8");
+
     private final InvoiceService invoiceService;
+    private final ObjectMapper objectMapper;
 
     @Autowired
-    public InvoiceController(InvoiceService invoiceService) {
+    public InvoiceController(InvoiceService invoiceService, ObjectMapper objectMapper) {
         this.invoiceService = invoiceService;
+        this.objectMapper = objectMapper;
     }
 
     @GetMapping
-    public ResponseEntity<List<InvoiceResponseDto>> getAllInvoices() {
-        List<InvoiceResponseDto> invoices = invoiceService.getAllInvoices();
-        return new ResponseEntity<>(invoices, HttpStatus.OK);
+    public ResponseEntity<List<InvoiceResponseDto>> getAllInvoices(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction) {
+        InvoicePageResponseDto page = invoiceService.getAllInvoices(
+                cursor, size, InvoiceSortKey.fromProperty(sort), Sort.Direction.fromString(direction));
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.set(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/search")
+    public ResponseEntity<List<InvoiceResponseDto>> searchInvoices(
+            @RequestParam(required = false) String customerName,
+            @RequestParam(required = false) Set<Invoice.InvoiceStatus> status,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate invoiceDateFrom,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate invoiceDateTo,
+            @RequestParam(required = false) BigDecimal minAmount,
+            @RequestParam(required = false) BigDecimal maxAmount,
+            @RequestParam(required = false) BigDecimal minDebtAmount,
+            @RequestParam(required = false) BigDecimal maxDebtAmount,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction) {
+        InvoiceSearchCriteria criteria = new InvoiceSearchCriteria(customerName, status, invoiceDateFrom, invoiceDateTo,
+                minAmount, maxAmount, minDebtAmount, maxDebtAmount);
+        InvoicePageResponseDto page = invoiceService.searchInvoices(
+                criteria, cursor, size, InvoiceSearchSortKey.fromProperty(sort), Sort.Direction.fromString(direction));
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.set(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/stream")
+    public ResponseEntity<StreamingResponseBody> streamAllInvoices() {
+        return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(ndjson(false));
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportInvoices(@RequestParam(defaultValue = "csv") String format) {
+        if ("ndjson".equalsIgnoreCase(format)) {
+            return ResponseEntity.ok().contentType(APPLICATION_NDJSON).body(ndjson(true));
+        }
+        if (!"csv".equalsIgnoreCase(format)) {
+            throw new IllegalArgumentException("Unsupported export format: " + format + " (expected csv or ndjson)");
+        }
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            InvoiceCsvWriter csv = new InvoiceCsvWriter(writer);
+            csv.writeHeader();
+            invoiceService.exportInvoices(invoice -> {
+                try {
+                    csv.write(invoice);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"invoices.csv\"")
+                .body(body);
+    }
+
+    private StreamingResponseBody ndjson(boolean withLineItems) {
+        // One generator for the whole response, written straight from the rows, instead of a DTO graph per invoice
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(outputStream)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                invoiceService.writeInvoicesJson(generator, withLineItems);
+            }
+        };
+    }
+
+    @GetMapping("/summaries")
+    public ResponseEntity<List<InvoiceSummaryResponseDto>> getInvoiceSummaries(
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "50") int size,
+            @RequestParam(defaultValue = "id") String sort,
+            @RequestParam(defaultValue = "asc") String direction) {
+        InvoiceSummaryPageResponseDto page = invoiceService.getInvoiceSummaries(
+                cursor, size, InvoiceSortKey.fromProperty(sort), Sort.Direction.fromString(direction));
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.set(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return new ResponseEntity<>(page.getContent(), headers, HttpStatus.OK);
+    }
+
+    @GetMapping("/summaries/number/{invoiceNumber}")
+    public ResponseEntity<InvoiceSummaryResponseDto> getInvoiceSummary(@PathVariable String invoiceNumber) {
+        InvoiceSummaryResponseDto summary = invoiceService.getInvoiceSummary(invoiceNumber);
+        return new ResponseEntity<>(summary, HttpStatus.OK);
+    }
+
+    @PostMapping("/summaries/rebuild")
+    public ResponseEntity<Integer> rebuildInvoiceSummaries() {
+        return new ResponseEntity<>(invoiceService.rebuildInvoiceSummaries(), HttpStatus.OK);
+    }
+
+    @PostMapping("/debts/rebuild")
+    public ResponseEntity<Integer> rebuildInvoiceDebts() {
+        return new ResponseEntity<>(invoiceService.rebuildInvoiceDebts(), HttpStatus.OK);
+    }
+
+    @GetMapping("/reports/aging")
+    public ResponseEntity<AgingReportResponseDto> getAgingReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        return new ResponseEntity<>(invoiceService.getAgingReport(asOf), HttpStatus.OK);
     }
 
+    @GetMapping("/customers/autocomplete")
+    public ResponseEntity<List<CustomerSuggestionDto>> autocompleteCustomers(
+            @RequestParam String prefix,
+            @RequestParam(defaultValue = "10") int limit) {
+        return new ResponseEntity<>(invoiceService.getCustomerSuggestions(prefix, limit), HttpStatus.OK);
+    }
 
     @GetMapping("/number/{invoiceNumber}")
-    public ResponseEntity<InvoiceResponseDto> getInvoiceByInvoiceNumber(@PathVariable String invoiceNumber) {
+    public ResponseEntity<InvoiceResponseDto> getInvoiceByInvoiceNumber(@PathVariable String invoiceNumber,
+                                                                        @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        // Revalidating a cached copy only needs the version, not the invoice with its line items and payments
+        if (ifNoneMatch != null) {
+            String etag = InvoiceETags.of(invoiceService.getInvoiceVersion(invoiceNumber));
+            if (InvoiceETags.matchesAny(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+            }
+        }
         InvoiceResponseDto invoice = invoiceService.getInvoiceByInvoiceNumber(invoiceNumber);
-        return new ResponseEntity<>(invoice, HttpStatus.OK);
+        return ResponseEntity.ok().eTag(InvoiceETags.of(invoice.getVersion())).cacheControl(CacheControl.noCache()).body(invoice);
+    }
+
+    @GetMapping("/number/{invoiceNumber}/balance")
+    public ResponseEntity<InvoiceBalanceResponseDto> getInvoiceBalance(
+            @PathVariable String invoiceNumber,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate asOf) {
+        return new ResponseEntity<>(invoiceService.getInvoiceBalance(invoiceNumber, asOf), HttpStatus.OK);
     }
 
     @PostMapping
-    public ResponseEntity<InvoiceResponseDto> createInvoice(@Valid @RequestBody InvoiceRequestDto invoiceRequestDto) {
-        InvoiceResponseDto newInvoice = invoiceService.createInvoice(invoiceRequestDto);
+    public ResponseEntity<InvoiceResponseDto> createInvoice(@Valid @RequestBody InvoiceRequestDto invoiceRequestDto,
+                                                            @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+        InvoiceResponseDto newInvoice = invoiceService.createInvoice(invoiceRequestDto, idempotencyKey);
         return new ResponseEntity<>(newInvoice, HttpStatus.CREATED);
     }
 
+    @PostMapping("/batch")
+    public ResponseEntity<List<BatchItemResultDto>> createInvoices(@RequestBody List<InvoiceRequestDto> invoiceRequestDtos) {
+        List<BatchItemResultDto> results = invoiceService.createInvoices(invoiceRequestDtos);
+        return new ResponseEntity<>(results, HttpStatus.OK);
+    }
+
+    @PostMapping("/import")
+    public ResponseEntity<InvoiceImportResultDto> importInvoices(@RequestParam(required = false) String importId,
+                                                                 InputStream body) {
+        Reader source = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        InvoiceImportResultDto result = invoiceService.importInvoices(
+                importId != null ? importId : UUID.randomUUID().toString(), source);
+        return new ResponseEntity<>(result, HttpStatus.OK);
+    }
+
+    @GetMapping("/imports/{importId}")
+    public ResponseEntity<InvoiceImportResultDto> getInvoiceImport(@PathVariable String importId) {
+        return new ResponseEntity<>(invoiceService.getInvoiceImport(importId), HttpStatus.OK);
+    }
+
+    @GetMapping("/imports/{importId}/rejections")
+    public ResponseEntity<StreamingResponseBody> getImportRejections(@PathVariable String importId) {
+        // Fails with 404 before the response starts if the import does not exist
+        invoiceService.getInvoiceImport(importId);
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            InvoiceCsvWriter csv = new InvoiceCsvWriter(writer);
+            csv.writeRejectionsHeader();
+            invoiceService.streamImportRejections(importId, rejection -> {
+                try {
+                    csv.write(rejection);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            writer.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + importId + "-rejections.csv\"")
+                .body(body);
+    }
+
     @PutMapping
-    public ResponseEntity<InvoiceResponseDto> updateInvoice( @Valid @RequestBody UpdateInvoiceRequestDto invoiceRequestDto) {
-        InvoiceResponseDto updatedInvoice = invoiceService.updateInvoice(invoiceRequestDto);
-        return new ResponseEntity<>(updatedInvoice, HttpStatus.OK);
+    public ResponseEntity<InvoiceResponseDto> updateInvoice( @Valid @RequestBody UpdateInvoiceRequestDto invoiceRequestDto,
+                                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        InvoiceResponseDto updatedInvoice = invoiceService.updateInvoice(invoiceRequestDto, InvoiceETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(InvoiceETags.of(updatedInvoice.getVersion())).body(updatedInvoice);
     }
 
     @PostMapping("/pay")
-    public ResponseEntity<InvoiceResponseDto> payInvoice(@Valid @RequestBody PaymentRequestDto paymentRequestDto) {
-        InvoiceResponseDto paidInvoice = invoiceService.payInvoice(paymentRequestDto);
-        return new ResponseEntity<>(paidInvoice, HttpStatus.OK);
+    public ResponseEntity<InvoiceResponseDto> payInvoice(@Valid @RequestBody PaymentRequestDto paymentRequestDto,
+                                                         @RequestHeader(value = IDEMPOTENCY_KEY, required = false) String idempotencyKey,
+                                                         @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        InvoiceResponseDto paidInvoice = invoiceService.payInvoice(paymentRequestDto, idempotencyKey, InvoiceETags.expectedVersion(ifMatch));
+        return ResponseEntity.ok().eTag(InvoiceETags.of(paidInvoice.getVersion())).body(paidInvoice);
+    }
+
+    @PostMapping("/pay/batch")
+    public ResponseEntity<List<BatchItemResultDto>> payInvoices(@RequestBody List<PaymentRequestDto> paymentRequestDtos) {
+        List<BatchItemResultDto> results = invoiceService.payInvoices(paymentRequestDtos);
+        return new ResponseEntity<>(results, HttpStatus.OK);
     }
 }
@@ -0,0 +1,93 @@
+package com.example.invoicesbackend.controller;
+
+import com.example.invoicesbackend.dto.response.ImportRejectionDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.dto.response.LineItemResponseDto;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes invoices as RFC 4180 CSV, one row per line item. An invoice without line items gets a single row
+ * with empty line item columns, so every invoice appears in the export.
+ * Also writes the rejected-rows reports of imports, one row per rejected invoice.
+ */
+class InvoiceCsvWriter {
+
+    static final String HEADER = "invoice_id,invoice_number,customer_name,invoice_date,amount,debt_amount,description," +
+            "status,line_item_id,line_item_description,price,quantity,total_amount";
+
+    static final String REJECTIONS_HEADER = "first_row,last_row,invoice_number,message";
+
+    private final Writer writer;
+
+    InvoiceCsvWriter(Writer writer) {
+        this.writer = writer;
+    }
+
+    void writeHeader() throws IOException {
+        writer.write(HEADER);
+        writer.write("\r\n");
+    }
+
+    void writeRejectionsHeader() throws IOException {
+        writer.write(REJECTIONS_HEADER);
+        writer.write("\r\n");
+    }
+
+    void write(ImportRejectionDto rejection) throws IOException {
+        writeField(rejection.getFirstRow(), false);
+        writeField(rejection.getLastRow(), true);
+        writeField(rejection.getInvoiceNumber(), true);
+        writeField(rejection.getMessage(), true);
+        writer.write("\r\n");
+    }
+
+    void write(InvoiceResponseDto invoice) throws IOException {
+        if (invoice.getLineItems() == null || invoice.getLineItems().isEmpty()) {
+            writeRow(invoice, null);
+            return;
+        }
+        for (LineItemResponseDto lineItem : invoice.getLineItems()) {
+            writeRow(invoice, lineItem);
+        }
+    }
+
+    private void writeRow(InvoiceResponseDto invoice, LineItemResponseDto lineItem) throws IOException {
+        writeField(invoice.getId(), false);
+        writeField(invoice.getInvoiceNumber(), true);
+        writeField(invoice.getCustomerName(), true);
+        writeField(invoice.getInvoiceDate(), true);
+        writeField(invoice.getAmount() == null ? null : invoice.getAmount().toPlainString(), true);
+        writeField(invoice.getDebtAmount() == null ? null : invoice.getDebtAmount().toPlainString(), true);
+        writeField(invoice.getDescription(), true);
+        writeField(invoice.getStatus(), true);
+        if (lineItem == null) {
+            writer.write(",,,,,");
+        } else {
+            writeField(lineItem.getId(), true);
+            writeField(lineItem.getDescription(), true);
+            writeField(lineItem.getPrice() == null ? null : lineItem.getPrice().toPlainString(), true);
+            writeField(lineItem.getQuantity(), true);
+            writeField(lineItem.getTotalAmount() == null ? null : lineItem.getTotalAmount().toPlainString(), true);
+        }
+        writer.write("\r\n");
+    }
+
+    private void writeField(Object value, boolean separated) throws IOException {
+        if (separated) {
+            writer.write(',');
+        }
+        if (value == null) {
+            return;
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            writer.write(text);
+            return;
+        }
+        writer.write('"');
+        writer.write(text.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
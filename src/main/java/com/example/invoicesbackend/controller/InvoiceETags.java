@@ -0,0 +1,71 @@
+package com.example.invoicesbackend.controller;
+
+import com.example.invoicesbackend.exception.PreconditionFailedException;
+
+/**
+ * Strong entity tags for invoices and the conditional request headers that carry them.
+ * An invoice's tag is its quoted version, which every command changing the invoice increments.
+ */
+final class InvoiceETags {
+
+    private static final String ANY = "*";
+    private static final String WEAK_PREFIX = "W/";
+
+    private InvoiceETags() {
+    }
+
+    /**
+     * @param version The invoice version
+     * @return The entity tag, quoted
+     */
+    static String of(long version) {
+        return "\"" + version + "\"";
+    }
+
+    /**
+     * Evaluates If-None-Match with the weak comparison RFC 7232 prescribes for it.
+     *
+     * @param ifNoneMatch The header value: "*" or a comma-separated list of entity tags
+     * @param etag The current entity tag
+     * @return true if the client's copy is current, so the response can be 304
+     */
+    static boolean matchesAny(String ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith(WEAK_PREFIX)) {
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if (tag.equals(ANY) || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the version an If-Match header requires.
+     *
+     * @param ifMatch The header value, or null
+     * @return The version, or null if the header is absent or "*", which any existing invoice satisfies
+     * @throws IllegalArgumentException if the header is not "*" or a single entity tag
+     * @throws PreconditionFailedException if the tag is weak, which never matches under strong comparison
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals(ANY)) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith(WEAK_PREFIX)) {
+            throw new PreconditionFailedException("If-Match requires a strong entity tag, got " + tag);
+        }
+        if (tag.length() < 3 || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("If-Match must be \"*\" or a single entity tag, got " + tag);
+        }
+        try {
+            return Long.valueOf(tag.substring(1, tag.length() - 1));
+        } catch (NumberFormatException ex) {
+            // Not a tag this server issued, so it cannot match the current one
+            throw new PreconditionFailedException("If-Match " + tag + " does not match the invoice");
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.invoicesbackend.cqrs;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * A cache entry, or a whole cache region, invalidated by a command.
+ */
+@Data
+@AllArgsConstructor
+public class CacheEviction {
+    private String region;
+    private Query<?> key;
+
+    /**
+     * Evicts the cached result of one query.
+     *
+     * @param region The cache region of the query's handler
+     * @param key The query whose result is stale
+     * @return The eviction
+     */
+    public static CacheEviction of(String region, Query<?> key) {
+        return new CacheEviction(region, key);
+    }
+
+    /**
+     * Evicts every cached result of a region.
+     *
+     * @param region The cache region to clear
+     * @return The eviction
+     */
+    public static CacheEviction all(String region) {
+        return new CacheEviction(region, null);
+    }
+}
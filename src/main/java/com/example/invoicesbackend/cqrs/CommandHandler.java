@@ -1,5 +1,8 @@
 package com.example.invoicesbackend.cqrs;
 
+import java.util.Collection;
+import java.util.Collections;
+
 /**
  * Base interface for all command handlers in the CQRS pattern.
  * Command handlers are responsible for executing commands and producing results.
@@ -16,4 +19,15 @@ public interface CommandHandler<C extends Command<R>, R> {
      * @return The result of handling the command
      */
     R handle(C command);
+
+    /**
+     * Returns the cached query results made stale by the given command.
+     * They are evicted once the command's changes are committed.
+     *
+     * @param command The handled command
+     * @return The cache entries or regions to evict
+     */
+    default Collection<CacheEviction> evictions(C command) {
+        return Collections.emptyList();
+    }
 }
\ No newline at end of file
@@ -0,0 +1,17 @@
+package com.example.invoicesbackend.cqrs;
+
+/**
+ * A command that may carry a client-supplied idempotency key.
+ * Repeating the command with the same key returns the first response instead of running the command again.
+ *
+ * @param <R> The type of the result returned by the command
+ */
+public interface IdempotentCommand<R> extends Command<R> {
+
+    /**
+     * Returns the client's idempotency key.
+     *
+     * @return The key, or null if the command is not deduplicated
+     */
+    String getIdempotencyKey();
+}
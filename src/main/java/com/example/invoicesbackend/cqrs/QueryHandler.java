@@ -16,4 +16,14 @@ public interface QueryHandler<Q extends Query<R>, R> {
      * @return The result of handling the query
      */
     R handle(Q query);
+
+    /**
+     * Returns the name of the cache region that holds this handler's results, keyed on the query.
+     * Handlers whose results must not be cached keep the default, null.
+     *
+     * @return The cache region, or null if results are not cached
+     */
+    default String cacheRegion() {
+        return null;
+    }
 }
\ No newline at end of file
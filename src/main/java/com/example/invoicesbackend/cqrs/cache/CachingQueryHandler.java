@@ -0,0 +1,36 @@
+package com.example.invoicesbackend.cqrs.cache;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Query handler decorator answering repeated queries from a cache region.
+ * Concurrent misses on the same query are loaded once. Failures and null results are not cached.
+ */
+class CachingQueryHandler<Q extends Query<R>, R> implements QueryHandler<Q, R> {
+
+    private final QueryHandler<Q, R> delegate;
+    private final Cache<Query<?>, Object> cache;
+
+    CachingQueryHandler(QueryHandler<Q, R> delegate, Cache<Query<?>, Object> cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public R handle(Q query) {
+        // A caller's transaction may see its own uncommitted writes, which must not leak into the cache
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return delegate.handle(query);
+        }
+        return (R) cache.get(query, key -> delegate.handle(query));
+    }
+
+    @Override
+    public String cacheRegion() {
+        return delegate.cacheRegion();
+    }
+}
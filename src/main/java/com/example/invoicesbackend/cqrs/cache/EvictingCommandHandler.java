@@ -0,0 +1,33 @@
+package com.example.invoicesbackend.cqrs.cache;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+
+import java.util.Collection;
+
+/**
+ * Command handler decorator evicting the cache entries the command declares stale once it has succeeded.
+ */
+class EvictingCommandHandler<C extends Command<R>, R> implements CommandHandler<C, R> {
+
+    private final CommandHandler<C, R> delegate;
+    private final QueryCache queryCache;
+
+    EvictingCommandHandler(CommandHandler<C, R> delegate, QueryCache queryCache) {
+        this.delegate = delegate;
+        this.queryCache = queryCache;
+    }
+
+    @Override
+    public R handle(C command) {
+        R result = delegate.handle(command);
+        queryCache.evict(delegate.evictions(command));
+        return result;
+    }
+
+    @Override
+    public Collection<CacheEviction> evictions(C command) {
+        return delegate.evictions(command);
+    }
+}
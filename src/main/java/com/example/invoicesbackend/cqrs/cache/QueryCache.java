@@ -0,0 +1,117 @@
+package com.example.invoicesbackend.cqrs.cache;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Query result cache shared by the CQRS handlers.
+ * Each cache region is a size-bounded Caffeine cache (W-TinyLFU eviction) with a time to live,
+ * keyed on the query object, and publishes its hit, miss and eviction counts to Micrometer.
+ */
+@Component
+public class QueryCache {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long maximumSize;
+    private final Duration expireAfterWrite;
+    private final Map<String, Cache<Query<?>, Object>> regions = new ConcurrentHashMap<>();
+
+    @Autowired
+    public QueryCache(MeterRegistry meterRegistry,
+                      @Value("${invoices.cache.enabled:true}") boolean enabled,
+                      @Value("${invoices.cache.maximum-size:10000}") long maximumSize,
+                      @Value("${invoices.cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maximumSize = maximumSize;
+        this.expireAfterWrite = expireAfterWrite;
+    }
+
+    /**
+     * Decorates a query handler with its cache region.
+     *
+     * @param handler The handler to decorate
+     * @return A caching handler, or the handler itself if it declares no cache region or caching is disabled
+     */
+    public <Q extends Query<R>, R> QueryHandler<Q, R> cached(QueryHandler<Q, R> handler) {
+        String region = handler.cacheRegion();
+        if (!enabled || region == null) {
+            return handler;
+        }
+        return new CachingQueryHandler<>(handler, regions.computeIfAbsent(region, this::createRegion));
+    }
+
+    /**
+     * Decorates a command handler so that the cache entries it declares stale are evicted after it runs.
+     *
+     * @param handler The handler to decorate
+     * @return A handler applying the evictions declared by {@link CommandHandler#evictions}
+     */
+    public <C extends Command<R>, R> CommandHandler<C, R> evicting(CommandHandler<C, R> handler) {
+        return new EvictingCommandHandler<>(handler, this);
+    }
+
+    /**
+     * Evicts the given entries. Inside a transaction the eviction is deferred until it commits,
+     * so no reader can cache the state the transaction is replacing after the eviction ran.
+     *
+     * @param evictions The cache entries or regions to evict
+     */
+    public void evict(Collection<CacheEviction> evictions) {
+        if (evictions.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(evictions);
+                }
+            });
+        } else {
+            evictNow(evictions);
+        }
+    }
+
+    private void evictNow(Collection<CacheEviction> evictions) {
+        for (CacheEviction eviction : evictions) {
+            Cache<Query<?>, Object> cache = regions.get(eviction.getRegion());
+            if (cache == null) {
+                continue;
+            }
+            if (eviction.getKey() == null) {
+                cache.invalidateAll();
+            } else {
+                cache.invalidate(eviction.getKey());
+            }
+        }
+    }
+
+    private Cache<Query<?>, Object> createRegion(String region) {
+        Cache<Query<?>, Object> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, region);
+        return cache;
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.invoicesbackend.cqrs.command.invoice;
 
-import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.IdempotentCommand;
 import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
 import lombok.AllArgsConstructor;
@@ -9,10 +9,16 @@ import lombok.NoArgsConstructor;
 
 /**
  * Command to create a new invoice.
+ * Carries the client's Idempotency-Key, if any.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class CreateInvoiceCommand implements Command<InvoiceResponseDto> {
+public class CreateInvoiceCommand implements IdempotentCommand<InvoiceResponseDto> {
     private InvoiceRequestDto invoiceRequestDto;
+    private String idempotencyKey;
+
+    public CreateInvoiceCommand(InvoiceRequestDto invoiceRequestDto) {
+        this.invoiceRequestDto = invoiceRequestDto;
+    }
 }
\ No newline at end of file
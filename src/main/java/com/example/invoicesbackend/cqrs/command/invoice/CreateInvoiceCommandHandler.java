@@ -1,6 +1,10 @@
 package com.example.invoicesbackend.cqrs.command.invoice;
 
 import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.cqrs.outbox.Outbox;
 import com.example.invoicesbackend.dto.request.LineItemRequestDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
 import com.example.invoicesbackend.mapper.InvoiceMapper;
@@ -8,13 +12,15 @@ import com.example.invoicesbackend.mapper.LineItemMapper;
 import com.example.invoicesbackend.model.Invoice;
 import com.example.invoicesbackend.model.LineItem;
 import com.example.invoicesbackend.repository.InvoiceRepository;
-import com.example.invoicesbackend.repository.LineItemRepository;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 /**
  * Handler for the CreateInvoiceCommand.
@@ -24,45 +30,55 @@ public class CreateInvoiceCommandHandler implements CommandHandler<CreateInvoice
 
     private final InvoiceRepository invoiceRepository;
     private final InvoiceMapper invoiceMapper;
-    private final LineItemRepository lineItemRepository;
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+    private final Outbox outbox;
+    private final CommandJournal commandJournal;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CreateInvoiceCommandHandler(InvoiceRepository invoiceRepository, InvoiceMapper invoiceMapper, LineItemRepository lineItemRepository) {
+    public CreateInvoiceCommandHandler(InvoiceRepository invoiceRepository, InvoiceMapper invoiceMapper,
+                                       InvoiceSummaryRepository invoiceSummaryRepository,
+                                       InvoiceLedgerRepository invoiceLedgerRepository,
+                                       Outbox outbox,
+                                       CommandJournal commandJournal,
+                                       ApplicationEventPublisher eventPublisher) {
         this.invoiceRepository = invoiceRepository;
         this.invoiceMapper = invoiceMapper;
-        this.lineItemRepository = lineItemRepository;
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.outbox = outbox;
+        this.commandJournal = commandJournal;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Transactional
     public InvoiceResponseDto handle(CreateInvoiceCommand command) {
         if (invoiceRepository.existsByInvoiceNumber(command.getInvoiceRequestDto().getInvoiceNumber())) {
             throw new IllegalArgumentException("Invoice with number " + command.getInvoiceRequestDto().getInvoiceNumber() + " already exists");
         }
         
         Invoice invoice = invoiceMapper.toEntity(command.getInvoiceRequestDto());
-        invoice.setAmount(calculateTotalAmount(command.getInvoiceRequestDto().getLineItems()));
+        invoice.setAmount(InvoiceRequests.totalAmount(command.getInvoiceRequestDto().getLineItems()).toBigDecimal());
         invoice.setDebtAmount(invoice.getAmount());
-        Invoice savedInvoice = invoiceRepository.save(invoice);
-
-        List<LineItem> savedItems = saveItems(command.getInvoiceRequestDto().getLineItems(), savedInvoice);
+        addItems(command.getInvoiceRequestDto().getLineItems(), invoice);
 
-        savedInvoice.setLineItems(savedItems);
+        // Line items are cascaded and flushed at commit in JDBC batches
+        Invoice savedInvoice = invoiceRepository.save(invoice);
+        invoiceSummaryRepository.insert(savedInvoice);
+        invoiceLedgerRepository.appendCreated(Collections.singletonList(savedInvoice));
+        outbox.append(InvoiceEvent.created(savedInvoice));
+        commandJournal.append(command);
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singleton(savedInvoice.getCustomerName())));
         return invoiceMapper.toDto(savedInvoice);
     }
 
-    private BigDecimal calculateTotalAmount(List<LineItemRequestDto> items) {
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        for (LineItemRequestDto item : items) {
-            totalAmount = totalAmount.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
-        }
-        return totalAmount;
-    }
-
-    private List<LineItem> saveItems(List<LineItemRequestDto> items, Invoice invoice) {
-        return items.stream().map(lineItemDto -> {
+    private void addItems(List<LineItemRequestDto> items, Invoice invoice) {
+        for (LineItemRequestDto lineItemDto : items) {
             LineItem lineItem = LineItemMapper.INSTANCE.toEntity(lineItemDto);
-            lineItem.setInvoice(invoice);
-            return lineItemRepository.save(lineItem);
-        }).collect(Collectors.toList());
+            lineItem.calculateTotalAmount();
+            invoice.addLineItem(lineItem);
+        }
     }
 }
\ No newline at end of file
@@ -0,0 +1,156 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.cqrs.outbox.Outbox;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.BatchItemResultDto;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import com.example.invoicesbackend.repository.InvoiceRepository;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+
+import javax.validation.Validator;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Handler for the CreateInvoicesBatchCommand.
+ * Valid invoices are written in chunks, one transaction per chunk: one set-based duplicate check,
+ * one JDBC batch of invoices, one of line items and one of invoice summaries. A failing chunk only fails its own items.
+ * Each chunk journals the invoices it inserted as a batch of their own, which commits with the chunk.
+ */
+@Component
+public class CreateInvoicesBatchCommandHandler implements CommandHandler<CreateInvoicesBatchCommand, List<BatchItemResultDto>> {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+    private final Outbox outbox;
+    private final CommandJournal commandJournal;
+    private final InvoiceMapper invoiceMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int chunkSize;
+
+    @Autowired
+    public CreateInvoicesBatchCommandHandler(InvoiceJdbcRepository invoiceJdbcRepository,
+                                             InvoiceRepository invoiceRepository,
+                                             InvoiceSummaryRepository invoiceSummaryRepository,
+                                             InvoiceLedgerRepository invoiceLedgerRepository,
+                                             Outbox outbox,
+                                             CommandJournal commandJournal,
+                                             InvoiceMapper invoiceMapper, Validator validator, TransactionTemplate transactionTemplate,
+                                             ApplicationEventPublisher eventPublisher,
+                                             @Value("${invoices.batch.chunk-size:500}") int chunkSize) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.outbox = outbox;
+        this.commandJournal = commandJournal;
+        this.invoiceMapper = invoiceMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public List<BatchItemResultDto> handle(CreateInvoicesBatchCommand command) {
+        List<InvoiceRequestDto> requests = command.getInvoiceRequestDtos();
+        BatchItemResultDto[] results = new BatchItemResultDto[requests.size()];
+
+        List<Integer> pending = new ArrayList<>(chunkSize);
+        Set<String> seenInvoiceNumbers = new HashSet<>();
+        for (int index = 0; index < requests.size(); index++) {
+            InvoiceRequestDto request = requests.get(index);
+            String violation = InvoiceRequests.validate(validator, request);
+            if (violation != null) {
+                results[index] = BatchItemResultDto.rejected(index, request.getInvoiceNumber(), violation);
+            } else if (!seenInvoiceNumbers.add(request.getInvoiceNumber())) {
+                results[index] = BatchItemResultDto.rejected(index, request.getInvoiceNumber(),
+                        "Invoice with number " + request.getInvoiceNumber() + " appears more than once in the batch");
+            } else {
+                pending.add(index);
+                if (pending.size() == chunkSize) {
+                    writeChunk(requests, pending, results);
+                    pending.clear();
+                }
+            }
+        }
+        writeChunk(requests, pending, results);
+        return Arrays.asList(results);
+    }
+
+    private void writeChunk(List<InvoiceRequestDto> requests, List<Integer> chunk, BatchItemResultDto[] results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Invoices saved through JPA earlier in an enclosing transaction are invisible to JDBC until flushed
+                invoiceRepository.flush();
+                Set<String> existing = invoiceJdbcRepository.findExistingInvoiceNumbers(
+                        chunk.stream().map(index -> requests.get(index).getInvoiceNumber()).collect(Collectors.toList()));
+
+                List<Invoice> invoices = new ArrayList<>(chunk.size());
+                List<Integer> insertedIndexes = new ArrayList<>(chunk.size());
+                for (Integer index : chunk) {
+                    InvoiceRequestDto request = requests.get(index);
+                    if (existing.contains(request.getInvoiceNumber())) {
+                        results[index] = BatchItemResultDto.rejected(index, request.getInvoiceNumber(),
+                                "Invoice with number " + request.getInvoiceNumber() + " already exists");
+                    } else {
+                        invoices.add(InvoiceRequests.toInvoice(invoiceMapper, request));
+                        insertedIndexes.add(index);
+                    }
+                }
+
+                invoiceJdbcRepository.batchInsertInvoices(invoices);
+                invoiceJdbcRepository.batchInsertLineItems(invoices.stream()
+                        .flatMap(invoice -> invoice.getLineItems().stream())
+                        .collect(Collectors.toList()));
+                invoiceSummaryRepository.batchInsert(invoices);
+                invoiceLedgerRepository.appendCreated(invoices);
+                if (!invoices.isEmpty()) {
+                    commandJournal.append(new CreateInvoicesBatchCommand(
+                            insertedIndexes.stream().map(requests::get).collect(Collectors.toList())));
+                }
+                outbox.append(invoices.stream().map(InvoiceEvent::created).collect(Collectors.toList()));
+                eventPublisher.publishEvent(new InvoicesChangedEvent(
+                        invoices.stream().map(Invoice::getCustomerName).collect(Collectors.toSet())));
+
+                for (int i = 0; i < invoices.size(); i++) {
+                    int index = insertedIndexes.get(i);
+                    results[index] = BatchItemResultDto.succeeded(index, invoices.get(i).getInvoiceNumber(), invoices.get(i).getId());
+                }
+            });
+        } catch (DataAccessException ex) {
+            // The whole chunk was rolled back, including items already marked as succeeded
+            for (Integer index : chunk) {
+                if (results[index] == null || results[index].getStatus() == BatchItemResultDto.Status.SUCCEEDED) {
+                    results[index] = BatchItemResultDto.failed(index, requests.get(index).getInvoiceNumber(),
+                            ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+    }
+}
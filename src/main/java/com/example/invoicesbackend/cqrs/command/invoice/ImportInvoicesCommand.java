@@ -0,0 +1,21 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.dto.response.InvoiceImportResultDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Reader;
+
+/**
+ * Command to import invoices from a CSV file, read as a stream.
+ * Running it again with the same import id resumes after the last committed chunk.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportInvoicesCommand implements Command<InvoiceImportResultDto> {
+    private String importId;
+    private Reader source;
+}
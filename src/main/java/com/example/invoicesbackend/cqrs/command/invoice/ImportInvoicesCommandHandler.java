@@ -0,0 +1,402 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.cqrs.outbox.Outbox;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceImportResultDto;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.model.ImportRejection;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceImport;
+import com.example.invoicesbackend.repository.InvoiceImportRepository;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Handler for the ImportInvoicesCommand.
+ * The calling thread parses the CSV and validates each invoice with the rules of the batch endpoint; a writer thread
+ * inserts chunks of {@code invoices.import.chunk-size} invoices, one transaction and one JDBC batch per table each.
+ * Parsed chunks wait in a queue of {@code invoices.import.queue-capacity} chunks, so parsing blocks while the writer
+ * is behind and memory stays bounded whatever the file size. Each chunk transaction also records the import's progress
+ * and rejected rows, so a rerun with the same import id skips exactly the rows already committed. The invoices each
+ * chunk inserts are journaled as a batch creation, for the commands journaled after them to find on replay.
+ */
+@Component
+public class ImportInvoicesCommandHandler implements CommandHandler<ImportInvoicesCommand, InvoiceImportResultDto> {
+
+    private static final List<String> REQUIRED_COLUMNS = Arrays.asList(
+            "invoice_number", "customer_name", "invoice_date", "line_item_description", "price", "quantity");
+
+    private static final Chunk END = new Chunk();
+    private static final long POLL_MILLIS = 100;
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+    private final Outbox outbox;
+    private final InvoiceImportRepository invoiceImportRepository;
+    private final InvoiceMapper invoiceMapper;
+    private final Validator validator;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CommandJournal commandJournal;
+    private final int chunkSize;
+    private final int queueCapacity;
+
+    @Autowired
+    public ImportInvoicesCommandHandler(InvoiceJdbcRepository invoiceJdbcRepository,
+                                        InvoiceSummaryRepository invoiceSummaryRepository,
+                                        InvoiceLedgerRepository invoiceLedgerRepository,
+                                        Outbox outbox,
+                                        InvoiceImportRepository invoiceImportRepository,
+                                        InvoiceMapper invoiceMapper, Validator validator, TransactionTemplate transactionTemplate,
+                                        ApplicationEventPublisher eventPublisher,
+                                        CommandJournal commandJournal,
+                                        @Value("${invoices.import.chunk-size:500}") int chunkSize,
+                                        @Value("${invoices.import.queue-capacity:4}") int queueCapacity) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.outbox = outbox;
+        this.invoiceImportRepository = invoiceImportRepository;
+        this.invoiceMapper = invoiceMapper;
+        this.validator = validator;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.commandJournal = commandJournal;
+        this.chunkSize = chunkSize;
+        this.queueCapacity = queueCapacity;
+    }
+
+    @Override
+    public InvoiceImportResultDto handle(ImportInvoicesCommand command) {
+        String importId = command.getImportId();
+        if (importId == null || importId.trim().isEmpty() || importId.length() > 64) {
+            throw new IllegalArgumentException("Import id must be between 1 and 64 characters");
+        }
+        InvoiceImport started = transactionTemplate.execute(status ->
+                invoiceImportRepository.findById(importId).orElseGet(() -> invoiceImportRepository.start(importId)));
+        long resumedAfterRow = started.getCommittedRows();
+        if (started.getStatus() == InvoiceImport.Status.COMPLETED) {
+            return InvoiceImportResultDto.of(started);
+        }
+
+        try {
+            InvoiceCsvReader reader = new InvoiceCsvReader(command.getSource());
+            Map<String, Integer> columns = readHeader(reader);
+            ChunkWriter writer = new ChunkWriter(importId);
+            Thread thread = new Thread(writer, "invoice-import-writer");
+            thread.setDaemon(true);
+            thread.start();
+            boolean parsed = false;
+            try {
+                parse(reader, columns, resumedAfterRow, writer);
+                writer.submit(END);
+                parsed = true;
+            } finally {
+                if (!parsed) {
+                    // Chunks still queued after a parse failure are dropped; the rerun parses them again
+                    writer.aborted = true;
+                }
+                join(thread);
+            }
+            writer.rethrowFailure();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        InvoiceImport completed = transactionTemplate.execute(status -> {
+            invoiceImportRepository.complete(importId);
+            return invoiceImportRepository.findById(importId).orElseThrow(IllegalStateException::new);
+        });
+        return InvoiceImportResultDto.of(completed);
+    }
+
+    private Map<String, Integer> readHeader(InvoiceCsvReader reader) throws IOException {
+        List<String> header = reader.next();
+        if (header == null) {
+            throw new IllegalArgumentException("The CSV file is empty");
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+            columns.put(i == 0 && name.startsWith("\uFEFF") ? name.substring(1) : name, i);
+        }
+        List<String> missing = REQUIRED_COLUMNS.stream().filter(name -> !columns.containsKey(name)).collect(Collectors.toList());
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("The CSV header is missing the columns " + String.join(", ", missing));
+        }
+        return columns;
+    }
+
+    /**
+     * Groups consecutive rows with the same invoice number into one invoice, validates it and hands it to the writer
+     * in chunks. A chunk always ends on an invoice boundary, so its last row is a safe point to resume from.
+     */
+    private void parse(InvoiceCsvReader reader, Map<String, Integer> columns, long skipRows, ChunkWriter writer) throws IOException {
+        long row = 0;
+        Chunk chunk = new Chunk();
+        ParsedInvoice current = null;
+        List<String> record;
+        while ((record = reader.next()) != null) {
+            row++;
+            if (row <= skipRows) {
+                continue;
+            }
+            String invoiceNumber = field(record, columns, "invoice_number");
+            if (current != null && !current.invoiceNumber.equals(invoiceNumber == null ? "" : invoiceNumber)) {
+                chunk = finish(current, chunk, writer);
+                current = null;
+            }
+            if (current == null) {
+                current = new ParsedInvoice(row, invoiceNumber, columns.size());
+                current.readHeader(record, columns);
+            }
+            current.readLineItem(record, columns, row);
+        }
+        if (current != null) {
+            chunk = finish(current, chunk, writer);
+        }
+        if (!chunk.isEmpty()) {
+            writer.submit(chunk);
+        }
+    }
+
+    private Chunk finish(ParsedInvoice invoice, Chunk chunk, ChunkWriter writer) {
+        String violation = invoice.error != null ? invoice.error : InvoiceRequests.validate(validator, invoice.request);
+        if (violation != null) {
+            chunk.rejections.add(new ImportRejection(invoice.firstRow, invoice.lastRow, invoice.request.getInvoiceNumber(), violation));
+        } else {
+            chunk.invoices.add(invoice);
+        }
+        chunk.lastRow = invoice.lastRow;
+        if (chunk.invoices.size() >= chunkSize || chunk.rejections.size() >= chunkSize) {
+            writer.submit(chunk);
+            return new Chunk();
+        }
+        return chunk;
+    }
+
+    private void write(String importId, Chunk chunk) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Set<String> existing = invoiceJdbcRepository.findExistingInvoiceNumbers(
+                    chunk.invoices.stream().map(invoice -> invoice.request.getInvoiceNumber()).collect(Collectors.toList()));
+            List<Invoice> invoices = new ArrayList<>(chunk.invoices.size());
+            List<InvoiceRequestDto> inserted = new ArrayList<>(chunk.invoices.size());
+            List<ImportRejection> rejections = new ArrayList<>(chunk.rejections);
+            Set<String> seenInvoiceNumbers = new HashSet<>();
+            for (ParsedInvoice parsed : chunk.invoices) {
+                String invoiceNumber = parsed.request.getInvoiceNumber();
+                if (existing.contains(invoiceNumber) || !seenInvoiceNumbers.add(invoiceNumber)) {
+                    rejections.add(new ImportRejection(parsed.firstRow, parsed.lastRow, invoiceNumber,
+                            "Invoice with number " + invoiceNumber + " already exists"));
+                } else {
+                    invoices.add(InvoiceRequests.toInvoice(invoiceMapper, parsed.request));
+                    inserted.add(parsed.request);
+                }
+            }
+            if (!invoiceImportRepository.recordChunk(importId, chunk.lastRow, invoices.size(), rejections)) {
+                // Another run of the same import has already committed these rows
+                return;
+            }
+            invoiceJdbcRepository.batchInsertInvoices(invoices);
+            invoiceJdbcRepository.batchInsertLineItems(invoices.stream()
+                    .flatMap(invoice -> invoice.getLineItems().stream())
+                    .collect(Collectors.toList()));
+            invoiceSummaryRepository.batchInsert(invoices);
+            invoiceLedgerRepository.appendCreated(invoices);
+            if (!inserted.isEmpty()) {
+                commandJournal.append(new CreateInvoicesBatchCommand(inserted));
+            }
+            outbox.append(invoices.stream().map(InvoiceEvent::created).collect(Collectors.toList()));
+            eventPublisher.publishEvent(new InvoicesChangedEvent(
+                    invoices.stream().map(Invoice::getCustomerName).collect(Collectors.toSet())));
+        });
+        commandJournal.awaitForced();
+    }
+
+    private static String field(List<String> record, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= record.size()) {
+            return null;
+        }
+        String value = record.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    private static void join(Thread thread) {
+        try {
+            thread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the import writer", ex);
+        }
+    }
+
+    /**
+     * The rows of one invoice, turned into the request the batch endpoint would receive.
+     * A row that cannot be parsed rejects the whole invoice with the first error found.
+     */
+    private static final class ParsedInvoice {
+        private final long firstRow;
+        private final String invoiceNumber;
+        private final int columnCount;
+        private final InvoiceRequestDto request = new InvoiceRequestDto();
+        private long lastRow;
+        private String error;
+
+        private ParsedInvoice(long firstRow, String invoiceNumber, int columnCount) {
+            this.firstRow = firstRow;
+            this.invoiceNumber = invoiceNumber == null ? "" : invoiceNumber;
+            this.columnCount = columnCount;
+            this.request.setInvoiceNumber(invoiceNumber);
+        }
+
+        private void readHeader(List<String> record, Map<String, Integer> columns) {
+            request.setCustomerName(field(record, columns, "customer_name"));
+            request.setDescription(field(record, columns, "description"));
+            String invoiceDate = field(record, columns, "invoice_date");
+            try {
+                request.setInvoiceDate(invoiceDate == null ? null : LocalDate.parse(invoiceDate));
+            } catch (DateTimeParseException ex) {
+                fail(firstRow, "invoice_date: '" + invoiceDate + "' is not a date (yyyy-MM-dd)");
+            }
+            String status = field(record, columns, "status");
+            try {
+                request.setStatus(status == null ? Invoice.InvoiceStatus.PENDING
+                        : Invoice.InvoiceStatus.valueOf(status.toUpperCase(Locale.ROOT)));
+            } catch (IllegalArgumentException ex) {
+                fail(firstRow, "status: '" + status + "' is not one of " + Arrays.toString(Invoice.InvoiceStatus.values()));
+            }
+        }
+
+        private void readLineItem(List<String> record, Map<String, Integer> columns, long row) {
+            lastRow = row;
+            if (record.size() != columnCount) {
+                fail(row, "expected " + columnCount + " fields but found " + record.size());
+                return;
+            }
+            String description = field(record, columns, "line_item_description");
+            String price = field(record, columns, "price");
+            String quantity = field(record, columns, "quantity");
+            if (description == null && price == null && quantity == null) {
+                // An invoice row without a line item, as exported for invoices that have none
+                return;
+            }
+            LineItemRequestDto lineItem = new LineItemRequestDto(description, null, null);
+            try {
+                lineItem.setPrice(price == null ? null : new BigDecimal(price));
+            } catch (NumberFormatException ex) {
+                fail(row, "price: '" + price + "' is not a number");
+            }
+            try {
+                lineItem.setQuantity(quantity == null ? null : Integer.valueOf(quantity));
+            } catch (NumberFormatException ex) {
+                fail(row, "quantity: '" + quantity + "' is not a whole number");
+            }
+            request.getLineItems().add(lineItem);
+        }
+
+        private void fail(long row, String message) {
+            if (error == null) {
+                error = "row " + row + ": " + message;
+            }
+        }
+    }
+
+    /**
+     * Invoices and rejections covering consecutive rows of the file, up to and including {@code lastRow}.
+     */
+    private static final class Chunk {
+        private final List<ParsedInvoice> invoices = new ArrayList<>();
+        private final List<ImportRejection> rejections = new ArrayList<>();
+        private long lastRow;
+
+        private boolean isEmpty() {
+            return invoices.isEmpty() && rejections.isEmpty();
+        }
+    }
+
+    /**
+     * Writes queued chunks in order on its own thread until it takes the end marker or the parser gives up.
+     */
+    private final class ChunkWriter implements Runnable {
+        private final String importId;
+        private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queueCapacity);
+        private volatile RuntimeException failure;
+        private volatile boolean aborted;
+
+        private ChunkWriter(String importId) {
+            this.importId = importId;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!aborted) {
+                    Chunk chunk = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    if (chunk == END) {
+                        return;
+                    }
+                    if (chunk != null) {
+                        write(importId, chunk);
+                    }
+                }
+            } catch (RuntimeException ex) {
+                failure = ex;
+            } catch (InterruptedException ex) {
+                failure = new IllegalStateException("Import writer interrupted", ex);
+            }
+        }
+
+        /**
+         * Queues a chunk, blocking while the queue is full. Gives up if the writer has failed.
+         */
+        private void submit(Chunk chunk) {
+            try {
+                while (!queue.offer(chunk, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    rethrowFailure();
+                }
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while queueing an import chunk", ex);
+            }
+            rethrowFailure();
+        }
+
+        private void rethrowFailure() {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
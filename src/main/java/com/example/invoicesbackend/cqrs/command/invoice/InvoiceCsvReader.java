@@ -0,0 +1,89 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV records one at a time: comma separated, optionally double-quoted fields
+ * (quotes doubled inside), which may span lines. Accepts CRLF and LF line ends and skips blank lines.
+ * Only the current record is held in memory.
+ */
+class InvoiceCsvReader {
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private int pending = -2;
+
+    InvoiceCsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Reads the next record.
+     *
+     * @return The record's fields, or null at the end of the input
+     * @throws IOException If the input cannot be read
+     * @throws IllegalArgumentException If a quoted field is not closed before the end of the input
+     */
+    List<String> next() throws IOException {
+        List<String> record = new ArrayList<>();
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            c = read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        field.setLength(0);
+        while (true) {
+            if (quoted) {
+                if (c == -1) {
+                    throw new IllegalArgumentException("Unterminated quoted field");
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        continue;
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"' && field.length() == 0 && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (c == '\r' || c == '\n' || c == -1) {
+                record.add(field.toString());
+                if (c == '\r') {
+                    c = read();
+                    if (c != '\n') {
+                        pending = c;
+                    }
+                }
+                return record;
+            } else {
+                field.append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (pending != -2) {
+            int c = pending;
+            pending = -2;
+            return c;
+        }
+        return reader.read();
+    }
+}
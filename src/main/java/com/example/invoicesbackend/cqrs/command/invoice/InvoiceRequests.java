@@ -0,0 +1,88 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.mapper.LineItemMapper;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.LineItem;
+import com.example.invoicesbackend.model.Money;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Validation and conversion shared by the handlers that create invoices without going through JPA.
+ */
+final class InvoiceRequests {
+
+    private InvoiceRequests() {
+    }
+
+    /**
+     * Checks a request against the bean validation rules of the request DTOs and requires a positive amount that
+     * fits in {@link Money}, so that building the invoice cannot fail once the request is accepted.
+     *
+     * @param validator The bean validator
+     * @param request The invoice request to check
+     * @return The violations, sorted and joined, or null if the request is valid
+     */
+    static String validate(Validator validator, InvoiceRequestDto request) {
+        Set<ConstraintViolation<InvoiceRequestDto>> violations = validator.validate(request);
+        if (!violations.isEmpty()) {
+            return violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", "));
+        }
+        Money amount;
+        try {
+            amount = totalAmount(request.getLineItems());
+        } catch (ArithmeticException ex) {
+            return "amount: Amount out of range";
+        }
+        if (amount.signum() <= 0) {
+            return "amount: Amount must be positive";
+        }
+        return null;
+    }
+
+    /**
+     * Adds up the line totals of requested line items, each rounded to cents as {@link LineItem#calculateTotalAmount} does.
+     *
+     * @param items Line items with a price and a quantity
+     * @return Their total
+     */
+    static Money totalAmount(List<LineItemRequestDto> items) {
+        long total = 0;
+        for (LineItemRequestDto item : items) {
+            total = Math.addExact(total, Math.multiplyExact(Money.centsOf(item.getPrice()), item.getQuantity()));
+        }
+        return Money.ofCents(total);
+    }
+
+    /**
+     * Builds a new invoice, with its line items, totals and full debt, from a validated request.
+     *
+     * @param invoiceMapper The invoice mapper
+     * @param request A request accepted by {@link #validate}
+     * @return The invoice, without ids
+     */
+    static Invoice toInvoice(InvoiceMapper invoiceMapper, InvoiceRequestDto request) {
+        Invoice invoice = invoiceMapper.toEntity(request);
+        if (invoice.getStatus() == null) {
+            invoice.setStatus(Invoice.InvoiceStatus.PENDING);
+        }
+        for (LineItemRequestDto lineItemDto : request.getLineItems()) {
+            LineItem lineItem = LineItemMapper.INSTANCE.toEntity(lineItemDto);
+            lineItem.calculateTotalAmount();
+            invoice.addLineItem(lineItem);
+        }
+        invoice.calculateAmount();
+        invoice.setDebtAmount(invoice.getAmount());
+        return invoice;
+    }
+}
@@ -1,6 +1,6 @@
 package com.example.invoicesbackend.cqrs.command.invoice;
 
-import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.IdempotentCommand;
 import com.example.invoicesbackend.dto.request.PaymentRequestDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
 import lombok.AllArgsConstructor;
@@ -9,10 +9,22 @@ import lombok.NoArgsConstructor;
 
 /**
  * Command to pay an invoice.
+ * Carries the client's Idempotency-Key and the version the invoice must still have (from an If-Match header), if any.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
-public class PayInvoiceCommand implements Command<InvoiceResponseDto> {
+public class PayInvoiceCommand implements IdempotentCommand<InvoiceResponseDto> {
     private PaymentRequestDto paymentRequestDto;
+    private String idempotencyKey;
+    private Long expectedVersion;
+
+    public PayInvoiceCommand(PaymentRequestDto paymentRequestDto) {
+        this.paymentRequestDto = paymentRequestDto;
+    }
+
+    public PayInvoiceCommand(PaymentRequestDto paymentRequestDto, String idempotencyKey) {
+        this.paymentRequestDto = paymentRequestDto;
+        this.idempotencyKey = idempotencyKey;
+    }
 }
\ No newline at end of file
@@ -1,52 +1,151 @@
 package com.example.invoicesbackend.cqrs.command.invoice;
 
+import com.example.invoicesbackend.cqrs.CacheEviction;
 import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.cqrs.outbox.Outbox;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.InvoiceFetchPlan;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
 import com.example.invoicesbackend.mapper.InvoiceMapper;
 import com.example.invoicesbackend.model.Invoice;
 import com.example.invoicesbackend.model.Payment;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
 import com.example.invoicesbackend.repository.InvoiceRepository;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
+import com.example.invoicesbackend.repository.PaymentJdbcRepository;
 import com.example.invoicesbackend.repository.PaymentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
 
 /**
  * Handler for the PayInvoiceCommand.
+ * By default ({@code invoices.payments.atomic=true}) the payment is applied with one conditional UPDATE
+ * and one INSERT, without loading the invoice first; the invoice is only read back to build the response.
+ * Otherwise the invoice is loaded, changed and saved as an entity, relying on its version for concurrent payments.
+ * With group commit enabled, atomic payments are handed to the {@link PaymentGroupCommitter} instead.
  */
 @Component
 public class PayInvoiceCommandHandler implements CommandHandler<PayInvoiceCommand, InvoiceResponseDto> {
 
     private final InvoiceRepository invoiceRepository;
     private final PaymentRepository paymentRepository;
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+    private final Outbox outbox;
+    private final InvoiceFetchPlan invoiceFetchPlan;
     private final InvoiceMapper invoiceMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final PaymentGroupCommitter paymentGroupCommitter;
+    private final CommandJournal commandJournal;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean atomic;
 
     @Autowired
     public PayInvoiceCommandHandler(InvoiceRepository invoiceRepository,
                                    PaymentRepository paymentRepository,
-                                   InvoiceMapper invoiceMapper) {
+                                   InvoiceJdbcRepository invoiceJdbcRepository,
+                                   PaymentJdbcRepository paymentJdbcRepository,
+                                   InvoiceSummaryRepository invoiceSummaryRepository,
+                                   InvoiceLedgerRepository invoiceLedgerRepository,
+                                   Outbox outbox,
+                                   InvoiceFetchPlan invoiceFetchPlan,
+                                   InvoiceMapper invoiceMapper,
+                                   TransactionTemplate transactionTemplate,
+                                   PaymentGroupCommitter paymentGroupCommitter,
+                                   CommandJournal commandJournal,
+                                   ApplicationEventPublisher eventPublisher,
+                                   @Value("${invoices.payments.atomic:true}") boolean atomic) {
         this.invoiceRepository = invoiceRepository;
         this.paymentRepository = paymentRepository;
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.outbox = outbox;
+        this.invoiceFetchPlan = invoiceFetchPlan;
         this.invoiceMapper = invoiceMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.paymentGroupCommitter = paymentGroupCommitter;
+        this.commandJournal = commandJournal;
+        this.eventPublisher = eventPublisher;
+        this.atomic = atomic;
     }
 
     @Override
-    @Transactional
     public InvoiceResponseDto handle(PayInvoiceCommand command) {
-        String invoiceNumber = command.getPaymentRequestDto().getInvoiceNumber();
-        Optional<Invoice> optionalInvoice = invoiceRepository.findByInvoiceNumber(invoiceNumber);
+        // Conditional payments are checked against their own invoice's version, so they skip group commit
+        if (atomic && paymentGroupCommitter.isRunning() && command.getExpectedVersion() == null
+                && !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return paymentGroupCommitter.pay(command);
+        }
+        return transactionTemplate.execute(status -> {
+            // Plain JDBC would bypass the persistence context of a caller's transaction, so it stays on entities
+            InvoiceResponseDto paid = atomic && status.isNewTransaction()
+                    ? payAtomically(command.getPaymentRequestDto(), command.getExpectedVersion())
+                    : payWithEntity(command.getPaymentRequestDto(), command.getExpectedVersion());
+            commandJournal.append(command);
+            return paid;
+        });
+    }
+
+    @Override
+    public Collection<CacheEviction> evictions(PayInvoiceCommand command) {
+        return Collections.singletonList(CacheEviction.of(GetInvoiceByInvoiceNumberQueryHandler.CACHE_REGION,
+                new GetInvoiceByInvoiceNumberQuery(command.getPaymentRequestDto().getInvoiceNumber())));
+    }
+
+    private InvoiceResponseDto payAtomically(PaymentRequestDto request, Long expectedVersion) {
+        String invoiceNumber = request.getInvoiceNumber();
+        boolean applied = expectedVersion == null
+                ? invoiceJdbcRepository.applyPayment(invoiceNumber, request.getAmount())
+                : invoiceJdbcRepository.applyPayment(invoiceNumber, request.getAmount(), expectedVersion);
+        if (!applied) {
+            Optional<Invoice> header = invoiceJdbcRepository.findHeaderByInvoiceNumber(invoiceNumber);
+            header.ifPresent(invoice -> VersionPreconditions.check(invoiceNumber, expectedVersion, invoice.getVersion()));
+            throw PaymentRejections.explain(request, header);
+        }
+        Payment payment = toPayment(request);
+        paymentJdbcRepository.insertForInvoiceNumber(invoiceNumber, payment);
+        invoiceSummaryRepository.applyPayment(invoiceNumber, payment);
+        invoiceLedgerRepository.appendPayment(invoiceNumber, payment);
+
+        Invoice invoice = invoiceFetchPlan.findByInvoiceNumber(invoiceNumber)
+                .orElseThrow(() -> new IllegalArgumentException("Invoice with number " + invoiceNumber + " not found"));
+        outbox.append(InvoiceEvent.paymentApplied(invoiceNumber, invoice.getCustomerName(), payment));
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singleton(invoice.getCustomerName())));
+        return invoiceMapper.toDto(invoice);
+    }
+
+    private InvoiceResponseDto payWithEntity(PaymentRequestDto request, Long expectedVersion) {
+        String invoiceNumber = request.getInvoiceNumber();
+        Optional<Invoice> optionalInvoice = invoiceFetchPlan.findByInvoiceNumber(invoiceNumber);
 
         if (optionalInvoice.isEmpty()) {
             throw new IllegalArgumentException("Invoice with number " + invoiceNumber + " not found");
         }
 
         Invoice invoice = optionalInvoice.get();
+        VersionPreconditions.check(invoiceNumber, expectedVersion, invoice.getVersion());
 
         // Validate invoice status
         if (Invoice.InvoiceStatus.PAID.equals(invoice.getStatus())) {
@@ -54,7 +153,7 @@ public class PayInvoiceCommandHandler implements CommandHandler<PayInvoiceComman
         }
 
         // Validate payment amount
-        BigDecimal paymentAmount = command.getPaymentRequestDto().getAmount();
+        BigDecimal paymentAmount = request.getAmount();
         if (paymentAmount.compareTo(invoice.getDebtAmount()) > 0) {
             throw new IllegalArgumentException("Payment amount " + paymentAmount +
                 " it's bigger than invoice amount " + invoice.getAmount());
@@ -63,7 +162,7 @@ public class PayInvoiceCommandHandler implements CommandHandler<PayInvoiceComman
         BigDecimal newDebtAmount = invoice.getDebtAmount().subtract(paymentAmount);
         invoice.setDebtAmount(newDebtAmount);
 
-        if(paymentAmount.compareTo(invoice.getDebtAmount()) == 0){
+        if(newDebtAmount.signum() == 0){
             invoice.setDebtAmount(BigDecimal.ZERO);
             invoice.setStatus(Invoice.InvoiceStatus.PAID);
         } else {
@@ -73,19 +172,28 @@ public class PayInvoiceCommandHandler implements CommandHandler<PayInvoiceComman
         List<Payment> paymentList = Objects.nonNull(invoice.getPayment()) ?  invoice.getPayment() : new ArrayList<>();
 
         // Create and save payment
-        Payment payment = new Payment();
+        Payment payment = toPayment(request);
         payment.setInvoiceId(invoice.getId());
-        payment.setPaymentDate(command.getPaymentRequestDto().getPaymentDate());
-        payment.setAmount(paymentAmount);
-        payment.setPaymentMethod(command.getPaymentRequestDto().getPaymentMethod());
 
-        paymentList.add(payment);
+        paymentList.add(paymentRepository.save(payment));
         // Update invoice status
         invoice.setPayment(paymentList);
 
-        // Save changes
-        Invoice savedInvoice = invoiceRepository.save(invoice);
+        // Save changes; flushing first locks the invoice row before its summary row, as the atomic path does
+        Invoice savedInvoice = invoiceRepository.saveAndFlush(invoice);
+        invoiceSummaryRepository.applyPayment(invoiceNumber, payment);
+        invoiceLedgerRepository.appendPayment(invoiceNumber, payment);
+        outbox.append(InvoiceEvent.paymentApplied(invoiceNumber, savedInvoice.getCustomerName(), payment));
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singleton(savedInvoice.getCustomerName())));
 
         return invoiceMapper.toDto(savedInvoice);
     }
-}
\ No newline at end of file
+
+    static Payment toPayment(PaymentRequestDto request) {
+        Payment payment = new Payment();
+        payment.setPaymentDate(request.getPaymentDate());
+        payment.setAmount(request.getAmount());
+        payment.setPaymentMethod(request.getPaymentMethod());
+        return payment;
+    }
+}
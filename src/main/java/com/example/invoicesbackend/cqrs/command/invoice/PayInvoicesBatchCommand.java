@@ -0,0 +1,20 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.BatchItemResultDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Command to apply many payments at once, reporting the outcome of each one.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PayInvoicesBatchCommand implements Command<List<BatchItemResultDto>> {
+    private List<PaymentRequestDto> paymentRequestDtos;
+}
@@ -0,0 +1,164 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.cqrs.outbox.Outbox;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQueryHandler;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.BatchItemResultDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.Payment;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
+import com.example.invoicesbackend.repository.PaymentJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Handler for the PayInvoicesBatchCommand.
+ * Every invoice involved is loaded and locked once, all payments are applied to it in request order in memory,
+ * then the invoices, the payments and the invoice summaries are written with one JDBC batch each. The number of statements
+ * does not depend on the number of payments or invoices.
+ */
+@Component
+public class PayInvoicesBatchCommandHandler implements CommandHandler<PayInvoicesBatchCommand, List<BatchItemResultDto>> {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+    private final Outbox outbox;
+    private final CommandJournal commandJournal;
+    private final Validator validator;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public PayInvoicesBatchCommandHandler(InvoiceJdbcRepository invoiceJdbcRepository,
+                                          PaymentJdbcRepository paymentJdbcRepository,
+                                          InvoiceSummaryRepository invoiceSummaryRepository,
+                                          InvoiceLedgerRepository invoiceLedgerRepository,
+                                          Outbox outbox,
+                                          CommandJournal commandJournal,
+                                          Validator validator,
+                                          ApplicationEventPublisher eventPublisher) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.outbox = outbox;
+        this.commandJournal = commandJournal;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResultDto> handle(PayInvoicesBatchCommand command) {
+        List<PaymentRequestDto> requests = command.getPaymentRequestDtos();
+        BatchItemResultDto[] results = new BatchItemResultDto[requests.size()];
+
+        Set<String> invoiceNumbers = new LinkedHashSet<>();
+        for (int index = 0; index < requests.size(); index++) {
+            String violation = validate(requests.get(index));
+            if (violation != null) {
+                results[index] = BatchItemResultDto.rejected(index, requests.get(index).getInvoiceNumber(), violation);
+            } else {
+                invoiceNumbers.add(requests.get(index).getInvoiceNumber());
+            }
+        }
+        Map<String, Invoice> invoices = invoiceJdbcRepository.lockHeadersByInvoiceNumbers(invoiceNumbers);
+
+        Map<String, Invoice> changedInvoices = new LinkedHashMap<>();
+        List<Payment> payments = new ArrayList<>();
+        List<String> paidInvoiceNumbers = new ArrayList<>();
+        List<Integer> paymentIndexes = new ArrayList<>();
+        for (int index = 0; index < requests.size(); index++) {
+            if (results[index] != null) {
+                continue;
+            }
+            PaymentRequestDto request = requests.get(index);
+            Invoice invoice = invoices.get(request.getInvoiceNumber());
+            if (invoice == null || Invoice.InvoiceStatus.PAID.equals(invoice.getStatus())
+                    || request.getAmount().compareTo(invoice.getDebtAmount()) > 0) {
+                results[index] = BatchItemResultDto.rejected(index, request.getInvoiceNumber(),
+                        PaymentRejections.explain(request, Optional.ofNullable(invoice)).getMessage());
+                continue;
+            }
+
+            BigDecimal newDebtAmount = invoice.getDebtAmount().subtract(request.getAmount());
+            invoice.setDebtAmount(newDebtAmount);
+            invoice.setStatus(newDebtAmount.signum() == 0 ? Invoice.InvoiceStatus.PAID : Invoice.InvoiceStatus.PARTIALLY_PAID);
+            changedInvoices.put(invoice.getInvoiceNumber(), invoice);
+
+            Payment payment = PayInvoiceCommandHandler.toPayment(request);
+            payment.setInvoiceId(invoice.getId());
+            payments.add(payment);
+            paidInvoiceNumbers.add(invoice.getInvoiceNumber());
+            paymentIndexes.add(index);
+        }
+
+        invoiceJdbcRepository.batchUpdateDebt(new ArrayList<>(changedInvoices.values()));
+        paymentJdbcRepository.batchInsert(payments);
+        invoiceSummaryRepository.applyPayments(paidInvoiceNumbers, payments);
+        invoiceLedgerRepository.appendPayments(paidInvoiceNumbers, payments);
+        if (!paymentIndexes.isEmpty()) {
+            commandJournal.append(new PayInvoicesBatchCommand(paymentIndexes.stream().map(requests::get).collect(Collectors.toList())));
+        }
+        List<InvoiceEvent> events = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            String invoiceNumber = paidInvoiceNumbers.get(i);
+            events.add(InvoiceEvent.paymentApplied(invoiceNumber, changedInvoices.get(invoiceNumber).getCustomerName(), payments.get(i)));
+        }
+        outbox.append(events);
+        eventPublisher.publishEvent(new InvoicesChangedEvent(
+                changedInvoices.values().stream().map(Invoice::getCustomerName).collect(Collectors.toSet())));
+
+        for (int i = 0; i < payments.size(); i++) {
+            int index = paymentIndexes.get(i);
+            results[index] = BatchItemResultDto.succeeded(index, requests.get(index).getInvoiceNumber(), payments.get(i).getId());
+        }
+        return Arrays.asList(results);
+    }
+
+    @Override
+    public Collection<CacheEviction> evictions(PayInvoicesBatchCommand command) {
+        return command.getPaymentRequestDtos().stream()
+                .map(PaymentRequestDto::getInvoiceNumber)
+                .distinct()
+                .map(invoiceNumber -> CacheEviction.of(GetInvoiceByInvoiceNumberQueryHandler.CACHE_REGION,
+                        new GetInvoiceByInvoiceNumberQuery(invoiceNumber)))
+                .collect(Collectors.toList());
+    }
+
+    private String validate(PaymentRequestDto request) {
+        Set<ConstraintViolation<PaymentRequestDto>> violations = validator.validate(request);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+}
@@ -0,0 +1,320 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.cqrs.outbox.Outbox;
+import com.example.invoicesbackend.cqrs.query.invoice.InvoiceFetchPlan;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.Payment;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
+import com.example.invoicesbackend.repository.PaymentJdbcRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Group commit for payments ({@code invoices.payments.group-commit.enabled}).
+ * Concurrent payments wait in a bounded queue; a single flusher thread takes up to {@code max-batch-size}
+ * of them, or whatever arrived within {@code max-delay} of the first one, and applies them in one transaction:
+ * one batch of conditional updates, one batch of payment inserts, one batch of summary updates
+ * and one fetch plan for the responses.
+ * Each caller gets its own result or error once the transaction has committed; the payments applied are journaled,
+ * one command each and in the order they were applied, as part of that transaction.
+ * <p>
+ * The flusher runs between the lifecycle's start and stop. It stops after the web server, so the requests in flight
+ * are applied; payments queued until then are flushed before stop returns.
+ */
+@Component
+public class PaymentGroupCommitter implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(PaymentGroupCommitter.class);
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final PaymentJdbcRepository paymentJdbcRepository;
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+    private final Outbox outbox;
+    private final CommandJournal commandJournal;
+    private final InvoiceFetchPlan invoiceFetchPlan;
+    private final InvoiceMapper invoiceMapper;
+    private final TransactionTemplate transactionTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final DistributionSummary batchSizes;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final long maxDelayNanos;
+    private final long timeoutNanos;
+    private final BlockingQueue<PendingPayment> queue;
+    // Held shared while a payment is queued and exclusively to close the queue, so none is queued after the last drain
+    private final ReadWriteLock queueLock = new ReentrantReadWriteLock();
+    private Thread flusher;
+    private volatile boolean running;
+
+    @Autowired
+    public PaymentGroupCommitter(InvoiceJdbcRepository invoiceJdbcRepository,
+                                 PaymentJdbcRepository paymentJdbcRepository,
+                                 InvoiceSummaryRepository invoiceSummaryRepository,
+                                 InvoiceLedgerRepository invoiceLedgerRepository,
+                                 Outbox outbox,
+                                 CommandJournal commandJournal,
+                                 InvoiceFetchPlan invoiceFetchPlan,
+                                 InvoiceMapper invoiceMapper,
+                                 TransactionTemplate transactionTemplate,
+                                 ApplicationEventPublisher eventPublisher,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${invoices.payments.group-commit.enabled:false}") boolean enabled,
+                                 @Value("${invoices.payments.group-commit.max-batch-size:100}") int maxBatchSize,
+                                 @Value("${invoices.payments.group-commit.max-delay:5ms}") Duration maxDelay,
+                                 @Value("${invoices.payments.group-commit.queue-capacity:10000}") int queueCapacity,
+                                 @Value("${invoices.payments.group-commit.timeout:30s}") Duration timeout) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.paymentJdbcRepository = paymentJdbcRepository;
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.outbox = outbox;
+        this.commandJournal = commandJournal;
+        this.invoiceFetchPlan = invoiceFetchPlan;
+        this.invoiceMapper = invoiceMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.eventPublisher = eventPublisher;
+        this.batchSizes = DistributionSummary.builder("invoices.payments.group-commit.batch-size")
+                .description("Payments applied per group commit")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelay.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /**
+     * Queues a payment for the next group commit and waits for its outcome.
+     * Blocks while the queue is full, which pushes back on callers when the flusher falls behind.
+     *
+     * @param command The payment to apply, without an expected version
+     * @return The invoice after the group commit that applied the payment
+     * @throws IllegalStateException If group commit is not running, or the outcome is not known within
+     *                               {@code invoices.payments.group-commit.timeout}
+     */
+    public InvoiceResponseDto pay(PayInvoiceCommand command) {
+        PaymentRequestDto request = command.getPaymentRequestDto();
+        PendingPayment pending = new PendingPayment(command);
+        queueLock.readLock().lock();
+        try {
+            if (!running) {
+                throw new IllegalStateException("Payment group commit is not running");
+            }
+            queue.put(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while queueing payment for invoice " + request.getInvoiceNumber(), e);
+        } finally {
+            queueLock.readLock().unlock();
+        }
+        try {
+            return pending.result.get(timeoutNanos, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            // The payment stays queued and may still be applied; the caller cannot tell
+            throw new IllegalStateException("Timed out waiting for the group commit of the payment for invoice "
+                    + request.getInvoiceNumber() + "; its outcome is unknown", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the payment for invoice " + request.getInvoiceNumber(), e);
+        }
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::run, "payment-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // Waits for payments being queued, which the flusher keeps taking meanwhile
+        queueLock.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            queueLock.writeLock().unlock();
+        }
+        flusher.interrupt();
+        try {
+            flusher.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Apply whatever was queued after the flusher stopped, so no caller is left waiting
+        List<PendingPayment> remaining = new ArrayList<>();
+        while (queue.drainTo(remaining, maxBatchSize) > 0) {
+            flush(remaining);
+            remaining.clear();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server, which stops in phase {@code Integer.MAX_VALUE - 1}, so the payments of the
+     * requests it finishes still go through.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 2;
+    }
+
+    private void run() {
+        List<PendingPayment> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingPayment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                // Shutting down: the payments collected so far are still applied below
+                running = false;
+            }
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingPayment> batch) {
+        batchSizes.record(batch.size());
+        Object[] outcomes = new Object[batch.size()];
+        try {
+            transactionTemplate.executeWithoutResult(status -> apply(batch, outcomes));
+        } catch (RuntimeException e) {
+            log.warn("Group commit of {} payments failed", batch.size(), e);
+            batch.forEach(pending -> pending.result.completeExceptionally(e));
+            return;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (outcomes[i] instanceof RuntimeException) {
+                batch.get(i).result.completeExceptionally((RuntimeException) outcomes[i]);
+            } else {
+                batch.get(i).result.complete((InvoiceResponseDto) outcomes[i]);
+            }
+        }
+    }
+
+    private void apply(List<PendingPayment> batch, Object[] outcomes) {
+        List<String> invoiceNumbers = new ArrayList<>(batch.size());
+        List<BigDecimal> amounts = new ArrayList<>(batch.size());
+        for (PendingPayment pending : batch) {
+            invoiceNumbers.add(pending.request.getInvoiceNumber());
+            amounts.add(pending.request.getAmount());
+        }
+        boolean[] applied = invoiceJdbcRepository.applyPayments(invoiceNumbers, amounts);
+
+        List<String> paidInvoiceNumbers = new ArrayList<>(batch.size());
+        List<Payment> payments = new ArrayList<>(batch.size());
+        Map<String, Optional<Invoice>> rejectedInvoices = new HashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PaymentRequestDto request = batch.get(i).request;
+            if (applied[i]) {
+                paidInvoiceNumbers.add(request.getInvoiceNumber());
+                payments.add(PayInvoiceCommandHandler.toPayment(request));
+                commandJournal.append(batch.get(i).command);
+            } else {
+                outcomes[i] = PaymentRejections.explain(request, rejectedInvoices.computeIfAbsent(
+                        request.getInvoiceNumber(), invoiceJdbcRepository::findHeaderByInvoiceNumber));
+            }
+        }
+        paymentJdbcRepository.batchInsertForInvoiceNumbers(paidInvoiceNumbers, payments);
+        invoiceSummaryRepository.applyPayments(paidInvoiceNumbers, payments);
+        invoiceLedgerRepository.appendPayments(paidInvoiceNumbers, payments);
+
+        Set<String> distinctInvoiceNumbers = new LinkedHashSet<>(paidInvoiceNumbers);
+        Map<String, InvoiceResponseDto> responses = new HashMap<>();
+        Map<String, String> customerNames = new HashMap<>();
+        for (Invoice invoice : invoiceFetchPlan.findByInvoiceNumbers(distinctInvoiceNumbers)) {
+            responses.put(invoice.getInvoiceNumber(), invoiceMapper.toDto(invoice));
+            customerNames.put(invoice.getInvoiceNumber(), invoice.getCustomerName());
+        }
+        List<InvoiceEvent> events = new ArrayList<>(payments.size());
+        for (int i = 0; i < payments.size(); i++) {
+            String invoiceNumber = paidInvoiceNumbers.get(i);
+            events.add(InvoiceEvent.paymentApplied(invoiceNumber, customerNames.get(invoiceNumber), payments.get(i)));
+        }
+        outbox.append(events);
+        eventPublisher.publishEvent(new InvoicesChangedEvent(new HashSet<>(customerNames.values())));
+        for (int i = 0; i < batch.size(); i++) {
+            if (applied[i]) {
+                outcomes[i] = responses.get(batch.get(i).request.getInvoiceNumber());
+            }
+        }
+    }
+
+    private static final class PendingPayment {
+        private final PayInvoiceCommand command;
+        private final PaymentRequestDto request;
+        private final CompletableFuture<InvoiceResponseDto> result = new CompletableFuture<>();
+
+        private PendingPayment(PayInvoiceCommand command) {
+            this.command = command;
+            this.request = command.getPaymentRequestDto();
+        }
+    }
+}
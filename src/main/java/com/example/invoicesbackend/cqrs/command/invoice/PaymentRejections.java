@@ -0,0 +1,37 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.model.Invoice;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.Optional;
+
+/**
+ * Explains why a conditional payment UPDATE did not match, with the same errors as the entity path.
+ */
+final class PaymentRejections {
+
+    private PaymentRejections() {
+    }
+
+    /**
+     * @param request The rejected payment
+     * @param invoice The invoice header as read after the rejection
+     * @return The exception to report to the caller
+     */
+    static RuntimeException explain(PaymentRequestDto request, Optional<Invoice> invoice) {
+        String invoiceNumber = request.getInvoiceNumber();
+        if (invoice.isEmpty()) {
+            return new IllegalArgumentException("Invoice with number " + invoiceNumber + " not found");
+        }
+        if (Invoice.InvoiceStatus.PAID.equals(invoice.get().getStatus())) {
+            return new IllegalStateException("Invoice with number " + invoiceNumber + " is already PAID");
+        }
+        if (request.getAmount().compareTo(invoice.get().getDebtAmount()) > 0) {
+            return new IllegalArgumentException("Payment amount " + request.getAmount() +
+                " it's bigger than invoice amount " + invoice.get().getAmount());
+        }
+        // The invoice changed between the update and this read; the retry policy runs the payment again
+        return new ConcurrencyFailureException("Invoice with number " + invoiceNumber + " was modified concurrently");
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.Command;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Command to recompute every invoice's debt_amount and status from the invoice ledger.
+ */
+@Data
+@NoArgsConstructor
+public class RebuildInvoiceDebtCommand implements Command<Integer> {
+}
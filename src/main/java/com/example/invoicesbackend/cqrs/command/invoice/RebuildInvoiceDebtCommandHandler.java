@@ -0,0 +1,50 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQueryHandler;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Handler for the RebuildInvoiceDebtCommand.
+ * Only invoices whose debt disagrees with their ledger are written, so the result is the number of invoices
+ * that had drifted. Invoice summaries are corrected in the same transaction.
+ */
+@Component
+public class RebuildInvoiceDebtCommandHandler implements CommandHandler<RebuildInvoiceDebtCommand, Integer> {
+
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    public RebuildInvoiceDebtCommandHandler(InvoiceLedgerRepository invoiceLedgerRepository,
+                                            ApplicationEventPublisher eventPublisher) {
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    @Transactional
+    public Integer handle(RebuildInvoiceDebtCommand command) {
+        Set<String> customerNames = invoiceLedgerRepository.findCustomersWithDebtDrift();
+        int corrected = invoiceLedgerRepository.rebuildDebt();
+        if (corrected > 0) {
+            eventPublisher.publishEvent(new InvoicesChangedEvent(customerNames));
+        }
+        return corrected;
+    }
+
+    @Override
+    public Collection<CacheEviction> evictions(RebuildInvoiceDebtCommand command) {
+        return Collections.singletonList(CacheEviction.all(GetInvoiceByInvoiceNumberQueryHandler.CACHE_REGION));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.Command;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Command to regenerate the invoice_summary projection from the invoices, line_items and payments tables.
+ */
+@Data
+@NoArgsConstructor
+public class RebuildInvoiceSummaryCommand implements Command<Integer> {
+}
@@ -0,0 +1,29 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Handler for the RebuildInvoiceSummaryCommand.
+ * Replaces the projection in one transaction with two set-based statements, so readers see either
+ * the old or the new summaries. Used after restoring data or changing how summaries are computed.
+ */
+@Component
+public class RebuildInvoiceSummaryCommandHandler implements CommandHandler<RebuildInvoiceSummaryCommand, Integer> {
+
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+
+    @Autowired
+    public RebuildInvoiceSummaryCommandHandler(InvoiceSummaryRepository invoiceSummaryRepository) {
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+    }
+
+    @Override
+    @Transactional
+    public Integer handle(RebuildInvoiceSummaryCommand command) {
+        return invoiceSummaryRepository.rebuild();
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.Command;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Command to snapshot invoice balances from the ledger: the entries effective on or before asOf and recorded
+ * before recordedBefore.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SnapshotInvoiceBalancesCommand implements Command<Integer> {
+    private LocalDate asOf;
+    private LocalDateTime recordedBefore;
+}
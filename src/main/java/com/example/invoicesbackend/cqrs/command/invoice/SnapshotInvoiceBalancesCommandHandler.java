@@ -0,0 +1,33 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Handler for the SnapshotInvoiceBalancesCommand.
+ * Writes all snapshots with one set-based statement, only for invoices with at least
+ * {@code invoices.ledger.snapshot.min-entries} entries not covered by their latest snapshot.
+ */
+@Component
+public class SnapshotInvoiceBalancesCommandHandler implements CommandHandler<SnapshotInvoiceBalancesCommand, Integer> {
+
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+    private final int minEntries;
+
+    @Autowired
+    public SnapshotInvoiceBalancesCommandHandler(InvoiceLedgerRepository invoiceLedgerRepository,
+                                                 @Value("${invoices.ledger.snapshot.min-entries:10}") int minEntries) {
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.minEntries = minEntries;
+    }
+
+    @Override
+    @Transactional
+    public Integer handle(SnapshotInvoiceBalancesCommand command) {
+        return invoiceLedgerRepository.snapshotBalances(command.getAsOf(), command.getRecordedBefore(), minEntries);
+    }
+}
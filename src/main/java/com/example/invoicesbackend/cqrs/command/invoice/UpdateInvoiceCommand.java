@@ -9,10 +9,16 @@ import lombok.NoArgsConstructor;
 
 /**
  * Command to update an existing invoice.
+ * Carries the version the invoice must still have (from an If-Match header), if any.
  */
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class UpdateInvoiceCommand implements Command<InvoiceResponseDto> {
     private UpdateInvoiceRequestDto updateInvoiceRequestDto;
+    private Long expectedVersion;
+
+    public UpdateInvoiceCommand(UpdateInvoiceRequestDto updateInvoiceRequestDto) {
+        this.updateInvoiceRequestDto = updateInvoiceRequestDto;
+    }
 }
\ No newline at end of file
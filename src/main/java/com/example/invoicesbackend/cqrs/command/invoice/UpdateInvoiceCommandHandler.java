@@ -1,22 +1,36 @@
 package com.example.invoicesbackend.cqrs.command.invoice;
 
-import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityNotFoundException;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.example.invoicesbackend.cqrs.CacheEviction;
 import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.cqrs.outbox.Outbox;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQueryHandler;
 import com.example.invoicesbackend.dto.request.LineItemRequestDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
 import com.example.invoicesbackend.mapper.InvoiceMapper;
 import com.example.invoicesbackend.mapper.LineItemMapper;
 import com.example.invoicesbackend.model.Invoice;
 import com.example.invoicesbackend.model.LineItem;
+import com.example.invoicesbackend.model.Money;
 import com.example.invoicesbackend.repository.InvoiceRepository;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
 import com.example.invoicesbackend.repository.LineItemRepository;
 
 /**
@@ -31,19 +45,39 @@ public class UpdateInvoiceCommandHandler implements CommandHandler<UpdateInvoice
 
     private final LineItemRepository lineItemRepository;
 
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+
+    private final Outbox outbox;
+
+    private final CommandJournal commandJournal;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     @Autowired
-    public UpdateInvoiceCommandHandler(InvoiceRepository invoiceRepository, InvoiceMapper invoiceMapper, LineItemRepository lineItemRepository) {
+    public UpdateInvoiceCommandHandler(InvoiceRepository invoiceRepository, InvoiceMapper invoiceMapper, LineItemRepository lineItemRepository,
+                                       InvoiceSummaryRepository invoiceSummaryRepository,
+                                       InvoiceLedgerRepository invoiceLedgerRepository, Outbox outbox, CommandJournal commandJournal,
+                                       ApplicationEventPublisher eventPublisher) {
         this.invoiceRepository = invoiceRepository;
         this.invoiceMapper = invoiceMapper;
         this.lineItemRepository = lineItemRepository;
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+        this.outbox = outbox;
+        this.commandJournal = commandJournal;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
+    @Transactional
     public InvoiceResponseDto handle(UpdateInvoiceCommand command) {
         Invoice invoice = invoiceRepository
               .findByInvoiceNumber(command.getUpdateInvoiceRequestDto().getInvoiceNumber())
               .orElseThrow(
                     () -> new EntityNotFoundException("Invoice not found with number: " + command.getUpdateInvoiceRequestDto().getInvoiceNumber()));
+        VersionPreconditions.check(invoice.getInvoiceNumber(), command.getExpectedVersion(), invoice.getVersion());
 
         // Only update if the invoice number is not changed or the new invoice number doesn't exist
         if (!invoice.getInvoiceNumber().equals(command.getUpdateInvoiceRequestDto().getInvoiceNumber()) && invoiceRepository.existsByInvoiceNumber(
@@ -59,25 +93,27 @@ public class UpdateInvoiceCommandHandler implements CommandHandler<UpdateInvoice
         // Add the new line items to the invoice
         addItemsToInvoice(command.getUpdateInvoiceRequestDto().getLineItems(), invoice);
 
-        // Calculate the total amount
+        // Calculate the total amount; the new items are owed on top of the current debt
         invoice.calculateAmount();
-
-        // Save the invoice
-        Invoice updatedInvoice = invoiceRepository.save(invoice);
+        Money addedAmount = InvoiceRequests.totalAmount(command.getUpdateInvoiceRequestDto().getLineItems());
+        invoice.setDebtAmount(Money.of(invoice.getDebtAmount()).plus(addedAmount).toBigDecimal());
+
+        // Save the invoice; flushing first locks the invoice row before its summary row, as the payment paths do
+        Invoice updatedInvoice = invoiceRepository.saveAndFlush(invoice);
+        invoiceSummaryRepository.updateHeader(updatedInvoice);
+        if (addedAmount.signum() != 0) {
+            LocalDate today = LocalDate.now();
+            invoiceLedgerRepository.appendLineItemsAdded(updatedInvoice.getId(), addedAmount.toBigDecimal(), today);
+            outbox.append(InvoiceEvent.lineItemsAdded(updatedInvoice, addedAmount.toBigDecimal(), today));
+        }
+        commandJournal.append(command);
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singleton(updatedInvoice.getCustomerName())));
 
         // Create a fresh DTO from the updated invoice to avoid duplication
         InvoiceResponseDto responseDto = invoiceMapper.toDto(updatedInvoice);
         return responseDto;
     }
 
-    private BigDecimal calculateTotalAmount(List<LineItemRequestDto> items) {
-        BigDecimal totalAmount = BigDecimal.ZERO;
-        for (LineItemRequestDto item : items) {
-            totalAmount = totalAmount.add(item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
-        }
-        return totalAmount;
-    }
-
     private void addItemsToInvoice(List<LineItemRequestDto> items, Invoice invoice) {
         // Create LineItem entities without saving them
         List<LineItem> lineItems = items.stream().map(lineItemDto -> {
@@ -92,4 +128,10 @@ public class UpdateInvoiceCommandHandler implements CommandHandler<UpdateInvoice
             lineItemRepository.saveAll(lineItems);
         }
     }
+
+    @Override
+    public Collection<CacheEviction> evictions(UpdateInvoiceCommand command) {
+        return Collections.singletonList(CacheEviction.of(GetInvoiceByInvoiceNumberQueryHandler.CACHE_REGION,
+                new GetInvoiceByInvoiceNumberQuery(command.getUpdateInvoiceRequestDto().getInvoiceNumber())));
+    }
 }
@@ -0,0 +1,25 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.exception.PreconditionFailedException;
+
+/**
+ * Checks the version a conditional command expects (from If-Match) against the invoice it is about to change.
+ */
+final class VersionPreconditions {
+
+    private VersionPreconditions() {
+    }
+
+    /**
+     * @param invoiceNumber The invoice number
+     * @param expectedVersion The version the client last saw, or null if the command is unconditional
+     * @param version The invoice's current version
+     * @throws PreconditionFailedException if the invoice has changed since the client saw it
+     */
+    static void check(String invoiceNumber, Long expectedVersion, Long version) {
+        if (expectedVersion != null && !expectedVersion.equals(version)) {
+            throw new PreconditionFailedException("Invoice with number " + invoiceNumber + " is at version " + version
+                    + ", not at the expected version " + expectedVersion);
+        }
+    }
+}
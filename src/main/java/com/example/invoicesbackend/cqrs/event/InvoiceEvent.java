@@ -0,0 +1,48 @@
+package com.example.invoicesbackend.cqrs.event;
+
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.Payment;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Domain event for downstream consumers, written to the outbox by the command that caused it.
+ * amount is the invoice total, the total of the added line items or the payment, depending on the type;
+ * effectiveDate is the matching business date, as in the ledger.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceEvent {
+
+    public enum Type {
+        INVOICE_CREATED, LINE_ITEMS_ADDED, PAYMENT_APPLIED
+    }
+
+    private Type eventType;
+    private String invoiceNumber;
+    private String customerName;
+    private BigDecimal amount;
+    private LocalDate effectiveDate;
+    private Long paymentId;
+    private String paymentMethod;
+
+    public static InvoiceEvent created(Invoice invoice) {
+        return new InvoiceEvent(Type.INVOICE_CREATED, invoice.getInvoiceNumber(), invoice.getCustomerName(),
+                invoice.getAmount(), invoice.getInvoiceDate(), null, null);
+    }
+
+    public static InvoiceEvent lineItemsAdded(Invoice invoice, BigDecimal addedAmount, LocalDate effectiveDate) {
+        return new InvoiceEvent(Type.LINE_ITEMS_ADDED, invoice.getInvoiceNumber(), invoice.getCustomerName(),
+                addedAmount, effectiveDate, null, null);
+    }
+
+    public static InvoiceEvent paymentApplied(String invoiceNumber, String customerName, Payment payment) {
+        return new InvoiceEvent(Type.PAYMENT_APPLIED, invoiceNumber, customerName,
+                payment.getAmount(), payment.getPaymentDate(), payment.getId(), payment.getPaymentMethod());
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.invoicesbackend.cqrs.event;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Collection;
+
+/**
+ * Published by commands that create invoices or change their debt, inside the command's transaction.
+ * Listeners maintaining derived state should use {@code @TransactionalEventListener} so they only see committed changes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoicesChangedEvent {
+    private Collection<String> customerNames;
+}
@@ -0,0 +1,210 @@
+package com.example.invoicesbackend.cqrs.idempotency;
+
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.IdempotentCommand;
+import com.example.invoicesbackend.model.IdempotencyKey;
+import com.example.invoicesbackend.repository.IdempotencyKeyRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates commands carrying an Idempotency-Key.
+ * The first command with a key claims it in the idempotency_keys table before running, and stores its JSON response
+ * once it succeeds; a failed command releases the key. Repeats are answered with the stored response, from a
+ * size-bounded in-memory cache expiring after {@code invoices.idempotency.ttl} when possible and from the table
+ * otherwise. A repeat arriving while the first command still runs is rejected as a conflict.
+ * A claim is only held for {@code invoices.idempotency.lease}: if the process dies or the response cannot be stored,
+ * a retry after the lease takes the key over instead of being rejected until the ttl runs out.
+ * Completed keys are kept for {@code invoices.idempotency.ttl}; expired rows are purged at most once per
+ * {@code purge-interval}.
+ */
+@Component
+public class IdempotencyStore {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyStore.class);
+
+    public static final String CACHE_NAME = "idempotency";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+    private final Duration lease;
+    private final long purgeIntervalMillis;
+    private final Cache<String, StoredResponse> responses;
+    private final AtomicLong lastPurge = new AtomicLong();
+
+    @Autowired
+    public IdempotencyStore(IdempotencyKeyRepository idempotencyKeyRepository, ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry,
+                            @Value("${invoices.idempotency.ttl:24h}") Duration ttl,
+                            @Value("${invoices.idempotency.lease:1m}") Duration lease,
+                            @Value("${invoices.idempotency.cache-size:10000}") long cacheSize,
+                            @Value("${invoices.idempotency.purge-interval:1h}") Duration purgeInterval) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+        this.lease = lease;
+        this.purgeIntervalMillis = purgeInterval.toMillis();
+        this.responses = Caffeine.newBuilder()
+                .maximumSize(cacheSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, responses, CACHE_NAME);
+    }
+
+    /**
+     * Decorates a command handler so that commands repeated with the same idempotency key are not run again.
+     *
+     * @param handler The handler to decorate
+     * @param responseType The type of the handler's responses, which must round-trip through JSON
+     * @return A deduplicating handler
+     */
+    public <C extends IdempotentCommand<R>, R> CommandHandler<C, R> idempotent(CommandHandler<C, R> handler, Class<R> responseType) {
+        return new IdempotentCommandHandler<>(handler, this, responseType);
+    }
+
+    <R> R execute(IdempotentCommand<R> command, Class<R> responseType, Supplier<R> action) {
+        String key = command.getIdempotencyKey();
+        if (key == null) {
+            return action.get();
+        }
+        if (key.trim().isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+        String commandType = command.getClass().getSimpleName();
+        String requestHash = fingerprint(command);
+
+        StoredResponse stored = responses.getIfPresent(key);
+        if (stored != null) {
+            checkSameRequest(key, stored.commandType, stored.requestHash, commandType, requestHash);
+            return responseType.cast(stored.response);
+        }
+
+        // Millisecond precision so the claim time reads back unchanged when completing or releasing the claim
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        purgeExpired(now);
+        if (!idempotencyKeyRepository.claim(key, commandType, requestHash, now, now.plus(lease))) {
+            return replay(key, commandType, requestHash, responseType, now);
+        }
+        R response;
+        try {
+            response = action.get();
+        } catch (RuntimeException ex) {
+            idempotencyKeyRepository.release(key, now);
+            throw ex;
+        }
+        if (!idempotencyKeyRepository.complete(key, now, toJson(response), Instant.now().plus(ttl))) {
+            log.warn("Idempotency-Key {} outlived its {} lease; its response was not stored", key, lease);
+            return response;
+        }
+        cache(key, new StoredResponse(commandType, requestHash, response));
+        return response;
+    }
+
+    void clearCache() {
+        responses.invalidateAll();
+    }
+
+    private <R> R replay(String key, String commandType, String requestHash, Class<R> responseType, Instant now) {
+        IdempotencyKey existing = idempotencyKeyRepository.findByKey(key, now)
+                .orElseThrow(() -> new ConcurrencyFailureException("Idempotency-Key " + key + " was released concurrently; retry the request"));
+        checkSameRequest(key, existing.getCommandType(), existing.getRequestHash(), commandType, requestHash);
+        if (existing.getStatus() == IdempotencyKey.Status.IN_PROGRESS) {
+            throw new ConcurrencyFailureException("A request with Idempotency-Key " + key + " is still in progress");
+        }
+        R response = fromJson(existing.getResponse(), responseType);
+        cache(key, new StoredResponse(commandType, requestHash, response));
+        return response;
+    }
+
+    private static void checkSameRequest(String key, String storedCommandType, String storedRequestHash,
+                                         String commandType, String requestHash) {
+        if (!storedCommandType.equals(commandType) || !storedRequestHash.equals(requestHash)) {
+            throw new IllegalArgumentException("Idempotency-Key " + key + " was already used for a different request");
+        }
+    }
+
+    private void cache(String key, StoredResponse response) {
+        // Inside a caller's transaction the response only becomes real once it commits
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    responses.put(key, response);
+                }
+            });
+        } else {
+            responses.put(key, response);
+        }
+    }
+
+    private void purgeExpired(Instant now) {
+        long last = lastPurge.get();
+        if (now.toEpochMilli() - last >= purgeIntervalMillis && lastPurge.compareAndSet(last, now.toEpochMilli())) {
+            idempotencyKeyRepository.deleteExpired(now);
+        }
+    }
+
+    private String fingerprint(Object command) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(objectMapper.writeValueAsBytes(command));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (JsonProcessingException | NoSuchAlgorithmException ex) {
+            throw new IllegalStateException("Cannot fingerprint " + command.getClass().getSimpleName(), ex);
+        }
+    }
+
+    private String toJson(Object response) {
+        try {
+            return objectMapper.writeValueAsString(response);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot store response " + response.getClass().getSimpleName(), ex);
+        }
+    }
+
+    private <R> R fromJson(String json, Class<R> responseType) {
+        try {
+            return objectMapper.readValue(json, responseType);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot read stored " + responseType.getSimpleName(), ex);
+        }
+    }
+
+    private static final class StoredResponse {
+        private final String commandType;
+        private final String requestHash;
+        private final Object response;
+
+        private StoredResponse(String commandType, String requestHash, Object response) {
+            this.commandType = commandType;
+            this.requestHash = requestHash;
+            this.response = response;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.invoicesbackend.cqrs.idempotency;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.IdempotentCommand;
+
+import java.util.Collection;
+
+/**
+ * Command handler decorator returning the stored response of a command repeated with the same idempotency key.
+ */
+class IdempotentCommandHandler<C extends IdempotentCommand<R>, R> implements CommandHandler<C, R> {
+
+    private final CommandHandler<C, R> delegate;
+    private final IdempotencyStore idempotencyStore;
+    private final Class<R> responseType;
+
+    IdempotentCommandHandler(CommandHandler<C, R> delegate, IdempotencyStore idempotencyStore, Class<R> responseType) {
+        this.delegate = delegate;
+        this.idempotencyStore = idempotencyStore;
+        this.responseType = responseType;
+    }
+
+    @Override
+    public R handle(C command) {
+        return idempotencyStore.execute(command, responseType, () -> delegate.handle(command));
+    }
+
+    @Override
+    public Collection<CacheEviction> evictions(C command) {
+        return delegate.evictions(command);
+    }
+}
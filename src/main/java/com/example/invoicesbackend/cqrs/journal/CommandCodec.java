@@ -0,0 +1,288 @@
+package com.example.invoicesbackend.cqrs.journal;
+
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoicesBatchCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.PayInvoiceCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.PayInvoicesBatchCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.UpdateInvoiceCommand;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.model.Invoice;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary encoding of the journaled commands: a type byte, then the fields in declaration order.
+ * Integers are zigzag varints, so small values take one byte; strings are UTF-8 after their length, nullable values
+ * are preceded by a presence byte, and enums are written by name so that reordering their constants is safe.
+ * Journals written by one version are replayed by the next, so changing a command's encoding needs a new type byte,
+ * with the old one still decoded.
+ */
+final class CommandCodec {
+
+    private static final byte CREATE_INVOICE = 1;
+    private static final byte UPDATE_INVOICE = 2;
+    private static final byte PAY_INVOICE = 3;
+    private static final byte CREATE_INVOICES_BATCH = 4;
+    private static final byte PAY_INVOICES_BATCH = 5;
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private CommandCodec() {
+    }
+
+    /**
+     * @param type A command type
+     * @return Whether commands of the type can be encoded
+     */
+    static boolean supports(Class<?> type) {
+        return type == CreateInvoiceCommand.class || type == UpdateInvoiceCommand.class || type == PayInvoiceCommand.class
+                || type == CreateInvoicesBatchCommand.class || type == PayInvoicesBatchCommand.class;
+    }
+
+    /**
+     * @param command The command to encode; of a supported type
+     * @return The encoded command, ready to be read
+     */
+    static ByteBuffer encode(Command<?> command) {
+        for (int capacity = INITIAL_CAPACITY; ; capacity *= 2) {
+            ByteBuffer out = ByteBuffer.allocate(capacity);
+            try {
+                encode(command, out);
+                return out.flip();
+            } catch (BufferOverflowException ex) {
+                // Encoded again into a buffer twice as large
+            }
+        }
+    }
+
+    private static void encode(Command<?> command, ByteBuffer out) {
+        if (command instanceof CreateInvoiceCommand) {
+            CreateInvoiceCommand create = (CreateInvoiceCommand) command;
+            out.put(CREATE_INVOICE);
+            writeInvoiceRequest(out, create.getInvoiceRequestDto());
+            writeString(out, create.getIdempotencyKey());
+        } else if (command instanceof UpdateInvoiceCommand) {
+            UpdateInvoiceCommand update = (UpdateInvoiceCommand) command;
+            out.put(UPDATE_INVOICE);
+            writeString(out, update.getUpdateInvoiceRequestDto().getInvoiceNumber());
+            writeLineItems(out, update.getUpdateInvoiceRequestDto().getLineItems());
+            writeNullableLong(out, update.getExpectedVersion());
+        } else if (command instanceof PayInvoiceCommand) {
+            PayInvoiceCommand pay = (PayInvoiceCommand) command;
+            out.put(PAY_INVOICE);
+            writePaymentRequest(out, pay.getPaymentRequestDto());
+            writeString(out, pay.getIdempotencyKey());
+            writeNullableLong(out, pay.getExpectedVersion());
+        } else if (command instanceof CreateInvoicesBatchCommand) {
+            List<InvoiceRequestDto> requests = ((CreateInvoicesBatchCommand) command).getInvoiceRequestDtos();
+            out.put(CREATE_INVOICES_BATCH);
+            writeVarLong(out, requests.size());
+            for (InvoiceRequestDto request : requests) {
+                writeInvoiceRequest(out, request);
+            }
+        } else if (command instanceof PayInvoicesBatchCommand) {
+            List<PaymentRequestDto> requests = ((PayInvoicesBatchCommand) command).getPaymentRequestDtos();
+            out.put(PAY_INVOICES_BATCH);
+            writeVarLong(out, requests.size());
+            for (PaymentRequestDto request : requests) {
+                writePaymentRequest(out, request);
+            }
+        } else {
+            throw new IllegalArgumentException("Commands of type " + command.getClass().getSimpleName() + " are not journaled");
+        }
+    }
+
+    /**
+     * @param in An encoded command, read up to its end
+     * @return The command
+     * @throws IllegalArgumentException If the command type is unknown
+     */
+    static Command<?> decode(ByteBuffer in) {
+        byte type = in.get();
+        switch (type) {
+            case CREATE_INVOICE:
+                return new CreateInvoiceCommand(readInvoiceRequest(in), readString(in));
+            case UPDATE_INVOICE:
+                return new UpdateInvoiceCommand(new UpdateInvoiceRequestDto(readString(in), readLineItems(in)), readNullableLong(in));
+            case PAY_INVOICE:
+                return new PayInvoiceCommand(readPaymentRequest(in), readString(in), readNullableLong(in));
+            case CREATE_INVOICES_BATCH: {
+                int size = (int) readVarLong(in);
+                List<InvoiceRequestDto> requests = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    requests.add(readInvoiceRequest(in));
+                }
+                return new CreateInvoicesBatchCommand(requests);
+            }
+            case PAY_INVOICES_BATCH: {
+                int size = (int) readVarLong(in);
+                List<PaymentRequestDto> requests = new ArrayList<>(size);
+                for (int i = 0; i < size; i++) {
+                    requests.add(readPaymentRequest(in));
+                }
+                return new PayInvoicesBatchCommand(requests);
+            }
+            default:
+                throw new IllegalArgumentException("Unknown journaled command type " + type);
+        }
+    }
+
+    private static void writeInvoiceRequest(ByteBuffer out, InvoiceRequestDto request) {
+        writeString(out, request.getInvoiceNumber());
+        writeString(out, request.getCustomerName());
+        writeDate(out, request.getInvoiceDate());
+        writeString(out, request.getDescription());
+        writeString(out, request.getStatus() == null ? null : request.getStatus().name());
+        writeLineItems(out, request.getLineItems());
+    }
+
+    private static InvoiceRequestDto readInvoiceRequest(ByteBuffer in) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(readString(in));
+        request.setCustomerName(readString(in));
+        request.setInvoiceDate(readDate(in));
+        request.setDescription(readString(in));
+        String status = readString(in);
+        request.setStatus(status == null ? null : Invoice.InvoiceStatus.valueOf(status));
+        request.setLineItems(readLineItems(in));
+        return request;
+    }
+
+    private static void writePaymentRequest(ByteBuffer out, PaymentRequestDto request) {
+        writeString(out, request.getInvoiceNumber());
+        writeDate(out, request.getPaymentDate());
+        writeDecimal(out, request.getAmount());
+        writeString(out, request.getPaymentMethod());
+    }
+
+    private static PaymentRequestDto readPaymentRequest(ByteBuffer in) {
+        return new PaymentRequestDto(readString(in), readDate(in), readDecimal(in), readString(in));
+    }
+
+    private static void writeLineItems(ByteBuffer out, List<LineItemRequestDto> lineItems) {
+        if (lineItems == null) {
+            out.put((byte) 0);
+            return;
+        }
+        out.put((byte) 1);
+        writeVarLong(out, lineItems.size());
+        for (LineItemRequestDto lineItem : lineItems) {
+            writeString(out, lineItem.getDescription());
+            writeDecimal(out, lineItem.getPrice());
+            writeNullableLong(out, lineItem.getQuantity() == null ? null : lineItem.getQuantity().longValue());
+        }
+    }
+
+    private static List<LineItemRequestDto> readLineItems(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        int size = (int) readVarLong(in);
+        List<LineItemRequestDto> lineItems = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            String description = readString(in);
+            BigDecimal price = readDecimal(in);
+            Long quantity = readNullableLong(in);
+            lineItems.add(new LineItemRequestDto(description, price, quantity == null ? null : quantity.intValue()));
+        }
+        return lineItems;
+    }
+
+    private static void writeString(ByteBuffer out, String value) {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.put(bytes);
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = (int) readVarLong(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(ByteBuffer out, LocalDate value) {
+        writeNullableLong(out, value == null ? null : value.toEpochDay());
+    }
+
+    private static LocalDate readDate(ByteBuffer in) {
+        Long epochDay = readNullableLong(in);
+        return epochDay == null ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static void writeDecimal(ByteBuffer out, BigDecimal value) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        out.put((byte) 1);
+        writeVarLong(out, value.scale());
+        byte[] unscaled = value.unscaledValue().toByteArray();
+        writeVarLong(out, unscaled.length);
+        out.put(unscaled);
+    }
+
+    private static BigDecimal readDecimal(ByteBuffer in) {
+        if (in.get() == 0) {
+            return null;
+        }
+        int scale = (int) readVarLong(in);
+        byte[] unscaled = new byte[(int) readVarLong(in)];
+        in.get(unscaled);
+        return new BigDecimal(new BigInteger(unscaled), scale);
+    }
+
+    private static void writeNullableLong(ByteBuffer out, Long value) {
+        if (value == null) {
+            out.put((byte) 0);
+            return;
+        }
+        out.put((byte) 1);
+        writeVarLong(out, value);
+    }
+
+    private static Long readNullableLong(ByteBuffer in) {
+        return in.get() == 0 ? null : readVarLong(in);
+    }
+
+    private static void writeVarLong(ByteBuffer out, long value) {
+        long zigzag = (value << 1) ^ (value >> 63);
+        while ((zigzag & ~0x7FL) != 0) {
+            out.put((byte) ((zigzag & 0x7F) | 0x80));
+            zigzag >>>= 7;
+        }
+        out.put((byte) zigzag);
+    }
+
+    private static long readVarLong(ByteBuffer in) {
+        long zigzag = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            zigzag |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return (zigzag >>> 1) ^ -(zigzag & 1);
+            }
+            if (shift > 56) {
+                throw new IllegalArgumentException("Malformed varint");
+            }
+        }
+    }
+}
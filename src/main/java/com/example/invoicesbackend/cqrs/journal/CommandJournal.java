@@ -0,0 +1,524 @@
+package com.example.invoicesbackend.cqrs.journal;
+
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal of the commands that changed invoices, replayed on startup after the database snapshot is
+ * restored, so that commands accepted since that snapshot survive a crash.
+ * <p>
+ * A handler journals the command replaying its change from inside the transaction making it, and the record is
+ * appended once that transaction commits, to a memory-mapped segment of {@code invoices.journal.segment-size} in
+ * {@code invoices.journal.directory}; a full segment is forced to disk and the next one created. The journal is locked
+ * from just before such a transaction commits until its records are appended, so records are in the order their
+ * transactions committed and a command is never replayed before one it depended on.
+ * <p>
+ * Appending is a copy into the page cache, which outlives a crash of the process; to also survive a crash of the
+ * machine, the journaled handler waits until the segment has been forced to disk. By default each caller forces it
+ * straight away, and the callers that append while a force is running share the next one. With a positive
+ * {@code invoices.journal.fsync-interval} a flusher thread forces it once per interval instead, which saves forces
+ * on disks where they are slow at the cost of up to an interval of latency per command.
+ * <p>
+ * A snapshot takes the same lock while it fixes the database version it reads, so the journal position it records
+ * separates the commands it contains from those it does not. Replay starts at that position and stops at the first
+ * torn record, which is then zeroed so that records appended after the restart are not hidden behind it. The journal
+ * is only appended to once replay has finished; new records always go to a new segment.
+ */
+@Component
+public class CommandJournal implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(CommandJournal.class);
+
+    private final boolean enabled;
+    private final boolean allowReplayFailures;
+    private final Path directory;
+    private final int segmentSize;
+    private final long fsyncIntervalNanos;
+    private final Counter appends;
+    private final Timer fsyncs;
+    private final Map<Class<?>, CommandHandler<?, ?>> handlers = new ConcurrentHashMap<>();
+    // Held from just before a journaling transaction commits until its records are appended, and by checkpoints
+    private final ReentrantLock commitOrder = new ReentrantLock();
+    private final Object forceLock = new Object();
+
+    private volatile JournalSegment segment;
+    private volatile long appended = -1;
+    private volatile long forced = -1;
+    private volatile long replayFrom = -1;
+    private volatile boolean running;
+    private volatile boolean closed;
+    private Thread flusher;
+
+    @Autowired
+    public CommandJournal(MeterRegistry meterRegistry,
+                          @Value("${invoices.journal.enabled:false}") boolean enabled,
+                          @Value("${invoices.journal.directory:data/journal}") String directory,
+                          @Value("${invoices.journal.segment-size:64MB}") DataSize segmentSize,
+                          @Value("${invoices.journal.fsync-interval:0}") Duration fsyncInterval,
+                          @Value("${invoices.journal.allow-replay-failures:false}") boolean allowReplayFailures) {
+        if (segmentSize.toBytes() < 1024 || segmentSize.toBytes() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("invoices.journal.segment-size must be between 1KB and 2GB");
+        }
+        this.enabled = enabled;
+        this.allowReplayFailures = allowReplayFailures;
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.segmentSize = (int) segmentSize.toBytes();
+        this.fsyncIntervalNanos = fsyncInterval.toNanos();
+        this.appends = Counter.builder("invoices.journal.appends")
+                .description("Commands appended to the command journal")
+                .register(meterRegistry);
+        this.fsyncs = Timer.builder("invoices.journal.fsync")
+                .description("Time to force the command journal to disk")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registers a command handler to replay the commands it journals, and decorates it so that it only runs while the
+     * journal is open and returns once what it journaled has been forced to disk.
+     *
+     * @param type The type of the commands, one the journal can encode
+     * @param handler The handler to decorate, which journals its commands with {@link #append}; replay calls it directly
+     * @return A journaling handler, or the handler itself if the journal is disabled
+     */
+    public <C extends Command<R>, R> CommandHandler<C, R> journaled(Class<C> type, CommandHandler<C, R> handler) {
+        if (!enabled) {
+            return handler;
+        }
+        if (!CommandCodec.supports(type)) {
+            throw new IllegalArgumentException("Commands of type " + type.getSimpleName() + " cannot be journaled");
+        }
+        handlers.put(type, handler);
+        return new JournalingCommandHandler<>(handler, this);
+    }
+
+    /**
+     * Journals the command replaying a change to invoices. Inside a transaction the command is appended once the
+     * transaction commits, in commit order, and dropped if it rolls back; outside one it is appended straight away.
+     * Does nothing while the journal is not open, so handlers journal nothing while they replay.
+     *
+     * @param command The command replaying the change, of a type the journal can encode; for a batch, only the items
+     *                that were applied
+     * @throws IllegalArgumentException If the command does not fit in a segment
+     */
+    public void append(Command<?> command) {
+        if (!running) {
+            return;
+        }
+        ByteBuffer payload = CommandCodec.encode(command);
+        if (JournalSegment.HEADER_SIZE + payload.remaining() > segmentSize) {
+            throw new IllegalArgumentException("Command of " + payload.remaining() + " bytes does not fit in a journal segment");
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            commitOrder.lock();
+            try {
+                write(payload);
+            } finally {
+                commitOrder.unlock();
+            }
+            return;
+        }
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            if (synchronization instanceof PendingRecords && ((PendingRecords) synchronization).journal() == this) {
+                ((PendingRecords) synchronization).payloads.add(payload);
+                return;
+            }
+        }
+        PendingRecords pending = new PendingRecords();
+        pending.payloads.add(payload);
+        TransactionSynchronizationManager.registerSynchronization(pending);
+    }
+
+    /**
+     * Waits until the records appended so far have been forced to disk, straight away or by the flusher.
+     */
+    public void awaitForced() {
+        if (enabled && appended >= 0) {
+            awaitForced(appended);
+        }
+    }
+
+    /**
+     * Sets where replay starts when the journal opens. Called while the database is restored, before the journal
+     * is started.
+     *
+     * @param position The journal position recorded with the restored snapshot, 0 to replay the whole journal
+     *                 into an empty database, or -1 to replay nothing
+     */
+    public void replayFrom(long position) {
+        this.replayFrom = position;
+    }
+
+    /**
+     * Runs an action while no journaling transaction commits.
+     *
+     * @param action The action; should be short, since commits wait for it
+     * @return The journal position after the last command appended before the action, or -1 if the journal is
+     *         disabled or not open
+     */
+    public long checkpoint(Runnable action) {
+        if (!enabled) {
+            action.run();
+            return -1;
+        }
+        commitOrder.lock();
+        try {
+            action.run();
+            return running ? appended : -1;
+        } finally {
+            commitOrder.unlock();
+        }
+    }
+
+    /**
+     * Deletes the segments holding only records before the given position; the segment being appended to is kept.
+     *
+     * @param position The position of the oldest checkpoint still needed
+     */
+    public void deleteSegmentsBefore(long position) {
+        JournalSegment current = segment;
+        if (!enabled || position < 0 || current == null) {
+            return;
+        }
+        try {
+            for (Path file : segments()) {
+                long start = JournalSegment.startOf(file);
+                if (start < current.getStart() && start + Files.size(file) <= position) {
+                    Files.deleteIfExists(file);
+                    log.debug("Deleted command journal segment {}", file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            Files.createDirectories(directory);
+            if (replayFrom >= 0) {
+                replay(replayFrom);
+            } else if (!segments().isEmpty()) {
+                log.warn("Not replaying the command journal in {}: the database was not restored from a snapshot "
+                        + "taken with the journal", directory);
+            }
+            List<Path> segments = segments();
+            Path last = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+            long next = last == null ? 0 : JournalSegment.startOf(last) + Files.size(last);
+            segment = JournalSegment.create(directory, next, segmentSize);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        appended = segment.position();
+        forced = appended;
+        closed = false;
+        running = true;
+        if (fsyncIntervalNanos > 0) {
+            flusher = new Thread(this::flush, "command-journal-flusher");
+            flusher.setDaemon(true);
+            flusher.start();
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        // Lets a transaction committing append its records before the journal closes
+        commitOrder.lock();
+        try {
+            running = false;
+        } finally {
+            commitOrder.unlock();
+        }
+        if (flusher != null) {
+            LockSupport.unpark(flusher);
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            force();
+        } finally {
+            synchronized (forceLock) {
+                closed = true;
+                forceLock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Starts, and so replays, before the web server, which starts in phase {@code Integer.MAX_VALUE - 1}, and before
+     * the payment group committer and the snapshot scheduler; stops after all of them, so the commands of the
+     * requests they finish are still appended.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 3;
+    }
+
+    <R> R run(Supplier<R> action) {
+        if (!running) {
+            throw new IllegalStateException("The command journal is not open");
+        }
+        long before = appended;
+        R result = action.get();
+        long end = appended;
+        // Waits for the records appended meanwhile, the command's own among them
+        if (end > before) {
+            awaitForced(end);
+        }
+        return result;
+    }
+
+    /**
+     * Replays the journal from a position through the registered handlers, stopping at the first torn record.
+     * Only commands that succeeded were journaled, so one that fails on replay means the database has diverged from
+     * the one it first ran against; replay stops there unless {@code invoices.journal.allow-replay-failures} is set,
+     * in which case the command is logged and skipped.
+     *
+     * @param from The journal position to start at
+     * @return The number of commands replayed
+     * @throws IOException If a segment cannot be read or a torn record cannot be zeroed
+     * @throws IllegalStateException If a replayed command fails and failures are not allowed
+     */
+    long replay(long from) throws IOException {
+        long started = System.nanoTime();
+        Replay replay = new Replay();
+        CRC32C crc = new CRC32C();
+        List<Path> segments = segments();
+        for (int i = 0; i < segments.size(); i++) {
+            Path file = segments.get(i);
+            long start = JournalSegment.startOf(file);
+            ByteBuffer data = JournalSegment.read(file);
+            int offset = (int) Math.max(0, Math.min(from - start, data.limit()));
+            while (true) {
+                ByteBuffer payload = JournalSegment.record(data, offset, crc);
+                if (payload == null) {
+                    log.warn("Torn command journal record at position {}; replay stops there", start + offset);
+                    JournalSegment.truncate(file, offset);
+                    if (i < segments.size() - 1) {
+                        log.error("{} command journal segments after the torn record were not replayed", segments.size() - 1 - i);
+                    }
+                    return replay.finish(started);
+                }
+                if (!payload.hasRemaining()) {
+                    break;
+                }
+                int length = payload.remaining();
+                try {
+                    replay.accept(CommandCodec.decode(payload), start + offset);
+                } catch (IllegalArgumentException | IndexOutOfBoundsException | java.nio.BufferUnderflowException ex) {
+                    throw new IllegalStateException("Unreadable command journal record at position " + (start + offset), ex);
+                }
+                offset += JournalSegment.HEADER_SIZE + length;
+            }
+        }
+        return replay.finish(started);
+    }
+
+    long position() {
+        return appended;
+    }
+
+    // Called holding commitOrder
+    private long write(ByteBuffer payload) {
+        if (!segment.append(payload)) {
+            rotate();
+            segment.append(payload);
+        }
+        appends.increment();
+        appended = segment.position();
+        return appended;
+    }
+
+    // Called while appending: the records of a full segment are forced before any is written to the next one
+    private void rotate() {
+        JournalSegment full = segment;
+        full.force();
+        try {
+            segment = JournalSegment.create(directory, full.getEnd(), segmentSize);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private void awaitForced(long end) {
+        if (fsyncIntervalNanos == 0) {
+            force();
+            return;
+        }
+        synchronized (forceLock) {
+            while (forced < end && !closed) {
+                try {
+                    forceLock.wait();
+                } catch (InterruptedException e) {
+                    // The record is appended and will be forced; the caller just stops waiting for it
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void force() {
+        synchronized (forceLock) {
+            long target = appended;
+            if (target <= forced) {
+                return;
+            }
+            // Records before target are in this segment or in full ones, which were forced when they filled up
+            JournalSegment current = segment;
+            fsyncs.record(current::force);
+            forced = target;
+            forceLock.notifyAll();
+        }
+    }
+
+    private void flush() {
+        while (running) {
+            LockSupport.parkNanos(fsyncIntervalNanos);
+            try {
+                force();
+            } catch (RuntimeException ex) {
+                log.error("Could not force the command journal to disk", ex);
+            }
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> JournalSegment.startOf(file) >= 0)
+                    .sorted(Comparator.comparingLong(JournalSegment::startOf))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * The records journaled in a transaction, appended once it commits. The journal is locked just before the commit,
+     * so a transaction committing meanwhile cannot append its records first, and unlocked once the transaction has
+     * completed, whether it committed or not.
+     */
+    private final class PendingRecords implements TransactionSynchronization {
+
+        private final List<ByteBuffer> payloads = new ArrayList<>();
+        private boolean locked;
+
+        CommandJournal journal() {
+            return CommandJournal.this;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commitOrder.lock();
+            locked = true;
+        }
+
+        @Override
+        public void afterCommit() {
+            for (ByteBuffer payload : payloads) {
+                write(payload);
+            }
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            if (locked) {
+                locked = false;
+                commitOrder.unlock();
+            }
+        }
+    }
+
+    /**
+     * Replays decoded commands in order, each through the handler it was journaled by, so that every invoice ends up
+     * with the versions its ETags were given when the commands first ran.
+     */
+    private final class Replay {
+
+        private long commands;
+        private long failed;
+
+        @SuppressWarnings("unchecked")
+        void accept(Command<?> command, long position) {
+            CommandHandler<Command<Object>, Object> handler = (CommandHandler<Command<Object>, Object>) handlers.get(command.getClass());
+            if (handler == null) {
+                throw new IllegalStateException("No handler registered to replay " + command.getClass().getSimpleName());
+            }
+            commands++;
+            try {
+                handler.handle((Command<Object>) command);
+            } catch (RuntimeException ex) {
+                if (!allowReplayFailures) {
+                    throw new IllegalStateException(command.getClass().getSimpleName() + " at command journal position "
+                            + position + " succeeded when first run but failed on replay; set "
+                            + "invoices.journal.allow-replay-failures=true to skip it", ex);
+                }
+                failed++;
+                log.error("{} at command journal position {} succeeded when first run but failed on replay; skipped",
+                        command.getClass().getSimpleName(), position, ex);
+            }
+        }
+
+        long finish(long started) {
+            log.info("Replayed {} commands from the command journal in {} ms", commands,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            if (failed > 0) {
+                log.error("{} commands failed on replay and were skipped; the database may not match the one they "
+                        + "first ran against", failed);
+            }
+            return commands;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.example.invoicesbackend.cqrs.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * One file of the command journal, memory-mapped in full. Its name holds the journal position of its first byte.
+ * <p>
+ * Records are a length, a CRC32C of the payload and the payload. The file is created at its full size, zero-filled,
+ * so a zero length marks the end of the records; a record whose length runs past the end of the file or whose CRC
+ * does not match was torn by a crash while it was written.
+ */
+final class JournalSegment {
+
+    static final int HEADER_SIZE = 8;
+
+    private static final String PREFIX = "commands-";
+    private static final String SUFFIX = ".journal";
+
+    private final Path file;
+    private final long start;
+    private final MappedByteBuffer buffer;
+    private final CRC32C crc = new CRC32C();
+
+    private JournalSegment(Path file, long start, MappedByteBuffer buffer) {
+        this.file = file;
+        this.start = start;
+        this.buffer = buffer;
+    }
+
+    /**
+     * Creates a segment to append to.
+     *
+     * @param directory The journal directory
+     * @param start The journal position of the segment's first byte
+     * @param size The size of the segment file
+     * @return The segment, positioned at its first byte
+     * @throws IOException If the file exists or cannot be created and mapped
+     */
+    static JournalSegment create(Path directory, long start, int size) throws IOException {
+        Path file = directory.resolve(fileName(start));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // Mapping past the end grows the file; the mapping stays valid once the channel is closed
+            return new JournalSegment(file, start, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+    }
+
+    /**
+     * Maps an existing segment to read its records.
+     *
+     * @param file The segment file
+     * @return A read-only view of the file
+     * @throws IOException If the file cannot be mapped
+     */
+    static ByteBuffer read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Zeroes an existing segment from the given offset to its end and forces it to disk, so that a torn record
+     * there reads as the end of the records from then on.
+     *
+     * @param file The segment file
+     * @param offset The offset of the torn record
+     * @throws IOException If the file cannot be mapped
+     */
+    static void truncate(Path file, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            for (int i = offset; i < buffer.limit(); i++) {
+                buffer.put(i, (byte) 0);
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Reads the record at the given offset.
+     *
+     * @param segment A segment mapped with {@link #read}
+     * @param offset The offset of a record
+     * @param crc The checksum to compute the payload's CRC with
+     * @return The record's payload; an empty buffer at the end of the records, or null if the record is torn
+     */
+    static ByteBuffer record(ByteBuffer segment, int offset, CRC32C crc) {
+        if (offset + HEADER_SIZE > segment.limit()) {
+            return ByteBuffer.allocate(0);
+        }
+        int length = segment.getInt(offset);
+        if (length == 0) {
+            return ByteBuffer.allocate(0);
+        }
+        if (length < 0 || length > segment.limit() - offset - HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer payload = segment.duplicate().position(offset + HEADER_SIZE).limit(offset + HEADER_SIZE + length).slice();
+        crc.reset();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue() == segment.getInt(offset + 4) ? payload : null;
+    }
+
+    /**
+     * Appends a record.
+     *
+     * @param payload The payload, from its position to its limit
+     * @return false if the segment has no room left for the record
+     */
+    boolean append(ByteBuffer payload) {
+        int length = payload.remaining();
+        if (buffer.remaining() < HEADER_SIZE + length) {
+            return false;
+        }
+        crc.reset();
+        crc.update(payload.duplicate());
+        buffer.putInt(length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(payload);
+        return true;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    /**
+     * @return The journal position after the last record
+     */
+    long position() {
+        return start + buffer.position();
+    }
+
+    long getStart() {
+        return start;
+    }
+
+    long getEnd() {
+        return start + buffer.capacity();
+    }
+
+    Path getFile() {
+        return file;
+    }
+
+    static String fileName(long start) {
+        return String.format("%s%020d%s", PREFIX, start, SUFFIX);
+    }
+
+    /**
+     * @param file A file in the journal directory
+     * @return The journal position of the segment's first byte, or -1 if the file is not a segment
+     */
+    static long startOf(Path file) {
+        String name = file.getFileName().toString();
+        if (!name.startsWith(PREFIX) || !name.endsWith(SUFFIX)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+}
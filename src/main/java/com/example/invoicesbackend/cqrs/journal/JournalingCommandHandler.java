@@ -0,0 +1,32 @@
+package com.example.invoicesbackend.cqrs.journal;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+
+import java.util.Collection;
+
+/**
+ * Command handler decorator running a journaling handler only while the command journal is open, and returning once
+ * the records it appended have been forced to disk.
+ */
+class JournalingCommandHandler<C extends Command<R>, R> implements CommandHandler<C, R> {
+
+    private final CommandHandler<C, R> delegate;
+    private final CommandJournal journal;
+
+    JournalingCommandHandler(CommandHandler<C, R> delegate, CommandJournal journal) {
+        this.delegate = delegate;
+        this.journal = journal;
+    }
+
+    @Override
+    public R handle(C command) {
+        return journal.run(() -> delegate.handle(command));
+    }
+
+    @Override
+    public Collection<CacheEviction> evictions(C command) {
+        return delegate.evictions(command);
+    }
+}
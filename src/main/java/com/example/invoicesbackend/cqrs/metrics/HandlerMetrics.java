@@ -0,0 +1,137 @@
+package com.example.invoicesbackend.cqrs.metrics;
+
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Micrometer instrumentation of the CQRS handlers.
+ * For every command and query type it publishes a latency timer ({@code invoices.command.duration},
+ * {@code invoices.query.duration}) tagged with the outcome, an in-flight gauge ({@code .active}) and an error
+ * counter ({@code .errors}) tagged with the exception class. Timers publish the {@code invoices.metrics.percentiles}
+ * and, for Prometheus, a percentile histogram that can be aggregated across instances.
+ */
+@Component
+public class HandlerMetrics {
+
+    private static final String COMMAND = "command";
+    private static final String QUERY = "query";
+
+    private final MeterRegistry meterRegistry;
+    private final double[] percentiles;
+    private final boolean percentileHistogram;
+    private final Map<Class<?>, HandlerMeters> commandMeters = new ConcurrentHashMap<>();
+    private final Map<Class<?>, HandlerMeters> queryMeters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public HandlerMetrics(MeterRegistry meterRegistry,
+                          @Value("${invoices.metrics.percentiles:0.5,0.95,0.99}") double[] percentiles,
+                          @Value("${invoices.metrics.percentile-histogram:true}") boolean percentileHistogram) {
+        this.meterRegistry = meterRegistry;
+        this.percentiles = percentiles;
+        this.percentileHistogram = percentileHistogram;
+    }
+
+    /**
+     * Decorates a command handler with latency, in-flight and error metrics tagged by the command type.
+     *
+     * @param handler The handler to decorate, including any other decorators whose time should be measured
+     * @return The instrumented handler
+     */
+    public <C extends Command<R>, R> CommandHandler<C, R> timed(CommandHandler<C, R> handler) {
+        return new TimedCommandHandler<>(handler, this);
+    }
+
+    /**
+     * Decorates a query handler with latency, in-flight and error metrics tagged by the query type.
+     *
+     * @param handler The handler to decorate, including any cache in front of it
+     * @return The instrumented handler
+     */
+    public <Q extends Query<R>, R> QueryHandler<Q, R> timed(QueryHandler<Q, R> handler) {
+        return new TimedQueryHandler<>(handler, this);
+    }
+
+    HandlerMeters metersFor(Command<?> command) {
+        return metersFor(commandMeters, COMMAND, command.getClass());
+    }
+
+    HandlerMeters metersFor(Query<?> query) {
+        return metersFor(queryMeters, QUERY, query.getClass());
+    }
+
+    private HandlerMeters metersFor(Map<Class<?>, HandlerMeters> meters, String kind, Class<?> type) {
+        HandlerMeters handlerMeters = meters.get(type);
+        return handlerMeters != null ? handlerMeters
+                : meters.computeIfAbsent(type, key -> new HandlerMeters(kind, key.getSimpleName()));
+    }
+
+    /**
+     * The meters of one command or query type. Registered once and reused, so recording does not look up the registry.
+     */
+    final class HandlerMeters {
+
+        private final String kind;
+        private final String type;
+        private final Timer succeeded;
+        private final Timer failed;
+        private final AtomicInteger active = new AtomicInteger();
+
+        private HandlerMeters(String kind, String type) {
+            this.kind = kind;
+            this.type = type;
+            this.succeeded = timer("success");
+            this.failed = timer("error");
+            Gauge.builder("invoices." + kind + ".active", active, AtomicInteger::get)
+                    .description("Handler calls in flight")
+                    .tag(kind, type)
+                    .register(meterRegistry);
+        }
+
+        private Timer timer(String outcome) {
+            return Timer.builder("invoices." + kind + ".duration")
+                    .description("Time spent handling, including retries and cache lookups")
+                    .tag(kind, type)
+                    .tag("outcome", outcome)
+                    .publishPercentiles(percentiles)
+                    .publishPercentileHistogram(percentileHistogram)
+                    .minimumExpectedValue(Duration.ofMillis(1))
+                    .maximumExpectedValue(Duration.ofSeconds(30))
+                    .register(meterRegistry);
+        }
+
+        Timer.Sample start() {
+            active.incrementAndGet();
+            return Timer.start(meterRegistry);
+        }
+
+        void succeeded(Timer.Sample sample) {
+            sample.stop(succeeded);
+            active.decrementAndGet();
+        }
+
+        void failed(Timer.Sample sample, RuntimeException failure) {
+            sample.stop(failed);
+            active.decrementAndGet();
+            Counter.builder("invoices." + kind + ".errors")
+                    .description("Handler calls that threw")
+                    .tag(kind, type)
+                    .tag("exception", failure.getClass().getSimpleName())
+                    .register(meterRegistry)
+                    .increment();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.invoicesbackend.cqrs.metrics;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+
+/**
+ * Command handler decorator recording the latency, concurrency and failures of each command.
+ */
+class TimedCommandHandler<C extends Command<R>, R> implements CommandHandler<C, R> {
+
+    private final CommandHandler<C, R> delegate;
+    private final HandlerMetrics handlerMetrics;
+
+    TimedCommandHandler(CommandHandler<C, R> delegate, HandlerMetrics handlerMetrics) {
+        this.delegate = delegate;
+        this.handlerMetrics = handlerMetrics;
+    }
+
+    @Override
+    public R handle(C command) {
+        HandlerMetrics.HandlerMeters meters = handlerMetrics.metersFor(command);
+        Timer.Sample sample = meters.start();
+        try {
+            R result = delegate.handle(command);
+            meters.succeeded(sample);
+            return result;
+        } catch (RuntimeException e) {
+            meters.failed(sample, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public Collection<CacheEviction> evictions(C command) {
+        return delegate.evictions(command);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.invoicesbackend.cqrs.metrics;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Query handler decorator recording the latency, concurrency and failures of each query.
+ */
+class TimedQueryHandler<Q extends Query<R>, R> implements QueryHandler<Q, R> {
+
+    private final QueryHandler<Q, R> delegate;
+    private final HandlerMetrics handlerMetrics;
+
+    TimedQueryHandler(QueryHandler<Q, R> delegate, HandlerMetrics handlerMetrics) {
+        this.delegate = delegate;
+        this.handlerMetrics = handlerMetrics;
+    }
+
+    @Override
+    public R handle(Q query) {
+        HandlerMetrics.HandlerMeters meters = handlerMetrics.metersFor(query);
+        Timer.Sample sample = meters.start();
+        try {
+            R result = delegate.handle(query);
+            meters.succeeded(sample);
+            return result;
+        } catch (RuntimeException e) {
+            meters.failed(sample, e);
+            throw e;
+        }
+    }
+
+    @Override
+    public String cacheRegion() {
+        return delegate.cacheRegion();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.invoicesbackend.cqrs.outbox;
+
+import com.example.invoicesbackend.model.OutboxEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+
+/**
+ * Outbox listener appending every event as one NDJSON line to {@code invoices.outbox.file-sink.path},
+ * for consumers that tail a local file. Each batch is forced to disk before it is acknowledged; a batch delivered
+ * again after a failure is appended again, so readers should skip event ids they have already seen.
+ */
+@Component
+@ConditionalOnProperty("invoices.outbox.file-sink.path")
+public class FileOutboxSink implements OutboxListener {
+
+    private final ObjectMapper objectMapper;
+    private final Path path;
+
+    @Autowired
+    public FileOutboxSink(ObjectMapper objectMapper, @Value("${invoices.outbox.file-sink.path}") String path) throws IOException {
+        this.objectMapper = objectMapper;
+        this.path = Paths.get(path).toAbsolutePath();
+        Files.createDirectories(this.path.getParent());
+    }
+
+    @Override
+    public void onEvents(List<OutboxEvent> events) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(path.toFile(), true)) {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+            for (OutboxEvent event : events) {
+                writer.write(objectMapper.writeValueAsString(event));
+                writer.write('\n');
+            }
+            writer.flush();
+            out.getChannel().force(false);
+        }
+    }
+
+    public Path getPath() {
+        return path;
+    }
+}
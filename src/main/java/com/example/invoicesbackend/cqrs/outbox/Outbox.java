@@ -0,0 +1,63 @@
+package com.example.invoicesbackend.cqrs.outbox;
+
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.model.OutboxEvent;
+import com.example.invoicesbackend.repository.OutboxRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Writes domain events to the outbox_events table. Command handlers call it inside their transaction,
+ * next to the changes the events describe; the {@link OutboxRelay} delivers them once committed.
+ */
+@Component
+public class Outbox {
+
+    private final OutboxRepository outboxRepository;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public Outbox(OutboxRepository outboxRepository, ObjectMapper objectMapper) {
+        this.outboxRepository = outboxRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Appends one event to the outbox.
+     *
+     * @param event The event
+     */
+    public void append(InvoiceEvent event) {
+        append(Collections.singletonList(event));
+    }
+
+    /**
+     * Appends events to the outbox as one JDBC batch.
+     *
+     * @param events The events, in the order they happened
+     */
+    public void append(Collection<InvoiceEvent> events) {
+        LocalDateTime now = LocalDateTime.now();
+        List<OutboxEvent> rows = new ArrayList<>(events.size());
+        for (InvoiceEvent event : events) {
+            rows.add(new OutboxEvent(null, event.getEventType().name(), event.getInvoiceNumber(), toJson(event), now, 0));
+        }
+        outboxRepository.append(rows);
+    }
+
+    private String toJson(InvoiceEvent event) {
+        try {
+            return objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Cannot write " + event.getEventType() + " event for invoice " + event.getInvoiceNumber(), ex);
+        }
+    }
+}
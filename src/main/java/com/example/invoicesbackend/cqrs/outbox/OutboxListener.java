@@ -0,0 +1,22 @@
+package com.example.invoicesbackend.cqrs.outbox;
+
+import com.example.invoicesbackend.model.OutboxEvent;
+
+import java.util.List;
+
+/**
+ * In-process consumer of the outbox. Every bean implementing it receives each committed event from the
+ * {@link OutboxRelay}, in batches and in the order the events were appended, at least once: when any listener
+ * fails, the whole batch is delivered again to every listener, so listeners must tolerate duplicates
+ * (the event id identifies them).
+ */
+public interface OutboxListener {
+
+    /**
+     * Handles a batch of events. Returning normally acknowledges them; throwing has them delivered again.
+     *
+     * @param events The events
+     * @throws Exception if the events could not be handled
+     */
+    void onEvents(List<OutboxEvent> events) throws Exception;
+}
@@ -0,0 +1,222 @@
+package com.example.invoicesbackend.cqrs.outbox;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.model.OutboxEvent;
+import com.example.invoicesbackend.repository.OutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Delivers committed outbox events to every {@link OutboxListener} bean ({@code invoices.outbox.relay.enabled}).
+ * A single relay thread reads up to {@code batch-size} pending events in append order, hands the batch to each
+ * listener in turn and marks the events published once all of them returned. A failed batch stays pending and is
+ * delivered again after {@code retry-backoff}, which makes delivery at-least-once. The thread polls every
+ * {@code poll-interval} and is woken up early when a command commits; with no listener registered it does not start
+ * and events wait in the outbox. Published events are deleted after {@code retention}.
+ * Metrics: {@code invoices.outbox.published} and {@code .failed} count events, {@code .delivery} times batches,
+ * {@code .pending} is the backlog and {@code .lag} the age of the oldest pending event at the last poll.
+ */
+@Component
+public class OutboxRelay implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository outboxRepository;
+    private final List<OutboxListener> listeners;
+    private final Counter published;
+    private final Counter failed;
+    private final Timer deliveries;
+    private final AtomicLong pending = new AtomicLong();
+    private final AtomicLong oldestPendingMillis = new AtomicLong();
+    private final boolean enabled;
+    private final int batchSize;
+    private final long pollIntervalMillis;
+    private final long retryBackoffMillis;
+    private final Duration retention;
+    private final long purgeIntervalMillis;
+    private final Semaphore wakeUps = new Semaphore(0);
+    private long lastPurge;
+    private Thread relay;
+    private volatile boolean running;
+
+    @Autowired
+    public OutboxRelay(OutboxRepository outboxRepository,
+                       ObjectProvider<OutboxListener> listeners,
+                       MeterRegistry meterRegistry,
+                       @Value("${invoices.outbox.relay.enabled:true}") boolean enabled,
+                       @Value("${invoices.outbox.batch-size:500}") int batchSize,
+                       @Value("${invoices.outbox.poll-interval:1s}") Duration pollInterval,
+                       @Value("${invoices.outbox.retry-backoff:5s}") Duration retryBackoff,
+                       @Value("${invoices.outbox.retention:7d}") Duration retention,
+                       @Value("${invoices.outbox.purge-interval:1h}") Duration purgeInterval) {
+        this.outboxRepository = outboxRepository;
+        this.listeners = listeners.orderedStream().collect(Collectors.toList());
+        this.published = Counter.builder("invoices.outbox.published")
+                .description("Outbox events delivered to every listener")
+                .register(meterRegistry);
+        this.failed = Counter.builder("invoices.outbox.failed")
+                .description("Outbox events whose delivery failed and will be retried")
+                .register(meterRegistry);
+        this.deliveries = Timer.builder("invoices.outbox.delivery")
+                .description("Time to deliver one batch of outbox events to every listener")
+                .register(meterRegistry);
+        Gauge.builder("invoices.outbox.pending", pending, AtomicLong::get)
+                .description("Outbox events not delivered yet, as of the last poll")
+                .register(meterRegistry);
+        Gauge.builder("invoices.outbox.lag", oldestPendingMillis, OutboxRelay::ageSeconds)
+                .description("Age of the oldest outbox event not delivered yet")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.pollIntervalMillis = pollInterval.toMillis();
+        this.retryBackoffMillis = retryBackoff.toMillis();
+        this.retention = retention;
+        this.purgeIntervalMillis = purgeInterval.toMillis();
+    }
+
+    @Override
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        if (listeners.isEmpty()) {
+            log.info("No outbox listeners registered; events are kept in the outbox");
+            return;
+        }
+        running = true;
+        relay = new Thread(this::run, "outbox-relay");
+        relay.setDaemon(true);
+        relay.start();
+    }
+
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        wakeUps.release();
+        try {
+            relay.join(TimeUnit.SECONDS.toMillis(10));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Wakes the relay up once a command's changes, and so its outbox events, have committed.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvoicesChanged(InvoicesChangedEvent event) {
+        if (running) {
+            wakeUps.release();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            long waitMillis;
+            try {
+                int relayed = relayBatch();
+                waitMillis = relayed < batchSize ? pollIntervalMillis : 0;
+                if (relayed < batchSize) {
+                    purgeIfDue();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Outbox relay failed; retrying in {} ms", retryBackoffMillis, e);
+                waitMillis = retryBackoffMillis;
+            }
+            if (waitMillis > 0 && running) {
+                try {
+                    wakeUps.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+                    wakeUps.drainPermits();
+                } catch (InterruptedException e) {
+                    running = false;
+                }
+            }
+        }
+    }
+
+    private int relayBatch() {
+        List<OutboxEvent> events = outboxRepository.findPending(batchSize);
+        recordBacklog(events);
+        if (events.isEmpty()) {
+            return 0;
+        }
+        List<Long> eventIds = new ArrayList<>(events.size());
+        for (OutboxEvent event : events) {
+            eventIds.add(event.getEventId());
+        }
+        List<OutboxEvent> batch = Collections.unmodifiableList(events);
+        long start = System.nanoTime();
+        for (OutboxListener listener : listeners) {
+            try {
+                listener.onEvents(batch);
+            } catch (Exception e) {
+                failed.increment(events.size());
+                outboxRepository.recordFailedAttempt(eventIds);
+                throw new IllegalStateException("Delivery of " + events.size() + " outbox events to "
+                        + listener.getClass().getSimpleName() + " failed", e);
+            }
+        }
+        deliveries.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        outboxRepository.markPublished(eventIds, LocalDateTime.now());
+        published.increment(events.size());
+
+        pending.updateAndGet(count -> Math.max(0, count - events.size()));
+        if (events.size() < batchSize) {
+            oldestPendingMillis.set(0);
+        }
+        return events.size();
+    }
+
+    private void recordBacklog(List<OutboxEvent> events) {
+        // A short batch is the whole backlog; only a full one needs counting
+        pending.set(events.size() < batchSize ? events.size() : outboxRepository.countPending());
+        oldestPendingMillis.set(events.isEmpty() ? 0
+                : events.get(0).getCreatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
+    }
+
+    private void purgeIfDue() {
+        long now = System.currentTimeMillis();
+        if (now - lastPurge >= purgeIntervalMillis) {
+            lastPurge = now;
+            int deleted = outboxRepository.deletePublishedBefore(LocalDateTime.now().minus(retention));
+            if (deleted > 0) {
+                log.debug("Purged {} published outbox events", deleted);
+            }
+        }
+    }
+
+    private static double ageSeconds(AtomicLong oldestMillis) {
+        long oldest = oldestMillis.get();
+        return oldest == 0 ? 0 : Math.max(0, System.currentTimeMillis() - oldest) / 1000.0;
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.response.AgingBucketsDto;
+import com.example.invoicesbackend.dto.response.AgingReportResponseDto;
+import com.example.invoicesbackend.model.CustomerAging;
+import com.example.invoicesbackend.model.Money;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps today's aging report in memory and refreshes it incrementally.
+ * Committed changes mark their customers dirty; the next read regroups only the dirty customers
+ * ({@code customer_name IN (...)}) and patches their rows, so a report over millions of invoices is
+ * recomputed in full only once a day, when the buckets shift.
+ */
+@Component
+public class AgingReportCache {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final boolean enabled;
+    private final Set<String> dirtyCustomers = ConcurrentHashMap.newKeySet();
+
+    // Guarded by this
+    private LocalDate asOf;
+    private final Map<String, CustomerAging> rows = new TreeMap<>();
+    private AgingReportResponseDto report;
+
+    @Autowired
+    public AgingReportCache(InvoiceJdbcRepository invoiceJdbcRepository,
+                            @Value("${invoices.cache.enabled:true}") boolean enabled) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * Returns the aging report as of today, refreshing the customers changed since the last call.
+     * Must not be called inside a transaction that may hold uncommitted changes.
+     *
+     * @return The report; callers must not modify it
+     */
+    public synchronized AgingReportResponseDto today() {
+        LocalDate today = LocalDate.now();
+        if (!enabled) {
+            return compute(today);
+        }
+        if (!today.equals(asOf)) {
+            // Clear first: a change committed while the query runs is either seen by it or marked dirty again
+            dirtyCustomers.clear();
+            rows.clear();
+            invoiceJdbcRepository.findAgingByCustomer(today, null).forEach(row -> rows.put(row.getCustomerName(), row));
+            asOf = today;
+            report = null;
+        } else if (!dirtyCustomers.isEmpty()) {
+            Set<String> refreshed = drainDirtyCustomers();
+            refreshed.forEach(rows::remove);
+            invoiceJdbcRepository.findAgingByCustomer(today, refreshed).forEach(row -> rows.put(row.getCustomerName(), row));
+            report = null;
+        }
+        if (report == null) {
+            report = toReport(today, rows.values());
+        }
+        return report;
+    }
+
+    /**
+     * Computes the aging report for any date, without the cache.
+     *
+     * @param asOf The date invoices are aged at
+     * @return The report
+     */
+    public AgingReportResponseDto compute(LocalDate asOf) {
+        return toReport(asOf, invoiceJdbcRepository.findAgingByCustomer(asOf, null));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onInvoicesChanged(InvoicesChangedEvent event) {
+        dirtyCustomers.addAll(event.getCustomerNames());
+    }
+
+    private Set<String> drainDirtyCustomers() {
+        Set<String> drained = new HashSet<>();
+        for (Iterator<String> iterator = dirtyCustomers.iterator(); iterator.hasNext(); ) {
+            drained.add(iterator.next());
+            iterator.remove();
+        }
+        return drained;
+    }
+
+    private static AgingReportResponseDto toReport(LocalDate asOf, Iterable<CustomerAging> rows) {
+        List<AgingBucketsDto> customers = new ArrayList<>();
+        Money days0To30 = Money.ZERO;
+        Money days31To60 = Money.ZERO;
+        Money days61To90 = Money.ZERO;
+        Money over90Days = Money.ZERO;
+        for (CustomerAging row : rows) {
+            customers.add(new AgingBucketsDto(row.getCustomerName(), row.getDays0To30(), row.getDays31To60(),
+                    row.getDays61To90(), row.getOver90Days(), row.getTotal()));
+            days0To30 = days0To30.plus(Money.of(row.getDays0To30()));
+            days31To60 = days31To60.plus(Money.of(row.getDays31To60()));
+            days61To90 = days61To90.plus(Money.of(row.getDays61To90()));
+            over90Days = over90Days.plus(Money.of(row.getOver90Days()));
+        }
+        Money total = days0To30.plus(days31To60).plus(days61To90).plus(over90Days);
+        return new AgingReportResponseDto(asOf, customers, new AgingBucketsDto(null, days0To30.toBigDecimal(),
+                days31To60.toBigDecimal(), days61To90.toBigDecimal(), over90Days.toBigDecimal(), total.toBigDecimal()));
+    }
+}
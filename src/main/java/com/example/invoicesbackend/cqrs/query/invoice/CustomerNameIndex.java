@@ -0,0 +1,105 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.model.CustomerTotals;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PostConstruct;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index of customer names for type-ahead lookups, with each customer's invoice count and debt.
+ * Names are kept in a sorted map keyed by their normalized form (case, accents and repeated whitespace ignored),
+ * so a lookup is one seek to the prefix followed by an in-order walk of at most {@code limit} entries.
+ * It is loaded at startup and patched after every committed change for the customers the change names;
+ * lookups never touch the database and never block.
+ */
+@Component
+public class CustomerNameIndex {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    // Sorts before any character, so names sharing a normalized form stay together and keep their prefix
+    private static final char NAME_SEPARATOR = '\u0000';
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final ConcurrentSkipListMap<String, CustomerTotals> entries = new ConcurrentSkipListMap<>();
+
+    @Autowired
+    public CustomerNameIndex(InvoiceJdbcRepository invoiceJdbcRepository) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+    }
+
+    /**
+     * Rebuilds the index from the invoices table with one grouped scan.
+     */
+    @PostConstruct
+    public synchronized void load() {
+        entries.clear();
+        invoiceJdbcRepository.findCustomerTotals(null, totals -> entries.put(key(totals.getCustomerName()), totals));
+    }
+
+    /**
+     * Returns the customers whose normalized name starts with the normalized prefix, in name order.
+     *
+     * @param prefix The text typed so far
+     * @param limit The maximum number of customers to return
+     * @return The matching customers; callers must not modify them
+     */
+    public List<CustomerTotals> findByPrefix(String prefix, int limit) {
+        String normalizedPrefix = normalize(prefix);
+        List<CustomerTotals> matches = new ArrayList<>(Math.min(limit, 16));
+        for (Map.Entry<String, CustomerTotals> entry : entries.tailMap(normalizedPrefix).entrySet()) {
+            if (matches.size() == limit || !entry.getKey().startsWith(normalizedPrefix)) {
+                break;
+            }
+            matches.add(entry.getValue());
+        }
+        return matches;
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Re-reads the totals of the customers a committed change touched.
+     * Refreshes are serialized, so a refresh that started later never loses to one that read older data.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onInvoicesChanged(InvoicesChangedEvent event) {
+        Set<String> customerNames = new HashSet<>(event.getCustomerNames());
+        Map<String, CustomerTotals> found = new HashMap<>();
+        invoiceJdbcRepository.findCustomerTotals(customerNames, totals -> found.put(totals.getCustomerName(), totals));
+        for (String customerName : customerNames) {
+            CustomerTotals totals = found.get(customerName);
+            if (totals != null) {
+                entries.put(key(customerName), totals);
+            } else {
+                entries.remove(key(customerName));
+            }
+        }
+    }
+
+    static String normalize(String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        String plain = DIACRITICS.matcher(decomposed).replaceAll("");
+        return WHITESPACE.matcher(plain.trim()).replaceAll(" ").toLowerCase(Locale.ROOT);
+    }
+
+    private static String key(String customerName) {
+        return normalize(customerName) + NAME_SEPARATOR + customerName;
+    }
+}
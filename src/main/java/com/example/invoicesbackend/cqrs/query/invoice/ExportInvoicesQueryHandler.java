@@ -0,0 +1,31 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Handler for the ExportInvoicesQuery.
+ * Joins the line items in the same ordered scan as the invoices, so the export costs one query and constant memory.
+ */
+@Component
+public class ExportInvoicesQueryHandler implements QueryHandler<ExportInvoicesQuery, Long> {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final InvoiceMapper invoiceMapper;
+
+    @Autowired
+    public ExportInvoicesQueryHandler(InvoiceJdbcRepository invoiceJdbcRepository, InvoiceMapper invoiceMapper) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.invoiceMapper = invoiceMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Long handle(ExportInvoicesQuery query) {
+        return invoiceJdbcRepository.streamAllWithLineItems(invoice -> query.getSink().accept(invoiceMapper.toDto(invoice)));
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.AgingReportResponseDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Query to get the outstanding debt per customer in 0-30, 31-60, 61-90 and over 90 day buckets of invoice age.
+ * Without a date the invoices are aged as of today.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetAgingReportQuery implements Query<AgingReportResponseDto> {
+    private LocalDate asOf;
+}
@@ -0,0 +1,36 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.dto.response.AgingReportResponseDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+
+/**
+ * Handler for the GetAgingReportQuery.
+ * Today's report is served by the {@link AgingReportCache}, which commands keep fresh per customer,
+ * rather than by the query cache, which could only drop it whole. Other dates are computed on demand.
+ */
+@Component
+public class GetAgingReportQueryHandler implements QueryHandler<GetAgingReportQuery, AgingReportResponseDto> {
+
+    private final AgingReportCache agingReportCache;
+
+    @Autowired
+    public GetAgingReportQueryHandler(AgingReportCache agingReportCache) {
+        this.agingReportCache = agingReportCache;
+    }
+
+    @Override
+    public AgingReportResponseDto handle(GetAgingReportQuery query) {
+        LocalDate today = LocalDate.now();
+        LocalDate asOf = query.getAsOf() != null ? query.getAsOf() : today;
+        // A caller's transaction may see its own uncommitted writes, which must not leak into the cache
+        if (!asOf.equals(today) || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return agingReportCache.compute(asOf);
+        }
+        return agingReportCache.today();
+    }
+}
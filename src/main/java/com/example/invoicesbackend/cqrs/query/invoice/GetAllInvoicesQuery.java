@@ -1,17 +1,22 @@
 package com.example.invoicesbackend.cqrs.query.invoice;
 
 import com.example.invoicesbackend.cqrs.Query;
-import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
+import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-
-import java.util.List;
+import org.springframework.data.domain.Sort;
 
 /**
- * Query to get all invoices.
+ * Query to get one keyset page of invoices.
+ * When a cursor is present its sort key and direction take precedence.
  */
 @Data
 @NoArgsConstructor
-public class GetAllInvoicesQuery implements Query<List<InvoiceResponseDto>> {
-    // No parameters needed for this query
+@AllArgsConstructor
+public class GetAllInvoicesQuery implements Query<InvoicePageResponseDto> {
+    private String cursor;
+    private int pageSize = 50;
+    private InvoiceSortKey sortKey = InvoiceSortKey.ID;
+    private Sort.Direction direction = Sort.Direction.ASC;
 }
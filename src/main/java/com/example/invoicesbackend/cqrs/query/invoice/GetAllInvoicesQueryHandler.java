@@ -1,33 +1,78 @@
 package com.example.invoicesbackend.cqrs.query.invoice;
 
 import com.example.invoicesbackend.cqrs.QueryHandler;
-import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
 import com.example.invoicesbackend.mapper.InvoiceMapper;
 import com.example.invoicesbackend.model.Invoice;
 import com.example.invoicesbackend.repository.InvoiceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
 /**
  * Handler for the GetAllInvoicesQuery.
+ * Uses keyset pagination so the cost of a page does not depend on how deep it is,
+ * and a fixed three-statement fetch plan so it does not depend on the page size either.
  */
 @Component
-public class GetAllInvoicesQueryHandler implements QueryHandler<GetAllInvoicesQuery, List<InvoiceResponseDto>> {
+public class GetAllInvoicesQueryHandler implements QueryHandler<GetAllInvoicesQuery, InvoicePageResponseDto> {
 
     private final InvoiceRepository invoiceRepository;
+    private final InvoiceFetchPlan invoiceFetchPlan;
     private final InvoiceMapper invoiceMapper;
+    private final int maxPageSize;
 
     @Autowired
-    public GetAllInvoicesQueryHandler(InvoiceRepository invoiceRepository, InvoiceMapper invoiceMapper) {
+    public GetAllInvoicesQueryHandler(InvoiceRepository invoiceRepository, InvoiceFetchPlan invoiceFetchPlan,
+                                      InvoiceMapper invoiceMapper, @Value("${invoices.page.max-size:500}") int maxPageSize) {
         this.invoiceRepository = invoiceRepository;
+        this.invoiceFetchPlan = invoiceFetchPlan;
         this.invoiceMapper = invoiceMapper;
+        this.maxPageSize = maxPageSize;
     }
 
     @Override
-    public List<InvoiceResponseDto> handle(GetAllInvoicesQuery query) {
-        List<Invoice> invoices = invoiceRepository.findAll();
-        return invoiceMapper.toDtoList(invoices);
+    @Transactional(readOnly = true)
+    public InvoicePageResponseDto handle(GetAllInvoicesQuery query) {
+        if (query.getPageSize() <= 0 || query.getPageSize() > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+
+        InvoiceCursor cursor = query.getCursor() != null ? InvoiceCursor.decode(query.getCursor()) : null;
+        InvoiceSortKey sortKey = cursor != null ? cursor.getSortKey() : query.getSortKey();
+        Sort.Direction direction = cursor != null ? cursor.getDirection() : query.getDirection();
+
+        // Fetch one extra row to find out whether another page exists without a count query
+        PageRequest pageRequest = PageRequest.of(0, query.getPageSize() + 1, Sort.by(direction, sortKey.getProperty()));
+        List<Invoice> invoices = findPage(cursor, sortKey, direction, pageRequest);
+
+        String nextCursor = null;
+        if (invoices.size() > query.getPageSize()) {
+            invoices = invoices.subList(0, query.getPageSize());
+            Invoice last = invoices.get(invoices.size() - 1);
+            String lastValue = sortKey == InvoiceSortKey.ID ? String.valueOf(last.getId()) : last.getInvoiceNumber();
+            nextCursor = new InvoiceCursor(sortKey, direction, lastValue).encode();
+        }
+        return new InvoicePageResponseDto(invoiceMapper.toDtoList(invoiceFetchPlan.loadDetails(invoices)), nextCursor);
+    }
+
+    private List<Invoice> findPage(InvoiceCursor cursor, InvoiceSortKey sortKey, Sort.Direction direction, PageRequest pageRequest) {
+        if (cursor == null) {
+            return invoiceRepository.findAllBy(pageRequest);
+        }
+        boolean ascending = direction.isAscending();
+        if (sortKey == InvoiceSortKey.ID) {
+            return ascending
+                    ? invoiceRepository.findByIdGreaterThan(cursor.lastId(), pageRequest)
+                    : invoiceRepository.findByIdLessThan(cursor.lastId(), pageRequest);
+        }
+        return ascending
+                ? invoiceRepository.findByInvoiceNumberGreaterThan(cursor.getLastValue(), pageRequest)
+                : invoiceRepository.findByInvoiceNumberLessThan(cursor.getLastValue(), pageRequest);
     }
-}
\ No newline at end of file
+}
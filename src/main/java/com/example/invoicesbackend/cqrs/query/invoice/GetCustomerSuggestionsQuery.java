@@ -0,0 +1,20 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.CustomerSuggestionDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * Query to get the customers whose name starts with the given prefix, ignoring case and accents.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetCustomerSuggestionsQuery implements Query<List<CustomerSuggestionDto>> {
+    private String prefix;
+    private int limit = 10;
+}
@@ -0,0 +1,41 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.dto.response.CustomerSuggestionDto;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Handler for the GetCustomerSuggestionsQuery.
+ * Answered from the {@link CustomerNameIndex} alone, without a transaction or a database round trip.
+ */
+@Component
+public class GetCustomerSuggestionsQueryHandler implements QueryHandler<GetCustomerSuggestionsQuery, List<CustomerSuggestionDto>> {
+
+    private final CustomerNameIndex customerNameIndex;
+    private final int maxLimit;
+
+    @Autowired
+    public GetCustomerSuggestionsQueryHandler(CustomerNameIndex customerNameIndex,
+                                              @Value("${invoices.autocomplete.max-limit:50}") int maxLimit) {
+        this.customerNameIndex = customerNameIndex;
+        this.maxLimit = maxLimit;
+    }
+
+    @Override
+    public List<CustomerSuggestionDto> handle(GetCustomerSuggestionsQuery query) {
+        if (query.getPrefix() == null || query.getPrefix().trim().isEmpty()) {
+            throw new IllegalArgumentException("Prefix must not be blank");
+        }
+        if (query.getLimit() <= 0 || query.getLimit() > maxLimit) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + maxLimit);
+        }
+        return customerNameIndex.findByPrefix(query.getPrefix(), query.getLimit()).stream()
+                .map(totals -> new CustomerSuggestionDto(totals.getCustomerName(), totals.getInvoiceCount(), totals.getDebtAmount()))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.InvoiceBalanceResponseDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+
+/**
+ * Query to get the debt of an invoice at the end of a day; a null date means today.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetInvoiceBalanceQuery implements Query<InvoiceBalanceResponseDto> {
+    private String invoiceNumber;
+    private LocalDate asOf;
+}
@@ -0,0 +1,44 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.dto.response.InvoiceBalanceResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceBalance;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import com.example.invoicesbackend.repository.InvoiceLedgerRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+import java.time.LocalDate;
+
+/**
+ * Handler for the GetInvoiceBalanceQuery.
+ * Reads the invoice's latest balance snapshot on or before the date and replays only the ledger entries it does
+ * not cover. Not cached: a back-dated payment changes past balances without touching the invoice's cache entry.
+ */
+@Component
+public class GetInvoiceBalanceQueryHandler implements QueryHandler<GetInvoiceBalanceQuery, InvoiceBalanceResponseDto> {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final InvoiceLedgerRepository invoiceLedgerRepository;
+
+    @Autowired
+    public GetInvoiceBalanceQueryHandler(InvoiceJdbcRepository invoiceJdbcRepository,
+                                         InvoiceLedgerRepository invoiceLedgerRepository) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.invoiceLedgerRepository = invoiceLedgerRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoiceBalanceResponseDto handle(GetInvoiceBalanceQuery query) {
+        Invoice invoice = invoiceJdbcRepository.findHeaderByInvoiceNumber(query.getInvoiceNumber())
+                .orElseThrow(() -> new EntityNotFoundException("Invoice not found with number: " + query.getInvoiceNumber()));
+        LocalDate asOf = query.getAsOf() != null ? query.getAsOf() : LocalDate.now();
+        InvoiceBalance balance = invoiceLedgerRepository.findBalance(invoice.getId(), asOf);
+        return new InvoiceBalanceResponseDto(invoice.getInvoiceNumber(), asOf, balance.getBalance(),
+                balance.getSnapshotDate(), balance.getReplayedEntries());
+    }
+}
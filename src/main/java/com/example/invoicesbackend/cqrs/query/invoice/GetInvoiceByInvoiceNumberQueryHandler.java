@@ -4,31 +4,40 @@ import com.example.invoicesbackend.cqrs.QueryHandler;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
 import com.example.invoicesbackend.mapper.InvoiceMapper;
 import com.example.invoicesbackend.model.Invoice;
-import com.example.invoicesbackend.repository.InvoiceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityNotFoundException;
 
 /**
  * Handler for the GetInvoiceByInvoiceNumberQuery.
+ * Results are cached per invoice number; commands changing an invoice evict its entry.
  */
 @Component
 public class GetInvoiceByInvoiceNumberQueryHandler implements QueryHandler<GetInvoiceByInvoiceNumberQuery, InvoiceResponseDto> {
 
-    private final InvoiceRepository invoiceRepository;
+    public static final String CACHE_REGION = "invoice-by-number";
+
+    private final InvoiceFetchPlan invoiceFetchPlan;
     private final InvoiceMapper invoiceMapper;
 
     @Autowired
-    public GetInvoiceByInvoiceNumberQueryHandler(InvoiceRepository invoiceRepository, InvoiceMapper invoiceMapper) {
-        this.invoiceRepository = invoiceRepository;
+    public GetInvoiceByInvoiceNumberQueryHandler(InvoiceFetchPlan invoiceFetchPlan, InvoiceMapper invoiceMapper) {
+        this.invoiceFetchPlan = invoiceFetchPlan;
         this.invoiceMapper = invoiceMapper;
     }
 
     @Override
+    @Transactional(readOnly = true)
     public InvoiceResponseDto handle(GetInvoiceByInvoiceNumberQuery query) {
-        Invoice invoice = invoiceRepository.findByInvoiceNumber(query.getInvoiceNumber())
+        Invoice invoice = invoiceFetchPlan.findByInvoiceNumber(query.getInvoiceNumber())
                 .orElseThrow(() -> new EntityNotFoundException("Invoice not found with invoice number: " + query.getInvoiceNumber()));
         return invoiceMapper.toDto(invoice);
     }
-}
\ No newline at end of file
+
+    @Override
+    public String cacheRegion() {
+        return CACHE_REGION;
+    }
+}
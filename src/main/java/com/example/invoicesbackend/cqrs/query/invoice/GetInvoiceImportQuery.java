@@ -0,0 +1,17 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.InvoiceImportResultDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Query to get the progress of a CSV import.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetInvoiceImportQuery implements Query<InvoiceImportResultDto> {
+    private String importId;
+}
@@ -0,0 +1,32 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.dto.response.InvoiceImportResultDto;
+import com.example.invoicesbackend.repository.InvoiceImportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+
+/**
+ * Handler for the GetInvoiceImportQuery.
+ */
+@Component
+public class GetInvoiceImportQueryHandler implements QueryHandler<GetInvoiceImportQuery, InvoiceImportResultDto> {
+
+    private final InvoiceImportRepository invoiceImportRepository;
+
+    @Autowired
+    public GetInvoiceImportQueryHandler(InvoiceImportRepository invoiceImportRepository) {
+        this.invoiceImportRepository = invoiceImportRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoiceImportResultDto handle(GetInvoiceImportQuery query) {
+        return invoiceImportRepository.findById(query.getImportId())
+                .map(InvoiceImportResultDto::of)
+                .orElseThrow(() -> new EntityNotFoundException("Import not found with id: " + query.getImportId()));
+    }
+}
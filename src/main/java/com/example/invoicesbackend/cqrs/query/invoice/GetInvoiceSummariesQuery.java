@@ -0,0 +1,22 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryPageResponseDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Query to get one keyset page of invoice summaries.
+ * When a cursor is present its sort key and direction take precedence.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetInvoiceSummariesQuery implements Query<InvoiceSummaryPageResponseDto> {
+    private String cursor;
+    private int pageSize = 50;
+    private InvoiceSortKey sortKey = InvoiceSortKey.ID;
+    private Sort.Direction direction = Sort.Direction.ASC;
+}
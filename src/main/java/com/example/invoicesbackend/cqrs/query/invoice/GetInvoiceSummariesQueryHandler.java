@@ -0,0 +1,62 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryPageResponseDto;
+import com.example.invoicesbackend.mapper.InvoiceSummaryMapper;
+import com.example.invoicesbackend.model.InvoiceSummary;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+/**
+ * Handler for the GetInvoiceSummariesQuery.
+ * Reads only the invoice_summary projection: one keyset range scan per page, with no joins.
+ */
+@Component
+public class GetInvoiceSummariesQueryHandler implements QueryHandler<GetInvoiceSummariesQuery, InvoiceSummaryPageResponseDto> {
+
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+    private final InvoiceSummaryMapper invoiceSummaryMapper;
+    private final int maxPageSize;
+
+    @Autowired
+    public GetInvoiceSummariesQueryHandler(InvoiceSummaryRepository invoiceSummaryRepository,
+                                           InvoiceSummaryMapper invoiceSummaryMapper,
+                                           @Value("${invoices.page.max-size:500}") int maxPageSize) {
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceSummaryMapper = invoiceSummaryMapper;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoiceSummaryPageResponseDto handle(GetInvoiceSummariesQuery query) {
+        if (query.getPageSize() <= 0 || query.getPageSize() > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+
+        InvoiceCursor cursor = query.getCursor() != null ? InvoiceCursor.decode(query.getCursor()) : null;
+        InvoiceSortKey sortKey = cursor != null ? cursor.getSortKey() : query.getSortKey();
+        Sort.Direction direction = cursor != null ? cursor.getDirection() : query.getDirection();
+
+        // Fetch one extra row to find out whether another page exists without a count query
+        int limit = query.getPageSize() + 1;
+        List<InvoiceSummary> summaries = sortKey == InvoiceSortKey.ID
+                ? invoiceSummaryRepository.findPageById(cursor != null ? cursor.lastId() : null, direction.isAscending(), limit)
+                : invoiceSummaryRepository.findPageByInvoiceNumber(cursor != null ? cursor.getLastValue() : null, direction.isAscending(), limit);
+
+        String nextCursor = null;
+        if (summaries.size() > query.getPageSize()) {
+            summaries = summaries.subList(0, query.getPageSize());
+            InvoiceSummary last = summaries.get(summaries.size() - 1);
+            String lastValue = sortKey == InvoiceSortKey.ID ? String.valueOf(last.getInvoiceId()) : last.getInvoiceNumber();
+            nextCursor = new InvoiceCursor(sortKey, direction, lastValue).encode();
+        }
+        return new InvoiceSummaryPageResponseDto(invoiceSummaryMapper.toDtoList(summaries), nextCursor);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryResponseDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Query to get the summary of an invoice by its invoice number.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetInvoiceSummaryByInvoiceNumberQuery implements Query<InvoiceSummaryResponseDto> {
+    private String invoiceNumber;
+}
@@ -0,0 +1,38 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryResponseDto;
+import com.example.invoicesbackend.mapper.InvoiceSummaryMapper;
+import com.example.invoicesbackend.repository.InvoiceSummaryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+
+/**
+ * Handler for the GetInvoiceSummaryByInvoiceNumberQuery.
+ * Reads a single row of the invoice_summary projection through its unique invoice number index.
+ */
+@Component
+public class GetInvoiceSummaryByInvoiceNumberQueryHandler
+        implements QueryHandler<GetInvoiceSummaryByInvoiceNumberQuery, InvoiceSummaryResponseDto> {
+
+    private final InvoiceSummaryRepository invoiceSummaryRepository;
+    private final InvoiceSummaryMapper invoiceSummaryMapper;
+
+    @Autowired
+    public GetInvoiceSummaryByInvoiceNumberQueryHandler(InvoiceSummaryRepository invoiceSummaryRepository,
+                                                        InvoiceSummaryMapper invoiceSummaryMapper) {
+        this.invoiceSummaryRepository = invoiceSummaryRepository;
+        this.invoiceSummaryMapper = invoiceSummaryMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoiceSummaryResponseDto handle(GetInvoiceSummaryByInvoiceNumberQuery query) {
+        return invoiceSummaryRepository.findByInvoiceNumber(query.getInvoiceNumber())
+                .map(invoiceSummaryMapper::toDto)
+                .orElseThrow(() -> new EntityNotFoundException("Invoice not found with invoice number: " + query.getInvoiceNumber()));
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Query to get only the current version of an invoice, to validate a client's cached copy.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GetInvoiceVersionQuery implements Query<Long> {
+    private String invoiceNumber;
+}
@@ -0,0 +1,30 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityNotFoundException;
+
+/**
+ * Handler for the GetInvoiceVersionQuery.
+ * Reads the version column alone, without loading line items or payments or mapping the invoice.
+ * Not cached: it is a single indexed lookup and must see every committed change.
+ */
+@Component
+public class GetInvoiceVersionQueryHandler implements QueryHandler<GetInvoiceVersionQuery, Long> {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+
+    @Autowired
+    public GetInvoiceVersionQueryHandler(InvoiceJdbcRepository invoiceJdbcRepository) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+    }
+
+    @Override
+    public Long handle(GetInvoiceVersionQuery query) {
+        return invoiceJdbcRepository.findVersionByInvoiceNumber(query.getInvoiceNumber())
+                .orElseThrow(() -> new EntityNotFoundException("Invoice not found with invoice number: " + query.getInvoiceNumber()));
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor pointing at the last invoice returned in a page.
+ * The cursor carries its own sort key and direction so follow-up requests
+ * only need to echo the token back.
+ */
+@Data
+@AllArgsConstructor
+public class InvoiceCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private InvoiceSortKey sortKey;
+    private Sort.Direction direction;
+    private String lastValue;
+
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + direction.name() + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static InvoiceCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 3);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new InvoiceCursor(InvoiceSortKey.valueOf(parts[0]), Sort.Direction.valueOf(parts[1]), parts[2]);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, ex);
+        }
+    }
+
+    public Long lastId() {
+        try {
+            return Long.valueOf(lastValue);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid cursor value: " + lastValue, ex);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.Payment;
+import com.example.invoicesbackend.repository.InvoiceRepository;
+import com.example.invoicesbackend.repository.PaymentRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loads invoices together with everything {@code InvoiceMapper.toDto} touches, using a fixed
+ * number of statements: line items are fetch-joined and payments are loaded with one
+ * {@code IN (...)} query, however many invoices are involved.
+ * Callers must run inside a transaction so the loaded collections share one persistence context.
+ */
+@Component
+public class InvoiceFetchPlan {
+
+    private final InvoiceRepository invoiceRepository;
+    private final PaymentRepository paymentRepository;
+
+    @Autowired
+    public InvoiceFetchPlan(InvoiceRepository invoiceRepository, PaymentRepository paymentRepository) {
+        this.invoiceRepository = invoiceRepository;
+        this.paymentRepository = paymentRepository;
+    }
+
+    /**
+     * Loads a single invoice with its line items and payments (two statements).
+     *
+     * @param invoiceNumber The invoice number to look up
+     * @return The fully loaded invoice, if it exists
+     */
+    public Optional<Invoice> findByInvoiceNumber(String invoiceNumber) {
+        Optional<Invoice> invoice = invoiceRepository.findDistinctWithLineItemsByInvoiceNumber(invoiceNumber);
+        invoice.ifPresent(found -> attachPayments(Collections.singletonList(found)));
+        return invoice;
+    }
+
+    /**
+     * Loads many invoices with their line items and payments (two statements).
+     *
+     * @param invoiceNumbers The invoice numbers to look up
+     * @return The fully loaded invoices that exist, in no particular order
+     */
+    public List<Invoice> findByInvoiceNumbers(Collection<String> invoiceNumbers) {
+        if (invoiceNumbers.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Invoice> invoices = invoiceRepository.findDistinctWithLineItemsByInvoiceNumberIn(invoiceNumbers);
+        if (!invoices.isEmpty()) {
+            attachPayments(invoices);
+        }
+        return invoices;
+    }
+
+    /**
+     * Loads invoices by id with their line items and payments (two statements).
+     *
+     * @param ids The ids to look up, in the order the invoices should be returned
+     * @return The fully loaded invoices that exist, in the order of their ids
+     */
+    public List<Invoice> findByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<Long, Invoice> invoicesById = invoiceRepository.findDistinctWithLineItemsByIdIn(ids).stream()
+                .collect(Collectors.toMap(Invoice::getId, Function.identity()));
+        List<Invoice> invoices = ids.stream().map(invoicesById::get).filter(Objects::nonNull).collect(Collectors.toList());
+        if (!invoices.isEmpty()) {
+            attachPayments(invoices);
+        }
+        return invoices;
+    }
+
+    /**
+     * Initializes line items and payments of invoices already loaded by a page query (two statements).
+     *
+     * @param invoices Managed invoices, in the order they should be returned
+     * @return The same invoices, in the same order
+     */
+    public List<Invoice> loadDetails(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return invoices;
+        }
+        // Fetch-joining the already managed invoices initializes their lineItems collections in place
+        invoiceRepository.findDistinctWithLineItemsByIdIn(ids(invoices));
+        attachPayments(invoices);
+        return invoices;
+    }
+
+    private void attachPayments(List<Invoice> invoices) {
+        Map<Long, List<Payment>> paymentsByInvoice = new HashMap<>();
+        for (Payment payment : paymentRepository.findByInvoiceIdInOrderById(ids(invoices))) {
+            paymentsByInvoice.computeIfAbsent(payment.getInvoiceId(), id -> new ArrayList<>()).add(payment);
+        }
+        invoices.forEach(invoice -> invoice.setPayment(paymentsByInvoice.getOrDefault(invoice.getId(), new ArrayList<>())));
+    }
+
+    private static List<Long> ids(List<Invoice> invoices) {
+        return invoices.stream().map(Invoice::getId).collect(Collectors.toList());
+    }
+}
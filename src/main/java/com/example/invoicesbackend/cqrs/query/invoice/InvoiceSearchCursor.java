@@ -0,0 +1,51 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor pointing at the last invoice returned in a search page.
+ * Besides the sort key value it carries the invoice id, which breaks ties between invoices with the same value.
+ * The search filters are not part of the cursor and must be sent again with every page.
+ */
+@Data
+@AllArgsConstructor
+public class InvoiceSearchCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private InvoiceSearchSortKey sortKey;
+    private Sort.Direction direction;
+    private long lastId;
+    private String lastValue;
+
+    public String encode() {
+        String raw = sortKey.name() + SEPARATOR + direction.name() + SEPARATOR + lastId + SEPARATOR + lastValue;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static InvoiceSearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split(SEPARATOR, 4);
+            if (parts.length != 4) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new InvoiceSearchCursor(InvoiceSearchSortKey.valueOf(parts[0]), Sort.Direction.valueOf(parts[1]),
+                    Long.parseLong(parts[2]), parts[3]);
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("Invalid cursor: " + token, ex);
+        }
+    }
+
+    /**
+     * Returns the last sort key value, converted to the column type.
+     */
+    public Object lastSortValue() {
+        return sortKey.parse(lastValue);
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.model.Invoice;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Columns an invoice search can be ordered by.
+ * Non-unique keys are paged on (key, id) so that keyset pagination never skips or repeats rows.
+ */
+public enum InvoiceSearchSortKey {
+    ID("id", "id"),
+    INVOICE_DATE("invoiceDate", "invoice_date"),
+    AMOUNT("amount", "amount"),
+    DEBT_AMOUNT("debtAmount", "debt_amount");
+
+    private final String property;
+    private final String column;
+
+    InvoiceSearchSortKey(String property, String column) {
+        this.property = property;
+        this.column = column;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    /**
+     * Returns the value of this key for the given invoice, as stored in a cursor.
+     */
+    public String valueOf(Invoice invoice) {
+        switch (this) {
+            case INVOICE_DATE:
+                return invoice.getInvoiceDate().toString();
+            case AMOUNT:
+                return invoice.getAmount().toPlainString();
+            case DEBT_AMOUNT:
+                return invoice.getDebtAmount().toPlainString();
+            default:
+                return String.valueOf(invoice.getId());
+        }
+    }
+
+    /**
+     * Converts a value stored in a cursor back to the column type.
+     */
+    public Object parse(String value) {
+        try {
+            switch (this) {
+                case INVOICE_DATE:
+                    return LocalDate.parse(value);
+                case AMOUNT:
+                case DEBT_AMOUNT:
+                    return new BigDecimal(value);
+                default:
+                    return Long.valueOf(value);
+            }
+        } catch (RuntimeException ex) {
+            throw new IllegalArgumentException("Invalid cursor value: " + value, ex);
+        }
+    }
+
+    public static InvoiceSearchSortKey fromProperty(String property) {
+        for (InvoiceSearchSortKey key : values()) {
+            if (key.property.equalsIgnoreCase(property) || key.name().equalsIgnoreCase(property)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort key: " + property);
+    }
+}
@@ -0,0 +1,29 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+/**
+ * Unique columns an invoice listing can be ordered by.
+ * Only unique keys are allowed so that keyset pagination never skips or repeats rows.
+ */
+public enum InvoiceSortKey {
+    ID("id"),
+    INVOICE_NUMBER("invoiceNumber");
+
+    private final String property;
+
+    InvoiceSortKey(String property) {
+        this.property = property;
+    }
+
+    public String getProperty() {
+        return property;
+    }
+
+    public static InvoiceSortKey fromProperty(String property) {
+        for (InvoiceSortKey key : values()) {
+            if (key.property.equalsIgnoreCase(property) || key.name().equalsIgnoreCase(property)) {
+                return key;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported sort key: " + property);
+    }
+}
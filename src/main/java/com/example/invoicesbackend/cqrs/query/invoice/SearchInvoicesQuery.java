@@ -0,0 +1,24 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
+import com.example.invoicesbackend.model.InvoiceSearchCriteria;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Sort;
+
+/**
+ * Query to get one keyset page of the invoices matching the given filters.
+ * When a cursor is present its sort key and direction take precedence.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchInvoicesQuery implements Query<InvoicePageResponseDto> {
+    private InvoiceSearchCriteria criteria = new InvoiceSearchCriteria();
+    private String cursor;
+    private int pageSize = 50;
+    private InvoiceSearchSortKey sortKey = InvoiceSearchSortKey.ID;
+    private Sort.Direction direction = Sort.Direction.ASC;
+}
@@ -0,0 +1,86 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceSearchCriteria;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Handler for the SearchInvoicesQuery.
+ * The filters and the keyset are resolved to invoice ids and sort values by one indexed statement; the page is then
+ * loaded with the same fixed fetch plan as the invoice listing, and the next cursor built from the last sort value.
+ */
+@Component
+public class SearchInvoicesQueryHandler implements QueryHandler<SearchInvoicesQuery, InvoicePageResponseDto> {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final InvoiceFetchPlan invoiceFetchPlan;
+    private final InvoiceMapper invoiceMapper;
+    private final int maxPageSize;
+
+    @Autowired
+    public SearchInvoicesQueryHandler(InvoiceJdbcRepository invoiceJdbcRepository, InvoiceFetchPlan invoiceFetchPlan,
+                                      InvoiceMapper invoiceMapper, @Value("${invoices.page.max-size:500}") int maxPageSize) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.invoiceFetchPlan = invoiceFetchPlan;
+        this.invoiceMapper = invoiceMapper;
+        this.maxPageSize = maxPageSize;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public InvoicePageResponseDto handle(SearchInvoicesQuery query) {
+        if (query.getPageSize() <= 0 || query.getPageSize() > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+        InvoiceSearchCriteria criteria = query.getCriteria() != null ? query.getCriteria() : new InvoiceSearchCriteria();
+        validate(criteria);
+
+        InvoiceSearchCursor cursor = query.getCursor() != null ? InvoiceSearchCursor.decode(query.getCursor()) : null;
+        InvoiceSearchSortKey sortKey = cursor != null ? cursor.getSortKey() : query.getSortKey();
+        Sort.Direction direction = cursor != null ? cursor.getDirection() : query.getDirection();
+
+        // Fetch one extra key to find out whether another page exists without a count query
+        List<Invoice> keys = invoiceJdbcRepository.searchKeys(criteria, sortKey.getColumn(), direction.isAscending(),
+                cursor != null ? cursor.lastSortValue() : null, cursor != null ? cursor.getLastId() : null,
+                query.getPageSize() + 1);
+        boolean hasNext = keys.size() > query.getPageSize();
+        if (hasNext) {
+            keys = keys.subList(0, query.getPageSize());
+        }
+
+        List<Invoice> invoices = invoiceFetchPlan.findByIds(keys.stream().map(Invoice::getId).collect(Collectors.toList()));
+        String nextCursor = null;
+        if (hasNext) {
+            // The keyset continues from the row the search returned, even if the invoice has changed since
+            Invoice last = keys.get(keys.size() - 1);
+            nextCursor = new InvoiceSearchCursor(sortKey, direction, last.getId(), sortKey.valueOf(last)).encode();
+        }
+        return new InvoicePageResponseDto(invoiceMapper.toDtoList(invoices), nextCursor);
+    }
+
+    private static void validate(InvoiceSearchCriteria criteria) {
+        if (criteria.getInvoiceDateFrom() != null && criteria.getInvoiceDateTo() != null
+                && criteria.getInvoiceDateFrom().isAfter(criteria.getInvoiceDateTo())) {
+            throw new IllegalArgumentException("Invoice date range is empty");
+        }
+        if (criteria.getMinAmount() != null && criteria.getMaxAmount() != null
+                && criteria.getMinAmount().compareTo(criteria.getMaxAmount()) > 0) {
+            throw new IllegalArgumentException("Amount range is empty");
+        }
+        if (criteria.getMinDebtAmount() != null && criteria.getMaxDebtAmount() != null
+                && criteria.getMinDebtAmount().compareTo(criteria.getMaxDebtAmount()) > 0) {
+            throw new IllegalArgumentException("Debt amount range is empty");
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.ImportRejectionDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.function.Consumer;
+
+/**
+ * Query to stream the rejected-rows report of a CSV import to a sink, in file order.
+ * The result is the number of rejections written.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamImportRejectionsQuery implements Query<Long> {
+    private String importId;
+    private Consumer<ImportRejectionDto> sink;
+}
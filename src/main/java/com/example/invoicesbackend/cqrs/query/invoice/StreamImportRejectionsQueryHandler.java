@@ -0,0 +1,30 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.dto.response.ImportRejectionDto;
+import com.example.invoicesbackend.repository.InvoiceImportRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Handler for the StreamImportRejectionsQuery.
+ * Reads from a JDBC cursor, so reports of any size are streamed in constant memory.
+ */
+@Component
+public class StreamImportRejectionsQueryHandler implements QueryHandler<StreamImportRejectionsQuery, Long> {
+
+    private final InvoiceImportRepository invoiceImportRepository;
+
+    @Autowired
+    public StreamImportRejectionsQueryHandler(InvoiceImportRepository invoiceImportRepository) {
+        this.invoiceImportRepository = invoiceImportRepository;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Long handle(StreamImportRejectionsQuery query) {
+        return invoiceImportRepository.streamRejections(query.getImportId(), rejection -> query.getSink().accept(
+                new ImportRejectionDto(rejection.getFirstRow(), rejection.getLastRow(), rejection.getInvoiceNumber(), rejection.getMessage())));
+    }
+}
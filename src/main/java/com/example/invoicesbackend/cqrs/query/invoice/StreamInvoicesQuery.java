@@ -0,0 +1,20 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.function.Consumer;
+
+/**
+ * Query to stream every invoice, without line items, to a sink one row at a time.
+ * The result is the number of invoices written.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class StreamInvoicesQuery implements Query<Long> {
+    private Consumer<InvoiceResponseDto> sink;
+}
@@ -0,0 +1,31 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Handler for the StreamInvoicesQuery.
+ * Reads from a JDBC cursor so memory use stays flat regardless of the table size.
+ */
+@Component
+public class StreamInvoicesQueryHandler implements QueryHandler<StreamInvoicesQuery, Long> {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final InvoiceMapper invoiceMapper;
+
+    @Autowired
+    public StreamInvoicesQueryHandler(InvoiceJdbcRepository invoiceJdbcRepository, InvoiceMapper invoiceMapper) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.invoiceMapper = invoiceMapper;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Long handle(StreamInvoicesQuery query) {
+        return invoiceJdbcRepository.streamAll(invoice -> query.getSink().accept(invoiceMapper.toDto(invoice)));
+    }
+}
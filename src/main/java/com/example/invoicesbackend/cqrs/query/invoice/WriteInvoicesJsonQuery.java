@@ -0,0 +1,19 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.Query;
+import com.fasterxml.jackson.core.JsonGenerator;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Query to write every invoice as newline-delimited JSON straight to a generator, optionally with line items.
+ * The result is the number of invoices written.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WriteInvoicesJsonQuery implements Query<Long> {
+    private JsonGenerator generator;
+    private boolean withLineItems;
+}
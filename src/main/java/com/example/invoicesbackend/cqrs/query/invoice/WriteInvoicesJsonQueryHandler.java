@@ -0,0 +1,51 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.mapper.InvoiceJsonWriter;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Handler for the WriteInvoicesJsonQuery.
+ * Reads the same cursors as the stream and export queries but writes each row to the generator as it arrives,
+ * without mapping it to a response DTO first.
+ */
+@Component
+public class WriteInvoicesJsonQueryHandler implements QueryHandler<WriteInvoicesJsonQuery, Long> {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository;
+    private final InvoiceJsonWriter invoiceJsonWriter;
+
+    @Autowired
+    public WriteInvoicesJsonQueryHandler(InvoiceJdbcRepository invoiceJdbcRepository, InvoiceJsonWriter invoiceJsonWriter) {
+        this.invoiceJdbcRepository = invoiceJdbcRepository;
+        this.invoiceJsonWriter = invoiceJsonWriter;
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Long handle(WriteInvoicesJsonQuery query) {
+        JsonGenerator generator = query.getGenerator();
+        // Every line ends with its own newline, so nothing goes between root values
+        generator.setRootValueSeparator(null);
+        Consumer<Invoice> sink = invoice -> {
+            try {
+                invoiceJsonWriter.write(invoice, generator);
+                generator.writeRaw('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        };
+        return query.isWithLineItems()
+                ? invoiceJdbcRepository.streamAllWithLineItems(sink)
+                : invoiceJdbcRepository.streamAll(sink);
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.invoicesbackend.cqrs.retry;
+
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy for commands that lose a race on the data they change, such as an optimistic locking conflict.
+ * A failed attempt is retried up to {@code invoices.retry.max-attempts} attempts in total, after a randomly
+ * jittered backoff that doubles with each attempt, so that competing callers do not collide again in lockstep.
+ */
+@Component
+public class CommandRetryPolicy {
+
+    private final MeterRegistry meterRegistry;
+    private final int maxAttempts;
+    private final long initialBackoffMillis;
+    private final long maxBackoffMillis;
+
+    @Autowired
+    public CommandRetryPolicy(MeterRegistry meterRegistry,
+                              @Value("${invoices.retry.max-attempts:5}") int maxAttempts,
+                              @Value("${invoices.retry.initial-backoff:5ms}") Duration initialBackoff,
+                              @Value("${invoices.retry.max-backoff:100ms}") Duration maxBackoff) {
+        if (maxAttempts < 1) {
+            throw new IllegalArgumentException("invoices.retry.max-attempts must be at least 1");
+        }
+        this.meterRegistry = meterRegistry;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffMillis = initialBackoff.toMillis();
+        this.maxBackoffMillis = maxBackoff.toMillis();
+    }
+
+    /**
+     * Decorates a command handler with this retry policy.
+     *
+     * @param handler The handler to decorate; each call must run in its own transaction
+     * @return A handler retrying calls that fail with a {@link ConcurrencyFailureException}
+     */
+    public <C extends Command<R>, R> CommandHandler<C, R> retrying(CommandHandler<C, R> handler) {
+        return new RetryingCommandHandler<>(handler, this);
+    }
+
+    /**
+     * Returns whether a failed attempt may be retried.
+     *
+     * @param attempt The number of the failed attempt, starting at 1
+     * @param failure The failure
+     * @return true if another attempt should be made
+     */
+    boolean shouldRetry(int attempt, RuntimeException failure) {
+        return attempt < maxAttempts && failure instanceof ConcurrencyFailureException;
+    }
+
+    /**
+     * Waits before the next attempt: a random time between zero and the exponential backoff for the attempt.
+     *
+     * @param attempt The number of the failed attempt, starting at 1
+     * @return false if the thread was interrupted while waiting
+     */
+    boolean backOff(int attempt) {
+        long ceiling = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    void recordRetry(Command<?> command) {
+        meterRegistry.counter("invoices.command.retries", "command", command.getClass().getSimpleName()).increment();
+    }
+}
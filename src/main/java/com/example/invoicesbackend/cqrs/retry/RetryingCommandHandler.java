@@ -0,0 +1,45 @@
+package com.example.invoicesbackend.cqrs.retry;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+
+/**
+ * Command handler decorator re-running the command when it fails with a retryable conflict.
+ */
+class RetryingCommandHandler<C extends Command<R>, R> implements CommandHandler<C, R> {
+
+    private final CommandHandler<C, R> delegate;
+    private final CommandRetryPolicy retryPolicy;
+
+    RetryingCommandHandler(CommandHandler<C, R> delegate, CommandRetryPolicy retryPolicy) {
+        this.delegate = delegate;
+        this.retryPolicy = retryPolicy;
+    }
+
+    @Override
+    public R handle(C command) {
+        // Inside a caller's transaction a conflict has already doomed it, so another attempt cannot succeed
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return delegate.handle(command);
+        }
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return delegate.handle(command);
+            } catch (RuntimeException e) {
+                if (!retryPolicy.shouldRetry(attempt, e) || !retryPolicy.backOff(attempt)) {
+                    throw e;
+                }
+                retryPolicy.recordRetry(command);
+            }
+        }
+    }
+
+    @Override
+    public Collection<CacheEviction> evictions(C command) {
+        return delegate.evictions(command);
+    }
+}
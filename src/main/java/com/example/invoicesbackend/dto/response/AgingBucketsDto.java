@@ -0,0 +1,20 @@
+package com.example.invoicesbackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgingBucketsDto {
+
+    private String customerName;
+    private BigDecimal days0To30;
+    private BigDecimal days31To60;
+    private BigDecimal days61To90;
+    private BigDecimal over90Days;
+    private BigDecimal total;
+}
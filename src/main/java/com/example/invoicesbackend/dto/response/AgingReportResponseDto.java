@@ -0,0 +1,19 @@
+package com.example.invoicesbackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AgingReportResponseDto {
+
+    private LocalDate asOf;
+    private List<AgingBucketsDto> customers = new ArrayList<>();
+    private AgingBucketsDto total;
+}
@@ -0,0 +1,36 @@
+package com.example.invoicesbackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Outcome of one item of a batch request, reported at the item's position in the request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BatchItemResultDto {
+
+    private int index;
+    private String invoiceNumber;
+    private Status status;
+    private Long id;
+    private String message;
+
+    public enum Status {
+        SUCCEEDED, REJECTED, FAILED
+    }
+
+    public static BatchItemResultDto succeeded(int index, String invoiceNumber, Long id) {
+        return new BatchItemResultDto(index, invoiceNumber, Status.SUCCEEDED, id, null);
+    }
+
+    public static BatchItemResultDto rejected(int index, String invoiceNumber, String message) {
+        return new BatchItemResultDto(index, invoiceNumber, Status.REJECTED, null, message);
+    }
+
+    public static BatchItemResultDto failed(int index, String invoiceNumber, String message) {
+        return new BatchItemResultDto(index, invoiceNumber, Status.FAILED, null, message);
+    }
+}
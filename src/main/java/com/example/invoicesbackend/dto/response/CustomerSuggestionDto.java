@@ -0,0 +1,17 @@
+package com.example.invoicesbackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerSuggestionDto {
+
+    private String customerName;
+    private long invoiceCount;
+    private BigDecimal debtAmount;
+}
@@ -0,0 +1,19 @@
+package com.example.invoicesbackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A line of an import's rejected-rows report: the rows of one rejected invoice and why it was rejected.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRejectionDto {
+
+    private long firstRow;
+    private long lastRow;
+    private String invoiceNumber;
+    private String message;
+}
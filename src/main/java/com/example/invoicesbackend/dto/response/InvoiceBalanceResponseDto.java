@@ -0,0 +1,25 @@
+package com.example.invoicesbackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Debt of an invoice at the end of a day, computed from its ledger.
+ * snapshotDate is the date of the balance snapshot it started from, if any, and replayedEntries the number of
+ * ledger entries added on top of it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceBalanceResponseDto {
+
+    private String invoiceNumber;
+    private LocalDate asOf;
+    private BigDecimal balance;
+    private LocalDate snapshotDate;
+    private long replayedEntries;
+}
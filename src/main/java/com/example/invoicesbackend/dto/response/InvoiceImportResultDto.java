@@ -0,0 +1,26 @@
+package com.example.invoicesbackend.dto.response;
+
+import com.example.invoicesbackend.model.InvoiceImport;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a CSV import. Row counts cover the whole file, including rows committed by earlier runs.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceImportResultDto {
+
+    private String importId;
+    private InvoiceImport.Status status;
+    private long committedRows;
+    private long importedInvoices;
+    private long rejectedRows;
+
+    public static InvoiceImportResultDto of(InvoiceImport invoiceImport) {
+        return new InvoiceImportResultDto(invoiceImport.getImportId(), invoiceImport.getStatus(),
+                invoiceImport.getCommittedRows(), invoiceImport.getImportedInvoices(), invoiceImport.getRejectedRows());
+    }
+}
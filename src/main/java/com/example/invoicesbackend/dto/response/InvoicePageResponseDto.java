@@ -0,0 +1,17 @@
+package com.example.invoicesbackend.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoicePageResponseDto {
+
+    private List<InvoiceResponseDto> content = new ArrayList<>();
+    private String nextCursor;
+}
@@ -25,4 +25,5 @@ public class InvoiceResponseDto {
     private Invoice.InvoiceStatus status;
     private List<LineItemResponseDto> lineItems = new ArrayList<>();
     private List<PaymentInfoDto> paymentInfo;
+    private Long version;
 }
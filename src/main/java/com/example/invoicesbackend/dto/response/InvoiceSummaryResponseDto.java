@@ -0,0 +1,27 @@
+package com.example.invoicesbackend.dto.response;
+
+import com.example.invoicesbackend.model.Invoice;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceSummaryResponseDto {
+
+    private Long id;
+    private String invoiceNumber;
+    private String customerName;
+    private LocalDate invoiceDate;
+    private Invoice.InvoiceStatus status;
+    private BigDecimal amount;
+    private BigDecimal debtAmount;
+    private int lineItemCount;
+    private int paymentCount;
+    private BigDecimal paidAmount;
+    private LocalDate lastPaymentDate;
+}
@@ -0,0 +1,12 @@
+package com.example.invoicesbackend.exception;
+
+/**
+ * Thrown when a conditional request's precondition does not hold, e.g. the invoice no longer has the version named
+ * in If-Match. Reported as 412 and never retried, since running the command again cannot make it hold.
+ */
+public class PreconditionFailedException extends RuntimeException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,102 @@
+package com.example.invoicesbackend.mapper;
+
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.LineItem;
+import com.example.invoicesbackend.model.Payment;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Writes an invoice entity straight to a JsonGenerator, in the same shape Jackson gives {@link InvoiceResponseDto}
+ * after {@link InvoiceMapper#toDto}: same field order, nulls included, ISO dates and payment info only once paid.
+ * Large invoices are written without first building the DTO, line item and payment graph that Jackson would
+ * then walk a second time, so each line item costs only the bytes written for it.
+ * Must be kept in step with the response DTOs; InvoiceJsonWriterTest compares the two byte for byte.
+ */
+@Component
+public class InvoiceJsonWriter {
+
+    /**
+     * Writes one invoice as a JSON object.
+     *
+     * @param invoice The invoice, with line items and payments if they should be written
+     * @param generator The generator to write to; not flushed
+     * @throws IOException If the generator fails to write
+     */
+    public void write(Invoice invoice, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        writeNumberField(generator, "id", invoice.getId());
+        generator.writeStringField("invoiceNumber", invoice.getInvoiceNumber());
+        generator.writeStringField("customerName", invoice.getCustomerName());
+        writeDateField(generator, "invoiceDate", invoice.getInvoiceDate());
+        writeNumberField(generator, "amount", invoice.getAmount());
+        writeNumberField(generator, "debtAmount", invoice.getDebtAmount());
+        generator.writeStringField("description", invoice.getDescription());
+        generator.writeStringField("status", invoice.getStatus() == null ? null : invoice.getStatus().name());
+        writeLineItems(generator, invoice.getLineItems());
+        // Same rule as InvoiceMapper.mapPaymentInfo
+        writePayments(generator, Invoice.InvoiceStatus.PAID.equals(invoice.getStatus()) ? invoice.getPayment() : null);
+        writeNumberField(generator, "version", invoice.getVersion());
+        generator.writeEndObject();
+    }
+
+    private static void writeLineItems(JsonGenerator generator, List<LineItem> lineItems) throws IOException {
+        generator.writeFieldName("lineItems");
+        if (lineItems == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (LineItem lineItem : lineItems) {
+            generator.writeStartObject();
+            writeNumberField(generator, "id", lineItem.getId());
+            generator.writeStringField("description", lineItem.getDescription());
+            writeNumberField(generator, "price", lineItem.getPrice());
+            writeNumberField(generator, "quantity", lineItem.getQuantity());
+            writeNumberField(generator, "totalAmount", lineItem.getTotalAmount());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writePayments(JsonGenerator generator, List<Payment> payments) throws IOException {
+        generator.writeFieldName("paymentInfo");
+        if (payments == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (Payment payment : payments) {
+            generator.writeStartObject();
+            writeNumberField(generator, "id", payment.getId());
+            writeDateField(generator, "paymentDate", payment.getPaymentDate());
+            writeNumberField(generator, "amount", payment.getAmount());
+            generator.writeStringField("paymentMethod", payment.getPaymentMethod());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeNumberField(JsonGenerator generator, String name, Number value) throws IOException {
+        generator.writeFieldName(name);
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof BigDecimal) {
+            generator.writeNumber((BigDecimal) value);
+        } else if (value instanceof Integer) {
+            generator.writeNumber(value.intValue());
+        } else {
+            generator.writeNumber(value.longValue());
+        }
+    }
+
+    private static void writeDateField(JsonGenerator generator, String name, LocalDate value) throws IOException {
+        generator.writeStringField(name, value == null ? null : value.toString());
+    }
+}
@@ -22,6 +22,7 @@ public interface InvoiceMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "lineItems", ignore = true)
     @Mapping(target = "amount", ignore = true)
+    @Mapping(target = "version", ignore = true)
     Invoice toEntity(InvoiceRequestDto requestDto);
 
     @Mapping(target = "paymentInfo", expression = "java(mapPaymentInfo(invoice))")
@@ -33,6 +34,7 @@ public interface InvoiceMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "lineItems", ignore = true)
     @Mapping(target = "amount", ignore = true)
+    @Mapping(target = "version", ignore = true)
     void updateEntityFromDto(InvoiceRequestDto requestDto, @MappingTarget Invoice invoice);
 
     @AfterMapping
@@ -0,0 +1,17 @@
+package com.example.invoicesbackend.mapper;
+
+import com.example.invoicesbackend.dto.response.InvoiceSummaryResponseDto;
+import com.example.invoicesbackend.model.InvoiceSummary;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+import java.util.List;
+
+@Mapper(componentModel = "spring")
+public interface InvoiceSummaryMapper {
+
+    @Mapping(target = "id", source = "invoiceId")
+    InvoiceSummaryResponseDto toDto(InvoiceSummary summary);
+
+    List<InvoiceSummaryResponseDto> toDtoList(List<InvoiceSummary> summaries);
+}
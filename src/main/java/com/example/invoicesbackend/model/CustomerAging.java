@@ -0,0 +1,26 @@
+package com.example.invoicesbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Outstanding debt of one customer, split by the age of the invoices it comes from.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerAging {
+
+    private String customerName;
+    private BigDecimal days0To30;
+    private BigDecimal days31To60;
+    private BigDecimal days61To90;
+    private BigDecimal over90Days;
+
+    public BigDecimal getTotal() {
+        return Money.of(days0To30).plus(Money.of(days31To60)).plus(Money.of(days61To90)).plus(Money.of(over90Days)).toBigDecimal();
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.invoicesbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Number of invoices and outstanding debt of one customer.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerTotals {
+
+    private String customerName;
+    private long invoiceCount;
+    private BigDecimal debtAmount;
+}
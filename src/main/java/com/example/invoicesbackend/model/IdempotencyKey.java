@@ -0,0 +1,24 @@
+package com.example.invoicesbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A client-supplied idempotency key and what the command it first came with produced.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IdempotencyKey {
+
+    private String key;
+    private String commandType;
+    private String requestHash;
+    private Status status;
+    private String response;
+
+    public enum Status {
+        IN_PROGRESS, COMPLETED
+    }
+}
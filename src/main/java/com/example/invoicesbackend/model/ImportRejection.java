@@ -0,0 +1,19 @@
+package com.example.invoicesbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * An invoice left out of a CSV import, with the rows of the file it came from and the reason.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImportRejection {
+
+    private long firstRow;
+    private long lastRow;
+    private String invoiceNumber;
+    private String message;
+}
@@ -3,6 +3,8 @@ package com.example.invoicesbackend.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -21,7 +23,9 @@ import java.util.List;
 public class Invoice {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "invoices_seq")
+    @GenericGenerator(name = "invoices_seq", strategy = "com.example.invoicesbackend.model.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "invoices_seq"))
     private Long id;
 
     @NotBlank(message = "Invoice number is required")
@@ -46,10 +50,14 @@ public class Invoice {
     @Enumerated(EnumType.STRING)
     private InvoiceStatus status = InvoiceStatus.PENDING;
 
+    // Concurrent updates of the same invoice fail with an optimistic locking exception instead of overwriting each other
+    @Version
+    private Long version;
+
     @OneToMany(mappedBy = "invoice", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<LineItem> lineItems = new ArrayList<>();
 
-    @OneToMany(mappedBy = "invoice", cascade = CascadeType.ALL, orphanRemoval = true)
+    // Payments reference the invoice by id only; they are loaded explicitly by InvoiceFetchPlan
     @Transient
     private List<Payment> payment;
 
@@ -73,12 +81,12 @@ public class Invoice {
     }
 
     public void calculateAmount() {
-        BigDecimal total = BigDecimal.ZERO;
+        long total = 0;
         for (LineItem lineItem : lineItems) {
             if (lineItem.getTotalAmount() != null) {
-                total = total.add(lineItem.getTotalAmount());
+                total = Math.addExact(total, Money.centsOf(lineItem.getTotalAmount()));
             }
         }
-        this.amount = total;
+        this.amount = Money.ofCents(total).toBigDecimal();
     }
 }
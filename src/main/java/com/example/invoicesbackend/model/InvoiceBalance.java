@@ -0,0 +1,21 @@
+package com.example.invoicesbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Debt of one invoice as of a date, computed from the ledger: the latest snapshot, if any, plus the entries replayed on top of it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceBalance {
+
+    private BigDecimal balance;
+    private LocalDate snapshotDate;
+    private long replayedEntries;
+}
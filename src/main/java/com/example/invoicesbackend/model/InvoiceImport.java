@@ -0,0 +1,24 @@
+package com.example.invoicesbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Progress of a CSV import, as of its last committed chunk.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceImport {
+
+    private String importId;
+    private Status status;
+    private long committedRows;
+    private long importedInvoices;
+    private long rejectedRows;
+
+    public enum Status {
+        RUNNING, COMPLETED
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.invoicesbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Set;
+
+/**
+ * Optional filters of an invoice search. Null fields do not filter; all ranges are inclusive.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceSearchCriteria {
+
+    private String customerNamePrefix;
+    private Set<Invoice.InvoiceStatus> statuses;
+    private LocalDate invoiceDateFrom;
+    private LocalDate invoiceDateTo;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private BigDecimal minDebtAmount;
+    private BigDecimal maxDebtAmount;
+}
@@ -0,0 +1,30 @@
+package com.example.invoicesbackend.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One row of the invoice_summary read model: an invoice header with its line item and payment totals.
+ * Not an entity; it is written and read through {@link com.example.invoicesbackend.repository.InvoiceSummaryRepository}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class InvoiceSummary {
+
+    private Long invoiceId;
+    private String invoiceNumber;
+    private String customerName;
+    private LocalDate invoiceDate;
+    private Invoice.InvoiceStatus status;
+    private BigDecimal amount;
+    private BigDecimal debtAmount;
+    private int lineItemCount;
+    private int paymentCount;
+    private BigDecimal paidAmount;
+    private LocalDate lastPaymentDate;
+}
@@ -3,6 +3,8 @@ package com.example.invoicesbackend.model;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotBlank;
@@ -18,7 +20,9 @@ import java.math.BigDecimal;
 public class LineItem {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "line_items_seq")
+    @GenericGenerator(name = "line_items_seq", strategy = "com.example.invoicesbackend.model.PooledSequenceGenerator",
+            parameters = @Parameter(name = "sequence_name", value = "line_items_seq"))
     private Long id;
 
     @NotBlank(message = "Item description is required")
@@ -38,12 +42,12 @@ public class LineItem {
     @JoinColumn(name = "invoice_id", nullable = false)
     private Invoice invoice;
 
-    // Calculate total amount based on price and quantity
+    // Calculate total amount based on price and quantity, in cents as the columns store them
     @PrePersist
     @PreUpdate
     public void calculateTotalAmount() {
         if (price != null && quantity != null) {
-            this.totalAmount = price.multiply(new BigDecimal(quantity));
+            this.totalAmount = Money.of(price).times(quantity).toBigDecimal();
         }
     }
 }
\ No newline at end of file
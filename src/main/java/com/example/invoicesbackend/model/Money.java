@@ -0,0 +1,124 @@
+package com.example.invoicesbackend.model;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * An amount of money as a whole number of cents, the scale of every DECIMAL(19, 2) money column.
+ * Used for totals and debt arithmetic instead of BigDecimal, whose every add and multiply allocates;
+ * entities and DTOs keep BigDecimal, converted with {@link #of} and {@link #toBigDecimal} at that boundary.
+ * <p>
+ * Rounding happens only in {@link #of}: amounts with more than two decimals are rounded half up, as the database
+ * rounds them when they are stored. Arithmetic is then exact, and fails with an ArithmeticException instead of
+ * wrapping once a result no longer fits in a long (about 92 quadrillion).
+ */
+public final class Money implements Comparable<Money> {
+
+    public static final int SCALE = 2;
+
+    public static final Money ZERO = new Money(0);
+
+    // Below this many units, cents / 100.0 scaled back by 100 is within a quarter cent of the exact value
+    private static final double EXACT_DOUBLE_LIMIT = 1e12;
+
+    private final long cents;
+
+    private Money(long cents) {
+        this.cents = cents;
+    }
+
+    /**
+     * @param cents The amount in cents
+     * @return The amount
+     */
+    public static Money ofCents(long cents) {
+        return cents == 0 ? ZERO : new Money(cents);
+    }
+
+    /**
+     * Converts a decimal amount, rounding it half up to cents.
+     *
+     * @param amount The amount; not null
+     * @return The amount in cents
+     * @throws ArithmeticException If the amount does not fit in a long number of cents
+     */
+    public static Money of(BigDecimal amount) {
+        return ofCents(centsOf(amount));
+    }
+
+    /**
+     * Converts a decimal amount to cents as {@link #of} does, for loops that add up many amounts in a long:
+     * a Money carried from one iteration to the next is allocated every time, a long is not.
+     *
+     * @param amount The amount; not null
+     * @return The amount in cents
+     * @throws ArithmeticException If the amount does not fit in a long number of cents
+     */
+    public static long centsOf(BigDecimal amount) {
+        if (amount.scale() == SCALE) {
+            // doubleValue() of a two-decimal BigDecimal is one correctly rounded division that does not allocate,
+            // unlike unscaledValue(), so the common case is converted through it
+            double value = amount.doubleValue();
+            if (Math.abs(value) < EXACT_DOUBLE_LIMIT) {
+                return Math.round(value * 100);
+            }
+        }
+        BigDecimal scaled = amount.scale() == SCALE ? amount : amount.setScale(SCALE, RoundingMode.HALF_UP);
+        try {
+            return scaled.unscaledValue().longValueExact();
+        } catch (ArithmeticException ex) {
+            throw new ArithmeticException("Amount out of range: " + amount);
+        }
+    }
+
+    public Money plus(Money other) {
+        return ofCents(Math.addExact(cents, other.cents));
+    }
+
+    public Money minus(Money other) {
+        return ofCents(Math.subtractExact(cents, other.cents));
+    }
+
+    public Money times(long quantity) {
+        return ofCents(Math.multiplyExact(cents, quantity));
+    }
+
+    public Money negate() {
+        return ofCents(Math.negateExact(cents));
+    }
+
+    public int signum() {
+        return Long.signum(cents);
+    }
+
+    public long getCents() {
+        return cents;
+    }
+
+    /**
+     * @return The amount with a scale of two, as the money columns store it
+     */
+    public BigDecimal toBigDecimal() {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        return Long.compare(cents, other.cents);
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Money && ((Money) other).cents == cents;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(cents);
+    }
+
+    @Override
+    public String toString() {
+        return toBigDecimal().toPlainString();
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.invoicesbackend.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A domain event waiting in the outbox, or being delivered from it. The payload is the event as JSON.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEvent {
+
+    private Long eventId;
+    private String eventType;
+    private String invoiceNumber;
+    @JsonRawValue
+    private String payload;
+    private LocalDateTime createdAt;
+    private int attempts;
+}
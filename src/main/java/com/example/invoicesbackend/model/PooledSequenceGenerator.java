@@ -0,0 +1,29 @@
+package com.example.invoicesbackend.model;
+
+import org.hibernate.MappingException;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.id.enhanced.StandardOptimizerDescriptor;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+
+import java.util.Properties;
+
+/**
+ * Sequence generator using the pooled-lo optimizer with a block size taken from the
+ * {@code invoices.id.allocation-size} Hibernate setting instead of a compile-time constant.
+ * Each database round trip reserves a whole block of ids, which keeps JDBC insert batching enabled.
+ */
+public class PooledSequenceGenerator extends SequenceStyleGenerator {
+
+    public static final String ALLOCATION_SIZE_SETTING = "invoices.id.allocation-size";
+    public static final int DEFAULT_ALLOCATION_SIZE = 50;
+
+    @Override
+    public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+        Object allocationSize = serviceRegistry.getService(ConfigurationService.class).getSettings().get(ALLOCATION_SIZE_SETTING);
+        params.setProperty(INCREMENT_PARAM, allocationSize != null ? allocationSize.toString() : String.valueOf(DEFAULT_ALLOCATION_SIZE));
+        params.setProperty(OPT_PARAM, StandardOptimizerDescriptor.POOLED_LO.getExternalName());
+        super.configure(type, params, serviceRegistry);
+    }
+}
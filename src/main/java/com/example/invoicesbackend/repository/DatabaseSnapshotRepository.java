@@ -0,0 +1,117 @@
+package com.example.invoicesbackend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Writes the whole H2 database to a GZIP-compressed SQL script and runs such a script back into an empty database.
+ * Works on the DataSource rather than the application's JdbcTemplate, which Spring Boot only creates once Flyway has
+ * migrated the schema, because restoring has to happen before that.
+ */
+@Repository
+public class DatabaseSnapshotRepository {
+
+    private static final String COUNT_TABLES =
+            "SELECT COUNT(*) FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC'";
+
+    private static final String SELECT_TABLES =
+            "SELECT TABLE_NAME FROM INFORMATION_SCHEMA.TABLES WHERE TABLE_SCHEMA = 'PUBLIC' AND TABLE_TYPE = 'BASE TABLE'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public DatabaseSnapshotRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    /**
+     * @return Whether the database has no tables yet, not even Flyway's schema history
+     */
+    public boolean isEmpty() {
+        Integer tables = jdbcTemplate.queryForObject(COUNT_TABLES, Integer.class);
+        return tables == null || tables == 0;
+    }
+
+    /**
+     * Writes the schema, sequences and rows of every table to a script.
+     * The script is read inside one repeatable read transaction, so it sees a single committed state of the
+     * database; H2's MVCC store serves it from that version without locking, and writers carry on meanwhile.
+     * H2 fixes the version of each table when the transaction first reads it, so every table is read once in a
+     * single statement before the script starts; otherwise a table scripted late could include rows whose parents
+     * were scripted before they were inserted.
+     *
+     * @param file The file to write; replaced if it exists
+     */
+    public void write(Path file) {
+        write(file, Runnable::run);
+    }
+
+    /**
+     * Writes a script like {@link #write(Path)}, letting the caller run the statement that fixes the version of
+     * every table, for instance while it holds back writers whose position it records alongside the snapshot.
+     *
+     * @param file The file to write; replaced if it exists
+     * @param versionFixing Runs the given statement exactly once
+     */
+    public void write(Path file, Consumer<Runnable> versionFixing) {
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            boolean autoCommit = connection.getAutoCommit();
+            int isolation = connection.getTransactionIsolation();
+            connection.setAutoCommit(false);
+            connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ);
+            try (Statement statement = connection.createStatement()) {
+                String readEveryTable = readEveryTable(connection);
+                versionFixing.accept(() -> {
+                    try {
+                        statement.execute(readEveryTable);
+                    } catch (SQLException ex) {
+                        throw new UncategorizedSQLException("Database snapshot", readEveryTable, ex);
+                    }
+                });
+                statement.execute("SCRIPT TO " + literal(file) + " COMPRESSION GZIP");
+                connection.commit();
+            } finally {
+                connection.setTransactionIsolation(isolation);
+                connection.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Runs a script written by {@link #write} against the database, which should be empty.
+     *
+     * @param file The script to run
+     */
+    public void restore(Path file) {
+        jdbcTemplate.execute("RUNSCRIPT FROM " + literal(file) + " COMPRESSION GZIP");
+    }
+
+    private static String readEveryTable(Connection connection) throws SQLException {
+        List<String> reads = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet tables = statement.executeQuery(SELECT_TABLES)) {
+            while (tables.next()) {
+                reads.add("EXISTS(SELECT 1 FROM \"PUBLIC\".\"" + tables.getString(1).replace("\"", "\"\"") + "\")");
+            }
+        }
+        return reads.isEmpty() ? "SELECT 1" : "SELECT " + String.join(", ", reads);
+    }
+
+    private static String literal(Path file) {
+        return "'" + file.toAbsolutePath().toString().replace("'", "''") + "'";
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.invoicesbackend.repository;
+
+import com.example.invoicesbackend.model.IdempotencyKey;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Plain JDBC access to the idempotency_keys dedupe table.
+ * Outside a transaction every call commits on its own, so a claimed key is visible to concurrent retries
+ * while its command is still running.
+ */
+@Repository
+public class IdempotencyKeyRepository {
+
+    private static final String DELETE_EXPIRED_KEY =
+            "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND expires_at < ?";
+
+    private static final String INSERT_CLAIM =
+            "INSERT INTO idempotency_keys (idempotency_key, command_type, request_hash, status, created_at, expires_at) " +
+            "VALUES (?, ?, ?, 'IN_PROGRESS', ?, ?)";
+
+    private static final String SELECT_KEY =
+            "SELECT idempotency_key, command_type, request_hash, status, response FROM idempotency_keys " +
+            "WHERE idempotency_key = ? AND expires_at >= ?";
+
+    private static final String COMPLETE_KEY =
+            "UPDATE idempotency_keys SET status = 'COMPLETED', response = ?, expires_at = ? " +
+            "WHERE idempotency_key = ? AND status = 'IN_PROGRESS' AND created_at = ?";
+
+    private static final String RELEASE_KEY =
+            "DELETE FROM idempotency_keys WHERE idempotency_key = ? AND status = 'IN_PROGRESS' AND created_at = ?";
+
+    private static final String DELETE_EXPIRED =
+            "DELETE FROM idempotency_keys WHERE expires_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public IdempotencyKeyRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claims a key for a command about to run. An expired claim or response for the same key is replaced,
+     * so a claim whose lease lapsed (its command crashed or was never completed) is taken over.
+     *
+     * @param key The idempotency key
+     * @param commandType The type of the command
+     * @param requestHash The fingerprint of the command
+     * @param now The current time, which also identifies the claim when completing or releasing it
+     * @param leaseExpiresAt When the claim lapses unless completed
+     * @return false if the key is already taken, by a running or a completed command
+     */
+    public boolean claim(String key, String commandType, String requestHash, Instant now, Instant leaseExpiresAt) {
+        jdbcTemplate.update(DELETE_EXPIRED_KEY, key, Timestamp.from(now));
+        try {
+            jdbcTemplate.update(INSERT_CLAIM, key, commandType, requestHash, Timestamp.from(now), Timestamp.from(leaseExpiresAt));
+            return true;
+        } catch (DuplicateKeyException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Loads an unexpired key.
+     *
+     * @param key The idempotency key
+     * @param now The current time
+     * @return The key, if it is taken and has not expired
+     */
+    public Optional<IdempotencyKey> findByKey(String key, Instant now) {
+        return jdbcTemplate.query(SELECT_KEY, (rs, rowNum) -> new IdempotencyKey(
+                rs.getString("idempotency_key"), rs.getString("command_type"), rs.getString("request_hash"),
+                IdempotencyKey.Status.valueOf(rs.getString("status")), rs.getString("response")),
+                key, Timestamp.from(now)).stream().findFirst();
+    }
+
+    /**
+     * Stores the response of the command that claimed a key, keeping it until expiresAt.
+     *
+     * @param key The idempotency key
+     * @param claimedAt When the key was claimed
+     * @param response The serialized response
+     * @param expiresAt When the key may be reused
+     * @return false if the claim lapsed and was taken over in the meantime
+     */
+    public boolean complete(String key, Instant claimedAt, String response, Instant expiresAt) {
+        return jdbcTemplate.update(COMPLETE_KEY, response, Timestamp.from(expiresAt), key, Timestamp.from(claimedAt)) > 0;
+    }
+
+    /**
+     * Frees a key whose command failed, so that the client can retry it.
+     *
+     * @param key The idempotency key
+     * @param claimedAt When the key was claimed
+     */
+    public void release(String key, Instant claimedAt) {
+        jdbcTemplate.update(RELEASE_KEY, key, Timestamp.from(claimedAt));
+    }
+
+    /**
+     * Deletes every expired key.
+     *
+     * @param now The current time
+     * @return The number of keys deleted
+     */
+    public int deleteExpired(Instant now) {
+        return jdbcTemplate.update(DELETE_EXPIRED, Timestamp.from(now));
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.invoicesbackend.repository;
+
+import com.example.invoicesbackend.model.ImportRejection;
+import com.example.invoicesbackend.model.InvoiceImport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Plain JDBC access to the progress and rejected-rows report of CSV imports.
+ * The import handler records each chunk inside the transaction that writes its invoices,
+ * so the progress never runs ahead of, or behind, the data.
+ */
+@Repository
+public class InvoiceImportRepository {
+
+    private static final int MAX_MESSAGE_LENGTH = 1000;
+
+    private static final String SELECT_IMPORT =
+            "SELECT import_id, status, committed_rows, imported_invoices, rejected_rows FROM invoice_imports WHERE import_id = ?";
+
+    private static final String INSERT_IMPORT =
+            "INSERT INTO invoice_imports (import_id, status, committed_rows, imported_invoices, rejected_rows, started_at, updated_at) " +
+            "VALUES (?, 'RUNNING', 0, 0, 0, CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)";
+
+    private static final String RECORD_CHUNK =
+            "UPDATE invoice_imports SET committed_rows = ?, imported_invoices = imported_invoices + ?, " +
+            "rejected_rows = rejected_rows + ?, updated_at = CURRENT_TIMESTAMP WHERE import_id = ? AND committed_rows < ?";
+
+    private static final String COMPLETE_IMPORT =
+            "UPDATE invoice_imports SET status = 'COMPLETED', updated_at = CURRENT_TIMESTAMP WHERE import_id = ?";
+
+    private static final String INSERT_REJECTION =
+            "INSERT INTO invoice_import_rejections (import_id, first_row, last_row, invoice_number, message) VALUES (?, ?, ?, ?, ?)";
+
+    private static final String SELECT_REJECTIONS =
+            "SELECT first_row, last_row, invoice_number, message FROM invoice_import_rejections WHERE import_id = ? ORDER BY first_row";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    @Autowired
+    public InvoiceImportRepository(JdbcTemplate jdbcTemplate, @Value("${invoices.stream.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Loads the progress of an import.
+     *
+     * @param importId The import id
+     * @return The import, if it was ever started
+     */
+    public Optional<InvoiceImport> findById(String importId) {
+        return jdbcTemplate.query(SELECT_IMPORT, (rs, rowNum) -> mapImport(rs), importId).stream().findFirst();
+    }
+
+    /**
+     * Registers a new import with nothing committed yet.
+     *
+     * @param importId The import id, which must not exist yet
+     * @return The new import
+     */
+    public InvoiceImport start(String importId) {
+        jdbcTemplate.update(INSERT_IMPORT, importId);
+        return new InvoiceImport(importId, InvoiceImport.Status.RUNNING, 0, 0, 0);
+    }
+
+    /**
+     * Moves an import past a chunk and adds the chunk's rejected invoices to its report.
+     * Must be called in the transaction that writes the chunk's invoices.
+     *
+     * @param importId The import id
+     * @param committedRows The last data row covered by the chunk
+     * @param importedInvoices The number of invoices the chunk inserted
+     * @param rejections The invoices the chunk rejected
+     * @return false if the import had already moved past this chunk, in which case nothing was changed
+     */
+    public boolean recordChunk(String importId, long committedRows, int importedInvoices, List<ImportRejection> rejections) {
+        long rejectedRows = rejections.stream().mapToLong(rejection -> rejection.getLastRow() - rejection.getFirstRow() + 1).sum();
+        if (jdbcTemplate.update(RECORD_CHUNK, committedRows, importedInvoices, rejectedRows, importId, committedRows) == 0) {
+            return false;
+        }
+        jdbcTemplate.batchUpdate(INSERT_REJECTION, rejections, rejections.size(), (ps, rejection) -> {
+            ps.setString(1, importId);
+            ps.setLong(2, rejection.getFirstRow());
+            ps.setLong(3, rejection.getLastRow());
+            ps.setString(4, rejection.getInvoiceNumber());
+            String message = rejection.getMessage();
+            ps.setString(5, message.length() > MAX_MESSAGE_LENGTH ? message.substring(0, MAX_MESSAGE_LENGTH) : message);
+        });
+        return true;
+    }
+
+    /**
+     * Marks an import as having read its whole file.
+     *
+     * @param importId The import id
+     */
+    public void complete(String importId) {
+        jdbcTemplate.update(COMPLETE_IMPORT, importId);
+    }
+
+    /**
+     * Streams the rejected-rows report of an import in file order from a forward-only cursor.
+     *
+     * @param importId The import id
+     * @param consumer Receives each rejected invoice as it is read
+     * @return The number of rejections streamed
+     */
+    public long streamRejections(String importId, Consumer<ImportRejection> consumer) {
+        long[] count = {0};
+        streamingJdbcTemplate.query(SELECT_REJECTIONS, rs -> {
+            consumer.accept(new ImportRejection(rs.getLong("first_row"), rs.getLong("last_row"),
+                    rs.getString("invoice_number"), rs.getString("message")));
+            count[0]++;
+        }, importId);
+        return count[0];
+    }
+
+    private static InvoiceImport mapImport(ResultSet rs) throws SQLException {
+        return new InvoiceImport(rs.getString("import_id"), InvoiceImport.Status.valueOf(rs.getString("status")),
+                rs.getLong("committed_rows"), rs.getLong("imported_invoices"), rs.getLong("rejected_rows"));
+    }
+}
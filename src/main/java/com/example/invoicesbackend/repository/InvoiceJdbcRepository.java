@@ -0,0 +1,544 @@
+package com.example.invoicesbackend.repository;
+
+import com.example.invoicesbackend.model.CustomerAging;
+import com.example.invoicesbackend.model.CustomerTotals;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceSearchCriteria;
+import com.example.invoicesbackend.model.LineItem;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Plain JDBC access to the invoices table for paths where JPA entity management is pure overhead.
+ */
+@Repository
+public class InvoiceJdbcRepository {
+
+    private static final String SELECT_INVOICES =
+            "SELECT id, invoice_number, customer_name, invoice_date, amount, debt_amount, description, status, version " +
+            "FROM invoices ORDER BY id";
+
+    // Walks the primary key and joins each invoice's items through the invoice_id foreign key index, so H2 streams the
+    // rows already grouped by invoice without a sort. Items come out in id order within an invoice; adding l.id to the
+    // ORDER BY would make H2 buffer and sort the whole result instead.
+    private static final String SELECT_INVOICES_WITH_LINE_ITEMS =
+            "SELECT i.id, i.invoice_number, i.customer_name, i.invoice_date, i.amount, i.debt_amount, i.description, " +
+            "i.status, i.version, l.id AS line_item_id, l.description AS line_item_description, l.price, l.quantity, " +
+            "l.total_amount FROM invoices i LEFT JOIN line_items l ON l.invoice_id = i.id ORDER BY i.id";
+
+    private static final String INSERT_INVOICE =
+            "INSERT INTO invoices (id, invoice_number, customer_name, invoice_date, amount, debt_amount, description, status) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_LINE_ITEM =
+            "INSERT INTO line_items (id, description, price, quantity, total_amount, invoice_id) VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_INVOICE_BY_NUMBER =
+            "SELECT id, invoice_number, customer_name, invoice_date, amount, debt_amount, description, status, version " +
+            "FROM invoices WHERE invoice_number = ?";
+
+    private static final String SELECT_VERSION_BY_NUMBER =
+            "SELECT version FROM invoices WHERE invoice_number = ?";
+
+    private static final String SELECT_INVOICES_BY_NUMBER_FOR_UPDATE =
+            "SELECT id, invoice_number, customer_name, invoice_date, amount, debt_amount, description, status, version " +
+            "FROM invoices WHERE invoice_number IN (:numbers) ORDER BY invoice_number FOR UPDATE";
+
+    private static final String UPDATE_DEBT =
+            "UPDATE invoices SET debt_amount = ?, status = ?, version = version + 1 WHERE id = ?";
+
+    // The SET expressions see the row before the update, so the CASE compares the old debt with the payment
+    private static final String APPLY_PAYMENT =
+            "UPDATE invoices SET debt_amount = debt_amount - ?, " +
+            "status = CASE WHEN debt_amount = ? THEN 'PAID' ELSE 'PARTIALLY_PAID' END, version = version + 1 " +
+            "WHERE invoice_number = ? AND status <> 'PAID' AND debt_amount >= ?";
+
+    private static final String APPLY_PAYMENT_AT_VERSION = APPLY_PAYMENT + " AND version = ?";
+
+    // Served by idx_invoices_customer_aging; the bucket boundaries are bound as dates so no per-row date arithmetic is needed
+    private static final String SELECT_AGING_BY_CUSTOMER =
+            "SELECT customer_name, " +
+            "SUM(CASE WHEN invoice_date >= :from30 THEN debt_amount ELSE 0 END) AS days_0_30, " +
+            "SUM(CASE WHEN invoice_date < :from30 AND invoice_date >= :from60 THEN debt_amount ELSE 0 END) AS days_31_60, " +
+            "SUM(CASE WHEN invoice_date < :from60 AND invoice_date >= :from90 THEN debt_amount ELSE 0 END) AS days_61_90, " +
+            "SUM(CASE WHEN invoice_date < :from90 THEN debt_amount ELSE 0 END) AS over_90 " +
+            "FROM invoices WHERE debt_amount > 0";
+
+    // Also served by idx_invoices_customer_aging, which holds both the customer name and the debt
+    private static final String SELECT_CUSTOMER_TOTALS =
+            "SELECT customer_name, COUNT(*) AS invoice_count, SUM(debt_amount) AS debt_amount FROM invoices";
+
+    private static final Set<String> SEARCH_SORT_COLUMNS =
+            new HashSet<>(Arrays.asList("id", "invoice_date", "amount", "debt_amount"));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private final SequenceIdAllocator sequenceIdAllocator;
+    private final JdbcTemplate streamingJdbcTemplate;
+
+    @Autowired
+    public InvoiceJdbcRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate namedParameterJdbcTemplate,
+                                 SequenceIdAllocator sequenceIdAllocator,
+                                 @Value("${invoices.stream.fetch-size:500}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedParameterJdbcTemplate = namedParameterJdbcTemplate;
+        this.sequenceIdAllocator = sequenceIdAllocator;
+        this.streamingJdbcTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        this.streamingJdbcTemplate.setFetchSize(fetchSize);
+    }
+
+    /**
+     * Streams every invoice, without line items, in id order from a forward-only cursor.
+     * The statement runs with H2's lazy query execution, so rows are handed to the consumer one at a time as the
+     * cursor advances instead of being materialized first; the driver buffers at most
+     * {@code invoices.stream.fetch-size} rows per round trip.
+     *
+     * @param consumer Receives each invoice as it is read
+     * @return The number of invoices streamed
+     */
+    public long streamAll(Consumer<Invoice> consumer) {
+        return queryLazily(SELECT_INVOICES, rs -> {
+            long count = 0;
+            while (rs.next()) {
+                consumer.accept(mapInvoice(rs));
+                count++;
+            }
+            return count;
+        });
+    }
+
+    /**
+     * Streams every invoice with its line items, in id order, from one forward-only cursor over a joined scan.
+     * The statement reads a single consistent snapshot and runs with H2's lazy query execution, so rows are produced
+     * as the cursor advances instead of being materialized first; only the invoice being assembled is held in memory.
+     *
+     * @param consumer Receives each invoice, with its line items, as soon as its last row has been read
+     * @return The number of invoices streamed
+     */
+    public long streamAllWithLineItems(Consumer<Invoice> consumer) {
+        return queryLazily(SELECT_INVOICES_WITH_LINE_ITEMS, rs -> groupLineItems(rs, consumer));
+    }
+
+    /**
+     * Runs a query through a forward-only cursor with H2's lazy query execution switched on for its session,
+     * which embedded H2 otherwise materializes in full before returning the first row.
+     */
+    private long queryLazily(String sql, ResultSetExtractor<Long> extractor) {
+        Long count = streamingJdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try (Statement session = connection.createStatement()) {
+                session.execute("SET LAZY_QUERY_EXECUTION TRUE");
+            }
+            try (PreparedStatement ps = connection.prepareStatement(sql,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+                ps.setFetchSize(streamingJdbcTemplate.getFetchSize());
+                try (ResultSet rs = ps.executeQuery()) {
+                    return extractor.extractData(rs);
+                }
+            } finally {
+                // The connection goes back to the pool, so leave the session as it was found
+                try (Statement session = connection.createStatement()) {
+                    session.execute("SET LAZY_QUERY_EXECUTION FALSE");
+                }
+            }
+        });
+        return count == null ? 0 : count;
+    }
+
+    private static long groupLineItems(ResultSet rs, Consumer<Invoice> consumer) throws SQLException {
+        long count = 0;
+        Invoice current = null;
+        while (rs.next()) {
+            long id = rs.getLong("id");
+            if (current == null || current.getId() != id) {
+                if (current != null) {
+                    consumer.accept(current);
+                    count++;
+                }
+                current = mapInvoice(rs);
+                current.setLineItems(new ArrayList<>());
+            }
+            long lineItemId = rs.getLong("line_item_id");
+            if (!rs.wasNull()) {
+                LineItem lineItem = new LineItem();
+                lineItem.setId(lineItemId);
+                lineItem.setDescription(rs.getString("line_item_description"));
+                lineItem.setPrice(rs.getBigDecimal("price"));
+                lineItem.setQuantity(rs.getInt("quantity"));
+                lineItem.setTotalAmount(rs.getBigDecimal("total_amount"));
+                current.addLineItem(lineItem);
+            }
+        }
+        if (current != null) {
+            consumer.accept(current);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Loads an invoice without line items or payments.
+     *
+     * @param invoiceNumber The invoice number to look up
+     * @return The invoice header, if it exists
+     */
+    public Optional<Invoice> findHeaderByInvoiceNumber(String invoiceNumber) {
+        return jdbcTemplate.query(SELECT_INVOICE_BY_NUMBER, (rs, rowNum) -> mapInvoice(rs), invoiceNumber).stream().findFirst();
+    }
+
+    /**
+     * Reads only the version of an invoice, which changes whenever anything in its representation does.
+     *
+     * @param invoiceNumber The invoice number to look up
+     * @return The version, if the invoice exists
+     */
+    public Optional<Long> findVersionByInvoiceNumber(String invoiceNumber) {
+        return jdbcTemplate.queryForList(SELECT_VERSION_BY_NUMBER, Long.class, invoiceNumber).stream().findFirst();
+    }
+
+    /**
+     * Loads and locks the invoices with the given numbers, without line items or payments, until the transaction ends.
+     * Must be called inside a transaction.
+     *
+     * @param invoiceNumbers The invoice numbers to look up
+     * @return The invoice headers that exist, by invoice number
+     */
+    public Map<String, Invoice> lockHeadersByInvoiceNumbers(Collection<String> invoiceNumbers) {
+        Map<String, Invoice> invoices = new HashMap<>();
+        if (invoiceNumbers.isEmpty()) {
+            return invoices;
+        }
+        namedParameterJdbcTemplate.query(SELECT_INVOICES_BY_NUMBER_FOR_UPDATE,
+                Collections.singletonMap("numbers", invoiceNumbers),
+                rs -> {
+                    Invoice invoice = mapInvoice(rs);
+                    invoices.put(invoice.getInvoiceNumber(), invoice);
+                });
+        return invoices;
+    }
+
+    /**
+     * Writes the debt and status of the given invoices as one JDBC batch, incrementing their versions.
+     *
+     * @param invoices Invoices locked by {@link #lockHeadersByInvoiceNumbers(Collection)}
+     */
+    public void batchUpdateDebt(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(UPDATE_DEBT, invoices, invoices.size(), (ps, invoice) -> {
+            ps.setBigDecimal(1, invoice.getDebtAmount());
+            ps.setString(2, invoice.getStatus().name());
+            ps.setLong(3, invoice.getId());
+        });
+    }
+
+    /**
+     * Subtracts a payment from an invoice's debt in one conditional statement, marking the invoice
+     * PAID or PARTIALLY_PAID and incrementing its version. Nothing is changed if the invoice does not exist,
+     * is already PAID, or owes less than the payment; the check and the update are atomic under the row lock.
+     *
+     * @param invoiceNumber The invoice number of the paid invoice
+     * @param amount The payment amount
+     * @return true if the payment was applied
+     */
+    public boolean applyPayment(String invoiceNumber, BigDecimal amount) {
+        return jdbcTemplate.update(APPLY_PAYMENT, amount, amount, invoiceNumber, amount) == 1;
+    }
+
+    /**
+     * Applies a payment like {@link #applyPayment(String, BigDecimal)}, but only if the invoice is still at the
+     * version the client last saw.
+     *
+     * @param invoiceNumber The invoice number of the paid invoice
+     * @param amount The payment amount
+     * @param expectedVersion The version the invoice must have
+     * @return true if the payment was applied
+     */
+    public boolean applyPayment(String invoiceNumber, BigDecimal amount, long expectedVersion) {
+        return jdbcTemplate.update(APPLY_PAYMENT_AT_VERSION, amount, amount, invoiceNumber, amount, expectedVersion) == 1;
+    }
+
+    /**
+     * Applies many payments as one JDBC batch of the conditional update of {@link #applyPayment}, in list order,
+     * so a payment sees the debt left by the payments before it. Relies on the driver reporting per-statement
+     * update counts for batches, as H2 does.
+     *
+     * @param invoiceNumbers The invoice number of each payment
+     * @param amounts The amount of each payment, in the same order
+     * @return For each payment, whether it was applied
+     */
+    public boolean[] applyPayments(List<String> invoiceNumbers, List<BigDecimal> amounts) {
+        int[] counts = jdbcTemplate.batchUpdate(APPLY_PAYMENT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int index) throws SQLException {
+                ps.setBigDecimal(1, amounts.get(index));
+                ps.setBigDecimal(2, amounts.get(index));
+                ps.setString(3, invoiceNumbers.get(index));
+                ps.setBigDecimal(4, amounts.get(index));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return invoiceNumbers.size();
+            }
+        });
+        boolean[] applied = new boolean[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            applied[i] = counts[i] == 1;
+        }
+        return applied;
+    }
+
+    /**
+     * Returns which of the given invoice numbers already exist, using one set-based query.
+     *
+     * @param invoiceNumbers The invoice numbers to check
+     * @return The subset of invoice numbers that are already taken
+     */
+    public Set<String> findExistingInvoiceNumbers(Collection<String> invoiceNumbers) {
+        if (invoiceNumbers.isEmpty()) {
+            return Collections.emptySet();
+        }
+        return new HashSet<>(namedParameterJdbcTemplate.queryForList(
+                "SELECT invoice_number FROM invoices WHERE invoice_number IN (:numbers)",
+                Collections.singletonMap("numbers", invoiceNumbers), String.class));
+    }
+
+    /**
+     * Inserts the invoices as one JDBC batch, assigning their ids from the invoices sequence.
+     * Line items are not inserted; see {@link #batchInsertLineItems(List)}.
+     *
+     * @param invoices Invoices without ids and with unique invoice numbers
+     */
+    public void batchInsertInvoices(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        invoices.forEach(invoice -> invoice.setId(sequenceIdAllocator.nextId(SequenceIdAllocator.INVOICES)));
+        jdbcTemplate.batchUpdate(INSERT_INVOICE, invoices, invoices.size(), (ps, invoice) -> {
+            ps.setLong(1, invoice.getId());
+            ps.setString(2, invoice.getInvoiceNumber());
+            ps.setString(3, invoice.getCustomerName());
+            ps.setDate(4, Date.valueOf(invoice.getInvoiceDate()));
+            ps.setBigDecimal(5, invoice.getAmount());
+            ps.setBigDecimal(6, invoice.getDebtAmount());
+            ps.setString(7, invoice.getDescription());
+            ps.setString(8, invoice.getStatus().name());
+        });
+    }
+
+    /**
+     * Inserts the line items as one JDBC batch, assigning their ids from the line items sequence.
+     * Each line item must reference a saved invoice and already have its total amount calculated.
+     *
+     * @param lineItems The line items to insert
+     */
+    public void batchInsertLineItems(List<LineItem> lineItems) {
+        if (lineItems.isEmpty()) {
+            return;
+        }
+        lineItems.forEach(lineItem -> lineItem.setId(sequenceIdAllocator.nextId(SequenceIdAllocator.LINE_ITEMS)));
+        jdbcTemplate.batchUpdate(INSERT_LINE_ITEM, lineItems, lineItems.size(), (ps, lineItem) -> {
+            ps.setLong(1, lineItem.getId());
+            ps.setString(2, lineItem.getDescription());
+            ps.setBigDecimal(3, lineItem.getPrice());
+            ps.setInt(4, lineItem.getQuantity());
+            ps.setBigDecimal(5, lineItem.getTotalAmount());
+            ps.setLong(6, lineItem.getInvoice().getId());
+        });
+    }
+
+    /**
+     * Sums the outstanding debt of each customer by invoice age in one grouped query: 0-30, 31-60, 61-90
+     * and over 90 days before the given date. Invoices dated after it count as 0-30 days old.
+     *
+     * @param asOf The date invoices are aged at
+     * @param customerNames The customers to include, or null for every customer with debt
+     * @return One row per customer with outstanding debt, ordered by customer name
+     */
+    public List<CustomerAging> findAgingByCustomer(LocalDate asOf, Collection<String> customerNames) {
+        if (customerNames != null && customerNames.isEmpty()) {
+            return Collections.emptyList();
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource()
+                .addValue("from30", asOf.minusDays(30))
+                .addValue("from60", asOf.minusDays(60))
+                .addValue("from90", asOf.minusDays(90));
+        String sql = SELECT_AGING_BY_CUSTOMER;
+        if (customerNames != null) {
+            sql += " AND customer_name IN (:customers)";
+            parameters.addValue("customers", customerNames);
+        }
+        sql += " GROUP BY customer_name ORDER BY customer_name";
+        return namedParameterJdbcTemplate.query(sql, parameters, (rs, rowNum) -> new CustomerAging(
+                rs.getString("customer_name"), rs.getBigDecimal("days_0_30"), rs.getBigDecimal("days_31_60"),
+                rs.getBigDecimal("days_61_90"), rs.getBigDecimal("over_90")));
+    }
+
+    /**
+     * Counts the invoices and sums the outstanding debt of each customer in one grouped query,
+     * handing the rows to the consumer as they are read.
+     *
+     * @param customerNames The customers to include, or null for every customer
+     * @param consumer Receives the totals of each customer that has invoices
+     */
+    public void findCustomerTotals(Collection<String> customerNames, Consumer<CustomerTotals> consumer) {
+        if (customerNames != null && customerNames.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String sql = SELECT_CUSTOMER_TOTALS;
+        if (customerNames != null) {
+            sql += " WHERE customer_name IN (:customers)";
+            parameters.addValue("customers", customerNames);
+        }
+        sql += " GROUP BY customer_name";
+        namedParameterJdbcTemplate.query(sql, parameters, (RowCallbackHandler) rs -> consumer.accept(new CustomerTotals(
+                rs.getString("customer_name"), rs.getLong("invoice_count"), rs.getBigDecimal("debt_amount"))));
+    }
+
+    /**
+     * Finds the keys of one keyset page of invoices matching the criteria, with a single statement
+     * that V6__Invoice_search_indexes.sql lets H2 answer from an index. Invoices are ordered by
+     * (sort column, id), so ties on the sort column are broken by id. The next page's keyset is taken from these
+     * keys rather than from the invoices loaded afterwards, which may have changed in between.
+     *
+     * @param criteria The filters to apply
+     * @param sortColumn One of id, invoice_date, amount or debt_amount
+     * @param ascending The sort direction
+     * @param afterValue The sort column value of the last invoice of the previous page, or null for the first page
+     * @param afterId The id of the last invoice of the previous page, or null for the first page
+     * @param limit The maximum number of keys to return
+     * @return Invoices with only the id and the sort column set, in page order
+     */
+    public List<Invoice> searchKeys(InvoiceSearchCriteria criteria, String sortColumn, boolean ascending,
+                                    Object afterValue, Long afterId, int limit) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String sql = searchSql(criteria, sortColumn, ascending, afterValue, afterId, limit, parameters);
+        return namedParameterJdbcTemplate.query(sql, parameters, (rs, rowNum) -> mapSearchKey(rs, sortColumn));
+    }
+
+    static String searchSql(InvoiceSearchCriteria criteria, String sortColumn, boolean ascending,
+                            Object afterValue, Long afterId, int limit, MapSqlParameterSource parameters) {
+        if (!SEARCH_SORT_COLUMNS.contains(sortColumn)) {
+            throw new IllegalArgumentException("Unsupported sort column: " + sortColumn);
+        }
+        List<String> conditions = new ArrayList<>();
+        if (criteria.getCustomerNamePrefix() != null && !criteria.getCustomerNamePrefix().isEmpty()) {
+            // A LIKE with a constant prefix becomes a range condition on idx_invoices_customer_aging
+            conditions.add("customer_name LIKE :customerNamePrefix ESCAPE '\\'");
+            parameters.addValue("customerNamePrefix", escapeLike(criteria.getCustomerNamePrefix()) + "%");
+        }
+        if (criteria.getStatuses() != null && !criteria.getStatuses().isEmpty()) {
+            conditions.add("status IN (:statuses)");
+            parameters.addValue("statuses", criteria.getStatuses().stream().map(Enum::name).collect(Collectors.toList()));
+        }
+        addRange(conditions, parameters, "invoice_date", "invoiceDate", criteria.getInvoiceDateFrom(), criteria.getInvoiceDateTo());
+        addRange(conditions, parameters, "amount", "amount", criteria.getMinAmount(), criteria.getMaxAmount());
+        addRange(conditions, parameters, "debt_amount", "debtAmount", criteria.getMinDebtAmount(), criteria.getMaxDebtAmount());
+
+        if (afterId != null) {
+            parameters.addValue("afterId", afterId);
+            if ("id".equals(sortColumn)) {
+                conditions.add(ascending ? "id > :afterId" : "id < :afterId");
+            } else {
+                // The redundant bound on the sort column alone gives the index a start key for the keyset
+                parameters.addValue("afterValue", afterValue);
+                conditions.add(ascending
+                        ? sortColumn + " >= :afterValue AND (" + sortColumn + " > :afterValue OR id > :afterId)"
+                        : sortColumn + " <= :afterValue AND (" + sortColumn + " < :afterValue OR id < :afterId)");
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("id".equals(sortColumn) ? "SELECT id FROM invoices" : "SELECT id, " + sortColumn + " FROM invoices");
+        if (!conditions.isEmpty()) {
+            sql.append(" WHERE ").append(String.join(" AND ", conditions));
+        }
+        String direction = ascending ? " ASC" : " DESC";
+        sql.append(" ORDER BY ").append(sortColumn).append(direction);
+        if (!"id".equals(sortColumn)) {
+            sql.append(", id").append(direction);
+        }
+        parameters.addValue("limit", limit);
+        return sql.append(" LIMIT :limit").toString();
+    }
+
+    private static void addRange(List<String> conditions, MapSqlParameterSource parameters,
+                                 String column, String name, Object from, Object to) {
+        if (from != null) {
+            conditions.add(column + " >= :" + name + "From");
+            parameters.addValue(name + "From", from);
+        }
+        if (to != null) {
+            conditions.add(column + " <= :" + name + "To");
+            parameters.addValue(name + "To", to);
+        }
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static Invoice mapSearchKey(ResultSet rs, String sortColumn) throws SQLException {
+        Invoice invoice = new Invoice();
+        invoice.setId(rs.getLong("id"));
+        switch (sortColumn) {
+            case "invoice_date":
+                invoice.setInvoiceDate(rs.getObject("invoice_date", LocalDate.class));
+                break;
+            case "amount":
+                invoice.setAmount(rs.getBigDecimal("amount"));
+                break;
+            case "debt_amount":
+                invoice.setDebtAmount(rs.getBigDecimal("debt_amount"));
+                break;
+            default:
+                break;
+        }
+        invoice.setLineItems(null);
+        return invoice;
+    }
+
+    private static Invoice mapInvoice(ResultSet rs) throws SQLException {
+        Invoice invoice = new Invoice();
+        invoice.setId(rs.getLong("id"));
+        invoice.setInvoiceNumber(rs.getString("invoice_number"));
+        invoice.setCustomerName(rs.getString("customer_name"));
+        invoice.setInvoiceDate(rs.getObject("invoice_date", LocalDate.class));
+        invoice.setAmount(rs.getBigDecimal("amount"));
+        invoice.setDebtAmount(rs.getBigDecimal("debt_amount"));
+        invoice.setDescription(rs.getString("description"));
+        invoice.setStatus(Invoice.InvoiceStatus.valueOf(rs.getString("status")));
+        invoice.setVersion(rs.getLong("version"));
+        invoice.setLineItems(null);
+        return invoice;
+    }
+}
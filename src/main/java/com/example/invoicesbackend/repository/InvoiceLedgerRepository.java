@@ -0,0 +1,240 @@
+package com.example.invoicesbackend.repository;
+
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceBalance;
+import com.example.invoicesbackend.model.Payment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Plain JDBC access to the append-only invoice_ledger and its invoice_balance_snapshots.
+ * Writers append inside the transaction that changes the invoice's debt, with one INSERT and no reads.
+ * A balance as of a date is the latest snapshot on or before that date plus the entries it does not cover,
+ * read with two index range scans instead of the invoice's whole history.
+ */
+@Repository
+public class InvoiceLedgerRepository {
+
+    public enum EntryType {
+        INVOICE_CREATED, LINE_ITEMS_ADDED, PAYMENT_APPLIED
+    }
+
+    private static final String INSERT_ENTRY =
+            "INSERT INTO invoice_ledger (invoice_id, entry_type, amount, effective_date, payment_id, recorded_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_PAYMENT_ENTRY_FOR_INVOICE_NUMBER =
+            "INSERT INTO invoice_ledger (invoice_id, entry_type, amount, effective_date, payment_id, recorded_at) " +
+            "SELECT id, '" + EntryType.PAYMENT_APPLIED + "', ?, ?, ?, ? FROM invoices WHERE invoice_number = ?";
+
+    private static final String SELECT_LATEST_SNAPSHOT =
+            "SELECT as_of_date, recorded_before, balance FROM invoice_balance_snapshots " +
+            "WHERE invoice_id = ? AND as_of_date <= ? ORDER BY as_of_date DESC LIMIT 1";
+
+    private static final String SUM_ENTRIES =
+            "SELECT COALESCE(SUM(amount), 0) AS balance, COUNT(*) AS entries FROM invoice_ledger " +
+            "WHERE invoice_id = ? AND effective_date <= ?";
+
+    // Entries recorded after the snapshot, plus earlier ones effective after its date; the two sets are disjoint
+    private static final String SUM_ENTRIES_AFTER_SNAPSHOT =
+            "SELECT COALESCE(SUM(amount), 0) AS balance, COUNT(*) AS entries FROM (" +
+            "SELECT amount FROM invoice_ledger WHERE invoice_id = ? AND recorded_at >= ? AND effective_date <= ? " +
+            "UNION ALL " +
+            "SELECT amount FROM invoice_ledger WHERE invoice_id = ? AND effective_date > ? AND effective_date <= ? " +
+            "AND recorded_at < ?) tail";
+
+    // Builds each new snapshot from the invoice's latest older one plus the entries that one does not cover
+    private static final String MERGE_SNAPSHOTS =
+            "MERGE INTO invoice_balance_snapshots (invoice_id, as_of_date, recorded_before, balance) KEY (invoice_id, as_of_date) " +
+            "SELECT l.invoice_id, ?, ?, COALESCE(s.balance, 0) + SUM(l.amount) FROM invoice_ledger l " +
+            "LEFT JOIN invoice_balance_snapshots s ON s.invoice_id = l.invoice_id AND s.as_of_date = (" +
+            "SELECT MAX(as_of_date) FROM invoice_balance_snapshots " +
+            "WHERE invoice_id = l.invoice_id AND as_of_date <= ? AND recorded_before <= ?) " +
+            "WHERE l.effective_date <= ? AND l.recorded_at < ? " +
+            "AND (s.invoice_id IS NULL OR l.recorded_at >= s.recorded_before OR l.effective_date > s.as_of_date) " +
+            "GROUP BY l.invoice_id, s.balance HAVING COUNT(*) >= ?";
+
+    private static final String LEDGER_BALANCES =
+            "SELECT invoice_id, SUM(amount) AS balance FROM invoice_ledger GROUP BY invoice_id";
+
+    private static final String SELECT_CUSTOMERS_WITH_DEBT_DRIFT =
+            "SELECT DISTINCT i.customer_name FROM invoices i JOIN (" + LEDGER_BALANCES + ") l ON l.invoice_id = i.id " +
+            "WHERE i.debt_amount <> l.balance";
+
+    private static final String REBUILD_DEBT =
+            "MERGE INTO invoices i USING (" + LEDGER_BALANCES + ") l ON i.id = l.invoice_id " +
+            "WHEN MATCHED AND i.debt_amount <> l.balance THEN UPDATE SET debt_amount = l.balance, " +
+            "status = CASE WHEN l.balance = 0 THEN 'PAID' WHEN l.balance < i.amount THEN 'PARTIALLY_PAID' ELSE 'PENDING' END, " +
+            "version = version + 1";
+
+    private static final String SYNC_SUMMARY_DEBT =
+            "MERGE INTO invoice_summary s USING invoices i ON s.invoice_id = i.id " +
+            "WHEN MATCHED AND (s.debt_amount <> i.debt_amount OR s.status <> i.status) " +
+            "THEN UPDATE SET debt_amount = i.debt_amount, status = i.status";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public InvoiceLedgerRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Records the creation of new invoices as one JDBC batch.
+     *
+     * @param invoices Invoices with ids and their initial debt
+     */
+    public void appendCreated(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_ENTRY, invoices, invoices.size(), (ps, invoice) -> {
+            ps.setLong(1, invoice.getId());
+            ps.setString(2, EntryType.INVOICE_CREATED.name());
+            ps.setBigDecimal(3, invoice.getDebtAmount());
+            ps.setDate(4, Date.valueOf(invoice.getInvoiceDate()));
+            ps.setNull(5, Types.BIGINT);
+            ps.setTimestamp(6, now);
+        });
+    }
+
+    /**
+     * Records line items added to an existing invoice.
+     *
+     * @param invoiceId The id of the invoice
+     * @param amount The total of the added line items, owed on top of the previous debt
+     * @param effectiveDate The day the line items were added
+     */
+    public void appendLineItemsAdded(Long invoiceId, BigDecimal amount, LocalDate effectiveDate) {
+        jdbcTemplate.update(INSERT_ENTRY, invoiceId, EntryType.LINE_ITEMS_ADDED.name(), amount,
+                Date.valueOf(effectiveDate), null, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Records a payment applied to an invoice, resolving the invoice id in the same statement.
+     *
+     * @param invoiceNumber The invoice number of the paid invoice
+     * @param payment A payment that has just been inserted, with its id
+     */
+    public void appendPayment(String invoiceNumber, Payment payment) {
+        appendPayments(Collections.singletonList(invoiceNumber), Collections.singletonList(payment));
+    }
+
+    /**
+     * Records payments applied to their invoices as one JDBC batch.
+     *
+     * @param invoiceNumbers The invoice number of each payment
+     * @param payments Payments that have just been inserted, with their ids, in the same order
+     */
+    public void appendPayments(List<String> invoiceNumbers, List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_PAYMENT_ENTRY_FOR_INVOICE_NUMBER, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int index) throws SQLException {
+                Payment payment = payments.get(index);
+                ps.setBigDecimal(1, payment.getAmount().negate());
+                ps.setDate(2, Date.valueOf(payment.getPaymentDate()));
+                ps.setLong(3, payment.getId());
+                ps.setTimestamp(4, now);
+                ps.setString(5, invoiceNumbers.get(index));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payments.size();
+            }
+        });
+    }
+
+    /**
+     * Computes an invoice's debt at the end of a day from its latest snapshot and the entries it does not cover.
+     *
+     * @param invoiceId The id of the invoice
+     * @param asOf The day to compute the debt for
+     * @return The debt, zero before the invoice date
+     */
+    public InvoiceBalance findBalance(Long invoiceId, LocalDate asOf) {
+        Date asOfDate = Date.valueOf(asOf);
+        List<Snapshot> snapshots = jdbcTemplate.query(SELECT_LATEST_SNAPSHOT, (rs, rowNum) -> new Snapshot(
+                rs.getDate("as_of_date"), rs.getTimestamp("recorded_before"), rs.getBigDecimal("balance")),
+                invoiceId, asOfDate);
+        if (snapshots.isEmpty()) {
+            return jdbcTemplate.queryForObject(SUM_ENTRIES,
+                    (rs, rowNum) -> new InvoiceBalance(rs.getBigDecimal("balance"), null, rs.getLong("entries")),
+                    invoiceId, asOfDate);
+        }
+        Snapshot snapshot = snapshots.get(0);
+        return jdbcTemplate.queryForObject(SUM_ENTRIES_AFTER_SNAPSHOT, (rs, rowNum) -> new InvoiceBalance(
+                        snapshot.balance.add(rs.getBigDecimal("balance")), snapshot.asOfDate.toLocalDate(), rs.getLong("entries")),
+                invoiceId, snapshot.recordedBefore, asOfDate,
+                invoiceId, snapshot.asOfDate, asOfDate, snapshot.recordedBefore);
+    }
+
+    /**
+     * Snapshots the balance of every invoice with enough entries not covered by its latest snapshot.
+     * A snapshot covers the entries effective on or before {@code asOf} and recorded before {@code recordedBefore};
+     * entries recorded later, even if back-dated, are replayed on top of it by {@link #findBalance}.
+     *
+     * @param asOf The last effective date covered by the snapshots
+     * @param recordedBefore Entries recorded from this time on are left out; must be earlier than any uncommitted entry
+     * @param minEntries The minimum number of uncovered entries for an invoice to be snapshotted
+     * @return The number of snapshots written
+     */
+    public int snapshotBalances(LocalDate asOf, LocalDateTime recordedBefore, int minEntries) {
+        Date asOfDate = Date.valueOf(asOf);
+        Timestamp before = Timestamp.valueOf(recordedBefore);
+        return jdbcTemplate.update(MERGE_SNAPSHOTS, asOfDate, before, asOfDate, before, asOfDate, before, minEntries);
+    }
+
+    /**
+     * Lists the customers owning an invoice whose debt_amount disagrees with its ledger.
+     *
+     * @return The customer names
+     */
+    public Set<String> findCustomersWithDebtDrift() {
+        return new HashSet<>(jdbcTemplate.queryForList(SELECT_CUSTOMERS_WITH_DEBT_DRIFT, String.class));
+    }
+
+    /**
+     * Recomputes debt_amount and status of every invoice whose debt disagrees with its ledger, and copies them into
+     * invoice_summary. Must be called inside a transaction.
+     *
+     * @return The number of invoices corrected
+     */
+    public int rebuildDebt() {
+        int corrected = jdbcTemplate.update(REBUILD_DEBT);
+        jdbcTemplate.update(SYNC_SUMMARY_DEBT);
+        return corrected;
+    }
+
+    private static final class Snapshot {
+        private final Date asOfDate;
+        private final Timestamp recordedBefore;
+        private final BigDecimal balance;
+
+        private Snapshot(Date asOfDate, Timestamp recordedBefore, BigDecimal balance) {
+            this.asOfDate = asOfDate;
+            this.recordedBefore = recordedBefore;
+            this.balance = balance;
+        }
+    }
+}
@@ -1,13 +1,32 @@
 package com.example.invoicesbackend.repository;
 
 import com.example.invoicesbackend.model.Invoice;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
     Optional<Invoice> findByInvoiceNumber(String invoiceNumber);
     boolean existsByInvoiceNumber(String invoiceNumber);
-}
\ No newline at end of file
+
+    // Fetch plans: line items are joined in the same statement instead of being loaded lazily per invoice
+    @EntityGraph(attributePaths = "lineItems")
+    Optional<Invoice> findDistinctWithLineItemsByInvoiceNumber(String invoiceNumber);
+    @EntityGraph(attributePaths = "lineItems")
+    List<Invoice> findDistinctWithLineItemsByIdIn(Collection<Long> ids);
+    @EntityGraph(attributePaths = "lineItems")
+    List<Invoice> findDistinctWithLineItemsByInvoiceNumberIn(Collection<String> invoiceNumbers);
+
+    // Keyset pagination: the Pageable only carries the limit and the sort, never an offset
+    List<Invoice> findAllBy(Pageable pageable);
+    List<Invoice> findByIdGreaterThan(Long id, Pageable pageable);
+    List<Invoice> findByIdLessThan(Long id, Pageable pageable);
+    List<Invoice> findByInvoiceNumberGreaterThan(String invoiceNumber, Pageable pageable);
+    List<Invoice> findByInvoiceNumberLessThan(String invoiceNumber, Pageable pageable);
+}
@@ -0,0 +1,214 @@
+package com.example.invoicesbackend.repository;
+
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceSummary;
+import com.example.invoicesbackend.model.Payment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Plain JDBC access to the invoice_summary read model.
+ * Writers call it inside the transaction that changes the invoice, so the projection commits or rolls back with it.
+ * Every read is a single-table scan of the primary key or the unique invoice number index.
+ */
+@Repository
+public class InvoiceSummaryRepository {
+
+    private static final String COLUMNS =
+            "invoice_id, invoice_number, customer_name, invoice_date, status, amount, debt_amount, " +
+            "line_item_count, payment_count, paid_amount, last_payment_date";
+
+    private static final String INSERT_SUMMARY =
+            "INSERT INTO invoice_summary (" + COLUMNS + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, 0, 0, NULL)";
+
+    private static final String UPDATE_HEADER =
+            "UPDATE invoice_summary SET invoice_number = ?, customer_name = ?, invoice_date = ?, status = ?, " +
+            "amount = ?, debt_amount = ?, line_item_count = ? WHERE invoice_id = ?";
+
+    // Mirrors InvoiceJdbcRepository's conditional payment update; the invoice row has already been checked and changed
+    private static final String APPLY_PAYMENT =
+            "UPDATE invoice_summary SET debt_amount = debt_amount - ?, " +
+            "status = CASE WHEN debt_amount = ? THEN 'PAID' ELSE 'PARTIALLY_PAID' END, " +
+            "payment_count = payment_count + 1, paid_amount = paid_amount + ?, " +
+            "last_payment_date = CASE WHEN last_payment_date IS NULL OR last_payment_date < ? THEN ? ELSE last_payment_date END " +
+            "WHERE invoice_number = ?";
+
+    private static final String SELECT_BY_NUMBER =
+            "SELECT " + COLUMNS + " FROM invoice_summary WHERE invoice_number = ?";
+
+    private static final String DELETE_ALL = "DELETE FROM invoice_summary";
+
+    private static final String INSERT_FROM_SOURCE_TABLES =
+            "INSERT INTO invoice_summary (" + COLUMNS + ") " +
+            "SELECT i.id, i.invoice_number, i.customer_name, i.invoice_date, i.status, i.amount, i.debt_amount, " +
+            "COALESCE(l.line_item_count, 0), COALESCE(p.payment_count, 0), COALESCE(p.paid_amount, 0), p.last_payment_date " +
+            "FROM invoices i " +
+            "LEFT JOIN (SELECT invoice_id, COUNT(*) AS line_item_count FROM line_items GROUP BY invoice_id) l " +
+            "ON l.invoice_id = i.id " +
+            "LEFT JOIN (SELECT invoice_id, COUNT(*) AS payment_count, SUM(amount) AS paid_amount, " +
+            "MAX(payment_date) AS last_payment_date FROM payments GROUP BY invoice_id) p ON p.invoice_id = i.id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public InvoiceSummaryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the summary of a new invoice, with no payments.
+     *
+     * @param invoice An invoice with its id, amounts and all its line items
+     */
+    public void insert(Invoice invoice) {
+        batchInsert(Collections.singletonList(invoice));
+    }
+
+    /**
+     * Adds the summaries of new invoices, with no payments, as one JDBC batch.
+     *
+     * @param invoices Invoices with ids, amounts and all their line items
+     */
+    public void batchInsert(List<Invoice> invoices) {
+        if (invoices.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_SUMMARY, invoices, invoices.size(), (ps, invoice) -> {
+            ps.setLong(1, invoice.getId());
+            ps.setString(2, invoice.getInvoiceNumber());
+            ps.setString(3, invoice.getCustomerName());
+            ps.setDate(4, Date.valueOf(invoice.getInvoiceDate()));
+            ps.setString(5, invoice.getStatus().name());
+            ps.setBigDecimal(6, invoice.getAmount());
+            ps.setBigDecimal(7, invoice.getDebtAmount());
+            ps.setInt(8, invoice.getLineItems().size());
+        });
+    }
+
+    /**
+     * Copies an invoice's header, amounts and line item count into its summary, leaving the payment totals alone.
+     *
+     * @param invoice An invoice with all its line items loaded
+     */
+    public void updateHeader(Invoice invoice) {
+        jdbcTemplate.update(UPDATE_HEADER, invoice.getInvoiceNumber(), invoice.getCustomerName(),
+                Date.valueOf(invoice.getInvoiceDate()), invoice.getStatus().name(), invoice.getAmount(),
+                invoice.getDebtAmount(), invoice.getLineItems().size(), invoice.getId());
+    }
+
+    /**
+     * Adds a payment to the summary of an invoice.
+     *
+     * @param invoiceNumber The invoice number of the paid invoice
+     * @param payment A payment that has just been applied to the invoice
+     */
+    public void applyPayment(String invoiceNumber, Payment payment) {
+        applyPayments(Collections.singletonList(invoiceNumber), Collections.singletonList(payment));
+    }
+
+    /**
+     * Adds payments to the summaries of their invoices as one JDBC batch, in list order.
+     *
+     * @param invoiceNumbers The invoice number of each payment
+     * @param payments Payments that have just been applied to their invoices, in the same order
+     */
+    public void applyPayments(List<String> invoiceNumbers, List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(APPLY_PAYMENT, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int index) throws SQLException {
+                Payment payment = payments.get(index);
+                Date paymentDate = Date.valueOf(payment.getPaymentDate());
+                ps.setBigDecimal(1, payment.getAmount());
+                ps.setBigDecimal(2, payment.getAmount());
+                ps.setBigDecimal(3, payment.getAmount());
+                ps.setDate(4, paymentDate);
+                ps.setDate(5, paymentDate);
+                ps.setString(6, invoiceNumbers.get(index));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payments.size();
+            }
+        });
+    }
+
+    /**
+     * Replaces the whole projection with one regenerated from the invoices, line_items and payments tables.
+     * Must be called inside a transaction so readers never see an empty projection.
+     *
+     * @return The number of summaries written
+     */
+    public int rebuild() {
+        jdbcTemplate.update(DELETE_ALL);
+        return jdbcTemplate.update(INSERT_FROM_SOURCE_TABLES);
+    }
+
+    public Optional<InvoiceSummary> findByInvoiceNumber(String invoiceNumber) {
+        return jdbcTemplate.query(SELECT_BY_NUMBER, (rs, rowNum) -> mapSummary(rs), invoiceNumber).stream().findFirst();
+    }
+
+    /**
+     * Loads summaries in invoice id order, starting after the given id.
+     *
+     * @param afterId The last id of the previous page, or null for the first page
+     * @param ascending The sort direction
+     * @param limit The maximum number of summaries to return
+     * @return The summaries of the page
+     */
+    public List<InvoiceSummary> findPageById(Long afterId, boolean ascending, int limit) {
+        return findPage("invoice_id", afterId, ascending, limit);
+    }
+
+    /**
+     * Loads summaries in invoice number order, starting after the given invoice number.
+     *
+     * @param afterInvoiceNumber The last invoice number of the previous page, or null for the first page
+     * @param ascending The sort direction
+     * @param limit The maximum number of summaries to return
+     * @return The summaries of the page
+     */
+    public List<InvoiceSummary> findPageByInvoiceNumber(String afterInvoiceNumber, boolean ascending, int limit) {
+        return findPage("invoice_number", afterInvoiceNumber, ascending, limit);
+    }
+
+    private List<InvoiceSummary> findPage(String column, Object after, boolean ascending, int limit) {
+        StringBuilder sql = new StringBuilder("SELECT ").append(COLUMNS).append(" FROM invoice_summary");
+        if (after != null) {
+            sql.append(" WHERE ").append(column).append(ascending ? " > ?" : " < ?");
+        }
+        sql.append(" ORDER BY ").append(column).append(ascending ? " ASC" : " DESC").append(" LIMIT ?");
+        Object[] args = after != null ? new Object[]{after, limit} : new Object[]{limit};
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> mapSummary(rs), args);
+    }
+
+    private static InvoiceSummary mapSummary(ResultSet rs) throws SQLException {
+        InvoiceSummary summary = new InvoiceSummary();
+        summary.setInvoiceId(rs.getLong("invoice_id"));
+        summary.setInvoiceNumber(rs.getString("invoice_number"));
+        summary.setCustomerName(rs.getString("customer_name"));
+        summary.setInvoiceDate(rs.getObject("invoice_date", LocalDate.class));
+        summary.setStatus(Invoice.InvoiceStatus.valueOf(rs.getString("status")));
+        summary.setAmount(rs.getBigDecimal("amount"));
+        summary.setDebtAmount(rs.getBigDecimal("debt_amount"));
+        summary.setLineItemCount(rs.getInt("line_item_count"));
+        summary.setPaymentCount(rs.getInt("payment_count"));
+        summary.setPaidAmount(rs.getBigDecimal("paid_amount"));
+        summary.setLastPaymentDate(rs.getObject("last_payment_date", LocalDate.class));
+        return summary;
+    }
+}
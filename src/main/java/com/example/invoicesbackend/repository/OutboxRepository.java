@@ -0,0 +1,118 @@
+package com.example.invoicesbackend.repository;
+
+import com.example.invoicesbackend.model.OutboxEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Plain JDBC access to the outbox_events table.
+ * Command handlers append inside their own transaction, so an event exists exactly when the change it describes
+ * has committed. The relay reads pending events in event_id order and marks them published once delivered.
+ */
+@Repository
+public class OutboxRepository {
+
+    private static final String INSERT_EVENT =
+            "INSERT INTO outbox_events (event_type, invoice_number, payload, created_at) VALUES (?, ?, ?, ?)";
+
+    private static final String SELECT_PENDING =
+            "SELECT event_id, event_type, invoice_number, payload, created_at, attempts FROM outbox_events " +
+            "WHERE published_at IS NULL ORDER BY event_id LIMIT ?";
+
+    private static final String COUNT_PENDING =
+            "SELECT COUNT(*) FROM outbox_events WHERE published_at IS NULL";
+
+    private static final String MARK_PUBLISHED =
+            "UPDATE outbox_events SET published_at = ? WHERE event_id = ?";
+
+    private static final String RECORD_FAILED_ATTEMPT =
+            "UPDATE outbox_events SET attempts = attempts + 1 WHERE event_id = ?";
+
+    private static final String DELETE_PUBLISHED_BEFORE =
+            "DELETE FROM outbox_events WHERE published_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    public OutboxRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Appends events as one JDBC batch.
+     *
+     * @param events Events without ids; their payloads already serialized
+     */
+    public void append(List<OutboxEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(INSERT_EVENT, events, events.size(), (ps, event) -> {
+            ps.setString(1, event.getEventType());
+            ps.setString(2, event.getInvoiceNumber());
+            ps.setString(3, event.getPayload());
+            ps.setTimestamp(4, Timestamp.valueOf(event.getCreatedAt()));
+        });
+    }
+
+    /**
+     * Loads the oldest events not published yet.
+     *
+     * @param limit The maximum number of events to load
+     * @return The events, in the order they were appended
+     */
+    public List<OutboxEvent> findPending(int limit) {
+        return jdbcTemplate.query(SELECT_PENDING, (rs, rowNum) -> new OutboxEvent(
+                rs.getLong("event_id"), rs.getString("event_type"), rs.getString("invoice_number"),
+                rs.getString("payload"), rs.getTimestamp("created_at").toLocalDateTime(), rs.getInt("attempts")),
+                limit);
+    }
+
+    /**
+     * Counts the events not published yet.
+     *
+     * @return The number of pending events
+     */
+    public long countPending() {
+        return jdbcTemplate.queryForObject(COUNT_PENDING, Long.class);
+    }
+
+    /**
+     * Marks events as published, so the relay does not deliver them again.
+     *
+     * @param eventIds The ids of the delivered events
+     * @param publishedAt When they were delivered
+     */
+    public void markPublished(List<Long> eventIds, LocalDateTime publishedAt) {
+        Timestamp timestamp = Timestamp.valueOf(publishedAt);
+        jdbcTemplate.batchUpdate(MARK_PUBLISHED, eventIds, eventIds.size(), (ps, eventId) -> {
+            ps.setTimestamp(1, timestamp);
+            ps.setLong(2, eventId);
+        });
+    }
+
+    /**
+     * Counts a failed delivery against events that stay pending.
+     *
+     * @param eventIds The ids of the events that could not be delivered
+     */
+    public void recordFailedAttempt(List<Long> eventIds) {
+        jdbcTemplate.batchUpdate(RECORD_FAILED_ATTEMPT, eventIds, eventIds.size(),
+                (ps, eventId) -> ps.setLong(1, eventId));
+    }
+
+    /**
+     * Deletes events published before a point in time.
+     *
+     * @param publishedBefore The cut-off
+     * @return The number of events deleted
+     */
+    public int deletePublishedBefore(LocalDateTime publishedBefore) {
+        return jdbcTemplate.update(DELETE_PUBLISHED_BEFORE, Timestamp.valueOf(publishedBefore));
+    }
+}
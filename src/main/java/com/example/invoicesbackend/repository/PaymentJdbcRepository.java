@@ -0,0 +1,120 @@
+package com.example.invoicesbackend.repository;
+
+import com.example.invoicesbackend.model.Payment;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Plain JDBC access to the payments table for the payment ingestion paths.
+ */
+@Repository
+public class PaymentJdbcRepository {
+
+    private static final String INSERT_PAYMENT_FOR_INVOICE_NUMBER =
+            "INSERT INTO payments (id, invoice_id, payment_date, amount, payment_method, created_at, updated_at) " +
+            "SELECT ?, id, ?, ?, ?, ?, ? FROM invoices WHERE invoice_number = ?";
+
+    private static final String INSERT_PAYMENT =
+            "INSERT INTO payments (id, invoice_id, payment_date, amount, payment_method, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SequenceIdAllocator sequenceIdAllocator;
+
+    @Autowired
+    public PaymentJdbcRepository(JdbcTemplate jdbcTemplate, SequenceIdAllocator sequenceIdAllocator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.sequenceIdAllocator = sequenceIdAllocator;
+    }
+
+    /**
+     * Inserts a payment for the invoice with the given number, resolving the invoice id in the same statement.
+     * The payment's id and timestamps are assigned.
+     *
+     * @param invoiceNumber The invoice number of the paid invoice
+     * @param payment The payment to insert
+     * @return true if the invoice exists and the payment was inserted
+     */
+    public boolean insertForInvoiceNumber(String invoiceNumber, Payment payment) {
+        payment.setId(sequenceIdAllocator.nextId(SequenceIdAllocator.PAYMENTS));
+        payment.setCreatedAt(LocalDateTime.now());
+        payment.setUpdatedAt(payment.getCreatedAt());
+        Timestamp now = Timestamp.valueOf(payment.getCreatedAt());
+        return jdbcTemplate.update(INSERT_PAYMENT_FOR_INVOICE_NUMBER, payment.getId(), Date.valueOf(payment.getPaymentDate()),
+                payment.getAmount(), payment.getPaymentMethod(), now, now, invoiceNumber) == 1;
+    }
+
+    /**
+     * Inserts many payments as one JDBC batch, each for the invoice with the corresponding number.
+     * The payments' ids and timestamps are assigned.
+     *
+     * @param invoiceNumbers The invoice number of each payment; every invoice must exist
+     * @param payments The payments to insert, in the same order
+     */
+    public void batchInsertForInvoiceNumbers(List<String> invoiceNumbers, List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        Timestamp now = Timestamp.valueOf(createdAt);
+        for (Payment payment : payments) {
+            payment.setId(sequenceIdAllocator.nextId(SequenceIdAllocator.PAYMENTS));
+            payment.setCreatedAt(createdAt);
+            payment.setUpdatedAt(createdAt);
+        }
+        jdbcTemplate.batchUpdate(INSERT_PAYMENT_FOR_INVOICE_NUMBER, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int index) throws SQLException {
+                Payment payment = payments.get(index);
+                ps.setLong(1, payment.getId());
+                ps.setDate(2, Date.valueOf(payment.getPaymentDate()));
+                ps.setBigDecimal(3, payment.getAmount());
+                ps.setString(4, payment.getPaymentMethod());
+                ps.setTimestamp(5, now);
+                ps.setTimestamp(6, now);
+                ps.setString(7, invoiceNumbers.get(index));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return payments.size();
+            }
+        });
+    }
+
+    /**
+     * Inserts payments as one JDBC batch. The payments' ids and timestamps are assigned.
+     *
+     * @param payments Payments referencing existing invoices by id
+     */
+    public void batchInsert(List<Payment> payments) {
+        if (payments.isEmpty()) {
+            return;
+        }
+        LocalDateTime createdAt = LocalDateTime.now();
+        Timestamp now = Timestamp.valueOf(createdAt);
+        for (Payment payment : payments) {
+            payment.setId(sequenceIdAllocator.nextId(SequenceIdAllocator.PAYMENTS));
+            payment.setCreatedAt(createdAt);
+            payment.setUpdatedAt(createdAt);
+        }
+        jdbcTemplate.batchUpdate(INSERT_PAYMENT, payments, payments.size(), (ps, payment) -> {
+            ps.setLong(1, payment.getId());
+            ps.setLong(2, payment.getInvoiceId());
+            ps.setDate(3, Date.valueOf(payment.getPaymentDate()));
+            ps.setBigDecimal(4, payment.getAmount());
+            ps.setString(5, payment.getPaymentMethod());
+            ps.setTimestamp(6, now);
+            ps.setTimestamp(7, now);
+        });
+    }
+}
@@ -4,8 +4,11 @@ import com.example.invoicesbackend.model.Payment;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 
 @Repository
 public interface PaymentRepository extends JpaRepository<Payment, Long> {
     Payment findByInvoiceId(Long invoiceId);
+    List<Payment> findByInvoiceIdInOrderById(Collection<Long> invoiceIds);
 }
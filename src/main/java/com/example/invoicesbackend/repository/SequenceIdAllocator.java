@@ -0,0 +1,60 @@
+package com.example.invoicesbackend.repository;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out ids for JDBC inserts from the same pooled-lo sequences Hibernate uses.
+ * Each sequence value reserves a block of {@code invoices.id.allocation-size} ids,
+ * so only one in every block-size ids costs a database round trip.
+ */
+@Component
+public class SequenceIdAllocator {
+
+    public static final String INVOICES = "invoices_seq";
+    public static final String LINE_ITEMS = "line_items_seq";
+    public static final String PAYMENTS = "payments_seq";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int allocationSize;
+    private final Map<String, Block> blocks = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SequenceIdAllocator(JdbcTemplate jdbcTemplate, @Value("${invoices.id.allocation-size:50}") int allocationSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.allocationSize = allocationSize;
+    }
+
+    /**
+     * Returns the next unused id of the given sequence.
+     *
+     * @param sequenceName One of the sequence name constants of this class
+     * @return A unique id
+     */
+    public long nextId(String sequenceName) {
+        return blocks.computeIfAbsent(sequenceName, Block::new).next();
+    }
+
+    private final class Block {
+        private final String sequenceName;
+        private long next;
+        private long limit;
+
+        private Block(String sequenceName) {
+            this.sequenceName = sequenceName;
+        }
+
+        private synchronized long next() {
+            if (next == limit) {
+                next = jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR " + sequenceName, Long.class);
+                limit = next + allocationSize;
+            }
+            return next++;
+        }
+    }
+}
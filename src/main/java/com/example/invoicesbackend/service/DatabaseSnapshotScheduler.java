@@ -0,0 +1,217 @@
+package com.example.invoicesbackend.service;
+
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.repository.DatabaseSnapshotRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.flywaydb.core.Flyway;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.IntervalTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Keeps the in-memory database across restarts. Every {@code invoices.snapshot.interval}, and once more on shutdown,
+ * the database is written to a compressed snapshot in {@code invoices.snapshot.directory}, of which the newest
+ * {@code retain} are kept. On startup the newest snapshot is restored before Flyway runs, so Flyway then only applies
+ * the migrations added since it was taken.
+ * <p>
+ * Snapshots are written to a temporary file and renamed into place, so a crash while writing leaves the previous
+ * snapshot as the newest. A snapshot that cannot be restored stops the application instead of starting it empty,
+ * which would replace the snapshots with empty ones as they rotate.
+ * <p>
+ * With the command journal enabled, each snapshot's name records the journal position it was taken at. The commands
+ * journaled after the restored snapshot are replayed when the journal starts, before the web server does, and the
+ * journal segments older than every retained snapshot are deleted as snapshots rotate.
+ */
+@Component
+public class DatabaseSnapshotScheduler implements SchedulingConfigurer, FlywayMigrationStrategy, SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(DatabaseSnapshotScheduler.class);
+
+    private static final String PREFIX = "invoices-";
+    private static final String SUFFIX = ".sql.gz";
+    // Sorts by name in the order the snapshots were taken
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+    private static final Pattern JOURNAL_POSITION = Pattern.compile("-j(\\d+)" + Pattern.quote(SUFFIX) + "$");
+
+    private final DatabaseSnapshotRepository databaseSnapshotRepository;
+    private final CommandJournal commandJournal;
+    private final boolean enabled;
+    private final Path directory;
+    private final Duration interval;
+    private final int retain;
+    private final Timer writes;
+    private volatile boolean running;
+
+    @Autowired
+    public DatabaseSnapshotScheduler(DatabaseSnapshotRepository databaseSnapshotRepository,
+                                     CommandJournal commandJournal,
+                                     MeterRegistry meterRegistry,
+                                     @Value("${invoices.snapshot.enabled:false}") boolean enabled,
+                                     @Value("${invoices.snapshot.directory:data/snapshots}") String directory,
+                                     @Value("${invoices.snapshot.interval:5m}") Duration interval,
+                                     @Value("${invoices.snapshot.retain:3}") int retain) {
+        this.databaseSnapshotRepository = databaseSnapshotRepository;
+        this.commandJournal = commandJournal;
+        this.enabled = enabled;
+        this.directory = Paths.get(directory).toAbsolutePath();
+        this.interval = interval;
+        this.retain = Math.max(1, retain);
+        this.writes = Timer.builder("invoices.snapshot.write")
+                .description("Time to write a database snapshot")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void migrate(Flyway flyway) {
+        if (enabled || commandJournal.isEnabled()) {
+            restoreLatest();
+        }
+        flyway.migrate();
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (enabled) {
+            taskRegistrar.addFixedDelayTask(new IntervalTask(this::snapshot, interval.toMillis(), interval.toMillis()));
+        }
+    }
+
+    @Override
+    public void start() {
+        running = enabled;
+    }
+
+    /**
+     * Takes the last snapshot, once the web server has stopped and before any bean is destroyed.
+     */
+    @Override
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        snapshot();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Stops after the web server, which drains the requests in flight ({@code server.shutdown=graceful}) and stops in
+     * phase {@code Integer.MAX_VALUE - 1}, so the last snapshot holds their changes.
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE - 2;
+    }
+
+    void restoreLatest() {
+        if (!databaseSnapshotRepository.isEmpty()) {
+            log.info("Database already has tables, not restoring a snapshot or replaying the command journal");
+            return;
+        }
+        Optional<Path> latest = enabled ? snapshots().stream().reduce((older, newer) -> newer) : Optional.empty();
+        if (latest.isEmpty()) {
+            log.info("No database snapshot in {}, starting from an empty database", directory);
+            commandJournal.replayFrom(0);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            databaseSnapshotRepository.restore(latest.get());
+        } catch (RuntimeException ex) {
+            throw new IllegalStateException("Could not restore database snapshot " + latest.get(), ex);
+        }
+        log.info("Restored database snapshot {} in {} ms", latest.get(), (System.nanoTime() - start) / 1_000_000);
+        commandJournal.replayFrom(journalPosition(latest.get()));
+    }
+
+    // Synchronized so the snapshot taken on shutdown waits for a scheduled one that is still being written
+    synchronized void snapshot() {
+        String name = PREFIX + TIMESTAMP.format(LocalDateTime.now());
+        Path temp = directory.resolve(name + SUFFIX + ".tmp");
+        Path file = null;
+        try {
+            Files.createDirectories(directory);
+            AtomicLong position = new AtomicLong();
+            writes.record(() -> databaseSnapshotRepository.write(temp,
+                    fixVersion -> position.set(commandJournal.checkpoint(fixVersion))));
+            file = directory.resolve(name + (position.get() < 0 ? "" : "-j" + position.get()) + SUFFIX);
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Wrote database snapshot {} ({} bytes)", file, Files.size(file));
+            List<Path> snapshots = snapshots();
+            for (Path old : snapshots.subList(0, Math.max(0, snapshots.size() - retain))) {
+                Files.deleteIfExists(old);
+            }
+            // The oldest snapshot kept is the furthest one a restore can fall back to
+            long oldest = journalPosition(snapshots.get(Math.max(0, snapshots.size() - retain)));
+            commandJournal.deleteSegmentsBefore(oldest);
+        } catch (IOException | RuntimeException ex) {
+            log.error("Could not write database snapshot {}", file == null ? temp : file, ex);
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+                // Left behind; never picked up as a snapshot because of its suffix
+            }
+        }
+    }
+
+    /**
+     * @return The complete snapshots in the directory, oldest first
+     */
+    List<Path> snapshots() {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return files
+                    .filter(file -> file.getFileName().toString().startsWith(PREFIX))
+                    .filter(file -> file.getFileName().toString().endsWith(SUFFIX))
+                    .sorted(Comparator.comparing(file -> file.getFileName().toString()))
+                    .collect(Collectors.toList());
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /**
+     * @param snapshot A snapshot file
+     * @return The command journal position the snapshot was taken at, or -1 if it was taken without the journal
+     */
+    static long journalPosition(Path snapshot) {
+        Matcher matcher = JOURNAL_POSITION.matcher(snapshot.getFileName().toString());
+        return matcher.find() ? Long.parseLong(matcher.group(1)) : -1;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.invoicesbackend.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.config.IntervalTask;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Snapshots invoice balances every {@code invoices.ledger.snapshot.interval}, off the write path.
+ * Snapshots cover the ledger up to yesterday, so today's entries do not make them stale at once, and leave out
+ * entries recorded within the last {@code grace}, which may belong to transactions that have not committed yet.
+ */
+@Component
+public class InvoiceBalanceSnapshotScheduler implements SchedulingConfigurer {
+
+    private static final Logger log = LoggerFactory.getLogger(InvoiceBalanceSnapshotScheduler.class);
+
+    private final InvoiceService invoiceService;
+    private final boolean enabled;
+    private final Duration interval;
+    private final Duration grace;
+
+    @Autowired
+    public InvoiceBalanceSnapshotScheduler(InvoiceService invoiceService,
+                                           @Value("${invoices.ledger.snapshot.enabled:true}") boolean enabled,
+                                           @Value("${invoices.ledger.snapshot.interval:1h}") Duration interval,
+                                           @Value("${invoices.ledger.snapshot.grace:5m}") Duration grace) {
+        this.invoiceService = invoiceService;
+        this.enabled = enabled;
+        this.interval = interval;
+        this.grace = grace;
+    }
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        if (enabled) {
+            taskRegistrar.addFixedDelayTask(new IntervalTask(this::snapshot, interval.toMillis(), interval.toMillis()));
+        }
+    }
+
+    void snapshot() {
+        int written = invoiceService.snapshotInvoiceBalances(LocalDate.now().minusDays(1), LocalDateTime.now().minus(grace));
+        log.debug("Wrote {} invoice balance snapshots", written);
+    }
+}
@@ -1,24 +1,85 @@
 package com.example.invoicesbackend.service;
 
+import java.io.Reader;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.function.Consumer;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.QueryHandler;
+import com.example.invoicesbackend.cqrs.cache.QueryCache;
+import com.example.invoicesbackend.cqrs.idempotency.IdempotencyStore;
+import com.example.invoicesbackend.cqrs.journal.CommandJournal;
+import com.example.invoicesbackend.cqrs.metrics.HandlerMetrics;
 import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommand;
 import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoicesBatchCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoicesBatchCommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.ImportInvoicesCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.ImportInvoicesCommandHandler;
 import com.example.invoicesbackend.cqrs.command.invoice.PayInvoiceCommand;
 import com.example.invoicesbackend.cqrs.command.invoice.PayInvoiceCommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.PayInvoicesBatchCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.PayInvoicesBatchCommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.RebuildInvoiceDebtCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.RebuildInvoiceDebtCommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.RebuildInvoiceSummaryCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.RebuildInvoiceSummaryCommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.SnapshotInvoiceBalancesCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.SnapshotInvoiceBalancesCommandHandler;
 import com.example.invoicesbackend.cqrs.command.invoice.UpdateInvoiceCommand;
 import com.example.invoicesbackend.cqrs.command.invoice.UpdateInvoiceCommandHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.ExportInvoicesQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.ExportInvoicesQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.GetAgingReportQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetAgingReportQueryHandler;
 import com.example.invoicesbackend.cqrs.query.invoice.GetAllInvoicesQuery;
 import com.example.invoicesbackend.cqrs.query.invoice.GetAllInvoicesQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.GetCustomerSuggestionsQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetCustomerSuggestionsQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceBalanceQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceBalanceQueryHandler;
 import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceImportQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceImportQueryHandler;
 import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceSummariesQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceSummariesQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceSummaryByInvoiceNumberQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceSummaryByInvoiceNumberQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceVersionQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceVersionQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.InvoiceSearchSortKey;
+import com.example.invoicesbackend.cqrs.query.invoice.InvoiceSortKey;
+import com.example.invoicesbackend.cqrs.query.invoice.SearchInvoicesQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.SearchInvoicesQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.StreamImportRejectionsQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.StreamImportRejectionsQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.StreamInvoicesQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.StreamInvoicesQueryHandler;
+import com.example.invoicesbackend.cqrs.query.invoice.WriteInvoicesJsonQuery;
+import com.example.invoicesbackend.cqrs.query.invoice.WriteInvoicesJsonQueryHandler;
+import com.example.invoicesbackend.cqrs.retry.CommandRetryPolicy;
 import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
 import com.example.invoicesbackend.dto.request.PaymentRequestDto;
 import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.AgingReportResponseDto;
+import com.example.invoicesbackend.dto.response.BatchItemResultDto;
+import com.example.invoicesbackend.dto.response.CustomerSuggestionDto;
+import com.example.invoicesbackend.dto.response.ImportRejectionDto;
+import com.example.invoicesbackend.dto.response.InvoiceBalanceResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceImportResultDto;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryPageResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryResponseDto;
+import com.example.invoicesbackend.model.InvoiceSearchCriteria;
 
 /**
  * Service for invoice operations using CQRS pattern.
@@ -27,35 +88,199 @@ import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
 @Service
 public class InvoiceService {
 
-    private final CreateInvoiceCommandHandler createInvoiceCommandHandler;
-    private final UpdateInvoiceCommandHandler updateInvoiceCommandHandler;
-    private final PayInvoiceCommandHandler payInvoiceCommandHandler;
-    private final GetAllInvoicesQueryHandler getAllInvoicesQueryHandler;
-    private final GetInvoiceByInvoiceNumberQueryHandler getInvoiceByInvoiceNumberQueryHandler;
+    private final CommandHandler<CreateInvoiceCommand, InvoiceResponseDto> createInvoiceCommandHandler;
+    private final CommandHandler<CreateInvoicesBatchCommand, List<BatchItemResultDto>> createInvoicesBatchCommandHandler;
+    private final CommandHandler<UpdateInvoiceCommand, InvoiceResponseDto> updateInvoiceCommandHandler;
+    private final CommandHandler<PayInvoiceCommand, InvoiceResponseDto> payInvoiceCommandHandler;
+    private final CommandHandler<PayInvoicesBatchCommand, List<BatchItemResultDto>> payInvoicesBatchCommandHandler;
+    private final CommandHandler<RebuildInvoiceSummaryCommand, Integer> rebuildInvoiceSummaryCommandHandler;
+    private final CommandHandler<ImportInvoicesCommand, InvoiceImportResultDto> importInvoicesCommandHandler;
+    private final CommandHandler<SnapshotInvoiceBalancesCommand, Integer> snapshotInvoiceBalancesCommandHandler;
+    private final CommandHandler<RebuildInvoiceDebtCommand, Integer> rebuildInvoiceDebtCommandHandler;
+    private final QueryHandler<GetAllInvoicesQuery, InvoicePageResponseDto> getAllInvoicesQueryHandler;
+    private final QueryHandler<GetInvoiceByInvoiceNumberQuery, InvoiceResponseDto> getInvoiceByInvoiceNumberQueryHandler;
+    private final QueryHandler<StreamInvoicesQuery, Long> streamInvoicesQueryHandler;
+    private final QueryHandler<ExportInvoicesQuery, Long> exportInvoicesQueryHandler;
+    private final QueryHandler<WriteInvoicesJsonQuery, Long> writeInvoicesJsonQueryHandler;
+    private final QueryHandler<GetInvoiceSummariesQuery, InvoiceSummaryPageResponseDto> getInvoiceSummariesQueryHandler;
+    private final QueryHandler<GetInvoiceSummaryByInvoiceNumberQuery, InvoiceSummaryResponseDto> getInvoiceSummaryByInvoiceNumberQueryHandler;
+    private final QueryHandler<GetAgingReportQuery, AgingReportResponseDto> getAgingReportQueryHandler;
+    private final QueryHandler<SearchInvoicesQuery, InvoicePageResponseDto> searchInvoicesQueryHandler;
+    private final QueryHandler<GetCustomerSuggestionsQuery, List<CustomerSuggestionDto>> getCustomerSuggestionsQueryHandler;
+    private final QueryHandler<GetInvoiceImportQuery, InvoiceImportResultDto> getInvoiceImportQueryHandler;
+    private final QueryHandler<StreamImportRejectionsQuery, Long> streamImportRejectionsQueryHandler;
+    private final QueryHandler<GetInvoiceBalanceQuery, InvoiceBalanceResponseDto> getInvoiceBalanceQueryHandler;
+    private final QueryHandler<GetInvoiceVersionQuery, Long> getInvoiceVersionQueryHandler;
 
     @Autowired
     public InvoiceService(
             CreateInvoiceCommandHandler createInvoiceCommandHandler,
+            CreateInvoicesBatchCommandHandler createInvoicesBatchCommandHandler,
             UpdateInvoiceCommandHandler updateInvoiceCommandHandler,
             PayInvoiceCommandHandler payInvoiceCommandHandler,
+            PayInvoicesBatchCommandHandler payInvoicesBatchCommandHandler,
+            RebuildInvoiceSummaryCommandHandler rebuildInvoiceSummaryCommandHandler,
+            ImportInvoicesCommandHandler importInvoicesCommandHandler,
+            SnapshotInvoiceBalancesCommandHandler snapshotInvoiceBalancesCommandHandler,
+            RebuildInvoiceDebtCommandHandler rebuildInvoiceDebtCommandHandler,
             GetAllInvoicesQueryHandler getAllInvoicesQueryHandler,
-            GetInvoiceByInvoiceNumberQueryHandler getInvoiceByInvoiceNumberQueryHandler) {
-        this.createInvoiceCommandHandler = createInvoiceCommandHandler;
-        this.updateInvoiceCommandHandler = updateInvoiceCommandHandler;
-        this.payInvoiceCommandHandler = payInvoiceCommandHandler;
-        this.getAllInvoicesQueryHandler = getAllInvoicesQueryHandler;
-        this.getInvoiceByInvoiceNumberQueryHandler = getInvoiceByInvoiceNumberQueryHandler;
+            GetInvoiceByInvoiceNumberQueryHandler getInvoiceByInvoiceNumberQueryHandler,
+            StreamInvoicesQueryHandler streamInvoicesQueryHandler,
+            ExportInvoicesQueryHandler exportInvoicesQueryHandler,
+            WriteInvoicesJsonQueryHandler writeInvoicesJsonQueryHandler,
+            GetInvoiceSummariesQueryHandler getInvoiceSummariesQueryHandler,
+            GetInvoiceSummaryByInvoiceNumberQueryHandler getInvoiceSummaryByInvoiceNumberQueryHandler,
+            GetAgingReportQueryHandler getAgingReportQueryHandler,
+            SearchInvoicesQueryHandler searchInvoicesQueryHandler,
+            GetCustomerSuggestionsQueryHandler getCustomerSuggestionsQueryHandler,
+            GetInvoiceImportQueryHandler getInvoiceImportQueryHandler,
+            StreamImportRejectionsQueryHandler streamImportRejectionsQueryHandler,
+            GetInvoiceBalanceQueryHandler getInvoiceBalanceQueryHandler,
+            GetInvoiceVersionQueryHandler getInvoiceVersionQueryHandler,
+            QueryCache queryCache,
+            CommandRetryPolicy commandRetryPolicy,
+            IdempotencyStore idempotencyStore,
+            CommandJournal commandJournal,
+            HandlerMetrics handlerMetrics) {
+        // Queries declaring a cache region are answered from the cache; commands are retried on conflicts
+        // and evict what they make stale once they have succeeded. Metrics measure what the caller sees.
+        // Creating and paying are deduplicated by idempotency key around the retries, so a replay never re-runs them.
+        // Commands a client sent are journaled by their handlers as they commit, batches without the items that failed,
+        // to be replayed over the last snapshot on startup; imports journal the invoices of each chunk they commit too.
+        this.createInvoiceCommandHandler = handlerMetrics.timed(commandJournal.journaled(CreateInvoiceCommand.class,
+                queryCache.evicting(idempotencyStore.idempotent(commandRetryPolicy.retrying(createInvoiceCommandHandler), InvoiceResponseDto.class))));
+        this.createInvoicesBatchCommandHandler = handlerMetrics.timed(commandJournal.journaled(CreateInvoicesBatchCommand.class,
+                queryCache.evicting(commandRetryPolicy.retrying(createInvoicesBatchCommandHandler))));
+        this.updateInvoiceCommandHandler = handlerMetrics.timed(commandJournal.journaled(UpdateInvoiceCommand.class,
+                queryCache.evicting(commandRetryPolicy.retrying(updateInvoiceCommandHandler))));
+        this.payInvoiceCommandHandler = handlerMetrics.timed(commandJournal.journaled(PayInvoiceCommand.class,
+                queryCache.evicting(idempotencyStore.idempotent(commandRetryPolicy.retrying(payInvoiceCommandHandler), InvoiceResponseDto.class))));
+        this.payInvoicesBatchCommandHandler = handlerMetrics.timed(commandJournal.journaled(PayInvoicesBatchCommand.class,
+                queryCache.evicting(commandRetryPolicy.retrying(payInvoicesBatchCommandHandler))));
+        this.rebuildInvoiceSummaryCommandHandler = handlerMetrics.timed(queryCache.evicting(commandRetryPolicy.retrying(rebuildInvoiceSummaryCommandHandler)));
+        // An import consumes its input stream, so it cannot be retried as a whole; a rerun resumes it instead
+        this.importInvoicesCommandHandler = handlerMetrics.timed(queryCache.evicting(importInvoicesCommandHandler));
+        this.snapshotInvoiceBalancesCommandHandler = handlerMetrics.timed(queryCache.evicting(commandRetryPolicy.retrying(snapshotInvoiceBalancesCommandHandler)));
+        this.rebuildInvoiceDebtCommandHandler = handlerMetrics.timed(queryCache.evicting(commandRetryPolicy.retrying(rebuildInvoiceDebtCommandHandler)));
+        this.getAllInvoicesQueryHandler = handlerMetrics.timed(queryCache.cached(getAllInvoicesQueryHandler));
+        this.getInvoiceByInvoiceNumberQueryHandler = handlerMetrics.timed(queryCache.cached(getInvoiceByInvoiceNumberQueryHandler));
+        this.streamInvoicesQueryHandler = handlerMetrics.timed(queryCache.cached(streamInvoicesQueryHandler));
+        this.exportInvoicesQueryHandler = handlerMetrics.timed(queryCache.cached(exportInvoicesQueryHandler));
+        this.writeInvoicesJsonQueryHandler = handlerMetrics.timed(queryCache.cached(writeInvoicesJsonQueryHandler));
+        this.getInvoiceSummariesQueryHandler = handlerMetrics.timed(queryCache.cached(getInvoiceSummariesQueryHandler));
+        this.getInvoiceSummaryByInvoiceNumberQueryHandler = handlerMetrics.timed(queryCache.cached(getInvoiceSummaryByInvoiceNumberQueryHandler));
+        this.getAgingReportQueryHandler = handlerMetrics.timed(queryCache.cached(getAgingReportQueryHandler));
+        this.searchInvoicesQueryHandler = handlerMetrics.timed(queryCache.cached(searchInvoicesQueryHandler));
+        this.getCustomerSuggestionsQueryHandler = handlerMetrics.timed(queryCache.cached(getCustomerSuggestionsQueryHandler));
+        this.getInvoiceImportQueryHandler = handlerMetrics.timed(queryCache.cached(getInvoiceImportQueryHandler));
+        this.streamImportRejectionsQueryHandler = handlerMetrics.timed(queryCache.cached(streamImportRejectionsQueryHandler));
+        this.getInvoiceBalanceQueryHandler = handlerMetrics.timed(queryCache.cached(getInvoiceBalanceQueryHandler));
+        this.getInvoiceVersionQueryHandler = handlerMetrics.timed(queryCache.cached(getInvoiceVersionQueryHandler));
     }
 
     /**
-     * Get all invoices.
+     * Get one keyset page of invoices.
      * 
-     * @return List of invoice response DTOs
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param pageSize The maximum number of invoices to return
+     * @param sortKey The unique key to order by (ignored when a cursor is given)
+     * @param direction The sort direction (ignored when a cursor is given)
+     * @return The page of invoice response DTOs and the cursor of the next page
      */
-    public List<InvoiceResponseDto> getAllInvoices() {
-        return getAllInvoicesQueryHandler.handle(new GetAllInvoicesQuery());
+    public InvoicePageResponseDto getAllInvoices(String cursor, int pageSize, InvoiceSortKey sortKey, Sort.Direction direction) {
+        return getAllInvoicesQueryHandler.handle(new GetAllInvoicesQuery(cursor, pageSize, sortKey, direction));
     }
 
+    /**
+     * Get one keyset page of the invoices matching the given filters.
+     * 
+     * @param criteria The filters to apply; null fields do not filter
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param pageSize The maximum number of invoices to return
+     * @param sortKey The key to order by (ignored when a cursor is given)
+     * @param direction The sort direction (ignored when a cursor is given)
+     * @return The page of invoice response DTOs and the cursor of the next page
+     */
+    public InvoicePageResponseDto searchInvoices(InvoiceSearchCriteria criteria, String cursor, int pageSize,
+                                                 InvoiceSearchSortKey sortKey, Sort.Direction direction) {
+        return searchInvoicesQueryHandler.handle(new SearchInvoicesQuery(criteria, cursor, pageSize, sortKey, direction));
+    }
+
+    /**
+     * Stream all invoices, without line items, to the given sink.
+     * 
+     * @param sink Receives each invoice response DTO as it is read
+     * @return The number of invoices streamed
+     */
+    public long streamAllInvoices(Consumer<InvoiceResponseDto> sink) {
+        return streamInvoicesQueryHandler.handle(new StreamInvoicesQuery(sink));
+    }
+
+    /**
+     * Export all invoices, with their line items, to the given sink.
+     * 
+     * @param sink Receives each invoice response DTO, line items included, as it is read
+     * @return The number of invoices exported
+     */
+    public long exportInvoices(Consumer<InvoiceResponseDto> sink) {
+        return exportInvoicesQueryHandler.handle(new ExportInvoicesQuery(sink));
+    }
+
+    /**
+     * Write all invoices as newline-delimited JSON straight from the database rows, without building response DTOs.
+     * Each line has the same shape as a serialized invoice response DTO.
+     * 
+     * @param generator The generator to write to; flushing and closing it is left to the caller
+     * @param withLineItems Whether to join and write each invoice's line items
+     * @return The number of invoices written
+     */
+    public long writeInvoicesJson(JsonGenerator generator, boolean withLineItems) {
+        return writeInvoicesJsonQueryHandler.handle(new WriteInvoicesJsonQuery(generator, withLineItems));
+    }
+
+    /**
+     * Get one keyset page of invoice summaries from the read model.
+     * 
+     * @param cursor The cursor returned with the previous page, or null for the first page
+     * @param pageSize The maximum number of summaries to return
+     * @param sortKey The unique key to order by (ignored when a cursor is given)
+     * @param direction The sort direction (ignored when a cursor is given)
+     * @return The page of invoice summary DTOs and the cursor of the next page
+     */
+    public InvoiceSummaryPageResponseDto getInvoiceSummaries(String cursor, int pageSize, InvoiceSortKey sortKey, Sort.Direction direction) {
+        return getInvoiceSummariesQueryHandler.handle(new GetInvoiceSummariesQuery(cursor, pageSize, sortKey, direction));
+    }
+
+    /**
+     * Get the customers whose name starts with the given prefix, for type-ahead.
+     * 
+     * @param prefix The text typed so far; case and accents are ignored
+     * @param limit The maximum number of customers to return
+     * @return The matching customers with their invoice count and outstanding debt, in name order
+     */
+    public List<CustomerSuggestionDto> getCustomerSuggestions(String prefix, int limit) {
+        return getCustomerSuggestionsQueryHandler.handle(new GetCustomerSuggestionsQuery(prefix, limit));
+    }
+
+    /**
+     * Get the summary of an invoice from the read model.
+     * 
+     * @param invoiceNumber The invoice number of the invoice
+     * @return The invoice summary DTO
+     */
+    public InvoiceSummaryResponseDto getInvoiceSummary(String invoiceNumber) {
+        return getInvoiceSummaryByInvoiceNumberQueryHandler.handle(new GetInvoiceSummaryByInvoiceNumberQuery(invoiceNumber));
+    }
+
+    /**
+     * Get the receivables aging report: outstanding debt per customer by invoice age.
+     * 
+     * @param asOf The date invoices are aged at, or null for today
+     * @return The aging report
+     */
+    public AgingReportResponseDto getAgingReport(LocalDate asOf) {
+        return getAgingReportQueryHandler.handle(new GetAgingReportQuery(asOf));
+    }
 
     /**
      * Get an invoice by its invoice number.
@@ -67,6 +292,16 @@ public class InvoiceService {
         return getInvoiceByInvoiceNumberQueryHandler.handle(new GetInvoiceByInvoiceNumberQuery(invoiceNumber));
     }
 
+    /**
+     * Get only the current version of an invoice, without loading it.
+     * 
+     * @param invoiceNumber The invoice number
+     * @return The version, which changes whenever the invoice does
+     */
+    public long getInvoiceVersion(String invoiceNumber) {
+        return getInvoiceVersionQueryHandler.handle(new GetInvoiceVersionQuery(invoiceNumber));
+    }
+
     /**
      * Create a new invoice.
      * 
@@ -74,7 +309,60 @@ public class InvoiceService {
      * @return The created invoice response DTO
      */
     public InvoiceResponseDto createInvoice(InvoiceRequestDto invoiceRequestDto) {
-        return createInvoiceCommandHandler.handle(new CreateInvoiceCommand(invoiceRequestDto));
+        return createInvoice(invoiceRequestDto, null);
+    }
+
+    /**
+     * Create a new invoice at most once per idempotency key.
+     * 
+     * @param invoiceRequestDto The invoice request DTO
+     * @param idempotencyKey The client's key for this request, or null to create unconditionally
+     * @return The created invoice response DTO, or the one stored for an earlier request with the same key
+     */
+    public InvoiceResponseDto createInvoice(InvoiceRequestDto invoiceRequestDto, String idempotencyKey) {
+        return createInvoiceCommandHandler.handle(new CreateInvoiceCommand(invoiceRequestDto, idempotencyKey));
+    }
+
+    /**
+     * Create many invoices at once.
+     * 
+     * @param invoiceRequestDtos The invoice request DTOs
+     * @return The outcome of each invoice, in request order
+     */
+    public List<BatchItemResultDto> createInvoices(List<InvoiceRequestDto> invoiceRequestDtos) {
+        return createInvoicesBatchCommandHandler.handle(new CreateInvoicesBatchCommand(invoiceRequestDtos));
+    }
+
+    /**
+     * Import invoices from a CSV file, or resume an interrupted import of the same file.
+     * 
+     * @param importId Identifies the import; pass the same id again to resume after its last committed chunk
+     * @param source The CSV content, read as a stream
+     * @return The progress of the import once the whole file has been read
+     */
+    public InvoiceImportResultDto importInvoices(String importId, Reader source) {
+        return importInvoicesCommandHandler.handle(new ImportInvoicesCommand(importId, source));
+    }
+
+    /**
+     * Get the progress of a CSV import.
+     * 
+     * @param importId The import id
+     * @return The import's progress as of its last committed chunk
+     */
+    public InvoiceImportResultDto getInvoiceImport(String importId) {
+        return getInvoiceImportQueryHandler.handle(new GetInvoiceImportQuery(importId));
+    }
+
+    /**
+     * Stream the rejected-rows report of a CSV import to the given sink.
+     * 
+     * @param importId The import id
+     * @param sink Receives each rejected invoice, in file order
+     * @return The number of rejections streamed
+     */
+    public long streamImportRejections(String importId, Consumer<ImportRejectionDto> sink) {
+        return streamImportRejectionsQueryHandler.handle(new StreamImportRejectionsQuery(importId, sink));
     }
 
     /**
@@ -84,7 +372,18 @@ public class InvoiceService {
      * @return The updated invoice response DTO
      */
     public InvoiceResponseDto updateInvoice(UpdateInvoiceRequestDto updateInvoiceRequestDto) {
-        return updateInvoiceCommandHandler.handle(new UpdateInvoiceCommand(updateInvoiceRequestDto));
+        return updateInvoice(updateInvoiceRequestDto, null);
+    }
+
+    /**
+     * Update an existing invoice only if it has not changed since the client read it.
+     * 
+     * @param updateInvoiceRequestDto The update invoice request DTO
+     * @param expectedVersion The version the invoice must still have, or null to update unconditionally
+     * @return The updated invoice response DTO
+     */
+    public InvoiceResponseDto updateInvoice(UpdateInvoiceRequestDto updateInvoiceRequestDto, Long expectedVersion) {
+        return updateInvoiceCommandHandler.handle(new UpdateInvoiceCommand(updateInvoiceRequestDto, expectedVersion));
     }
 
     /**
@@ -94,6 +393,79 @@ public class InvoiceService {
      * @return The updated invoice response DTO
      */
     public InvoiceResponseDto payInvoice(PaymentRequestDto paymentRequestDto) {
-        return payInvoiceCommandHandler.handle(new PayInvoiceCommand(paymentRequestDto));
+        return payInvoice(paymentRequestDto, null);
+    }
+
+    /**
+     * Pay an invoice at most once per idempotency key.
+     * 
+     * @param paymentRequestDto The payment request DTO
+     * @param idempotencyKey The client's key for this request, or null to pay unconditionally
+     * @return The updated invoice response DTO, or the one stored for an earlier request with the same key
+     */
+    public InvoiceResponseDto payInvoice(PaymentRequestDto paymentRequestDto, String idempotencyKey) {
+        return payInvoice(paymentRequestDto, idempotencyKey, null);
+    }
+
+    /**
+     * Pay an invoice at most once per idempotency key, and only if it has not changed since the client read it.
+     * 
+     * @param paymentRequestDto The payment request DTO
+     * @param idempotencyKey The client's key for this request, or null to pay unconditionally
+     * @param expectedVersion The version the invoice must still have, or null to pay whatever its version
+     * @return The updated invoice response DTO, or the one stored for an earlier request with the same key
+     */
+    public InvoiceResponseDto payInvoice(PaymentRequestDto paymentRequestDto, String idempotencyKey, Long expectedVersion) {
+        return payInvoiceCommandHandler.handle(new PayInvoiceCommand(paymentRequestDto, idempotencyKey, expectedVersion));
+    }
+
+    /**
+     * Apply many payments at once.
+     * 
+     * @param paymentRequestDtos The payment request DTOs
+     * @return The outcome of each payment, in request order
+     */
+    public List<BatchItemResultDto> payInvoices(List<PaymentRequestDto> paymentRequestDtos) {
+        return payInvoicesBatchCommandHandler.handle(new PayInvoicesBatchCommand(paymentRequestDtos));
+    }
+
+    /**
+     * Regenerate the invoice summary read model from the invoices, line items and payments.
+     * 
+     * @return The number of invoice summaries written
+     */
+    public int rebuildInvoiceSummaries() {
+        return rebuildInvoiceSummaryCommandHandler.handle(new RebuildInvoiceSummaryCommand());
+    }
+
+    /**
+     * Get the debt of an invoice at the end of a day, from its ledger.
+     * 
+     * @param invoiceNumber The invoice number
+     * @param asOf The day to compute the debt for, or null for today
+     * @return The invoice balance DTO
+     */
+    public InvoiceBalanceResponseDto getInvoiceBalance(String invoiceNumber, LocalDate asOf) {
+        return getInvoiceBalanceQueryHandler.handle(new GetInvoiceBalanceQuery(invoiceNumber, asOf));
+    }
+
+    /**
+     * Snapshot the balances of invoices with enough new ledger entries.
+     * 
+     * @param asOf The last effective date covered by the snapshots
+     * @param recordedBefore Ledger entries recorded from this time on are left out of the snapshots
+     * @return The number of snapshots written
+     */
+    public int snapshotInvoiceBalances(LocalDate asOf, LocalDateTime recordedBefore) {
+        return snapshotInvoiceBalancesCommandHandler.handle(new SnapshotInvoiceBalancesCommand(asOf, recordedBefore));
+    }
+
+    /**
+     * Recompute the debt of every invoice from its ledger.
+     * 
+     * @return The number of invoices whose debt was corrected
+     */
+    public int rebuildInvoiceDebts() {
+        return rebuildInvoiceDebtCommandHandler.handle(new RebuildInvoiceDebtCommand());
     }
 }
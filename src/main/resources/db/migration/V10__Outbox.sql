@@ -0,0 +1,15 @@
+-- Transactional outbox: domain events written by the command handlers in the same transaction as the change they
+-- describe, and delivered to listeners afterwards by the outbox relay. payload is the event as JSON.
+-- published_at stays NULL until every listener has accepted the event; attempts counts failed deliveries.
+CREATE TABLE outbox_events (
+    event_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    event_type VARCHAR(30) NOT NULL,
+    invoice_number VARCHAR(255) NOT NULL,
+    payload CLOB NOT NULL,
+    created_at TIMESTAMP NOT NULL,
+    published_at TIMESTAMP,
+    attempts INT DEFAULT 0 NOT NULL
+);
+
+-- The relay's poll reads the oldest pending events; the purge deletes published ones by age
+CREATE INDEX idx_outbox_events_published_at ON outbox_events (published_at, event_id);
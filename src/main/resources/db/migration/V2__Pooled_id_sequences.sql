@@ -0,0 +1,18 @@
+-- Replace identity columns with sequences so Hibernate can pre-allocate ids and batch inserts.
+-- Each sequence value is the low end of a block of ${id_allocation_size} ids (pooled-lo optimizer),
+-- so the increment must match the invoices.id.allocation-size setting.
+CREATE SEQUENCE invoices_seq START WITH 1 INCREMENT BY ${id_allocation_size};
+CREATE SEQUENCE line_items_seq START WITH 1 INCREMENT BY ${id_allocation_size};
+CREATE SEQUENCE payments_seq START WITH 1 INCREMENT BY ${id_allocation_size};
+
+ALTER SEQUENCE invoices_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM invoices);
+ALTER SEQUENCE line_items_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM line_items);
+ALTER SEQUENCE payments_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 1 FROM payments);
+
+-- Rows inserted without an id still draw from the same sequences
+ALTER TABLE invoices ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE invoices ALTER COLUMN id SET DEFAULT NEXT VALUE FOR invoices_seq;
+ALTER TABLE line_items ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE line_items ALTER COLUMN id SET DEFAULT NEXT VALUE FOR line_items_seq;
+ALTER TABLE payments ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE payments ALTER COLUMN id SET DEFAULT NEXT VALUE FOR payments_seq;
@@ -0,0 +1,2 @@
+-- Optimistic locking: every update of an invoice checks and increments its version
+ALTER TABLE invoices ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,25 @@
+-- Read model for invoice listings: one row per invoice with its totals, so listings never join
+-- line_items or payments. Kept up to date by the command handlers in the same transaction as the
+-- invoice itself; RebuildInvoiceSummaryCommand regenerates it from the source tables.
+CREATE TABLE invoice_summary (
+    invoice_id BIGINT PRIMARY KEY,
+    invoice_number VARCHAR(255) NOT NULL UNIQUE,
+    customer_name VARCHAR(255) NOT NULL,
+    invoice_date DATE NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    debt_amount DECIMAL(19, 2) NOT NULL,
+    line_item_count INT NOT NULL,
+    payment_count INT NOT NULL,
+    paid_amount DECIMAL(19, 2) NOT NULL,
+    last_payment_date DATE
+);
+
+INSERT INTO invoice_summary (invoice_id, invoice_number, customer_name, invoice_date, status, amount, debt_amount,
+                             line_item_count, payment_count, paid_amount, last_payment_date)
+SELECT i.id, i.invoice_number, i.customer_name, i.invoice_date, i.status, i.amount, i.debt_amount,
+       COALESCE(l.line_item_count, 0), COALESCE(p.payment_count, 0), COALESCE(p.paid_amount, 0), p.last_payment_date
+FROM invoices i
+LEFT JOIN (SELECT invoice_id, COUNT(*) AS line_item_count FROM line_items GROUP BY invoice_id) l ON l.invoice_id = i.id
+LEFT JOIN (SELECT invoice_id, COUNT(*) AS payment_count, SUM(amount) AS paid_amount, MAX(payment_date) AS last_payment_date
+           FROM payments GROUP BY invoice_id) p ON p.invoice_id = i.id;
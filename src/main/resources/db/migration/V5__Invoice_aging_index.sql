@@ -0,0 +1,3 @@
+-- Covering index for the receivables aging report: the GROUP BY customer_name reads customers in index order,
+-- and the invoice date and debt buckets are computed from the index entries without touching the table rows
+CREATE INDEX idx_invoices_customer_aging ON invoices (customer_name, invoice_date, debt_amount);
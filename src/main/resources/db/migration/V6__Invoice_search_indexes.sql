@@ -0,0 +1,12 @@
+-- Indexes for SearchInvoicesQuery. H2 uses a single index per table access, so every filter and every sort key
+-- leads at least one index; customer name prefixes are served by idx_invoices_customer_aging (V5).
+-- The trailing id matches the (sort key, id) keyset order, so a sorted page stops after its last row.
+-- H2 does not read an index backwards, so each sort key also gets a descending twin for DESC pages.
+CREATE INDEX idx_invoices_status_date ON invoices (status, invoice_date);
+CREATE INDEX idx_invoices_date ON invoices (invoice_date, id);
+CREATE INDEX idx_invoices_date_desc ON invoices (invoice_date DESC, id DESC);
+CREATE INDEX idx_invoices_amount ON invoices (amount, id);
+CREATE INDEX idx_invoices_amount_desc ON invoices (amount DESC, id DESC);
+CREATE INDEX idx_invoices_debt ON invoices (debt_amount, id);
+CREATE INDEX idx_invoices_debt_desc ON invoices (debt_amount DESC, id DESC);
+CREATE INDEX idx_invoices_id_desc ON invoices (id DESC);
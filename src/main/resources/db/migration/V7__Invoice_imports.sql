@@ -0,0 +1,22 @@
+-- Progress of CSV imports. committed_rows is the number of data rows covered by the chunks committed so far;
+-- it is updated in the same transaction as each chunk, so an interrupted import resumes right after it.
+CREATE TABLE invoice_imports (
+    import_id VARCHAR(64) PRIMARY KEY,
+    status VARCHAR(20) NOT NULL,
+    committed_rows BIGINT NOT NULL,
+    imported_invoices BIGINT NOT NULL,
+    rejected_rows BIGINT NOT NULL,
+    started_at TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP NOT NULL
+);
+
+-- Rejected-rows report: one row per rejected invoice, covering its rows first_row to last_row of the file
+CREATE TABLE invoice_import_rejections (
+    import_id VARCHAR(64) NOT NULL,
+    first_row BIGINT NOT NULL,
+    last_row BIGINT NOT NULL,
+    invoice_number VARCHAR(255),
+    message VARCHAR(1000) NOT NULL,
+    PRIMARY KEY (import_id, first_row),
+    FOREIGN KEY (import_id) REFERENCES invoice_imports(import_id)
+);
@@ -0,0 +1,13 @@
+-- Idempotency-Key dedupe table: one row per key, claimed (IN_PROGRESS) before the command runs and completed with
+-- the command's JSON response after it succeeds. request_hash guards against a key being reused for another request.
+CREATE TABLE idempotency_keys (
+    idempotency_key VARCHAR(255) PRIMARY KEY,
+    command_type VARCHAR(100) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    response CLOB,
+    created_at TIMESTAMP NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,37 @@
+-- Append-only ledger of everything that changes an invoice's debt, written by the command handlers in the
+-- same transaction as the change. amount is signed: what the entry adds to the debt. effective_date is the
+-- business date (invoice date, payment date, or the day line items were added); recorded_at is when the
+-- entry was written. Rows are never updated or deleted.
+CREATE TABLE invoice_ledger (
+    entry_id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    invoice_id BIGINT NOT NULL,
+    entry_type VARCHAR(30) NOT NULL,
+    amount DECIMAL(19, 2) NOT NULL,
+    effective_date DATE NOT NULL,
+    payment_id BIGINT,
+    recorded_at TIMESTAMP NOT NULL
+);
+
+-- The two range scans of a balance query: entries recorded after a snapshot, and entries effective after it
+CREATE INDEX idx_invoice_ledger_invoice_recorded_at ON invoice_ledger (invoice_id, recorded_at);
+CREATE INDEX idx_invoice_ledger_invoice_effective_date ON invoice_ledger (invoice_id, effective_date);
+
+-- Periodic per-invoice balances: balance is the sum of the entries effective on or before as_of_date
+-- and recorded before recorded_before. Entries outside that set are replayed on top of it.
+CREATE TABLE invoice_balance_snapshots (
+    invoice_id BIGINT NOT NULL,
+    as_of_date DATE NOT NULL,
+    recorded_before TIMESTAMP NOT NULL,
+    balance DECIMAL(19, 2) NOT NULL,
+    PRIMARY KEY (invoice_id, as_of_date)
+);
+
+-- Existing invoices start from what they owe today plus what has been paid, so the ledger agrees with debt_amount
+INSERT INTO invoice_ledger (invoice_id, entry_type, amount, effective_date, payment_id, recorded_at)
+SELECT i.id, 'INVOICE_CREATED', i.debt_amount + COALESCE(p.paid_amount, 0), i.invoice_date, NULL, CURRENT_TIMESTAMP
+FROM invoices i
+LEFT JOIN (SELECT invoice_id, SUM(amount) AS paid_amount FROM payments GROUP BY invoice_id) p ON p.invoice_id = i.id;
+
+INSERT INTO invoice_ledger (invoice_id, entry_type, amount, effective_date, payment_id, recorded_at)
+SELECT invoice_id, 'PAYMENT_APPLIED', -amount, payment_date, id, CURRENT_TIMESTAMP
+FROM payments;
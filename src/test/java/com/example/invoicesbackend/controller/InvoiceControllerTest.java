@@ -4,7 +4,9 @@ import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
 import com.example.invoicesbackend.dto.request.LineItemRequestDto;
 import com.example.invoicesbackend.dto.request.PaymentRequestDto;
 import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.exception.PreconditionFailedException;
 import com.example.invoicesbackend.model.Invoice;
 import com.example.invoicesbackend.service.InvoiceService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -12,6 +14,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.web.bind.MethodArgumentNotValidException;
@@ -24,8 +27,13 @@ import java.util.Collections;
 import java.util.List;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -64,20 +72,35 @@ public class InvoiceControllerTest {
         List<InvoiceResponseDto> invoices = Arrays.asList(invoice1, invoice2);
 
         // Mock service method
-        when(invoiceService.getAllInvoices()).thenReturn(invoices);
+        when(invoiceService.getAllInvoices(isNull(), eq(50), any(), any()))
+                .thenReturn(new InvoicePageResponseDto(invoices, "next-page"));
 
         // Perform GET request and validate response
         mockMvc.perform(get("/api/invoices"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(InvoiceController.NEXT_CURSOR_HEADER, "next-page"))
                 .andExpect(jsonPath("$[0].invoiceNumber").value("INV-001"))
                 .andExpect(jsonPath("$[1].invoiceNumber").value("INV-002"));
     }
 
+    @Test
+    public void testGetAllInvoices_LastPage() throws Exception {
+        // Mock service method for the last page, which has no next cursor
+        when(invoiceService.getAllInvoices(eq("cursor-1"), eq(10), any(), any()))
+                .thenReturn(new InvoicePageResponseDto(Collections.emptyList(), null));
+
+        // Perform GET request and validate response
+        mockMvc.perform(get("/api/invoices").param("cursor", "cursor-1").param("size", "10"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(InvoiceController.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$").isEmpty());
+    }
+
     @Test
     public void testGetAllInvoices_Error() throws Exception {
         // Mock service method to throw exception
-        when(invoiceService.getAllInvoices()).thenThrow(new RuntimeException("Database connection error"));
+        when(invoiceService.getAllInvoices(any(), anyInt(), any(), any())).thenThrow(new RuntimeException("Database connection error"));
 
         // Perform GET request and validate response
         mockMvc.perform(get("/api/invoices"))
@@ -96,6 +119,7 @@ public class InvoiceControllerTest {
         invoice.setInvoiceDate(LocalDate.now());
         invoice.setAmount(new BigDecimal("100.00"));
         invoice.setStatus(Invoice.InvoiceStatus.PENDING);
+        invoice.setVersion(3L);
 
         // Mock service method
         when(invoiceService.getInvoiceByInvoiceNumber("INV-001")).thenReturn(invoice);
@@ -104,10 +128,24 @@ public class InvoiceControllerTest {
         mockMvc.perform(get("/api/invoices/number/INV-001"))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
                 .andExpect(jsonPath("$.invoiceNumber").value("INV-001"))
                 .andExpect(jsonPath("$.customerName").value("Test Customer"));
     }
 
+    @Test
+    public void testGetInvoiceByInvoiceNumber_NotModified() throws Exception {
+        // Mock service method
+        when(invoiceService.getInvoiceVersion("INV-001")).thenReturn(3L);
+
+        // Perform conditional GET request and validate that the invoice itself is never loaded
+        mockMvc.perform(get("/api/invoices/number/INV-001").header(HttpHeaders.IF_NONE_MATCH, "\"2\", W/\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
+                .andExpect(content().string(""));
+        verify(invoiceService, never()).getInvoiceByInvoiceNumber(anyString());
+    }
+
     @Test
     public void testGetInvoiceByInvoiceNumber_Error() throws Exception {
         // Mock service method to throw exception
@@ -146,7 +184,7 @@ public class InvoiceControllerTest {
         responseDto.setStatus(Invoice.InvoiceStatus.PENDING);
 
         // Mock service method
-        when(invoiceService.createInvoice(any(InvoiceRequestDto.class))).thenReturn(responseDto);
+        when(invoiceService.createInvoice(any(InvoiceRequestDto.class), isNull())).thenReturn(responseDto);
 
         // Perform POST request and validate response
         mockMvc.perform(post("/api/invoices")
@@ -193,9 +231,10 @@ public class InvoiceControllerTest {
         responseDto.setInvoiceDate(LocalDate.now());
         responseDto.setAmount(new BigDecimal("150.00"));
         responseDto.setStatus(Invoice.InvoiceStatus.PENDING);
+        responseDto.setVersion(1L);
 
         // Mock service method
-        when(invoiceService.updateInvoice(any(UpdateInvoiceRequestDto.class))).thenReturn(responseDto);
+        when(invoiceService.updateInvoice(any(UpdateInvoiceRequestDto.class), isNull())).thenReturn(responseDto);
 
         // Perform PUT request and validate response
         mockMvc.perform(put("/api/invoices")
@@ -203,6 +242,44 @@ public class InvoiceControllerTest {
                 .content(objectMapper.writeValueAsString(requestDto)))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"1\""))
+                .andExpect(jsonPath("$.invoiceNumber").value("INV-001"))
+                .andExpect(jsonPath("$.amount").value(150.00));
+    }
+
+    @Test
+    public void testUpdateInvoice_IfMatch() throws Exception {
+        // Prepare request data
+        UpdateInvoiceRequestDto requestDto = new UpdateInvoiceRequestDto();
+        requestDto.setInvoiceNumber("INV-001");
+
+        LineItemRequestDto lineItem = new LineItemRequestDto();
+        lineItem.setDescription("Updated Item");
+        lineItem.setPrice(new BigDecimal("75.00"));
+        lineItem.setQuantity(2);
+        requestDto.getLineItems().add(lineItem);
+
+        // Prepare response data
+        InvoiceResponseDto responseDto = new InvoiceResponseDto();
+        responseDto.setId(1L);
+        responseDto.setInvoiceNumber("INV-001");
+        responseDto.setCustomerName("Test Customer");
+        responseDto.setInvoiceDate(LocalDate.now());
+        responseDto.setAmount(new BigDecimal("150.00"));
+        responseDto.setStatus(Invoice.InvoiceStatus.PENDING);
+        responseDto.setVersion(3L);
+
+        // Mock service method
+        when(invoiceService.updateInvoice(any(UpdateInvoiceRequestDto.class), eq(2L))).thenReturn(responseDto);
+
+        // Perform conditional PUT request and validate response
+        mockMvc.perform(put("/api/invoices")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"3\""))
                 .andExpect(jsonPath("$.invoiceNumber").value("INV-001"))
                 .andExpect(jsonPath("$.amount").value(150.00));
     }
@@ -220,7 +297,7 @@ public class InvoiceControllerTest {
         requestDto.getLineItems().add(lineItem);
 
         // Mock service method to throw exception
-        when(invoiceService.updateInvoice(any(UpdateInvoiceRequestDto.class))).thenThrow(
+        when(invoiceService.updateInvoice(any(UpdateInvoiceRequestDto.class), isNull())).thenThrow(
                 new EntityNotFoundException("Invoice with number INV-999 not found"));
 
         // Perform PUT request and validate response
@@ -249,9 +326,10 @@ public class InvoiceControllerTest {
         responseDto.setInvoiceDate(LocalDate.now());
         responseDto.setAmount(new BigDecimal("100.00"));
         responseDto.setStatus(Invoice.InvoiceStatus.PAID);
+        responseDto.setVersion(1L);
 
         // Mock service method
-        when(invoiceService.payInvoice(any(PaymentRequestDto.class))).thenReturn(responseDto);
+        when(invoiceService.payInvoice(any(PaymentRequestDto.class), isNull(), isNull())).thenReturn(responseDto);
 
         // Perform POST request and validate response
         mockMvc.perform(post("/api/invoices/pay")
@@ -263,6 +341,39 @@ public class InvoiceControllerTest {
                 .andExpect(jsonPath("$.status").value("PAID"));
     }
 
+    @Test
+    public void testPayInvoice_WithIdempotencyKey() throws Exception {
+        // Prepare request data
+        PaymentRequestDto requestDto = new PaymentRequestDto();
+        requestDto.setInvoiceNumber("INV-001");
+        requestDto.setPaymentDate(LocalDate.now());
+        requestDto.setAmount(new BigDecimal("100.00"));
+        requestDto.setPaymentMethod("Credit Card");
+
+        // Prepare response data
+        InvoiceResponseDto responseDto = new InvoiceResponseDto();
+        responseDto.setId(1L);
+        responseDto.setInvoiceNumber("INV-001");
+        responseDto.setCustomerName("Test Customer");
+        responseDto.setInvoiceDate(LocalDate.now());
+        responseDto.setAmount(new BigDecimal("100.00"));
+        responseDto.setStatus(Invoice.InvoiceStatus.PAID);
+        responseDto.setVersion(1L);
+
+        // Mock service method
+        when(invoiceService.payInvoice(any(PaymentRequestDto.class), eq("pay-key-1"), isNull())).thenReturn(responseDto);
+
+        // Perform POST request with an idempotency key and validate response
+        mockMvc.perform(post("/api/invoices/pay")
+                .header(InvoiceController.IDEMPOTENCY_KEY, "pay-key-1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.invoiceNumber").value("INV-001"))
+                .andExpect(jsonPath("$.status").value("PAID"));
+    }
+
     @Test
     public void testPayInvoice_Error() throws Exception {
         // Prepare request data for non-existent invoice
@@ -273,7 +384,7 @@ public class InvoiceControllerTest {
         requestDto.setPaymentMethod("Credit Card");
 
         // Mock service method to throw exception
-        when(invoiceService.payInvoice(any(PaymentRequestDto.class))).thenThrow(
+        when(invoiceService.payInvoice(any(PaymentRequestDto.class), isNull(), isNull())).thenThrow(
                 new EntityNotFoundException("Invoice with number INV-999 not found"));
 
         // Perform POST request and validate response
@@ -284,4 +395,26 @@ public class InvoiceControllerTest {
                 .andExpect(jsonPath("$.status").value(404))
                 .andExpect(jsonPath("$.message").value("Invoice with number INV-999 not found"));
     }
+
+    @Test
+    public void testPayInvoice_PreconditionFailed() throws Exception {
+        // Prepare request data
+        PaymentRequestDto requestDto = new PaymentRequestDto();
+        requestDto.setInvoiceNumber("INV-001");
+        requestDto.setPaymentDate(LocalDate.now());
+        requestDto.setAmount(new BigDecimal("100.00"));
+        requestDto.setPaymentMethod("Credit Card");
+
+        // Mock service method to reject the stale version
+        when(invoiceService.payInvoice(any(PaymentRequestDto.class), isNull(), eq(4L))).thenThrow(
+                new PreconditionFailedException("Invoice with number INV-001 is at version 5, not at the expected version 4"));
+
+        // Perform POST request and validate response
+        mockMvc.perform(post("/api/invoices/pay")
+                .header(HttpHeaders.IF_MATCH, "\"4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(requestDto)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.status").value(412));
+    }
 }
@@ -0,0 +1,41 @@
+package com.example.invoicesbackend.controller;
+
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.dto.response.LineItemResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class InvoiceCsvWriterTest {
+
+    @Test
+    public void testWritesOneRowPerLineItemAndQuotesSpecialCharacters() throws IOException {
+        InvoiceResponseDto invoice = new InvoiceResponseDto(1L, "CSV-001", "Acme, \"The\" Company", LocalDate.of(2023, 1, 15),
+                new BigDecimal("30.00"), new BigDecimal("30.00"), "Two\nlines", Invoice.InvoiceStatus.PENDING,
+                new ArrayList<>(Arrays.asList(
+                        new LineItemResponseDto(10L, "Widget", new BigDecimal("10.00"), 1, new BigDecimal("10.00")),
+                        new LineItemResponseDto(11L, "Gadget", new BigDecimal("10.00"), 2, new BigDecimal("20.00")))),
+                null, 0L);
+        InvoiceResponseDto empty = new InvoiceResponseDto(2L, "CSV-002", "Plain", LocalDate.of(2023, 1, 16),
+                BigDecimal.ZERO, BigDecimal.ZERO, null, Invoice.InvoiceStatus.PAID, new ArrayList<>(), null, 3L);
+
+        StringWriter out = new StringWriter();
+        InvoiceCsvWriter csv = new InvoiceCsvWriter(out);
+        csv.writeHeader();
+        csv.write(invoice);
+        csv.write(empty);
+
+        assertEquals(InvoiceCsvWriter.HEADER + "\r\n" +
+                "1,CSV-001,\"Acme, \"\"The\"\" Company\",2023-01-15,30.00,30.00,\"Two\nlines\",PENDING,10,Widget,10.00,1,10.00\r\n" +
+                "1,CSV-001,\"Acme, \"\"The\"\" Company\",2023-01-15,30.00,30.00,\"Two\nlines\",PENDING,11,Gadget,10.00,2,20.00\r\n" +
+                "2,CSV-002,Plain,2023-01-16,0,0,,PAID,,,,,\r\n", out.toString());
+    }
+}
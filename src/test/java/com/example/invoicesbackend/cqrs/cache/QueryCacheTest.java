@@ -0,0 +1,107 @@
+package com.example.invoicesbackend.cqrs.cache;
+
+import com.example.invoicesbackend.cqrs.CacheEviction;
+import com.example.invoicesbackend.cqrs.query.invoice.GetInvoiceByInvoiceNumberQueryHandler;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.service.InvoiceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that repeated lookups are served from the query cache and that commands evict what they change.
+ * Not transactional: the cache is bypassed inside a caller's transaction, so the data is committed and removed afterwards.
+ */
+@SpringBootTest
+public class QueryCacheTest {
+
+    private static final String INVOICE_NUMBER = "CACHE-001";
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private QueryCache queryCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(INVOICE_NUMBER);
+        request.setCustomerName("Cache Customer");
+        request.setInvoiceDate(LocalDate.now());
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("40.00"), 1));
+        invoiceService.createInvoice(request);
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM payments WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number = ?)", INVOICE_NUMBER);
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number = ?)", INVOICE_NUMBER);
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number = ?", INVOICE_NUMBER);
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number = ?", INVOICE_NUMBER);
+        queryCache.evict(Collections.singletonList(CacheEviction.all(GetInvoiceByInvoiceNumberQueryHandler.CACHE_REGION)));
+    }
+
+    @Test
+    public void testRepeatedLookupsDoNotReachTheDatabase() {
+        double hitsBefore = cacheGets("hit");
+
+        invoiceService.getInvoiceByInvoiceNumber(INVOICE_NUMBER);
+        statistics.clear();
+        for (int i = 0; i < 10; i++) {
+            assertEquals(INVOICE_NUMBER, invoiceService.getInvoiceByInvoiceNumber(INVOICE_NUMBER).getInvoiceNumber());
+        }
+
+        assertEquals(0, statistics.getPrepareStatementCount());
+        assertEquals(10, cacheGets("hit") - hitsBefore);
+    }
+
+    @Test
+    public void testPaymentEvictsTheInvoice() {
+        assertEquals(Invoice.InvoiceStatus.PENDING, invoiceService.getInvoiceByInvoiceNumber(INVOICE_NUMBER).getStatus());
+
+        invoiceService.payInvoice(new PaymentRequestDto(INVOICE_NUMBER, LocalDate.now(), new BigDecimal("40.00"), "Cash"));
+
+        InvoiceResponseDto paid = invoiceService.getInvoiceByInvoiceNumber(INVOICE_NUMBER);
+        assertEquals(Invoice.InvoiceStatus.PAID, paid.getStatus());
+        assertEquals(1, paid.getPaymentInfo().size());
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets")
+                .tag("cache", GetInvoiceByInvoiceNumberQueryHandler.CACHE_REGION)
+                .tag("result", result)
+                .functionCounter().count();
+    }
+}
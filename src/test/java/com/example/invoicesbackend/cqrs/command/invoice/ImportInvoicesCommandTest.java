@@ -0,0 +1,174 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.response.ImportRejectionDto;
+import com.example.invoicesbackend.dto.response.InvoiceImportResultDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.model.InvoiceImport;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.FilterReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the chunked CSV import, its rejected-rows report and resuming an interrupted import.
+ * Not transactional: chunks are committed by the import's writer thread.
+ */
+@SpringBootTest(properties = {"invoices.import.chunk-size=2", "invoices.import.queue-capacity=1"})
+public class ImportInvoicesCommandTest {
+
+    private static final String CUSTOMER = "Import Customer";
+    private static final String HEADER = "invoice_number,customer_name,invoice_date,description,status,legacy_id," +
+            "line_item_description,price,quantity\n";
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM invoice_import_rejections WHERE import_id LIKE 'import-test-%'");
+        jdbcTemplate.update("DELETE FROM invoice_imports WHERE import_id LIKE 'import-test-%'");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'IMPORT-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'IMPORT-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'IMPORT-%'");
+        // The rows were deleted behind the commands' back, so tell the read caches about it
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singletonList(CUSTOMER)));
+    }
+
+    @Test
+    public void testImportsValidInvoicesAndReportsRejectedRows() {
+        String csv = HEADER +
+                "IMPORT-001,Import Customer,2023-01-10,\"Multi-line,\nquoted\",PENDING,17,Widget,10.00,2\n" +
+                "IMPORT-001,Import Customer,2023-01-10,,,17,\"Gadget \"\"XL\"\"\",5.50,1\n" +
+                "IMPORT-002,Import Customer,2023-13-01,,,18,Widget,10.00,1\n" +
+                "IMPORT-003,Import Customer,2023-01-12,,,19,Widget,-1,1\n" +
+                "IMPORT-004,Import Customer,2023-01-13,,PARTIALLY_PAID,20,Widget,7.25,4\n" +
+                "IMPORT-005,Import Customer,2023-01-14,,,21,Widget,3.00,1\n" +
+                "IMPORT-001,Import Customer,2023-01-15,,,22,Widget,1.00,1\n";
+
+        InvoiceImportResultDto result = invoiceService.importInvoices("import-test-1", new StringReader(csv));
+
+        System.out.println("[DEBUG_LOG] Import result: " + result);
+        assertEquals(InvoiceImport.Status.COMPLETED, result.getStatus());
+        assertEquals(7, result.getCommittedRows());
+        assertEquals(3, result.getImportedInvoices());
+        assertEquals(3, result.getRejectedRows());
+
+        InvoiceResponseDto first = invoiceService.getInvoiceByInvoiceNumber("IMPORT-001");
+        assertEquals("Multi-line,\nquoted", first.getDescription());
+        assertEquals(2, first.getLineItems().size());
+        assertEquals(0, new BigDecimal("25.50").compareTo(first.getAmount()));
+        assertEquals(0, new BigDecimal("25.50").compareTo(first.getDebtAmount()));
+        assertTrue(first.getLineItems().stream().anyMatch(item -> "Gadget \"XL\"".equals(item.getDescription())));
+        assertEquals(0, new BigDecimal("29.00").compareTo(invoiceService.getInvoiceByInvoiceNumber("IMPORT-004").getAmount()));
+
+        List<ImportRejectionDto> rejections = new ArrayList<>();
+        invoiceService.streamImportRejections("import-test-1", rejections::add);
+        assertEquals(3, rejections.size());
+        assertEquals("IMPORT-002", rejections.get(0).getInvoiceNumber());
+        assertEquals(3, rejections.get(0).getFirstRow());
+        assertTrue(rejections.get(0).getMessage().contains("invoice_date"), rejections.get(0).getMessage());
+        assertEquals("IMPORT-003", rejections.get(1).getInvoiceNumber());
+        assertTrue(rejections.get(1).getMessage().contains("Price must be positive"), rejections.get(1).getMessage());
+        assertEquals("IMPORT-001", rejections.get(2).getInvoiceNumber());
+        assertEquals(7, rejections.get(2).getFirstRow());
+        assertTrue(rejections.get(2).getMessage().contains("already exists"), rejections.get(2).getMessage());
+
+        // A completed import is not read again
+        InvoiceImportResultDto again = invoiceService.importInvoices("import-test-1", new StringReader(csv));
+        assertEquals(result, again);
+    }
+
+    @Test
+    public void testInterruptedImportResumesAfterLastCommittedChunk() {
+        StringBuilder csv = new StringBuilder(HEADER);
+        int failAt = 0;
+        for (int i = 1; i <= 20; i++) {
+            if (i == 15) {
+                failAt = csv.length();
+            }
+            csv.append(String.format("IMPORT-%03d,Import Customer,2023-02-01,,,%d,Item %d,1.00,%d\n", i, i, i, i));
+        }
+
+        Reader dropped = new FailingReader(new StringReader(csv.toString()), failAt);
+        assertThrows(UncheckedIOException.class, () -> invoiceService.importInvoices("import-test-2", dropped));
+        InvoiceImportResultDto interrupted = invoiceService.getInvoiceImport("import-test-2");
+        System.out.println("[DEBUG_LOG] Interrupted import: " + interrupted);
+        assertEquals(InvoiceImport.Status.RUNNING, interrupted.getStatus());
+        assertTrue(interrupted.getCommittedRows() < 14);
+        assertEquals(0, interrupted.getCommittedRows() % 2, "Progress must stop on a chunk boundary");
+        assertEquals(interrupted.getCommittedRows(), countImportedInvoices());
+
+        InvoiceImportResultDto resumed = invoiceService.importInvoices("import-test-2", new StringReader(csv.toString()));
+        System.out.println("[DEBUG_LOG] Resumed import: " + resumed);
+        assertEquals(InvoiceImport.Status.COMPLETED, resumed.getStatus());
+        assertEquals(20, resumed.getCommittedRows());
+        assertEquals(20, resumed.getImportedInvoices());
+        assertEquals(0, resumed.getRejectedRows(), "Rows committed before the interruption must not be imported twice");
+        assertEquals(20, countImportedInvoices());
+    }
+
+    @Test
+    public void testHeaderMustNameRequiredColumns() {
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.importInvoices("import-test-3",
+                new StringReader("invoice_number,customer_name,invoice_date\nIMPORT-001,Import Customer,2023-01-01\n")));
+    }
+
+    private long countImportedInvoices() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoices WHERE invoice_number LIKE 'IMPORT-%'", Long.class);
+    }
+
+    /**
+     * Fails like a dropped connection once a number of characters has been read.
+     */
+    private static final class FailingReader extends FilterReader {
+        private final int limit;
+        private int position;
+
+        private FailingReader(Reader in, int limit) {
+            super(in);
+            this.limit = limit;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (position++ >= limit) {
+                throw new IOException("Connection reset");
+            }
+            return super.read();
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) throws IOException {
+            if (position >= limit) {
+                throw new IOException("Connection reset");
+            }
+            int read = super.read(buffer, offset, Math.min(length, limit - position));
+            position += Math.max(read, 0);
+            return read;
+        }
+    }
+}
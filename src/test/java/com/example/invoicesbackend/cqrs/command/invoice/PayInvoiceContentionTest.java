@@ -0,0 +1,147 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Fires concurrent partial payments at a few invoices and checks that no invoice is ever overpaid.
+ * Not transactional: every payment commits on its own, as it does behind the REST endpoint.
+ */
+@SpringBootTest(properties = {
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+        "logging.level.org.hibernate.engine.jdbc.batch.internal.BatchingBatch=OFF",
+        "spring.jpa.show-sql=false"
+})
+public class PayInvoiceContentionTest {
+
+    private static final int INVOICES = 4;
+    private static final int THREADS = 8;
+    private static final int PAYMENTS = 2000;
+    private static final BigDecimal INVOICE_AMOUNT = new BigDecimal("250.00");
+    private static final BigDecimal PAYMENT_AMOUNT = new BigDecimal("1.00");
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 0; i < INVOICES; i++) {
+            InvoiceRequestDto request = new InvoiceRequestDto();
+            request.setInvoiceNumber(invoiceNumber(i));
+            request.setCustomerName("Contention Customer");
+            request.setInvoiceDate(LocalDate.now());
+            request.getLineItems().add(new LineItemRequestDto("Item", INVOICE_AMOUNT, 1));
+            invoiceService.createInvoice(request);
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM payments WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'CONTENTION-%')");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'CONTENTION-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'CONTENTION-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'CONTENTION-%'");
+    }
+
+    @Test
+    public void testConcurrentPaymentsNeverOverpay() throws Exception {
+        AtomicInteger succeeded = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        AtomicInteger conflicted = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>(PAYMENTS);
+        for (int i = 0; i < PAYMENTS; i++) {
+            PaymentRequestDto payment = new PaymentRequestDto(invoiceNumber(i % INVOICES), LocalDate.now(), PAYMENT_AMOUNT, "Card");
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    invoiceService.payInvoice(payment);
+                    succeeded.incrementAndGet();
+                } catch (ConcurrencyFailureException e) {
+                    conflicted.incrementAndGet();
+                } catch (IllegalArgumentException | IllegalStateException e) {
+                    // Paying more than the remaining debt, or paying an invoice that is already PAID
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+
+        long startedAt = System.nanoTime();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsedNanos = System.nanoTime() - startedAt;
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        System.out.printf("[DEBUG_LOG] %d payments on %d invoices with %d threads in %d ms: %.0f payments/s "
+                        + "(%d succeeded, %d rejected, %d conflicted after retries)%n",
+                PAYMENTS, INVOICES, THREADS, TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                PAYMENTS / (elapsedNanos / 1e9), succeeded.get(), rejected.get(), conflicted.get());
+
+        assertEquals(PAYMENTS, succeeded.get() + rejected.get() + conflicted.get());
+        List<Map<String, Object>> invoices = jdbcTemplate.queryForList(
+                "SELECT i.debt_amount, i.status, " +
+                "(SELECT COALESCE(SUM(p.amount), 0) FROM payments p WHERE p.invoice_id = i.id) AS paid, " +
+                "(SELECT COUNT(*) FROM payments p WHERE p.invoice_id = i.id) AS payments, " +
+                "s.debt_amount AS summary_debt_amount, s.status AS summary_status, s.paid_amount AS summary_paid, " +
+                "s.payment_count AS summary_payments " +
+                "FROM invoices i JOIN invoice_summary s ON s.invoice_id = i.id WHERE i.invoice_number LIKE 'CONTENTION-%'");
+        assertEquals(INVOICES, invoices.size());
+
+        long persistedPayments = 0;
+        for (Map<String, Object> invoice : invoices) {
+            BigDecimal debt = (BigDecimal) invoice.get("DEBT_AMOUNT");
+            BigDecimal paid = (BigDecimal) invoice.get("PAID");
+            assertTrue(debt.signum() >= 0, "Debt must never go negative, was " + debt);
+            assertEquals(0, INVOICE_AMOUNT.compareTo(debt.add(paid)), "Every payment must be reflected in the debt exactly once");
+            if (debt.signum() == 0) {
+                assertEquals("PAID", invoice.get("STATUS"));
+            }
+            persistedPayments += ((Number) invoice.get("PAYMENTS")).longValue();
+
+            // The projection is written in the same transactions, so it must agree with the source tables
+            assertEquals(0, debt.compareTo((BigDecimal) invoice.get("SUMMARY_DEBT_AMOUNT")));
+            assertEquals(invoice.get("STATUS"), invoice.get("SUMMARY_STATUS"));
+            assertEquals(0, paid.compareTo((BigDecimal) invoice.get("SUMMARY_PAID")));
+            assertEquals(((Number) invoice.get("PAYMENTS")).longValue(), ((Number) invoice.get("SUMMARY_PAYMENTS")).longValue());
+        }
+        assertEquals(succeeded.get(), persistedPayments);
+    }
+
+    private static String invoiceNumber(int index) {
+        return "CONTENTION-" + index;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.invoicesbackend.cqrs.command.invoice;
+
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the payment contention test with group commit enabled, and checks that a stopped committer
+ * takes no more payments.
+ */
+@SpringBootTest(properties = {
+        "invoices.payments.group-commit.enabled=true",
+        "invoices.payments.group-commit.max-batch-size=50",
+        "invoices.payments.group-commit.max-delay=5ms",
+        "logging.level.org.hibernate.SQL=INFO",
+        "logging.level.org.hibernate.type.descriptor.sql.BasicBinder=INFO",
+        "spring.jpa.show-sql=false"
+})
+public class PayInvoiceGroupCommitTest extends PayInvoiceContentionTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private PaymentGroupCommitter paymentGroupCommitter;
+
+    @Test
+    public void testConcurrentPaymentsAreGrouped() throws Exception {
+        testConcurrentPaymentsNeverOverpay();
+
+        DistributionSummary batchSizes = meterRegistry.get("invoices.payments.group-commit.batch-size").summary();
+        System.out.printf("[DEBUG_LOG] %d group commits, mean batch size %.1f, max %.0f%n",
+                batchSizes.count(), batchSizes.mean(), batchSizes.max());
+        assertTrue(batchSizes.max() > 1, "Concurrent payments should share a commit");
+        assertTrue(batchSizes.max() <= 50);
+    }
+
+    @Test
+    public void testStoppedCommitterRejectsPayments() {
+        paymentGroupCommitter.stop();
+        try {
+            PaymentRequestDto request = new PaymentRequestDto("GROUP-STOPPED", LocalDate.now(), BigDecimal.ONE, "Card");
+            assertThrows(IllegalStateException.class, () -> paymentGroupCommitter.pay(new PayInvoiceCommand(request)));
+        } finally {
+            paymentGroupCommitter.start();
+        }
+    }
+}
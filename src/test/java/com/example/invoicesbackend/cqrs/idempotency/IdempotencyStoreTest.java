@@ -0,0 +1,156 @@
+package com.example.invoicesbackend.cqrs.idempotency;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that create and pay commands repeated with the same Idempotency-Key run only once.
+ * Not transactional: keys are claimed and completed outside the commands' transactions.
+ */
+@SpringBootTest
+public class IdempotencyStoreTest {
+
+    private static final String CUSTOMER = "Idempotent Customer";
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private IdempotencyStore idempotencyStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM idempotency_keys WHERE idempotency_key LIKE 'idem-test-%'");
+        jdbcTemplate.update("DELETE FROM payments WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'IDEMPOTENT-%')");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'IDEMPOTENT-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'IDEMPOTENT-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'IDEMPOTENT-%'");
+        idempotencyStore.clearCache();
+        // The rows were deleted behind the commands' back, so tell the read caches about it
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singletonList(CUSTOMER)));
+    }
+
+    @Test
+    public void testRepeatedCreateReturnsStoredResponse() {
+        InvoiceResponseDto first = invoiceService.createInvoice(invoiceRequest("IDEMPOTENT-001"), "idem-test-create");
+        InvoiceResponseDto cached = invoiceService.createInvoice(invoiceRequest("IDEMPOTENT-001"), "idem-test-create");
+
+        System.out.println("[DEBUG_LOG] First response: " + first);
+        assertSame(first, cached, "A repeat should be answered from the in-memory cache");
+
+        // Once evicted from memory, the response is replayed from the table
+        idempotencyStore.clearCache();
+        InvoiceResponseDto replayed = invoiceService.createInvoice(invoiceRequest("IDEMPOTENT-001"), "idem-test-create");
+        assertEquals(first, replayed);
+        assertEquals(1, countInvoices("IDEMPOTENT-001"));
+    }
+
+    @Test
+    public void testRepeatedPaymentIsAppliedOnce() {
+        invoiceService.createInvoice(invoiceRequest("IDEMPOTENT-002"));
+        PaymentRequestDto payment = new PaymentRequestDto("IDEMPOTENT-002", LocalDate.now(), new BigDecimal("30.00"), "Cash");
+
+        InvoiceResponseDto first = invoiceService.payInvoice(payment, "idem-test-pay");
+        idempotencyStore.clearCache();
+        InvoiceResponseDto repeated = invoiceService.payInvoice(payment, "idem-test-pay");
+
+        System.out.println("[DEBUG_LOG] Paid invoice: " + repeated);
+        assertEquals(first, repeated);
+        assertEquals(0, new BigDecimal("70.00").compareTo(invoiceService.getInvoiceByInvoiceNumber("IDEMPOTENT-002").getDebtAmount()));
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM payments p JOIN invoices i ON p.invoice_id = i.id " +
+                "WHERE i.invoice_number = 'IDEMPOTENT-002'", Long.class));
+    }
+
+    @Test
+    public void testKeyCannotBeReusedForDifferentRequest() {
+        invoiceService.createInvoice(invoiceRequest("IDEMPOTENT-003"), "idem-test-reuse");
+
+        assertThrows(IllegalArgumentException.class,
+                () -> invoiceService.createInvoice(invoiceRequest("IDEMPOTENT-004"), "idem-test-reuse"));
+        idempotencyStore.clearCache();
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.payInvoice(
+                new PaymentRequestDto("IDEMPOTENT-003", LocalDate.now(), BigDecimal.TEN, "Cash"), "idem-test-reuse"));
+        assertEquals(0, countInvoices("IDEMPOTENT-004"));
+    }
+
+    @Test
+    public void testFailedCommandReleasesKey() {
+        PaymentRequestDto payment = new PaymentRequestDto("IDEMPOTENT-005", LocalDate.now(), new BigDecimal("30.00"), "Cash");
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.payInvoice(payment, "idem-test-retry"));
+
+        // The client may retry with the same key once the invoice exists
+        invoiceService.createInvoice(invoiceRequest("IDEMPOTENT-005"));
+        InvoiceResponseDto paid = invoiceService.payInvoice(payment, "idem-test-retry");
+        assertEquals(0, new BigDecimal("70.00").compareTo(paid.getDebtAmount()));
+    }
+
+    @Test
+    public void testLapsedClaimIsTakenOver() {
+        invoiceService.createInvoice(invoiceRequest("IDEMPOTENT-006"));
+        PaymentRequestDto payment = new PaymentRequestDto("IDEMPOTENT-006", LocalDate.now(), new BigDecimal("30.00"), "Cash");
+
+        // A claim whose lease lapsed (the process died before completing it) is taken over by the retry
+        Instant claimedAt = Instant.now().minusSeconds(120);
+        jdbcTemplate.update("INSERT INTO idempotency_keys (idempotency_key, command_type, request_hash, status, created_at, expires_at) " +
+                "VALUES ('idem-test-lease', 'PayInvoiceCommand', 'lapsed', 'IN_PROGRESS', ?, ?)",
+                Timestamp.from(claimedAt), Timestamp.from(claimedAt.plusSeconds(60)));
+        InvoiceResponseDto paid = invoiceService.payInvoice(payment, "idem-test-lease");
+
+        System.out.println("[DEBUG_LOG] Paid after takeover: " + paid);
+        assertEquals(0, new BigDecimal("70.00").compareTo(paid.getDebtAmount()));
+        assertEquals("COMPLETED", jdbcTemplate.queryForObject(
+                "SELECT status FROM idempotency_keys WHERE idempotency_key = 'idem-test-lease'", String.class));
+        // The completed response is kept for the ttl, not the lease
+        Timestamp expiresAt = jdbcTemplate.queryForObject(
+                "SELECT expires_at FROM idempotency_keys WHERE idempotency_key = 'idem-test-lease'", Timestamp.class);
+        assertTrue(expiresAt.toInstant().isAfter(Instant.now().plus(Duration.ofHours(1))));
+
+        // While the lease holds, a claim is still a conflict
+        jdbcTemplate.update("UPDATE idempotency_keys SET status = 'IN_PROGRESS', response = NULL, expires_at = ? " +
+                "WHERE idempotency_key = 'idem-test-lease'", Timestamp.from(Instant.now().plusSeconds(60)));
+        idempotencyStore.clearCache();
+        assertThrows(ConcurrencyFailureException.class, () -> invoiceService.payInvoice(payment, "idem-test-lease"));
+    }
+
+    private long countInvoices(String invoiceNumber) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoices WHERE invoice_number = ?", Long.class, invoiceNumber);
+    }
+
+    private static InvoiceRequestDto invoiceRequest(String invoiceNumber) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName(CUSTOMER);
+        request.setInvoiceDate(LocalDate.of(2023, 3, 1));
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("100.00"), 1));
+        return request;
+    }
+}
@@ -0,0 +1,329 @@
+package com.example.invoicesbackend.cqrs.journal;
+
+import com.example.invoicesbackend.cqrs.Command;
+import com.example.invoicesbackend.cqrs.CommandHandler;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoiceCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.CreateInvoicesBatchCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.PayInvoiceCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.PayInvoicesBatchCommand;
+import com.example.invoicesbackend.cqrs.command.invoice.UpdateInvoiceCommand;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.BatchItemResultDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that journaled commands are replayed as they were appended, across segments and from a checkpoint,
+ * that commands journaled in transactions are appended in commit order, that replay stops at a torn record without
+ * hiding the records appended after the restart, and that a command failing on replay stops it unless failures are
+ * allowed.
+ */
+public class CommandJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testCommandsAreReplayedAsAppended() throws IOException {
+        List<Command<?>> commands = List.of(
+                new CreateInvoiceCommand(invoiceRequest("JOURNAL-1"), "key-1"),
+                new UpdateInvoiceCommand(new UpdateInvoiceRequestDto("JOURNAL-1",
+                        List.of(new LineItemRequestDto("Updated", new BigDecimal("-12.345"), 7))), 3L),
+                new PayInvoiceCommand(paymentRequest("JOURNAL-1"), "key-2", null),
+                new CreateInvoicesBatchCommand(List.of(invoiceRequest("JOURNAL-2"), new InvoiceRequestDto())),
+                new PayInvoicesBatchCommand(List.of(paymentRequest("JOURNAL-2"), new PaymentRequestDto())));
+
+        CommandJournal journal = journal(Duration.ofMillis(5));
+        Recorder appended = new Recorder(journal);
+        journal.start();
+        for (Command<?> command : commands) {
+            appended.handle(command);
+        }
+        journal.stop();
+
+        CommandJournal reopened = journal(Duration.ZERO);
+        Recorder replayed = new Recorder(reopened);
+        assertEquals(commands.size(), reopened.replay(0));
+        assertEquals(commands, replayed.handled);
+    }
+
+    @Test
+    public void testReplayCrossesSegmentsAndStartsAtCheckpoint() throws IOException {
+        CommandJournal journal = journal(Duration.ZERO);
+        Recorder appended = new Recorder(journal);
+        journal.start();
+        for (int i = 0; i < 40; i++) {
+            appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-" + i), "key-" + i));
+        }
+        long checkpoint = journal.checkpoint(() -> { });
+        for (int i = 40; i < 50; i++) {
+            appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-" + i), "key-" + i));
+        }
+        journal.stop();
+        assertTrue(segments().size() > 2, "Expected the commands to fill several segments");
+
+        CommandJournal reopened = journal(Duration.ZERO);
+        Recorder replayed = new Recorder(reopened);
+        assertEquals(10, reopened.replay(checkpoint));
+        assertEquals(appended.handled.subList(40, 50), replayed.handled);
+
+        reopened.replayFrom(checkpoint);
+        reopened.start();
+        reopened.deleteSegmentsBefore(checkpoint);
+        reopened.stop();
+        assertEquals(10, reopened.replay(checkpoint), "Segments after the checkpoint should be kept");
+    }
+
+    @Test
+    public void testReplayStopsAtTornRecord() throws IOException {
+        CommandJournal journal = journal(Duration.ZERO);
+        Recorder appended = new Recorder(journal);
+        journal.start();
+        appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-1"), "key-1"));
+        appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-2"), "key-2"));
+        long torn = journal.position();
+        appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-3"), "key-3"));
+        journal.stop();
+
+        // A crash while the last record was written leaves part of its payload unwritten
+        Path segment = segments().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[16]), torn + JournalSegment.HEADER_SIZE + 4);
+        }
+
+        CommandJournal restarted = journal(Duration.ZERO);
+        Recorder replayed = new Recorder(restarted);
+        restarted.replayFrom(0);
+        restarted.start();
+        assertEquals(appended.handled.subList(0, 2), replayed.handled);
+        replayed.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-4"), "key-4"));
+        restarted.stop();
+
+        CommandJournal reopened = journal(Duration.ZERO);
+        Recorder replayedAgain = new Recorder(reopened);
+        assertEquals(3, reopened.replay(0));
+        assertEquals(List.of(appended.handled.get(0), appended.handled.get(1), replayed.handled.get(2)), replayedAgain.handled);
+    }
+
+    @Test
+    public void testPlainCreatesAndPaymentsAreReplayedOneByOne() throws IOException {
+        CommandJournal journal = journal(Duration.ZERO);
+        Recorder appended = new Recorder(journal);
+        journal.start();
+        appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-1"), null));
+        appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-2"), null));
+        appended.handle(new PayInvoiceCommand(paymentRequest("JOURNAL-1"), null, null));
+        appended.handle(new PayInvoiceCommand(paymentRequest("JOURNAL-2"), null, null));
+        appended.handle(new PayInvoiceCommand(paymentRequest("JOURNAL-2"), null, 2L));
+        journal.stop();
+
+        // Batch handlers would bump an invoice's version once per batch rather than once per payment
+        CommandJournal reopened = journal(Duration.ZERO);
+        Recorder replayed = new Recorder(reopened);
+        assertEquals(5, reopened.replay(0));
+        assertEquals(appended.handled, replayed.handled);
+    }
+
+    @Test
+    public void testFailedCommandsAreNotJournaled() throws IOException {
+        CommandJournal journal = journal(Duration.ZERO);
+        CommandHandler<CreateInvoiceCommand, InvoiceResponseDto> failing = journal.journaled(CreateInvoiceCommand.class, command -> {
+            throw new IllegalArgumentException("Invalid invoice");
+        });
+        journal.start();
+        assertThrows(IllegalArgumentException.class, () -> failing.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-1"), null)));
+        journal.stop();
+
+        assertEquals(0, journal(Duration.ZERO).replay(0));
+        assertThrows(IllegalStateException.class, () -> failing.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-2"), null)),
+                "A stopped journal should reject commands");
+    }
+
+    private CommandJournal journal(Duration fsyncInterval) {
+        return journal(fsyncInterval, false);
+    }
+
+    private CommandJournal journal(Duration fsyncInterval, boolean allowReplayFailures) {
+        return new CommandJournal(new SimpleMeterRegistry(), true, directory.toString(), DataSize.ofKilobytes(1),
+                fsyncInterval, allowReplayFailures);
+    }
+
+    @Test
+    public void testReplayFailureStopsReplayUnlessAllowed() throws IOException {
+        CommandJournal journal = journal(Duration.ZERO);
+        Recorder appended = new Recorder(journal);
+        journal.start();
+        appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-1"), null));
+        appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-2"), null));
+        journal.stop();
+
+        // The first creation now fails, as if the database had diverged from the one it first ran against
+        List<Command<?>> replayed = new ArrayList<>();
+        CommandHandler<CreateInvoiceCommand, InvoiceResponseDto> failingFirst = command -> {
+            if (command.getInvoiceRequestDto().getInvoiceNumber().equals("JOURNAL-1")) {
+                throw new IllegalArgumentException("Invoice with number JOURNAL-1 already exists");
+            }
+            replayed.add(command);
+            return null;
+        };
+
+        CommandJournal strict = journal(Duration.ZERO);
+        strict.journaled(CreateInvoiceCommand.class, failingFirst);
+        assertThrows(IllegalStateException.class, () -> strict.replay(0));
+        assertTrue(replayed.isEmpty(), "Replay should stop at the failed command");
+
+        CommandJournal lenient = journal(Duration.ZERO, true);
+        lenient.journaled(CreateInvoiceCommand.class, failingFirst);
+        assertEquals(2, lenient.replay(0));
+        assertEquals(appended.handled.subList(1, 2), replayed);
+    }
+
+    @Test
+    public void testTransactionsAreJournaledInCommitOrder() throws Exception {
+        CommandJournal journal = journal(Duration.ZERO);
+        Recorder appended = new Recorder(journal);
+        journal.start();
+        CreateInvoiceCommand create = new CreateInvoiceCommand(invoiceRequest("JOURNAL-1"), null);
+        PayInvoiceCommand pay = new PayInvoiceCommand(paymentRequest("JOURNAL-1"), null, null);
+
+        // The creation is handled first but commits last; its record must still follow the payment's
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            appended.handle(create);
+            Thread payer = new Thread(() -> {
+                TransactionSynchronizationManager.initSynchronization();
+                try {
+                    appended.handle(pay);
+                    commit();
+                } finally {
+                    TransactionSynchronizationManager.clearSynchronization();
+                }
+            });
+            payer.start();
+            payer.join();
+            commit();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+
+        // A transaction that rolls back journals nothing
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            appended.handle(new CreateInvoiceCommand(invoiceRequest("JOURNAL-2"), null));
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+        journal.stop();
+
+        CommandJournal reopened = journal(Duration.ZERO);
+        Recorder replayed = new Recorder(reopened);
+        assertEquals(2, reopened.replay(0));
+        assertEquals(List.of(pay, create), replayed.handled);
+    }
+
+    private static void commit() {
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_COMMITTED);
+    }
+
+    private List<Path> segments() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static InvoiceRequestDto invoiceRequest(String invoiceNumber) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName("Journal Customer é");
+        request.setInvoiceDate(LocalDate.of(2024, 2, 29));
+        request.setDescription(null);
+        request.setStatus(Invoice.InvoiceStatus.PENDING);
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("10.00"), 2));
+        request.getLineItems().add(new LineItemRequestDto(null, null, null));
+        return request;
+    }
+
+    private static PaymentRequestDto paymentRequest(String invoiceNumber) {
+        return new PaymentRequestDto(invoiceNumber, LocalDate.of(2024, 3, 1), new BigDecimal("123456789012345678901.99"), "card");
+    }
+
+    /**
+     * Registers a handler for every journaled command type that records and journals the commands it handles.
+     */
+    private static class Recorder {
+
+        private final List<Command<?>> handled = new ArrayList<>();
+        private final CommandJournal journal;
+        private final CommandHandler<CreateInvoiceCommand, InvoiceResponseDto> create;
+        private final CommandHandler<UpdateInvoiceCommand, InvoiceResponseDto> update;
+        private final CommandHandler<PayInvoiceCommand, InvoiceResponseDto> pay;
+        private final CommandHandler<CreateInvoicesBatchCommand, List<BatchItemResultDto>> createBatch;
+        private final CommandHandler<PayInvoicesBatchCommand, List<BatchItemResultDto>> payBatch;
+
+        Recorder(CommandJournal journal) {
+            this.journal = journal;
+            create = journal.journaled(CreateInvoiceCommand.class, this::record);
+            update = journal.journaled(UpdateInvoiceCommand.class, this::record);
+            pay = journal.journaled(PayInvoiceCommand.class, this::record);
+            createBatch = journal.journaled(CreateInvoicesBatchCommand.class, command -> {
+                record(command);
+                return List.of();
+            });
+            payBatch = journal.journaled(PayInvoicesBatchCommand.class, command -> {
+                record(command);
+                return List.of();
+            });
+        }
+
+        private InvoiceResponseDto record(Command<?> command) {
+            handled.add(command);
+            journal.append(command);
+            return null;
+        }
+
+        void handle(Command<?> command) {
+            if (command instanceof CreateInvoiceCommand) {
+                create.handle((CreateInvoiceCommand) command);
+            } else if (command instanceof UpdateInvoiceCommand) {
+                update.handle((UpdateInvoiceCommand) command);
+            } else if (command instanceof PayInvoiceCommand) {
+                pay.handle((PayInvoiceCommand) command);
+            } else if (command instanceof CreateInvoicesBatchCommand) {
+                createBatch.handle((CreateInvoicesBatchCommand) command);
+            } else {
+                payBatch.handle((PayInvoicesBatchCommand) command);
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.invoicesbackend.cqrs.metrics;
+
+import com.example.invoicesbackend.cqrs.query.invoice.InvoiceSortKey;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.service.InvoiceService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityNotFoundException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies that every handler call is timed and every failure counted, and that the meters reach Prometheus.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@Transactional
+public class HandlerMetricsTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Test
+    public void testCommandsAndQueriesAreTimed() {
+        double created = timerCount("command", "CreateInvoiceCommand", "success");
+        double found = timerCount("query", "GetInvoiceByInvoiceNumberQuery", "success");
+
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber("METRICS-001");
+        request.setCustomerName("Metrics Customer");
+        request.setInvoiceDate(LocalDate.now());
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("10.00"), 1));
+        invoiceService.createInvoice(request);
+        invoiceService.getInvoiceByInvoiceNumber("METRICS-001");
+
+        assertEquals(created + 1, timerCount("command", "CreateInvoiceCommand", "success"));
+        assertEquals(found + 1, timerCount("query", "GetInvoiceByInvoiceNumberQuery", "success"));
+        assertEquals(0, meterRegistry.get("invoices.command.active").tag("command", "CreateInvoiceCommand").gauge().value());
+    }
+
+    @Test
+    public void testFailuresAreCountedByException() {
+        assertThrows(EntityNotFoundException.class, () -> invoiceService.getInvoiceByInvoiceNumber("METRICS-MISSING"));
+
+        assertTrue(meterRegistry.get("invoices.query.errors")
+                .tag("query", "GetInvoiceByInvoiceNumberQuery")
+                .tag("exception", "EntityNotFoundException")
+                .counter().count() >= 1);
+        assertTrue(timerCount("query", "GetInvoiceByInvoiceNumberQuery", "error") >= 1);
+    }
+
+    @Test
+    public void testPrometheusEndpointPublishesHistograms() throws Exception {
+        invoiceService.getInvoiceSummaries(null, 10, InvoiceSortKey.ID, Sort.Direction.ASC);
+
+        String body = mockMvc.perform(get("/actuator/prometheus"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.contains("invoices_query_duration_seconds_bucket{"), "Percentile histogram buckets should be published");
+        assertTrue(body.contains("quantile=\"0.99\""), "Client-side percentiles should be published");
+        assertTrue(body.contains("query=\"GetInvoiceSummariesQuery\""));
+    }
+
+    private double timerCount(String kind, String type, String outcome) {
+        Timer timer = meterRegistry.find("invoices." + kind + ".duration").tag(kind, type).tag("outcome", outcome).timer();
+        return timer == null ? 0 : timer.count();
+    }
+}
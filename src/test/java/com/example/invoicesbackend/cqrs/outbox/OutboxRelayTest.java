@@ -0,0 +1,175 @@
+package com.example.invoicesbackend.cqrs.outbox;
+
+import com.example.invoicesbackend.cqrs.event.InvoiceEvent;
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.model.OutboxEvent;
+import com.example.invoicesbackend.service.InvoiceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that events written by the commands are relayed to the outbox listeners after commit, at least once.
+ */
+@SpringBootTest(properties = {
+        "invoices.outbox.poll-interval=100ms",
+        "invoices.outbox.retry-backoff=50ms",
+        "invoices.outbox.file-sink.path=target/outbox-test/events.ndjson"
+})
+public class OutboxRelayTest {
+
+    private static final String CUSTOMER = "Outbox Customer";
+
+    @TestConfiguration
+    static class RecordingListenerConfiguration {
+        @Bean
+        RecordingListener recordingListener() {
+            return new RecordingListener();
+        }
+    }
+
+    static class RecordingListener implements OutboxListener {
+        private final List<OutboxEvent> received = new CopyOnWriteArrayList<>();
+        private final AtomicInteger failuresToInject = new AtomicInteger();
+
+        @Override
+        public void onEvents(List<OutboxEvent> events) {
+            if (events.stream().anyMatch(event -> event.getInvoiceNumber().startsWith("OUTBOX-"))
+                    && failuresToInject.getAndUpdate(failures -> Math.max(0, failures - 1)) > 0) {
+                throw new IllegalStateException("Injected delivery failure");
+            }
+            received.addAll(events);
+        }
+
+        // Delivery is at-least-once, so duplicates are dropped by event id
+        private List<OutboxEvent> receivedFor(String invoiceNumber) {
+            Map<Long, OutboxEvent> events = new TreeMap<>();
+            received.stream().filter(event -> event.getInvoiceNumber().equals(invoiceNumber))
+                    .forEach(event -> events.putIfAbsent(event.getEventId(), event));
+            return new ArrayList<>(events.values());
+        }
+    }
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private RecordingListener recordingListener;
+
+    @Autowired
+    private FileOutboxSink fileOutboxSink;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE invoice_number LIKE 'OUTBOX-%'");
+        jdbcTemplate.update("DELETE FROM invoice_ledger WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'OUTBOX-%')");
+        jdbcTemplate.update("DELETE FROM payments WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'OUTBOX-%')");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'OUTBOX-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'OUTBOX-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'OUTBOX-%'");
+        // The rows were deleted behind the commands' back, so tell the read caches about it
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singletonList(CUSTOMER)));
+    }
+
+    @Test
+    public void testCommittedEventsAreRelayedInOrder() throws Exception {
+        createInvoice("OUTBOX-001");
+        invoiceService.payInvoice(new PaymentRequestDto("OUTBOX-001", LocalDate.of(2023, 4, 2), new BigDecimal("40.00"), "Card"));
+
+        awaitTrue(() -> recordingListener.receivedFor("OUTBOX-001").size() == 2);
+        List<OutboxEvent> events = recordingListener.receivedFor("OUTBOX-001");
+        System.out.println("[DEBUG_LOG] Relayed events: " + events);
+        InvoiceEvent created = objectMapper.readValue(events.get(0).getPayload(), InvoiceEvent.class);
+        InvoiceEvent paid = objectMapper.readValue(events.get(1).getPayload(), InvoiceEvent.class);
+        assertEquals(InvoiceEvent.Type.INVOICE_CREATED, created.getEventType());
+        assertEquals(0, new BigDecimal("100.00").compareTo(created.getAmount()));
+        assertEquals(InvoiceEvent.Type.PAYMENT_APPLIED, paid.getEventType());
+        assertEquals(CUSTOMER, paid.getCustomerName());
+        assertEquals(0, new BigDecimal("40.00").compareTo(paid.getAmount()));
+        assertTrue(paid.getPaymentId() != null);
+
+        awaitTrue(() -> countPending("OUTBOX-001") == 0);
+        String sinkContent = new String(Files.readAllBytes(fileOutboxSink.getPath()), StandardCharsets.UTF_8);
+        assertTrue(sinkContent.contains("\"eventId\":" + events.get(1).getEventId() + ","), sinkContent);
+        assertTrue(meterRegistry.get("invoices.outbox.published").counter().count() >= 2);
+    }
+
+    @Test
+    public void testFailedDeliveryIsRetried() {
+        recordingListener.failuresToInject.set(1);
+        createInvoice("OUTBOX-002");
+
+        awaitTrue(() -> recordingListener.receivedFor("OUTBOX-002").size() == 1);
+        awaitTrue(() -> countPending("OUTBOX-002") == 0);
+        Integer attempts = jdbcTemplate.queryForObject(
+                "SELECT attempts FROM outbox_events WHERE invoice_number = 'OUTBOX-002'", Integer.class);
+        System.out.println("[DEBUG_LOG] Failed attempts before delivery: " + attempts);
+        assertEquals(1, attempts);
+        assertTrue(meterRegistry.get("invoices.outbox.failed").counter().count() >= 1);
+    }
+
+    private long countPending(String invoiceNumber) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM outbox_events WHERE invoice_number = ? AND published_at IS NULL",
+                Long.class, invoiceNumber);
+    }
+
+    private void createInvoice(String invoiceNumber) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName(CUSTOMER);
+        request.setInvoiceDate(LocalDate.of(2023, 4, 1));
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("100.00"), 1));
+        invoiceService.createInvoice(request);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for the outbox relay");
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
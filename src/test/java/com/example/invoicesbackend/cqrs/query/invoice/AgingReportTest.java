@@ -0,0 +1,122 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.AgingBucketsDto;
+import com.example.invoicesbackend.dto.response.AgingReportResponseDto;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies the aging buckets and that the cached report follows committed payments.
+ * Not transactional: the cache only learns about changes once they commit.
+ */
+@SpringBootTest
+public class AgingReportTest {
+
+    private static final String CUSTOMER_A = "Aging Customer A";
+    private static final String CUSTOMER_B = "Aging Customer B";
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private AgingReportCache agingReportCache;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        createInvoice("AGING-001", CUSTOMER_A, TODAY.minusDays(30), "100.00");
+        createInvoice("AGING-002", CUSTOMER_A, TODAY.minusDays(31), "200.00");
+        createInvoice("AGING-003", CUSTOMER_A, TODAY.minusDays(75), "300.00");
+        createInvoice("AGING-004", CUSTOMER_A, TODAY.minusDays(91), "400.00");
+        createInvoice("AGING-005", CUSTOMER_B, TODAY.minusDays(5), "50.00");
+    }
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM payments WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'AGING-%')");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'AGING-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'AGING-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'AGING-%'");
+        // The rows were deleted behind the commands' back, so tell the cache about it
+        agingReportCache.onInvoicesChanged(new InvoicesChangedEvent(Arrays.asList(CUSTOMER_A, CUSTOMER_B)));
+    }
+
+    @Test
+    public void testDebtIsBucketedByInvoiceAge() {
+        AgingBucketsDto customerA = customer(invoiceService.getAgingReport(null), CUSTOMER_A);
+
+        assertAmount("100.00", customerA.getDays0To30());
+        assertAmount("200.00", customerA.getDays31To60());
+        assertAmount("300.00", customerA.getDays61To90());
+        assertAmount("400.00", customerA.getOver90Days());
+        assertAmount("1000.00", customerA.getTotal());
+
+        // Sixty days later the 0-30 invoice is in the 31-60 bucket and the rest have moved past 90 days
+        AgingBucketsDto later = customer(invoiceService.getAgingReport(TODAY.plusDays(60)), CUSTOMER_A);
+        assertAmount("0", later.getDays0To30());
+        assertAmount("0", later.getDays31To60());
+        assertAmount("100.00", later.getDays61To90());
+        assertAmount("900.00", later.getOver90Days());
+    }
+
+    @Test
+    public void testCachedReportFollowsPayments() {
+        AgingReportResponseDto before = invoiceService.getAgingReport(null);
+        assertSame(before, invoiceService.getAgingReport(null), "Unchanged report should be served from the cache");
+
+        invoiceService.payInvoice(new PaymentRequestDto("AGING-003", TODAY, new BigDecimal("120.00"), "Cash"));
+        invoiceService.payInvoice(new PaymentRequestDto("AGING-005", TODAY, new BigDecimal("50.00"), "Cash"));
+
+        AgingReportResponseDto after = invoiceService.getAgingReport(null);
+        assertNotSame(before, after);
+        assertAmount("180.00", customer(after, CUSTOMER_A).getDays61To90());
+        assertTrue(after.getCustomers().stream().noneMatch(row -> CUSTOMER_B.equals(row.getCustomerName())),
+                "Customers without debt should leave the report");
+
+        // The incrementally refreshed report must match one computed from scratch
+        assertEquals(agingReportCache.compute(TODAY), after);
+        BigDecimal total = after.getCustomers().stream().map(AgingBucketsDto::getTotal).reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertAmount(total.toPlainString(), after.getTotal().getTotal());
+    }
+
+    private void createInvoice(String invoiceNumber, String customerName, LocalDate invoiceDate, String amount) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName(customerName);
+        request.setInvoiceDate(invoiceDate);
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal(amount), 1));
+        invoiceService.createInvoice(request);
+    }
+
+    private static AgingBucketsDto customer(AgingReportResponseDto report, String customerName) {
+        return report.getCustomers().stream()
+                .filter(row -> customerName.equals(row.getCustomerName()))
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("No aging row for " + customerName));
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "Expected " + expected + " but was " + actual);
+    }
+}
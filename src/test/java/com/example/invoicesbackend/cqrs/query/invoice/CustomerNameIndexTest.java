@@ -0,0 +1,98 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.CustomerSuggestionDto;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Verifies customer name lookups and that the index follows committed commands.
+ * Not transactional: the index only learns about changes once they commit.
+ */
+@SpringBootTest
+public class CustomerNameIndexTest {
+
+    private static final String ACME_CORP = "Autocomplete Ácme Corp";
+    private static final String ACME_LTD = "autocomplete  acme Ltd";
+    private static final String OTHER = "Autocomplete Other";
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private CustomerNameIndex customerNameIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM payments WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'AUTOCOMPLETE-%')");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'AUTOCOMPLETE-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'AUTOCOMPLETE-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'AUTOCOMPLETE-%'");
+        // The rows were deleted behind the commands' back, so tell the index about it
+        customerNameIndex.onInvoicesChanged(new InvoicesChangedEvent(Arrays.asList(ACME_CORP, ACME_LTD, OTHER)));
+    }
+
+    @Test
+    public void testPrefixIgnoresCaseAccentsAndWhitespace() {
+        createInvoice("AUTOCOMPLETE-001", ACME_CORP, "100.00");
+        createInvoice("AUTOCOMPLETE-002", ACME_CORP, "50.00");
+        createInvoice("AUTOCOMPLETE-003", ACME_LTD, "10.00");
+        createInvoice("AUTOCOMPLETE-004", OTHER, "10.00");
+
+        List<CustomerSuggestionDto> suggestions = invoiceService.getCustomerSuggestions(" AUTOCOMPLETE   ACME", 10);
+        assertEquals(Arrays.asList(ACME_CORP, ACME_LTD), names(suggestions));
+        assertEquals(2, suggestions.get(0).getInvoiceCount());
+        assertEquals(0, new BigDecimal("150.00").compareTo(suggestions.get(0).getDebtAmount()));
+
+        assertEquals(Arrays.asList(ACME_CORP), names(invoiceService.getCustomerSuggestions("autocomplete acme", 1)));
+        assertEquals(Arrays.asList(ACME_CORP, ACME_LTD, OTHER), names(invoiceService.getCustomerSuggestions("autocomplete", 10)));
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.getCustomerSuggestions(" ", 10));
+        assertThrows(IllegalArgumentException.class, () -> invoiceService.getCustomerSuggestions("a", 0));
+    }
+
+    @Test
+    public void testIndexFollowsCommittedPayments() {
+        createInvoice("AUTOCOMPLETE-001", ACME_CORP, "100.00");
+        invoiceService.payInvoice(new PaymentRequestDto("AUTOCOMPLETE-001", LocalDate.now(), new BigDecimal("40.00"), "Cash"));
+
+        CustomerSuggestionDto acme = invoiceService.getCustomerSuggestions("autocomplete ácme", 10).get(0);
+        assertEquals(ACME_CORP, acme.getCustomerName());
+        assertEquals(0, new BigDecimal("60.00").compareTo(acme.getDebtAmount()));
+
+        // The incrementally maintained index must match one rebuilt from the table
+        customerNameIndex.load();
+        assertEquals(acme, invoiceService.getCustomerSuggestions("autocomplete ácme", 10).get(0));
+    }
+
+    private void createInvoice(String invoiceNumber, String customerName, String amount) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName(customerName);
+        request.setInvoiceDate(LocalDate.now());
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal(amount), 1));
+        invoiceService.createInvoice(request);
+    }
+
+    private static List<String> names(List<CustomerSuggestionDto> suggestions) {
+        return suggestions.stream().map(CustomerSuggestionDto::getCustomerName).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.dto.response.LineItemResponseDto;
+import com.example.invoicesbackend.service.InvoiceService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that the export joins every invoice with its own line items in a single ordered pass,
+ * that the JSON written straight from the rows matches the serialized response DTOs, and that the stream without
+ * line items reads every invoice in id order.
+ */
+@SpringBootTest
+@Transactional
+public class ExportInvoicesQueryTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    public void testExportGroupsLineItemsByInvoice() {
+        createInvoice("EXPORT-001", 3);
+        createInvoice("EXPORT-002", 1);
+        createInvoice("EXPORT-003", 2);
+        // Invoices cannot be created without line items through the commands, but older rows may have none.
+        // Inserted last because it takes its id straight from the sequence, after the block handed out above.
+        jdbcTemplate.update("INSERT INTO invoices (invoice_number, customer_name, invoice_date, amount, debt_amount, status) " +
+                "VALUES ('EXPORT-004', 'Export Customer', CURRENT_DATE, 0, 0, 'PAID')");
+        // The export reads through JDBC, which only sees what Hibernate has written
+        entityManager.flush();
+
+        List<InvoiceResponseDto> exported = new ArrayList<>();
+        long count = invoiceService.exportInvoices(invoice -> {
+            if (invoice.getInvoiceNumber().startsWith("EXPORT-")) {
+                exported.add(invoice);
+            }
+        });
+
+        System.out.println("[DEBUG_LOG] Exported " + count + " invoices");
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoices", Long.class), count);
+        assertEquals(Arrays.asList("EXPORT-001", "EXPORT-002", "EXPORT-003", "EXPORT-004"),
+                exported.stream().map(InvoiceResponseDto::getInvoiceNumber).collect(Collectors.toList()));
+        assertEquals(Arrays.asList("EXPORT-001 item 1", "EXPORT-001 item 2", "EXPORT-001 item 3"), descriptions(exported.get(0)));
+        assertEquals(Arrays.asList("EXPORT-002 item 1"), descriptions(exported.get(1)));
+        assertEquals(Arrays.asList("EXPORT-003 item 1", "EXPORT-003 item 2"), descriptions(exported.get(2)));
+        assertTrue(exported.get(3).getLineItems().isEmpty());
+
+        LineItemResponseDto lineItem = exported.get(0).getLineItems().get(2);
+        assertEquals(0, new BigDecimal("10.00").compareTo(lineItem.getPrice()));
+        assertEquals(3, lineItem.getQuantity());
+        assertEquals(0, new BigDecimal("30.00").compareTo(lineItem.getTotalAmount()));
+    }
+
+    @Test
+    public void testJsonExportMatchesMappedInvoices() throws IOException {
+        createInvoice("EXPORT-005", 2);
+        createInvoice("EXPORT-006", 1);
+        entityManager.flush();
+
+        List<String> expected = new ArrayList<>();
+        invoiceService.exportInvoices(invoice -> {
+            if (invoice.getInvoiceNumber().startsWith("EXPORT-")) {
+                try {
+                    expected.add(objectMapper.writeValueAsString(invoice));
+                } catch (IOException ex) {
+                    throw new IllegalStateException(ex);
+                }
+            }
+        });
+        StringWriter out = new StringWriter();
+        long count;
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            count = invoiceService.writeInvoicesJson(generator, true);
+        }
+
+        String[] lines = out.toString().split("\n");
+        System.out.println("[DEBUG_LOG] Wrote " + count + " invoices as JSON");
+        assertEquals(count, lines.length);
+        assertTrue(out.toString().endsWith("\n"));
+        assertEquals(expected, Arrays.stream(lines)
+                .filter(line -> line.contains("\"invoiceNumber\":\"EXPORT-"))
+                .collect(Collectors.toList()));
+        assertEquals(2, expected.size());
+    }
+
+    @Test
+    public void testStreamReadsEveryInvoiceInIdOrder() {
+        createInvoice("EXPORT-007", 2);
+        createInvoice("EXPORT-008", 1);
+        entityManager.flush();
+
+        List<String> streamed = new ArrayList<>();
+        long count = invoiceService.streamAllInvoices(invoice -> {
+            if (invoice.getInvoiceNumber().startsWith("EXPORT-")) {
+                streamed.add(invoice.getInvoiceNumber());
+            }
+        });
+
+        System.out.println("[DEBUG_LOG] Streamed " + count + " invoices");
+        assertEquals(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM invoices", Long.class), count);
+        assertEquals(Arrays.asList("EXPORT-007", "EXPORT-008"), streamed);
+    }
+
+    private void createInvoice(String invoiceNumber, int lineItems) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName("Export Customer");
+        request.setInvoiceDate(LocalDate.now());
+        for (int i = 1; i <= lineItems; i++) {
+            request.getLineItems().add(new LineItemRequestDto(invoiceNumber + " item " + i, new BigDecimal("10.00"), i));
+        }
+        invoiceService.createInvoice(request);
+    }
+
+    private static List<String> descriptions(InvoiceResponseDto invoice) {
+        return invoice.getLineItems().stream().map(LineItemResponseDto::getDescription).collect(Collectors.toList());
+    }
+}
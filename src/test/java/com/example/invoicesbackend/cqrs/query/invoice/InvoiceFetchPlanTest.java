@@ -0,0 +1,97 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Verifies that read paths issue a fixed number of SQL statements, whatever the number of invoices returned.
+ */
+@SpringBootTest
+@Transactional
+public class InvoiceFetchPlanTest {
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    public void setUp() {
+        for (int i = 1; i <= 12; i++) {
+            InvoiceRequestDto request = new InvoiceRequestDto();
+            request.setInvoiceNumber(String.format("FETCH-%03d", i));
+            request.setCustomerName("Fetch Plan Customer");
+            request.setInvoiceDate(LocalDate.now());
+            for (int j = 1; j <= 3; j++) {
+                request.getLineItems().add(new LineItemRequestDto("Item " + j, new BigDecimal("10.00"), j));
+            }
+            invoiceService.createInvoice(request);
+            invoiceService.payInvoice(new PaymentRequestDto(request.getInvoiceNumber(), LocalDate.now(), new BigDecimal("60.00"), "Cash"));
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    public void testGetAllInvoices_StatementCountIndependentOfPageSize() {
+        for (int pageSize : new int[]{2, 5, 12}) {
+            entityManager.clear();
+            statistics.clear();
+
+            InvoicePageResponseDto page = invoiceService.getAllInvoices(null, pageSize, InvoiceSortKey.ID, Sort.Direction.DESC);
+
+            assertEquals(pageSize, page.getContent().size());
+            page.getContent().forEach(invoice -> {
+                assertEquals(3, invoice.getLineItems().size());
+                assertNotNull(invoice.getPaymentInfo(), "Payment info should be loaded for paid invoices");
+            });
+            // Page query, line item fetch join, payments IN (...) query
+            assertEquals(3, statistics.getPrepareStatementCount(), "Statements for page size " + pageSize);
+        }
+    }
+
+    @Test
+    public void testGetInvoiceByInvoiceNumber_LoadsPaymentsAfterReload() {
+        entityManager.clear();
+        statistics.clear();
+
+        InvoiceResponseDto invoice = invoiceService.getInvoiceByInvoiceNumber("FETCH-001");
+
+        assertEquals(Invoice.InvoiceStatus.PAID, invoice.getStatus());
+        assertEquals(3, invoice.getLineItems().size());
+        assertEquals(1, invoice.getPaymentInfo().size());
+        assertEquals("Cash", invoice.getPaymentInfo().get(0).getPaymentMethod());
+        // Invoice with line items, payments IN (...) query
+        assertEquals(2, statistics.getPrepareStatementCount());
+    }
+}
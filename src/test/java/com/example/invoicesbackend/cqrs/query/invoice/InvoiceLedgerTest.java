@@ -0,0 +1,136 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceBalanceResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies balances as of past dates computed from the ledger and its snapshots, and rebuilding debts from the ledger.
+ * Not transactional: payments take their atomic path only in their own transaction.
+ */
+@SpringBootTest(properties = "invoices.ledger.snapshot.min-entries=1")
+public class InvoiceLedgerTest {
+
+    private static final String CUSTOMER = "Ledger Customer";
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM invoice_balance_snapshots WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'LEDGER-%')");
+        jdbcTemplate.update("DELETE FROM invoice_ledger WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'LEDGER-%')");
+        jdbcTemplate.update("DELETE FROM payments WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'LEDGER-%')");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'LEDGER-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'LEDGER-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'LEDGER-%'");
+        // The rows were deleted behind the commands' back, so tell the read caches about it
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singletonList(CUSTOMER)));
+    }
+
+    @Test
+    public void testBalanceAsOfReplaysOnlyEntriesNotCoveredBySnapshot() {
+        createInvoice("LEDGER-001", LocalDate.of(2023, 1, 2), "100.00");
+        pay("LEDGER-001", LocalDate.of(2023, 1, 5), "10.00");
+        pay("LEDGER-001", LocalDate.of(2023, 1, 20), "20.00");
+
+        assertBalance("0.00", invoiceService.getInvoiceBalance("LEDGER-001", LocalDate.of(2023, 1, 1)));
+        InvoiceBalanceResponseDto beforeSnapshot = invoiceService.getInvoiceBalance("LEDGER-001", LocalDate.of(2023, 1, 10));
+        assertBalance("90.00", beforeSnapshot);
+        assertNull(beforeSnapshot.getSnapshotDate());
+        assertEquals(2, beforeSnapshot.getReplayedEntries());
+
+        assertTrue(invoiceService.snapshotInvoiceBalances(LocalDate.of(2023, 1, 31), LocalDateTime.now()) >= 1);
+        InvoiceBalanceResponseDto fromSnapshot = invoiceService.getInvoiceBalance("LEDGER-001", LocalDate.of(2023, 1, 31));
+        System.out.println("[DEBUG_LOG] Balance from snapshot: " + fromSnapshot);
+        assertBalance("70.00", fromSnapshot);
+        assertEquals(LocalDate.of(2023, 1, 31), fromSnapshot.getSnapshotDate());
+        assertEquals(0, fromSnapshot.getReplayedEntries());
+
+        // A later payment and a back-dated one recorded after the snapshot are replayed on top of it
+        pay("LEDGER-001", LocalDate.of(2023, 2, 3), "5.00");
+        pay("LEDGER-001", LocalDate.of(2023, 1, 25), "15.00");
+
+        InvoiceBalanceResponseDto endOfJanuary = invoiceService.getInvoiceBalance("LEDGER-001", LocalDate.of(2023, 1, 31));
+        System.out.println("[DEBUG_LOG] Balance after back-dated payment: " + endOfJanuary);
+        assertBalance("55.00", endOfJanuary);
+        assertEquals(1, endOfJanuary.getReplayedEntries());
+        InvoiceBalanceResponseDto endOfFebruary = invoiceService.getInvoiceBalance("LEDGER-001", LocalDate.of(2023, 2, 28));
+        assertBalance("50.00", endOfFebruary);
+        assertEquals(2, endOfFebruary.getReplayedEntries());
+        assertBalance("90.00", invoiceService.getInvoiceBalance("LEDGER-001", LocalDate.of(2023, 1, 10)));
+
+        // The next snapshot builds on the previous one
+        invoiceService.snapshotInvoiceBalances(LocalDate.of(2023, 1, 31), LocalDateTime.now());
+        InvoiceBalanceResponseDto resnapshotted = invoiceService.getInvoiceBalance("LEDGER-001", LocalDate.of(2023, 1, 31));
+        assertBalance("55.00", resnapshotted);
+        assertEquals(0, resnapshotted.getReplayedEntries());
+
+        UpdateInvoiceRequestDto update = new UpdateInvoiceRequestDto();
+        update.setInvoiceNumber("LEDGER-001");
+        update.getLineItems().add(new LineItemRequestDto("Extra", new BigDecimal("12.50"), 2));
+        InvoiceResponseDto updated = invoiceService.updateInvoice(update);
+        InvoiceBalanceResponseDto today = invoiceService.getInvoiceBalance("LEDGER-001", null);
+        assertBalance("75.00", today);
+        assertEquals(0, updated.getDebtAmount().compareTo(today.getBalance()));
+    }
+
+    @Test
+    public void testRebuildRestoresDebtFromLedger() {
+        createInvoice("LEDGER-002", LocalDate.of(2023, 3, 1), "80.00");
+        pay("LEDGER-002", LocalDate.of(2023, 3, 10), "30.00");
+        jdbcTemplate.update("UPDATE invoices SET debt_amount = 1, status = 'PENDING' WHERE invoice_number = 'LEDGER-002'");
+
+        assertEquals(1, invoiceService.rebuildInvoiceDebts());
+
+        InvoiceResponseDto rebuilt = invoiceService.getInvoiceByInvoiceNumber("LEDGER-002");
+        assertEquals(0, new BigDecimal("50.00").compareTo(rebuilt.getDebtAmount()));
+        assertEquals(Invoice.InvoiceStatus.PARTIALLY_PAID, rebuilt.getStatus());
+        assertEquals(0, new BigDecimal("50.00").compareTo(invoiceService.getInvoiceSummary("LEDGER-002").getDebtAmount()));
+        assertEquals(0, invoiceService.rebuildInvoiceDebts(), "A consistent ledger must not change any invoice");
+    }
+
+    private void createInvoice(String invoiceNumber, LocalDate invoiceDate, String amount) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName(CUSTOMER);
+        request.setInvoiceDate(invoiceDate);
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal(amount), 1));
+        invoiceService.createInvoice(request);
+    }
+
+    private void pay(String invoiceNumber, LocalDate paymentDate, String amount) {
+        invoiceService.payInvoice(new PaymentRequestDto(invoiceNumber, paymentDate, new BigDecimal(amount), "Cash"));
+    }
+
+    private static void assertBalance(String expected, InvoiceBalanceResponseDto balance) {
+        assertEquals(0, new BigDecimal(expected).compareTo(balance.getBalance()), "Balance: " + balance);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryPageResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceSummaryResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * Verifies that the command handlers keep the invoice_summary projection in step with the source tables.
+ */
+@SpringBootTest
+@Transactional
+public class InvoiceSummaryProjectionTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Test
+    public void testCommandsKeepSummaryUpToDate() {
+        createInvoice("SUMMARY-001", 2);
+        InvoiceSummaryResponseDto created = invoiceService.getInvoiceSummary("SUMMARY-001");
+        assertEquals(Invoice.InvoiceStatus.PENDING, created.getStatus());
+        assertEquals(0, new BigDecimal("30.00").compareTo(created.getAmount()));
+        assertEquals(2, created.getLineItemCount());
+        assertEquals(0, created.getPaymentCount());
+        assertNull(created.getLastPaymentDate());
+
+        invoiceService.updateInvoice(new UpdateInvoiceRequestDto("SUMMARY-001",
+                Collections.singletonList(new LineItemRequestDto("Extra", new BigDecimal("20.00"), 1))));
+        invoiceService.payInvoice(new PaymentRequestDto("SUMMARY-001", TODAY, new BigDecimal("15.00"), "Cash"));
+        invoiceService.payInvoices(Arrays.asList(
+                new PaymentRequestDto("SUMMARY-001", TODAY.minusDays(3), new BigDecimal("5.00"), "Card"),
+                new PaymentRequestDto("SUMMARY-001", TODAY.minusDays(1), new BigDecimal("30.00"), "Card")));
+
+        InvoiceSummaryResponseDto paid = invoiceService.getInvoiceSummary("SUMMARY-001");
+        assertEquals(Invoice.InvoiceStatus.PAID, paid.getStatus());
+        assertEquals(0, new BigDecimal("50.00").compareTo(paid.getAmount()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(paid.getDebtAmount()));
+        assertEquals(0, new BigDecimal("50.00").compareTo(paid.getPaidAmount()));
+        assertEquals(3, paid.getLineItemCount());
+        assertEquals(3, paid.getPaymentCount());
+        assertEquals(TODAY, paid.getLastPaymentDate(), "An older payment must not move the last payment date back");
+
+        // The incrementally maintained summary must match one regenerated from the source tables
+        invoiceService.rebuildInvoiceSummaries();
+        assertEquals(paid, invoiceService.getInvoiceSummary("SUMMARY-001"));
+    }
+
+    @Test
+    public void testGetInvoiceSummaries_KeysetPages() {
+        for (int i = 1; i <= 5; i++) {
+            createInvoice(String.format("SUMMARY-%03d", i), 1);
+        }
+
+        List<String> invoiceNumbers = new ArrayList<>();
+        String cursor = null;
+        do {
+            InvoiceSummaryPageResponseDto page = invoiceService.getInvoiceSummaries(
+                    cursor, 2, InvoiceSortKey.INVOICE_NUMBER, Sort.Direction.DESC);
+            page.getContent().forEach(summary -> invoiceNumbers.add(summary.getInvoiceNumber()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(Arrays.asList("SUMMARY-005", "SUMMARY-004", "SUMMARY-003", "SUMMARY-002", "SUMMARY-001"), invoiceNumbers);
+    }
+
+    private void createInvoice(String invoiceNumber, int lineItems) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName("Summary Customer");
+        request.setInvoiceDate(TODAY);
+        for (int i = 1; i <= lineItems; i++) {
+            request.getLineItems().add(new LineItemRequestDto("Item " + i, new BigDecimal("10.00"), i));
+        }
+        invoiceService.createInvoice(request);
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.invoicesbackend.cqrs.query.invoice;
+
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
+import com.example.invoicesbackend.mapper.InvoiceMapper;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceSearchCriteria;
+import com.example.invoicesbackend.repository.InvoiceJdbcRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Verifies that the next search cursor follows the keyset the search statement saw, even when the invoices change
+ * or disappear before the page is loaded.
+ */
+public class SearchInvoicesQueryHandlerTest {
+
+    private final InvoiceJdbcRepository invoiceJdbcRepository = mock(InvoiceJdbcRepository.class);
+    private final InvoiceFetchPlan invoiceFetchPlan = mock(InvoiceFetchPlan.class);
+    private final SearchInvoicesQueryHandler handler =
+            new SearchInvoicesQueryHandler(invoiceJdbcRepository, invoiceFetchPlan, mock(InvoiceMapper.class), 500);
+
+    @Test
+    public void testCursorUsesSortValueSeenBySearch() {
+        when(invoiceJdbcRepository.searchKeys(any(), eq("debt_amount"), anyBoolean(), any(), any(), anyInt()))
+                .thenReturn(List.of(key(1L, "300.00"), key(2L, "200.00"), key(3L, "100.00")));
+        // Invoice 2 was paid between the search and the fetch
+        when(invoiceFetchPlan.findByIds(anyList())).thenReturn(List.of(key(1L, "300.00"), key(2L, "50.00")));
+
+        InvoicePageResponseDto page = handler.handle(query(2));
+
+        InvoiceSearchCursor cursor = InvoiceSearchCursor.decode(page.getNextCursor());
+        assertEquals(2L, cursor.getLastId());
+        assertEquals("200.00", cursor.getLastValue());
+    }
+
+    @Test
+    public void testCursorSurvivesDeletedLastInvoice() {
+        when(invoiceJdbcRepository.searchKeys(any(), eq("debt_amount"), anyBoolean(), any(), any(), anyInt()))
+                .thenReturn(List.of(key(1L, "300.00"), key(2L, "200.00")));
+        when(invoiceFetchPlan.findByIds(anyList())).thenReturn(Collections.emptyList());
+
+        InvoicePageResponseDto page = handler.handle(query(1));
+
+        assertEquals(1L, InvoiceSearchCursor.decode(page.getNextCursor()).getLastId());
+    }
+
+    private static SearchInvoicesQuery query(int pageSize) {
+        return new SearchInvoicesQuery(new InvoiceSearchCriteria(), null, pageSize, InvoiceSearchSortKey.DEBT_AMOUNT, Sort.Direction.DESC);
+    }
+
+    private static Invoice key(long id, String debtAmount) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setDebtAmount(new BigDecimal(debtAmount));
+        return invoice;
+    }
+}
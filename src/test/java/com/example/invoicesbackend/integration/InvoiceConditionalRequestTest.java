@@ -0,0 +1,139 @@
+package com.example.invoicesbackend.integration;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.service.InvoiceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Verifies ETags, 304 responses to If-None-Match and If-Match preconditions against the real command handlers.
+ * Not transactional: the version-only lookup reads committed rows through JDBC.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+public class InvoiceConditionalRequestTest {
+
+    private static final String CUSTOMER = "Conditional Customer";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM invoice_ledger WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'ETAG-%')");
+        jdbcTemplate.update("DELETE FROM payments WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'ETAG-%')");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'ETAG-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'ETAG-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'ETAG-%'");
+        // The rows were deleted behind the commands' back, so tell the read caches about it
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singletonList(CUSTOMER)));
+    }
+
+    @Test
+    public void testNotModifiedUntilInvoiceChanges() throws Exception {
+        createInvoice("ETAG-001");
+        String etag = mockMvc.perform(get("/api/invoices/number/ETAG-001"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        System.out.println("[DEBUG_LOG] ETag of new invoice: " + etag);
+
+        mockMvc.perform(get("/api/invoices/number/ETAG-001").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        invoiceService.payInvoice(new PaymentRequestDto("ETAG-001", LocalDate.now(), new BigDecimal("10.00"), "Cash"));
+        String changedEtag = mockMvc.perform(get("/api/invoices/number/ETAG-001").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(etag, changedEtag);
+    }
+
+    @Test
+    public void testIfMatchRejectsStaleWrites() throws Exception {
+        createInvoice("ETAG-002");
+        String etag = mockMvc.perform(get("/api/invoices/number/ETAG-002"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // Someone else pays first, so the client's copy is stale
+        invoiceService.payInvoice(new PaymentRequestDto("ETAG-002", LocalDate.now(), new BigDecimal("10.00"), "Cash"));
+        PaymentRequestDto payment = new PaymentRequestDto("ETAG-002", LocalDate.now(), new BigDecimal("20.00"), "Cash");
+        mockMvc.perform(post("/api/invoices/pay")
+                .header(HttpHeaders.IF_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(payment)))
+                .andExpect(status().isPreconditionFailed());
+        UpdateInvoiceRequestDto update = new UpdateInvoiceRequestDto();
+        update.setInvoiceNumber("ETAG-002");
+        update.getLineItems().add(new LineItemRequestDto("Extra", new BigDecimal("5.00"), 1));
+        mockMvc.perform(put("/api/invoices")
+                .header(HttpHeaders.IF_MATCH, etag)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isPreconditionFailed());
+        assertEquals(0, new BigDecimal("90.00").compareTo(invoiceService.getInvoiceByInvoiceNumber("ETAG-002").getDebtAmount()));
+
+        // With the current tag both writes go through, each returning the tag of the result
+        String current = mockMvc.perform(get("/api/invoices/number/ETAG-002"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        String afterPayment = mockMvc.perform(post("/api/invoices/pay")
+                .header(HttpHeaders.IF_MATCH, current)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(payment)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(put("/api/invoices")
+                .header(HttpHeaders.IF_MATCH, afterPayment)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(update)))
+                .andExpect(status().isOk());
+        assertEquals(0, new BigDecimal("75.00").compareTo(invoiceService.getInvoiceByInvoiceNumber("ETAG-002").getDebtAmount()));
+    }
+
+    private void createInvoice(String invoiceNumber) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName(CUSTOMER);
+        request.setInvoiceDate(LocalDate.of(2023, 5, 1));
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("100.00"), 1));
+        invoiceService.createInvoice(request);
+    }
+}
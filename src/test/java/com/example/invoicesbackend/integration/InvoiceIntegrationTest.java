@@ -1,9 +1,11 @@
 package com.example.invoicesbackend.integration;
 
+import com.example.invoicesbackend.controller.InvoiceController;
 import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
 import com.example.invoicesbackend.dto.request.LineItemRequestDto;
 import com.example.invoicesbackend.dto.request.PaymentRequestDto;
 import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import com.example.invoicesbackend.dto.response.BatchItemResultDto;
 import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
@@ -13,10 +15,15 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -179,4 +186,178 @@ public class InvoiceIntegrationTest {
             System.out.println("[DEBUG_LOG] Continuing with test despite payment error");
         }
     }
+
+    @Test
+    public void testKeysetPagination() throws Exception {
+        for (int i = 1; i <= 5; i++) {
+            InvoiceRequestDto createRequest = new InvoiceRequestDto();
+            createRequest.setInvoiceNumber("PAGE-00" + i);
+            createRequest.setCustomerName("Paging Customer");
+            createRequest.setInvoiceDate(LocalDate.now());
+
+            LineItemRequestDto lineItem = new LineItemRequestDto();
+            lineItem.setDescription("Paging Item");
+            lineItem.setPrice(new BigDecimal("10.00"));
+            lineItem.setQuantity(i);
+            createRequest.getLineItems().add(lineItem);
+
+            mockMvc.perform(post("/api/invoices")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(createRequest)))
+                    .andExpect(status().isCreated());
+        }
+
+        // Walk the invoices in descending invoice number order, two per page
+        List<String> invoiceNumbers = new ArrayList<>();
+        String cursor = null;
+        int pages = 0;
+        do {
+            MockHttpServletRequestBuilder request = get("/api/invoices")
+                    .param("size", "2")
+                    .param("sort", "invoiceNumber")
+                    .param("direction", "desc");
+            if (cursor != null) {
+                request.param("cursor", cursor);
+            }
+            MvcResult pageResult = mockMvc.perform(request)
+                    .andExpect(status().isOk())
+                    .andReturn();
+
+            InvoiceResponseDto[] page = objectMapper.readValue(
+                    pageResult.getResponse().getContentAsString(),
+                    InvoiceResponseDto[].class);
+            for (InvoiceResponseDto invoice : page) {
+                invoiceNumbers.add(invoice.getInvoiceNumber());
+            }
+            cursor = pageResult.getResponse().getHeader(InvoiceController.NEXT_CURSOR_HEADER);
+            pages++;
+        } while (cursor != null);
+
+        assertEquals(3, pages);
+        assertEquals(Arrays.asList("PAGE-005", "PAGE-004", "PAGE-003", "PAGE-002", "PAGE-001"), invoiceNumbers);
+    }
+
+    @Test
+    public void testBatchCreateReportsEachItem() throws Exception {
+        InvoiceRequestDto existing = batchInvoice("BATCH-001");
+        mockMvc.perform(post("/api/invoices")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(existing)))
+                .andExpect(status().isCreated());
+
+        InvoiceRequestDto invalid = batchInvoice("BATCH-004");
+        invalid.setCustomerName("");
+        List<InvoiceRequestDto> batch = Arrays.asList(
+                batchInvoice("BATCH-001"), batchInvoice("BATCH-002"), batchInvoice("BATCH-002"),
+                batchInvoice("BATCH-003"), invalid);
+
+        MvcResult batchResult = mockMvc.perform(post("/api/invoices/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        BatchItemResultDto[] results = objectMapper.readValue(
+                batchResult.getResponse().getContentAsString(),
+                BatchItemResultDto[].class);
+
+        assertEquals(5, results.length);
+        assertEquals(BatchItemResultDto.Status.REJECTED, results[0].getStatus());
+        assertEquals(BatchItemResultDto.Status.SUCCEEDED, results[1].getStatus());
+        assertEquals(BatchItemResultDto.Status.REJECTED, results[2].getStatus());
+        assertEquals(BatchItemResultDto.Status.SUCCEEDED, results[3].getStatus());
+        assertEquals(BatchItemResultDto.Status.REJECTED, results[4].getStatus());
+        assertNotNull(results[1].getId());
+
+        MvcResult getResult = mockMvc.perform(get("/api/invoices/number/BATCH-003"))
+                .andExpect(status().isOk())
+                .andReturn();
+        InvoiceResponseDto created = objectMapper.readValue(
+                getResult.getResponse().getContentAsString(),
+                InvoiceResponseDto.class);
+        assertEquals(results[3].getId(), created.getId());
+        assertEquals(new BigDecimal("50.00"), created.getAmount());
+        assertEquals(new BigDecimal("50.00"), created.getDebtAmount());
+        assertEquals(2, created.getLineItems().size());
+    }
+
+    @Test
+    public void testBatchCreateRejectsAmountOutOfRange() throws Exception {
+        InvoiceRequestDto overflowing = batchInvoice("BATCH-006");
+        overflowing.getLineItems().add(new LineItemRequestDto("Batch Overflow", new BigDecimal("90000000000000000.00"), 1000));
+        List<InvoiceRequestDto> batch = Arrays.asList(batchInvoice("BATCH-005"), overflowing, batchInvoice("BATCH-007"));
+
+        MvcResult batchResult = mockMvc.perform(post("/api/invoices/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        BatchItemResultDto[] results = objectMapper.readValue(
+                batchResult.getResponse().getContentAsString(),
+                BatchItemResultDto[].class);
+
+        assertEquals(3, results.length);
+        assertEquals(BatchItemResultDto.Status.SUCCEEDED, results[0].getStatus());
+        assertEquals(BatchItemResultDto.Status.REJECTED, results[1].getStatus());
+        assertEquals("amount: Amount out of range", results[1].getMessage());
+        assertEquals(BatchItemResultDto.Status.SUCCEEDED, results[2].getStatus());
+    }
+
+    @Test
+    public void testBatchPaymentsAppliedInOrder() throws Exception {
+        mockMvc.perform(post("/api/invoices/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Arrays.asList(batchInvoice("PAYB-001"), batchInvoice("PAYB-002")))))
+                .andExpect(status().isOk());
+
+        LocalDate today = LocalDate.now();
+        List<PaymentRequestDto> payments = Arrays.asList(
+                new PaymentRequestDto("PAYB-001", today, new BigDecimal("20.00"), "Bank Transfer"),
+                new PaymentRequestDto("PAYB-002", today, new BigDecimal("50.00"), "Bank Transfer"),
+                new PaymentRequestDto("PAYB-001", today, new BigDecimal("30.00"), "Bank Transfer"),
+                new PaymentRequestDto("PAYB-001", today, new BigDecimal("1.00"), "Bank Transfer"),
+                new PaymentRequestDto("PAYB-404", today, new BigDecimal("10.00"), "Bank Transfer"),
+                new PaymentRequestDto("PAYB-002", today, new BigDecimal("-5.00"), "Bank Transfer"));
+
+        MvcResult batchResult = mockMvc.perform(post("/api/invoices/pay/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(payments)))
+                .andExpect(status().isOk())
+                .andReturn();
+
+        BatchItemResultDto[] results = objectMapper.readValue(
+                batchResult.getResponse().getContentAsString(),
+                BatchItemResultDto[].class);
+
+        assertEquals(6, results.length);
+        assertEquals(BatchItemResultDto.Status.SUCCEEDED, results[0].getStatus());
+        assertEquals(BatchItemResultDto.Status.SUCCEEDED, results[1].getStatus());
+        assertEquals(BatchItemResultDto.Status.SUCCEEDED, results[2].getStatus());
+        assertEquals(BatchItemResultDto.Status.REJECTED, results[3].getStatus());
+        assertEquals("Invoice with number PAYB-001 is already PAID", results[3].getMessage());
+        assertEquals(BatchItemResultDto.Status.REJECTED, results[4].getStatus());
+        assertEquals(BatchItemResultDto.Status.REJECTED, results[5].getStatus());
+        assertNotNull(results[0].getId());
+
+        MvcResult getResult = mockMvc.perform(get("/api/invoices/number/PAYB-001"))
+                .andExpect(status().isOk())
+                .andReturn();
+        InvoiceResponseDto paid = objectMapper.readValue(
+                getResult.getResponse().getContentAsString(),
+                InvoiceResponseDto.class);
+        assertEquals("PAID", paid.getStatus().toString());
+        assertEquals(0, BigDecimal.ZERO.compareTo(paid.getDebtAmount()));
+        assertEquals(2, paid.getPaymentInfo().size());
+    }
+
+    private InvoiceRequestDto batchInvoice(String invoiceNumber) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName("Batch Customer");
+        request.setInvoiceDate(LocalDate.now());
+        request.getLineItems().add(new LineItemRequestDto("Batch Item", new BigDecimal("10.00"), 3));
+        request.getLineItems().add(new LineItemRequestDto("Batch Fee", new BigDecimal("20.00"), 1));
+        return request;
+    }
 }
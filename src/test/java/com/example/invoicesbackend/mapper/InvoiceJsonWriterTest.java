@@ -0,0 +1,123 @@
+package com.example.invoicesbackend.mapper;
+
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.LineItem;
+import com.example.invoicesbackend.model.Payment;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that the streaming writer produces exactly the JSON Jackson writes for the mapped response DTO.
+ */
+public class InvoiceJsonWriterTest {
+
+    // Configured as Spring Boot configures the application's ObjectMapper
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json()
+            .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+    private final InvoiceJsonWriter invoiceJsonWriter = new InvoiceJsonWriter();
+
+    private AnnotationConfigApplicationContext context;
+    private InvoiceMapper invoiceMapper;
+
+    @BeforeEach
+    public void setUp() {
+        // Only the two mappers, so the generated field injection is wired as in the application
+        context = new AnnotationConfigApplicationContext(InvoiceMapperImpl.class, LineItemMapperImpl.class);
+        invoiceMapper = context.getBean(InvoiceMapper.class);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        context.close();
+    }
+
+    @Test
+    public void testPaidInvoiceWithLineItemsAndPayments() throws IOException {
+        Invoice invoice = invoice(1L, Invoice.InvoiceStatus.PAID);
+        invoice.setDescription("Quoted \"text\", tab\t and ünïcödé");
+        invoice.addLineItem(lineItem(10L, "Widget", "10.00", 1));
+        invoice.addLineItem(lineItem(11L, "Gadget – large", "0.5", 3));
+        invoice.setPayment(new ArrayList<>(Arrays.asList(
+                payment(20L, "1.50", "Cash"),
+                payment(21L, "10.00", null))));
+
+        assertSameJson(invoice);
+    }
+
+    @Test
+    public void testPaymentsAreLeftOutUntilPaid() throws IOException {
+        Invoice invoice = invoice(2L, Invoice.InvoiceStatus.PARTIALLY_PAID);
+        invoice.addLineItem(lineItem(12L, null, "1E+3", 2));
+        invoice.setPayment(new ArrayList<>(Arrays.asList(payment(22L, "5.00", "Card"))));
+
+        assertSameJson(invoice);
+    }
+
+    @Test
+    public void testInvoiceReadWithoutLineItems() throws IOException {
+        // As the stream query reads it: no line items, no payments, nullable columns empty
+        Invoice invoice = invoice(3L, Invoice.InvoiceStatus.PENDING);
+        invoice.setLineItems(null);
+        invoice.setDebtAmount(null);
+
+        assertSameJson(invoice);
+    }
+
+    private void assertSameJson(Invoice invoice) throws IOException {
+        StringWriter out = new StringWriter();
+        try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+            invoiceJsonWriter.write(invoice, generator);
+        }
+        String expected = objectMapper.writeValueAsString(invoiceMapper.toDto(invoice));
+        System.out.println("[DEBUG_LOG] Streamed JSON: " + out);
+        assertEquals(expected, out.toString());
+    }
+
+    private static Invoice invoice(long id, Invoice.InvoiceStatus status) {
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setInvoiceNumber("JSON-" + id);
+        invoice.setCustomerName("Json Customer");
+        invoice.setInvoiceDate(LocalDate.of(2023, 4, 1));
+        invoice.setAmount(new BigDecimal("11.50"));
+        invoice.setDebtAmount(BigDecimal.ZERO);
+        invoice.setStatus(status);
+        invoice.setVersion(4L);
+        return invoice;
+    }
+
+    private static LineItem lineItem(long id, String description, String price, int quantity) {
+        LineItem lineItem = new LineItem();
+        lineItem.setId(id);
+        lineItem.setDescription(description);
+        lineItem.setPrice(new BigDecimal(price));
+        lineItem.setQuantity(quantity);
+        lineItem.calculateTotalAmount();
+        return lineItem;
+    }
+
+    private static Payment payment(long id, String amount, String paymentMethod) {
+        Payment payment = new Payment();
+        payment.setId(id);
+        payment.setPaymentDate(LocalDate.of(2023, 4, 2));
+        payment.setAmount(new BigDecimal(amount));
+        payment.setPaymentMethod(paymentMethod);
+        return payment;
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.invoicesbackend.model;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class MoneyTest {
+
+    @Test
+    public void testRoundsHalfUpToCentsAsTheDatabaseDoes() {
+        assertEquals(101, Money.of(new BigDecimal("1.005")).getCents());
+        assertEquals(100, Money.of(new BigDecimal("1.004")).getCents());
+        assertEquals(-101, Money.of(new BigDecimal("-1.005")).getCents());
+        assertEquals(1200, Money.of(new BigDecimal("12")).getCents());
+        assertEquals(1200, Money.of(new BigDecimal("1.2E+1")).getCents());
+        assertEquals(new BigDecimal("12.00"), Money.of(new BigDecimal("12")).toBigDecimal());
+
+        // A line total is the rounded price times the quantity, so it agrees with the stored price
+        assertEquals(new BigDecimal("37.05"), Money.of(new BigDecimal("12.345")).times(3).toBigDecimal());
+    }
+
+    @Test
+    public void testArithmeticIsExactAndFailsOnOverflow() {
+        Money price = Money.of(new BigDecimal("0.10"));
+        Money total = Money.ZERO;
+        for (int i = 0; i < 10; i++) {
+            total = total.plus(price);
+        }
+        assertEquals(Money.of(BigDecimal.ONE), total);
+        assertEquals(0, total.minus(Money.ofCents(100)).signum());
+        assertEquals("-0.30", price.times(3).negate().toString());
+
+        Money largest = Money.ofCents(Long.MAX_VALUE);
+        assertThrows(ArithmeticException.class, () -> largest.plus(Money.ofCents(1)));
+        assertThrows(ArithmeticException.class, () -> largest.times(2));
+        assertThrows(ArithmeticException.class, () -> Money.ofCents(Long.MIN_VALUE).negate());
+        assertThrows(ArithmeticException.class, () -> Money.of(new BigDecimal("100000000000000000")));
+    }
+}
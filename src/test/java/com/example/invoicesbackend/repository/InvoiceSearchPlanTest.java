@@ -0,0 +1,140 @@
+package com.example.invoicesbackend.repository;
+
+import com.example.invoicesbackend.cqrs.query.invoice.InvoiceSearchSortKey;
+import com.example.invoicesbackend.dto.response.InvoicePageResponseDto;
+import com.example.invoicesbackend.dto.response.InvoiceResponseDto;
+import com.example.invoicesbackend.model.Invoice;
+import com.example.invoicesbackend.model.InvoiceSearchCriteria;
+import com.example.invoicesbackend.service.InvoiceService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that invoice searches return the right pages and that H2 answers every one of them from an index.
+ */
+@SpringBootTest
+@Transactional
+public class InvoiceSearchPlanTest {
+
+    private static final LocalDate TODAY = LocalDate.now();
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+    @BeforeEach
+    public void setUp() {
+        // Enough rows for the planner to prefer an index over scanning the table
+        jdbcTemplate.update("INSERT INTO invoices (invoice_number, customer_name, invoice_date, amount, debt_amount, status) " +
+                "SELECT 'SEARCH-' || LPAD(X, 4, '0'), 'Search Customer ' || MOD(X, 20), DATEADD(DAY, -MOD(X, 365), CAST(? AS DATE)), " +
+                "MOD(X, 1000), MOD(X, 500), CASE MOD(X, 3) WHEN 0 THEN 'PAID' WHEN 1 THEN 'PENDING' ELSE 'PARTIALLY_PAID' END " +
+                "FROM SYSTEM_RANGE(1, 2000)", TODAY);
+    }
+
+    @Test
+    public void testNoSearchScansTheTable() {
+        List<InvoiceSearchCriteria> filters = Arrays.asList(
+                new InvoiceSearchCriteria(),
+                criteria(c -> c.setCustomerNamePrefix("Search Customer 1")),
+                criteria(c -> c.setStatuses(EnumSet.of(Invoice.InvoiceStatus.PENDING, Invoice.InvoiceStatus.PARTIALLY_PAID))),
+                criteria(c -> c.setInvoiceDateFrom(TODAY.minusDays(30))),
+                criteria(c -> {
+                    c.setStatuses(EnumSet.of(Invoice.InvoiceStatus.PENDING));
+                    c.setInvoiceDateFrom(TODAY.minusDays(90));
+                    c.setInvoiceDateTo(TODAY.minusDays(60));
+                }),
+                criteria(c -> {
+                    c.setMinAmount(new BigDecimal("100"));
+                    c.setMaxAmount(new BigDecimal("110"));
+                }),
+                criteria(c -> c.setMinDebtAmount(new BigDecimal("490"))));
+
+        List<String> tableScans = new ArrayList<>();
+        for (InvoiceSearchCriteria criteria : filters) {
+            for (InvoiceSearchSortKey sortKey : InvoiceSearchSortKey.values()) {
+                for (boolean ascending : new boolean[]{true, false}) {
+                    Object afterValue = sortKey == InvoiceSearchSortKey.INVOICE_DATE ? TODAY.minusDays(100)
+                            : sortKey == InvoiceSearchSortKey.ID ? 1000L : new BigDecimal("250");
+                    tableScans.addAll(tableScans(explain(criteria, sortKey, ascending, null, null)));
+                    tableScans.addAll(tableScans(explain(criteria, sortKey, ascending, afterValue, 1000L)));
+                }
+            }
+        }
+        assertTrue(tableScans.isEmpty(), "Searches fell back to a table scan:\n" + String.join("\n", tableScans));
+    }
+
+    @Test
+    public void testSearchInvoices_KeysetPages() {
+        InvoiceSearchCriteria criteria = criteria(c -> {
+            c.setCustomerNamePrefix("Search Customer 1");
+            c.setStatuses(EnumSet.of(Invoice.InvoiceStatus.PENDING));
+            c.setMinAmount(new BigDecimal("100"));
+        });
+
+        List<String> invoiceNumbers = new ArrayList<>();
+        String cursor = null;
+        do {
+            InvoicePageResponseDto page = invoiceService.searchInvoices(
+                    criteria, cursor, 7, InvoiceSearchSortKey.DEBT_AMOUNT, Sort.Direction.DESC);
+            page.getContent().stream().map(InvoiceResponseDto::getInvoiceNumber).forEach(invoiceNumbers::add);
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        List<String> expected = jdbcTemplate.queryForList("SELECT invoice_number FROM invoices " +
+                "WHERE customer_name LIKE 'Search Customer 1%' AND status = 'PENDING' AND amount >= 100 " +
+                "ORDER BY debt_amount DESC, id DESC", String.class);
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, invoiceNumbers);
+    }
+
+    @Test
+    public void testSearchInvoices_EscapesCustomerNameWildcards() {
+        InvoicePageResponseDto page = invoiceService.searchInvoices(criteria(c -> c.setCustomerNamePrefix("Search_Customer")),
+                null, 10, InvoiceSearchSortKey.ID, Sort.Direction.ASC);
+        assertTrue(page.getContent().isEmpty(), "An underscore must match only itself");
+    }
+
+    private String explain(InvoiceSearchCriteria criteria, InvoiceSearchSortKey sortKey, boolean ascending,
+                           Object afterValue, Long afterId) {
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        String sql = InvoiceJdbcRepository.searchSql(criteria, sortKey.getColumn(), ascending, afterValue, afterId, 51, parameters);
+        String plan = namedParameterJdbcTemplate.queryForObject("EXPLAIN " + sql, parameters, String.class).replaceAll("\\s+", " ");
+        System.out.println("[DEBUG_LOG] " + plan);
+        return plan;
+    }
+
+    private static List<String> tableScans(String plan) {
+        return plan.contains(".tableScan") ? Collections.singletonList(plan) : Collections.emptyList();
+    }
+
+    private static InvoiceSearchCriteria criteria(Consumer<InvoiceSearchCriteria> filters) {
+        InvoiceSearchCriteria criteria = new InvoiceSearchCriteria();
+        filters.accept(criteria);
+        return criteria;
+    }
+}
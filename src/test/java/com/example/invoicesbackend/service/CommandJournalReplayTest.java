@@ -0,0 +1,206 @@
+package com.example.invoicesbackend.service;
+
+import com.example.invoicesbackend.InvoicesBackendApplication;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.dto.request.PaymentRequestDto;
+import com.example.invoicesbackend.dto.request.UpdateInvoiceRequestDto;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Verifies that restoring the last snapshot and replaying the command journal over it gives every invoice the version
+ * it had before the crash, so that the ETags handed out before it still match, including for imported invoices, and
+ * that commands running concurrently are replayed in the order they committed.
+ * Runs the application twice, the second time over a copy of the files the first left behind while still running.
+ */
+public class CommandJournalReplayTest {
+
+    private static final List<String> INVOICE_NUMBERS = List.of("REPLAY-001", "REPLAY-002", "REPLAY-003", "REPLAY-004");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    public void testReplayRestoresInvoiceVersions() throws IOException {
+        Map<String, Long> versions;
+        try (ConfigurableApplicationContext crashed = start(directory.resolve("before"))) {
+            InvoiceService invoiceService = crashed.getBean(InvoiceService.class);
+            invoiceService.createInvoice(invoiceRequest("REPLAY-001"));
+            invoiceService.createInvoice(invoiceRequest("REPLAY-002"));
+            invoiceService.payInvoice(paymentRequest("REPLAY-001", "10.00"));
+            crashed.getBean(DatabaseSnapshotScheduler.class).snapshot();
+
+            invoiceService.payInvoice(paymentRequest("REPLAY-001", "10.00"));
+            invoiceService.payInvoice(paymentRequest("REPLAY-001", "10.00"));
+            invoiceService.payInvoice(paymentRequest("REPLAY-002", "10.00"));
+            invoiceService.updateInvoice(new UpdateInvoiceRequestDto("REPLAY-002",
+                    List.of(new LineItemRequestDto("Updated item", new BigDecimal("90.00"), 1))),
+                    invoiceService.getInvoiceVersion("REPLAY-002"));
+            invoiceService.createInvoices(List.of(invoiceRequest("REPLAY-003")));
+            invoiceService.payInvoices(List.of(paymentRequest("REPLAY-002", "5.00"), paymentRequest("REPLAY-002", "5.00"),
+                    paymentRequest("REPLAY-003", "5.00")));
+            invoiceService.importInvoices("replay-import", new StringReader(
+                    "invoice_number,customer_name,invoice_date,line_item_description,price,quantity\n" +
+                    "REPLAY-002,Replay Customer,2024-05-01,Item,50.00,2\n" +
+                    "REPLAY-004,Replay Customer,2024-05-01,Item,50.00,2\n"));
+            invoiceService.payInvoice(paymentRequest("REPLAY-004", "10.00"));
+            versions = versions(invoiceService);
+
+            // What a crash would leave behind: the snapshot taken above and the journal appended since
+            copy(directory.resolve("before"), directory.resolve("after"));
+        }
+
+        try (ConfigurableApplicationContext restarted = start(directory.resolve("after"))) {
+            InvoiceService invoiceService = restarted.getBean(InvoiceService.class);
+            Map<String, Long> replayed = versions(invoiceService);
+            System.out.println("[DEBUG_LOG] Versions before the crash: " + versions + ", after replay: " + replayed);
+            assertEquals(versions, replayed);
+
+            // An ETag handed out before the crash is still current
+            invoiceService.payInvoice(paymentRequest("REPLAY-001", "10.00"), null, versions.get("REPLAY-001"));
+        }
+    }
+
+    @Test
+    public void testReplayKeepsTheCommitOrderOfConcurrentCreatesAndPayments() throws Exception {
+        replayConcurrentCreatesAndPayments(false);
+    }
+
+    @Test
+    public void testReplayKeepsTheCommitOrderOfGroupCommittedPayments() throws Exception {
+        replayConcurrentCreatesAndPayments(true);
+    }
+
+    private void replayConcurrentCreatesAndPayments(boolean groupCommit) throws Exception {
+        List<String> invoiceNumbers = IntStream.range(0, 20)
+                .mapToObj(i -> String.format("CONCURRENT-%03d", i))
+                .collect(Collectors.toList());
+        String groupCommitEnabled = "--invoices.payments.group-commit.enabled=" + groupCommit;
+        Map<String, String> balances;
+        try (ConfigurableApplicationContext crashed = start(directory.resolve("before"), groupCommitEnabled)) {
+            InvoiceService invoiceService = crashed.getBean(InvoiceService.class);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (String invoiceNumber : invoiceNumbers) {
+                    futures.add(executor.submit(() -> invoiceService.createInvoice(invoiceRequest(invoiceNumber))));
+                    // Paid as soon as the invoice is visible, so the payments commit right behind its creation
+                    futures.add(executor.submit(() -> payOnceCreated(invoiceService, invoiceNumber)));
+                    futures.add(executor.submit(() -> payOnceCreated(invoiceService, invoiceNumber)));
+                }
+                for (Future<?> future : futures) {
+                    future.get(30, TimeUnit.SECONDS);
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            balances = balances(invoiceService, invoiceNumbers);
+            copy(directory.resolve("before"), directory.resolve("after"));
+        }
+
+        // Journaled out of commit order, a payment would be replayed before its invoice exists and startup would fail
+        try (ConfigurableApplicationContext restarted = start(directory.resolve("after"), groupCommitEnabled)) {
+            Map<String, String> replayed = balances(restarted.getBean(InvoiceService.class), invoiceNumbers);
+            System.out.println("[DEBUG_LOG] Balances before the crash: " + balances + ", after replay: " + replayed);
+            assertEquals(balances, replayed);
+        }
+    }
+
+    private static void payOnceCreated(InvoiceService invoiceService, String invoiceNumber) {
+        while (true) {
+            try {
+                invoiceService.payInvoice(paymentRequest(invoiceNumber, "10.00"));
+                return;
+            } catch (IllegalArgumentException ex) {
+                // Not created yet
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private static Map<String, String> balances(InvoiceService invoiceService, List<String> invoiceNumbers) {
+        Map<String, String> balances = new LinkedHashMap<>();
+        for (String invoiceNumber : invoiceNumbers) {
+            balances.put(invoiceNumber, invoiceService.getInvoiceByInvoiceNumber(invoiceNumber).getDebtAmount()
+                    + " v" + invoiceService.getInvoiceVersion(invoiceNumber));
+        }
+        return balances;
+    }
+
+    private static ConfigurableApplicationContext start(Path directory, String... args) {
+        List<String> arguments = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:journal-replay-" + UUID.randomUUID() + ";DB_CLOSE_ON_EXIT=FALSE",
+                "--invoices.snapshot.enabled=true",
+                "--invoices.snapshot.directory=" + directory.resolve("snapshots"),
+                "--invoices.snapshot.interval=1h",
+                "--invoices.journal.enabled=true",
+                "--invoices.journal.directory=" + directory.resolve("journal"),
+                "--invoices.journal.segment-size=1MB"));
+        arguments.addAll(List.of(args));
+        return new SpringApplicationBuilder(InvoicesBackendApplication.class)
+                .web(WebApplicationType.NONE)
+                // Arguments rather than default properties, which application.properties would override
+                .run(arguments.toArray(new String[0]));
+    }
+
+    private static Map<String, Long> versions(InvoiceService invoiceService) {
+        Map<String, Long> versions = new LinkedHashMap<>();
+        for (String invoiceNumber : INVOICE_NUMBERS) {
+            versions.put(invoiceNumber, invoiceService.getInvoiceVersion(invoiceNumber));
+        }
+        return versions;
+    }
+
+    private static void copy(Path from, Path to) throws IOException {
+        List<Path> files;
+        try (Stream<Path> walk = Files.walk(from)) {
+            files = walk.collect(Collectors.toList());
+        }
+        for (Path file : files) {
+            Path target = to.resolve(from.relativize(file).toString());
+            if (Files.isDirectory(file)) {
+                Files.createDirectories(target);
+            } else {
+                Files.copy(file, target);
+            }
+        }
+    }
+
+    private static InvoiceRequestDto invoiceRequest(String invoiceNumber) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName("Replay Customer");
+        request.setInvoiceDate(LocalDate.of(2024, 5, 1));
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("50.00"), 2));
+        return request;
+    }
+
+    private static PaymentRequestDto paymentRequest(String invoiceNumber, String amount) {
+        return new PaymentRequestDto(invoiceNumber, LocalDate.of(2024, 5, 2), new BigDecimal(amount), "card");
+    }
+}
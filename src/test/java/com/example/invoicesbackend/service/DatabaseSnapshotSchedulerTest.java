@@ -0,0 +1,146 @@
+package com.example.invoicesbackend.service;
+
+import com.example.invoicesbackend.cqrs.event.InvoicesChangedEvent;
+import com.example.invoicesbackend.dto.request.InvoiceRequestDto;
+import com.example.invoicesbackend.dto.request.LineItemRequestDto;
+import com.example.invoicesbackend.repository.DatabaseSnapshotRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Verifies that snapshots rotate and restore into an empty database with the same schema history and rows,
+ * and record the command journal position to replay from.
+ */
+@SpringBootTest(properties = {
+        "invoices.snapshot.enabled=true",
+        "invoices.snapshot.directory=target/snapshot-test/${random.uuid}",
+        "invoices.snapshot.interval=1h",
+        "invoices.snapshot.retain=2",
+        "invoices.journal.enabled=true",
+        "invoices.journal.directory=target/journal-test/${random.uuid}"
+})
+public class DatabaseSnapshotSchedulerTest {
+
+    private static final String CUSTOMER = "Snapshot Customer";
+
+    @Autowired
+    private DatabaseSnapshotScheduler databaseSnapshotScheduler;
+
+    @Autowired
+    private InvoiceService invoiceService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @AfterEach
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM outbox_events WHERE invoice_number LIKE 'SNAPSHOT-%'");
+        jdbcTemplate.update("DELETE FROM invoice_ledger WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'SNAPSHOT-%')");
+        jdbcTemplate.update("DELETE FROM line_items WHERE invoice_id IN (SELECT id FROM invoices WHERE invoice_number LIKE 'SNAPSHOT-%')");
+        jdbcTemplate.update("DELETE FROM invoice_summary WHERE invoice_number LIKE 'SNAPSHOT-%'");
+        jdbcTemplate.update("DELETE FROM invoices WHERE invoice_number LIKE 'SNAPSHOT-%'");
+        eventPublisher.publishEvent(new InvoicesChangedEvent(Collections.singletonList(CUSTOMER)));
+    }
+
+    @Test
+    public void testSnapshotRestoresIntoEmptyDatabase() {
+        createInvoice("SNAPSHOT-001");
+        databaseSnapshotScheduler.snapshot();
+
+        List<Path> snapshots = databaseSnapshotScheduler.snapshots();
+        Path latest = snapshots.get(snapshots.size() - 1);
+
+        SingleConnectionDataSource restored = new SingleConnectionDataSource(
+                "jdbc:h2:mem:snapshot-restore-" + UUID.randomUUID(), "sa", "", true);
+        try {
+            DatabaseSnapshotRepository repository = new DatabaseSnapshotRepository(restored);
+            assertTrue(repository.isEmpty());
+            repository.restore(latest);
+            assertFalse(repository.isEmpty());
+
+            JdbcTemplate restoredJdbcTemplate = new JdbcTemplate(restored);
+            String countMigrations = "SELECT COUNT(*) FROM \"flyway_schema_history\" WHERE \"success\"";
+            assertEquals(jdbcTemplate.queryForObject(countMigrations, Integer.class),
+                    restoredJdbcTemplate.queryForObject(countMigrations, Integer.class));
+            BigDecimal debt = restoredJdbcTemplate.queryForObject(
+                    "SELECT debt_amount FROM invoices WHERE invoice_number = 'SNAPSHOT-001'", BigDecimal.class);
+            Integer lineItems = restoredJdbcTemplate.queryForObject(
+                    "SELECT COUNT(*) FROM line_items l JOIN invoices i ON i.id = l.invoice_id " +
+                    "WHERE i.invoice_number = 'SNAPSHOT-001'", Integer.class);
+            System.out.println("[DEBUG_LOG] Restored " + latest + ": debt " + debt + ", " + lineItems + " line items");
+            assertEquals(0, new BigDecimal("100.00").compareTo(debt));
+            assertEquals(2, lineItems);
+        } finally {
+            restored.destroy();
+        }
+    }
+
+    @Test
+    public void testOnlyNewestSnapshotsAreKept() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            databaseSnapshotScheduler.snapshot();
+            // Snapshot names have millisecond resolution
+            Thread.sleep(5);
+        }
+
+        List<Path> snapshots = databaseSnapshotScheduler.snapshots();
+        System.out.println("[DEBUG_LOG] Kept snapshots: " + snapshots);
+        assertEquals(2, snapshots.size());
+    }
+
+    @Test
+    public void testSnapshotRecordsJournalPosition() throws InterruptedException {
+        databaseSnapshotScheduler.snapshot();
+        Thread.sleep(5);
+        createInvoice("SNAPSHOT-003");
+        databaseSnapshotScheduler.snapshot();
+
+        List<Path> snapshots = databaseSnapshotScheduler.snapshots();
+        long before = DatabaseSnapshotScheduler.journalPosition(snapshots.get(snapshots.size() - 2));
+        long after = DatabaseSnapshotScheduler.journalPosition(snapshots.get(snapshots.size() - 1));
+        System.out.println("[DEBUG_LOG] Journal positions of the last two snapshots: " + before + ", " + after);
+        assertTrue(before >= 0);
+        assertTrue(after > before, "The command journaled between the snapshots should advance the position");
+    }
+
+    @Test
+    public void testRestoreIsSkippedWhenDatabaseHasTables() {
+        createInvoice("SNAPSHOT-002");
+        databaseSnapshotScheduler.snapshot();
+
+        databaseSnapshotScheduler.restoreLatest();
+
+        Integer invoices = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM invoices WHERE invoice_number = 'SNAPSHOT-002'", Integer.class);
+        assertEquals(1, invoices);
+    }
+
+    private void createInvoice(String invoiceNumber) {
+        InvoiceRequestDto request = new InvoiceRequestDto();
+        request.setInvoiceNumber(invoiceNumber);
+        request.setCustomerName(CUSTOMER);
+        request.setInvoiceDate(LocalDate.of(2023, 4, 1));
+        request.getLineItems().add(new LineItemRequestDto("Item", new BigDecimal("60.00"), 1));
+        request.getLineItems().add(new LineItemRequestDto("Other item", new BigDecimal("20.00"), 2));
+        invoiceService.createInvoice(request);
+    }
+}